@@ -0,0 +1,61 @@
+package com.zhouruojun.manus.benchmarks;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import org.bsc.langgraph4j.state.AgentState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AgentMessageState的构造和合并开销
+ * 合并使用与图执行相同的AgentState.updateState和通道定义（messages为追加通道）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentMessageStateBenchmark {
+
+    @Param({"4", "32"})
+    public int messageCount;
+
+    private AgentMessageState state;
+    private Map<String, Object> initialData;
+    private Map<String, Object> coordinatorUpdate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = BenchmarkStates.midRunState(messageCount);
+        initialData = BenchmarkStates.initialData("bench-run");
+        coordinatorUpdate = Map.of(
+            "currentAgent", "coordinator",
+            "next", "search",
+            "parallelActions", "",
+            "messages", AgentMessageState.createAiMessage("协调器: {\"action\": \"search\"}")
+        );
+    }
+
+    @Benchmark
+    public AgentMessageState construct() {
+        return new AgentMessageState(initialData);
+    }
+
+    @Benchmark
+    public AgentMessageState merge() {
+        return new AgentMessageState(AgentState.updateState(state.data(), coordinatorUpdate, AgentMessageState.SCHEMA));
+    }
+}
@@ -0,0 +1,59 @@
+package com.zhouruojun.manus.benchmarks;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import dev.langchain4j.data.message.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试用的工作流状态，字段与WorkflowEngine构建的初始状态一致
+ */
+final class BenchmarkStates {
+
+    static final String USER_INPUT = "帮我查一下北京明天的天气，并分析一下是否适合户外跑步";
+
+    private BenchmarkStates() {
+    }
+
+    /**
+     * 新请求的初始状态数据
+     */
+    static Map<String, Object> initialData(String runId) {
+        Map<String, Object> initialData = new HashMap<>();
+        initialData.put("userInput", USER_INPUT);
+        initialData.put("sessionId", "bench-session");
+        initialData.put("runId", runId);
+        initialData.put("next", "coordinator");
+        initialData.put("currentAgent", "start");
+        initialData.put("finished", false);
+        initialData.put("toolResults", "");
+        initialData.put("result", "");
+        initialData.put("hasHistory", false);
+        initialData.put("messages", AgentMessageState.createUserMessage(USER_INPUT));
+        initialData.put("sessionHistory", new ArrayList<>());
+        return initialData;
+    }
+
+    /**
+     * 经过若干轮协调器/智能体往返后的状态
+     * @param messageCount 消息数量
+     */
+    static AgentMessageState midRunState(int messageCount) {
+        Map<String, Object> data = initialData("bench-run");
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(AgentMessageState.createUserMessage(USER_INPUT));
+        for (int i = 1; i < messageCount; i++) {
+            messages.add(i % 2 == 1
+                    ? AgentMessageState.createAiMessage("协调器: {\"action\": \"search\"} 第" + i + "轮")
+                    : AgentMessageState.createAiMessage("搜索结果: 北京明天晴，气温12到24度，空气质量良，东南风2级。第" + i + "轮"));
+        }
+        data.put("messages", messages);
+        data.put("currentAgent", "search");
+        data.put("toolResults", "search: 北京明天晴，气温12到24度，空气质量良，东南风2级。");
+        data.put("result", "北京明天晴，适合户外跑步。");
+        return new AgentMessageState(data);
+    }
+}
@@ -0,0 +1,81 @@
+package com.zhouruojun.manus.benchmarks;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.infrastructure.serializers.AgentSerializers;
+import org.bsc.langgraph4j.serializer.StateSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个检查点的状态序列化往返开销，序列化方式与检查点存储一致（ObjectOutputStream包装）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckpointSerializerBenchmark {
+
+    @Param({"STD", "JSON"})
+    public String serializer;
+
+    @Param({"4", "32"})
+    public int messageCount;
+
+    private StateSerializer<AgentMessageState> stateSerializer;
+    private AgentMessageState state;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        stateSerializer = AgentSerializers.valueOf(serializer).object();
+        state = BenchmarkStates.midRunState(messageCount);
+        serialized = write(state);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return write(state);
+    }
+
+    @Benchmark
+    public AgentMessageState deserialize() throws Exception {
+        return read(serialized);
+    }
+
+    @Benchmark
+    public AgentMessageState roundTrip() throws Exception {
+        return read(write(state));
+    }
+
+    private byte[] write(AgentMessageState value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            stateSerializer.write(value, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private AgentMessageState read(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return stateSerializer.read(in);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.zhouruojun.manus.benchmarks;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.domain.workflow.engine.CoordinatorRouter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 协调器路由的分发开销，包括有效动作和需要回退到summary_agent的无效动作
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinatorRouterBenchmark {
+
+    @Param({"search", "parallel", "unknown"})
+    public String next;
+
+    private final CoordinatorRouter router = new CoordinatorRouter();
+    private AgentMessageState state;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> data = new HashMap<>(BenchmarkStates.initialData("bench-run"));
+        data.put("next", next);
+        state = new AgentMessageState(data);
+    }
+
+    @Benchmark
+    public String dispatch() {
+        return router.apply(state);
+    }
+}
@@ -0,0 +1,107 @@
+package com.zhouruojun.manus.benchmarks;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.domain.workflow.engine.CoordinatorRouter;
+import com.zhouruojun.manus.domain.workflow.node.specialized.CoordinatorNode;
+import com.zhouruojun.manus.domain.workflow.node.specialized.HumanInputNode;
+import com.zhouruojun.manus.domain.workflow.node.specialized.SummaryNode;
+import com.zhouruojun.manus.infrastructure.serializers.AgentSerializers;
+import com.zhouruojun.manus.infrastructure.tools.PromptLoader;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.StateGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.bsc.langgraph4j.StateGraph.END;
+import static org.bsc.langgraph4j.StateGraph.START;
+import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+
+/**
+ * CompiledGraph执行开销
+ * 使用真实的协调器、人工输入和总结节点以及协调器路由，模型替换为零延迟桩：
+ * 协调器先路由到human_input HOPS次，然后路由到summary结束，测量的全部是引擎自身的开销。
+ * 以 -prof gc 运行时 gc.alloc.rate.norm 即每次节点转换/每个请求的分配字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphExecutionBenchmark {
+
+    static final int HOPS = 8;
+
+    /**
+     * 每次请求执行的节点数：(协调器 + 人工输入) × HOPS + 最后的协调器 + 总结
+     */
+    static final int TRANSITIONS = 2 * HOPS + 2;
+
+    private CompiledGraph<AgentMessageState> graph;
+    private int coordinatorCalls;
+    private long runCounter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        StubChatModel chatModel = new StubChatModel(prompt -> {
+            if (StubChatModel.lastText(prompt).startsWith("用户请求")) {
+                return ++coordinatorCalls <= HOPS
+                        ? "{\"action\": \"human_input\"}"
+                        : "{\"action\": \"summary\"}";
+            }
+            return "北京明天晴，气温12到24度，适合户外跑步。";
+        });
+
+        PromptLoader promptLoader = new PromptLoader();
+        CoordinatorNode coordinator = new CoordinatorNode(chatModel, promptLoader, "node/coordinator.txt");
+        SummaryNode summary = new SummaryNode(chatModel, promptLoader, "node/summary.txt");
+        HumanInputNode humanInput = new HumanInputNode();
+
+        graph = new StateGraph<>(AgentMessageState.SCHEMA, AgentSerializers.STD.object())
+                .addNode("coordinator", node_async(coordinator))
+                .addNode("human_input", node_async(humanInput))
+                .addNode("summary_agent", node_async(summary))
+                .addEdge(START, "coordinator")
+                .addConditionalEdges("coordinator", edge_async(new CoordinatorRouter()),
+                        CoordinatorRouter.edgeMapping())
+                .addEdge("human_input", "coordinator")
+                .addEdge("summary_agent", END)
+                .compile();
+    }
+
+    /**
+     * 每次节点转换的时间和分配
+     */
+    @Benchmark
+    @OperationsPerInvocation(TRANSITIONS)
+    public Optional<AgentMessageState> nodeTransition() throws Exception {
+        return runRequest();
+    }
+
+    /**
+     * 每个请求（TRANSITIONS次节点转换）的时间和分配
+     */
+    @Benchmark
+    public Optional<AgentMessageState> fullRequest() throws Exception {
+        return runRequest();
+    }
+
+    private Optional<AgentMessageState> runRequest() throws Exception {
+        coordinatorCalls = 0;
+        return graph.invoke(BenchmarkStates.initialData("bench-run-" + runCounter++));
+    }
+}
@@ -0,0 +1,47 @@
+package com.zhouruojun.manus.benchmarks;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 零延迟的ChatModel桩，回复内容由responder根据提示词决定
+ */
+public class StubChatModel implements ChatModel {
+
+    private final Function<Prompt, String> responder;
+
+    public StubChatModel(Function<Prompt, String> responder) {
+        this.responder = responder;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(responder.apply(prompt)))));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.just(call(prompt));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().build();
+    }
+
+    /**
+     * 提示词中最后一条消息的文本
+     */
+    public static String lastText(Prompt prompt) {
+        List<org.springframework.ai.chat.messages.Message> messages = prompt.getInstructions();
+        return messages.isEmpty() ? "" : messages.get(messages.size() - 1).getText();
+    }
+}
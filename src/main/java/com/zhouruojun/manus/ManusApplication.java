@@ -1,6 +1,7 @@
 package com.zhouruojun.manus;
 
 import com.zhouruojun.manus.domain.workflow.engine.WorkflowEngine;
+import com.zhouruojun.manus.application.service.BatchCliService;
 import com.zhouruojun.manus.application.service.InteractionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,11 +29,20 @@ public class ManusApplication {
     @Bean
     public CommandLineRunner runManusSystem(
             WorkflowEngine workflowEngine,
-            InteractionService interactionService) {
+            InteractionService interactionService,
+            BatchCliService batchCliService) {
         return args -> {
             log.info("🚀 Manus多智能体系统启动中...");
             log.info("📊 基于LangGraph4j架构");
             log.info("🤖 支持智能体: 协调器、搜索、分析、总结");
+
+            // 配置了批量输入文件时执行批量任务后退出
+            if (batchCliService.isRequested()) {
+                batchCliService.runBatch(workflowEngine);
+                log.info("👋 Manus多智能体系统已关闭");
+                return;
+            }
+
             log.info("💬 准备接收用户输入...");
             
             // 启动交互式会话
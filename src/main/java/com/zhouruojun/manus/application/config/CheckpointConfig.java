@@ -0,0 +1,73 @@
+package com.zhouruojun.manus.application.config;
+
+import com.zhouruojun.manus.infrastructure.checkpoint.FileCheckpointSaver;
+import com.zhouruojun.manus.infrastructure.checkpoint.InMemoryCheckpointSaver;
+import com.zhouruojun.manus.infrastructure.checkpoint.RetentionCheckpointSaver;
+import com.zhouruojun.manus.infrastructure.checkpoint.RunJournal;
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import com.zhouruojun.manus.infrastructure.serializers.AgentSerializers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * 检查点存储配置
+ * 根据manus.engine.checkpoint.store选择内存或文件检查点存储，并按配置套上保留策略；
+ * 文件存储时同时提供运行日志，用于重启后恢复被中断的运行
+ */
+@Slf4j
+@Configuration
+public class CheckpointConfig {
+
+    @Bean
+    public BaseCheckpointSaver checkpointSaver(EngineConfig engineConfig, ObjectProvider<MeterRegistry> meterRegistry) {
+        EngineConfig.CheckpointProperties properties = engineConfig.getCheckpoint();
+        AgentSerializers serializer = AgentSerializers.valueOf(properties.getSerializer().toUpperCase());
+
+        BaseCheckpointSaver saver;
+        if ("file".equalsIgnoreCase(properties.getStore())) {
+            log.info("使用文件检查点存储: {}, 序列化方式: {}, 完整快照间隔: {}",
+                    properties.getDirectory(), serializer, properties.getSnapshotInterval());
+            saver = new FileCheckpointSaver(
+                    Path.of(properties.getDirectory()),
+                    serializer.object(),
+                    properties.getSegmentSizeBytes(),
+                    properties.getMappedSegments(),
+                    properties.isSyncOnWrite(),
+                    properties.getSnapshotInterval(),
+                    meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        } else {
+            log.info("使用内存检查点存储");
+            saver = new InMemoryCheckpointSaver();
+        }
+
+        if (!properties.isRetentionEnabled()) {
+            return saver;
+        }
+
+        log.info("检查点保留策略: 每线程上限={}, TTL={}, 字节预算={}",
+                properties.getMaxPerThread(), properties.getTtl(), properties.getMaxRetainedBytes());
+        return new RetentionCheckpointSaver(
+                saver,
+                serializer.object(),
+                properties.getMaxPerThread(),
+                properties.getTtl(),
+                properties.getMaxRetainedBytes(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "manus.engine.checkpoint.store", havingValue = "file", matchIfMissing = true)
+    public RunJournal runJournal(EngineConfig engineConfig) {
+        Path directory = Path.of(engineConfig.getCheckpoint().getDirectory()).resolve("runs");
+        log.info("使用运行日志: {}", directory);
+        return new RunJournal(directory);
+    }
+}
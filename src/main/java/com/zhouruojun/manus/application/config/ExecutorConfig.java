@@ -0,0 +1,66 @@
+package com.zhouruojun.manus.application.config;
+
+import com.zhouruojun.manus.infrastructure.concurrent.AdmissionController;
+import com.zhouruojun.manus.infrastructure.concurrent.AsyncExecutors;
+import com.zhouruojun.manus.infrastructure.concurrent.ExecutorMode;
+import com.zhouruojun.manus.infrastructure.concurrent.PinnedThreadMonitor;
+import com.zhouruojun.manus.infrastructure.concurrent.SingleFlight;
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import com.zhouruojun.manus.infrastructure.tracing.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * 工作流执行器配置
+ * 根据manus.engine.executor创建执行器，并安装为智能体和LLM调用共用的全局执行器；
+ * 同时提供工作流的准入控制
+ */
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(name = "workflowExecutor")
+    public Executor workflowExecutor(EngineConfig engineConfig) {
+        ExecutorMode mode = ExecutorMode.fromString(engineConfig.getExecutor());
+        // 包装为传递跟踪上下文和MDC的执行器，CompletableFuture切换线程后仍能关联到同一请求
+        Executor executor = Tracing.propagating(AsyncExecutors.create(mode, engineConfig.getPlatformPoolSize()));
+        AsyncExecutors.install(executor);
+        log.info("工作流执行模式: {}", mode.getValue());
+        return executor;
+    }
+
+    @Bean
+    public AdmissionController admissionController(EngineConfig engineConfig, ObjectProvider<MeterRegistry> meterRegistry) {
+        EngineConfig.AdmissionProperties properties = engineConfig.getAdmission();
+        log.info("工作流准入控制: 最大并发={}, 队列容量={}, 排队超时={}, 会话策略={}",
+                properties.getMaxConcurrentRuns(), properties.getMaxQueueSize(),
+                properties.getQueueTimeout(), properties.getSessionPolicy());
+        return new AdmissionController(
+                properties.getMaxConcurrentRuns(),
+                properties.getMaxQueueSize(),
+                properties.getQueueTimeout(),
+                AdmissionController.SessionPolicy.fromString(properties.getSessionPolicy()),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "manus.engine.coalescing", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SingleFlight<String, String> workflowSingleFlight(EngineConfig engineConfig, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new SingleFlight<>("workflow", engineConfig.getCoalescing().getWindow(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "manus.engine", name = "pinned-thread-diagnostics", havingValue = "true", matchIfMissing = true)
+    public PinnedThreadMonitor pinnedThreadMonitor(EngineConfig engineConfig) {
+        return new PinnedThreadMonitor(Duration.ofMillis(engineConfig.getPinnedThresholdMs()));
+    }
+}
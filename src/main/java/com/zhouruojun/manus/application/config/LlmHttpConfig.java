@@ -0,0 +1,63 @@
+package com.zhouruojun.manus.application.config;
+
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import com.zhouruojun.manus.infrastructure.http.LlmHttpTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+
+/**
+ * 模型接口的HTTP传输层配置
+ * OpenAI模型的阻塞调用通过Spring Boot构建的RestClient，流式调用通过WebClient，
+ * 这里用定制器把两者都切换到LlmHttpTransport的连接池上；应用中没有其他地方使用这两个构建器。
+ * 把spring.ai.openai.base-url指向本地的桩服务即可在不访问真实模型的情况下验证连接池、超时和压缩
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "manus.engine.llm-http", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class LlmHttpConfig {
+
+    @Bean
+    public LlmHttpTransport llmHttpTransport(EngineConfig engineConfig,
+                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                             @Value("${spring.ai.openai.base-url:https://api.openai.com}") String baseUrl) {
+        EngineConfig.LlmHttpProperties properties = engineConfig.getLlmHttp();
+        LlmHttpTransport transport = new LlmHttpTransport(properties,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        if (properties.getWarmupConnections() > 0) {
+            try {
+                transport.warmUp(warmupUri(baseUrl, properties.getWarmupPath()), properties.getWarmupConnections());
+            } catch (IllegalArgumentException e) {
+                log.warn("LLM连接预热地址无效，跳过预热: {}", e.getMessage());
+            }
+        }
+        return transport;
+    }
+
+    @Bean
+    public RestClientCustomizer llmRestClientCustomizer(LlmHttpTransport transport) {
+        return builder -> builder
+                .requestFactory(transport.requestFactory())
+                .requestInterceptor(transport.interceptor());
+    }
+
+    @Bean
+    public WebClientCustomizer llmWebClientCustomizer(LlmHttpTransport transport) {
+        return builder -> builder.clientConnector(transport.connector());
+    }
+
+    private static URI warmupUri(String baseUrl, String path) {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        String suffix = path == null || path.isBlank() ? "" : (path.startsWith("/") ? path : "/" + path);
+        return URI.create(base + suffix);
+    }
+}
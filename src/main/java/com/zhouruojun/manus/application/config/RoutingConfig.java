@@ -0,0 +1,72 @@
+package com.zhouruojun.manus.application.config;
+
+import com.zhouruojun.manus.domain.workflow.routing.PreRouter;
+import com.zhouruojun.manus.domain.workflow.routing.RouteClassifier;
+import com.zhouruojun.manus.domain.workflow.routing.RouteRule;
+import com.zhouruojun.manus.domain.workflow.routing.RoutingDecisionCache;
+import com.zhouruojun.manus.domain.workflow.routing.RuleRouteClassifier;
+import com.zhouruojun.manus.domain.workflow.routing.TransitionTableClassifier;
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 协调器路由配置
+ * 内置规则分类器和转移表分类器以RouteClassifier Bean的形式注册，
+ * 其他RouteClassifier Bean会按@Order顺序一起加入预路由；同时提供路由决策缓存
+ */
+@Slf4j
+@Configuration
+public class RoutingConfig {
+
+    @Bean
+    @Order(0)
+    @ConditionalOnProperty(name = "manus.engine.pre-router.enabled", havingValue = "true", matchIfMissing = true)
+    public RouteClassifier ruleRouteClassifier(EngineConfig engineConfig) {
+        EngineConfig.PreRouterProperties properties = engineConfig.getPreRouter();
+        List<RouteRule> rules = new ArrayList<>();
+        for (EngineConfig.RuleProperties rule : properties.getRules()) {
+            rules.add(RouteRule.of(rule.getName(), rule.getAction(), rule.getPattern(), rule.getKeywords()));
+        }
+        if (properties.isDefaultRules()) {
+            rules.addAll(RuleRouteClassifier.defaultRules());
+        }
+        return new RuleRouteClassifier(rules, properties.isPostAgentRules());
+    }
+
+    @Bean
+    @Order(100)
+    @ConditionalOnProperty(name = {"manus.engine.pre-router.enabled", "manus.engine.pre-router.learning"},
+            havingValue = "true", matchIfMissing = true)
+    public RouteClassifier transitionTableClassifier(EngineConfig engineConfig) {
+        EngineConfig.PreRouterProperties properties = engineConfig.getPreRouter();
+        return new TransitionTableClassifier(properties.getMinSamples(), properties.getMinConfidence());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "manus.engine.pre-router.enabled", havingValue = "true", matchIfMissing = true)
+    public PreRouter preRouter(EngineConfig engineConfig, ObjectProvider<RouteClassifier> classifiers,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        List<RouteClassifier> ordered = classifiers.orderedStream().toList();
+        double explorationRate = engineConfig.getPreRouter().getExplorationRate();
+        log.info("协调器预路由已启用，分类器: {}，抽样复核比例: {}",
+                ordered.stream().map(RouteClassifier::name).toList(), explorationRate);
+        return new PreRouter(ordered, explorationRate, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public RoutingDecisionCache routingDecisionCache(EngineConfig engineConfig, ObjectProvider<MeterRegistry> meterRegistry) {
+        EngineConfig.RouteCacheProperties properties = engineConfig.getRouteCache();
+        return new RoutingDecisionCache(properties.getMaxEntries(), properties.getTtl(), properties.isEnabled(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,62 @@
+package com.zhouruojun.manus.application.config;
+
+import com.zhouruojun.manus.application.service.SessionManager;
+import com.zhouruojun.manus.application.sharding.LocalEngineNode;
+import com.zhouruojun.manus.application.sharding.RemoteEngineNode;
+import com.zhouruojun.manus.application.sharding.ShardRouter;
+import com.zhouruojun.manus.application.sharding.ShardServer;
+import com.zhouruojun.manus.domain.workflow.engine.WorkflowEngine;
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 会话分片配置
+ * manus.engine.sharding.enabled为true时，本进程的引擎作为一个本地节点，与配置的其他进程节点组成一致性哈希分片；
+ * 配置了端口时同时启动ShardServer，供其他进程把会话路由到本节点。
+ * 节点列表在启动时确定，会话归属只保存在本进程的ShardRouter中，一个分片中只应有一个进程对外接收请求并路由
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "manus.engine.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public LocalEngineNode localEngineNode(EngineConfig engineConfig, WorkflowEngine workflowEngine,
+                                           SessionManager sessionManager) {
+        return new LocalEngineNode(engineConfig.getSharding().getNodeId(), workflowEngine, sessionManager);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "manus.engine.sharding.port")
+    public ShardServer shardServer(EngineConfig engineConfig, LocalEngineNode localEngineNode) {
+        EngineConfig.ShardingProperties properties = engineConfig.getSharding();
+        try {
+            return new ShardServer(localEngineNode, properties.getHost(), properties.getPort());
+        } catch (IOException e) {
+            throw new UncheckedIOException("分片服务启动失败", e);
+        }
+    }
+
+    @Bean
+    public ShardRouter shardRouter(EngineConfig engineConfig, LocalEngineNode localEngineNode,
+                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        EngineConfig.ShardingProperties properties = engineConfig.getSharding();
+        ShardRouter router = new ShardRouter(properties.getVirtualNodes(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        router.addNode(localEngineNode);
+        for (EngineConfig.ShardPeerProperties peer : properties.getPeers()) {
+            router.addNode(new RemoteEngineNode(peer.getId(), peer.getUrl(), properties.getRequestTimeout()));
+        }
+        log.info("会话分片已启用，本节点 {}，全部节点 {}", localEngineNode.id(), router.nodeIds());
+        return router;
+    }
+}
@@ -1,22 +1,76 @@
 package com.zhouruojun.manus.application.config;
 
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import com.zhouruojun.manus.infrastructure.llmcache.CachingChatModel;
+import com.zhouruojun.manus.infrastructure.llmcache.LlmResponseCache;
+import com.zhouruojun.manus.infrastructure.replay.HarnessMode;
+import com.zhouruojun.manus.infrastructure.replay.RecordingChatModel;
+import com.zhouruojun.manus.infrastructure.replay.ReplayChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
-import org.springframework.context.annotation.Profile;
 
+import java.nio.file.Path;
+
+@Slf4j
 @Configuration
 public class SpringAiConfig {
 
     /**
-     * 确保在workflow profile下也提供ChatModel Bean
-     * 这样WorkflowMultiAgentApplication可以正确注入ChatModel
+     * 引擎使用的ChatModel：按配置在OpenAI模型外套上录制/回放或响应缓存，两者都关闭时就是OpenAI模型本身。
+     * 所有profile（包括workflow）都以它作为主ChatModel注入。
+     * record模式把每次调用录制到文件，replay模式只从文件回放，用于离线、确定性地测量引擎自身的开销；
+     * 响应缓存对相同的请求直接返回之前的响应，命中时不访问远端模型。录制或回放时不使用响应缓存，
+     * 否则命中的调用不会被录制，回放时也测不到引擎对每次模型调用的真实开销
      */
     @Bean
     @Primary
-    @Profile("workflow")
-    public ChatModel ensureWorkflowChatModel(ChatModel openAiChatModel) {
-        return openAiChatModel;
+    public ChatModel engineChatModel(OpenAiChatModel openAiChatModel, EngineConfig engineConfig,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        HarnessMode mode = HarnessMode.fromString(engineConfig.getModelHarness().getMode());
+        ChatModel model = harness(mode, openAiChatModel, engineConfig.getModelHarness());
+
+        EngineConfig.LlmCacheProperties cache = engineConfig.getLlmCache();
+        if (cache.isEnabled() && mode != HarnessMode.OFF) {
+            log.info("模型调用{}期间不使用LLM响应缓存", mode == HarnessMode.REPLAY ? "回放" : "录制");
+        } else if (cache.isEnabled()) {
+            Path directory = cache.getDirectory() != null && !cache.getDirectory().isBlank()
+                    ? Path.of(cache.getDirectory()) : null;
+            log.info("LLM响应缓存: 内存预算 {} 字节, TTL {}, 磁盘层 {}, 温度大于0时绕过: {}",
+                    cache.getMaxBytes(), cache.getTtl(), directory != null ? directory : "关闭", cache.isBypassSampled());
+            Double temperature = openAiChatModel.getDefaultOptions().getTemperature();
+            if (cache.isBypassSampled() && temperature != null && temperature > 0) {
+                log.warn("LLM响应缓存配置了bypass-sampled，但模型默认温度为 {}，未显式指定温度为0的请求都不会使用缓存", temperature);
+            }
+            model = new CachingChatModel(model,
+                    new LlmResponseCache(cache.getMaxBytes(), cache.getTtl(), directory,
+                            meterRegistry.getIfAvailable(() -> Metrics.globalRegistry)),
+                    cache.isBypassSampled());
+        }
+        return model;
+    }
+
+    private static ChatModel harness(HarnessMode mode, OpenAiChatModel openAiChatModel,
+                                     EngineConfig.ModelHarnessProperties properties) {
+        Path file = Path.of(properties.getFile());
+        return switch (mode) {
+            case OFF -> openAiChatModel;
+            case REPLAY -> {
+                log.info("模型调用回放: {}, 严格匹配: {}, 合成延迟: {}", file, properties.isStrict(), properties.getLatencyMode());
+                yield ReplayChatModel.load(file, properties.isStrict(),
+                        ReplayChatModel.LatencyMode.fromString(properties.getLatencyMode()),
+                        properties.getFixedLatency());
+            }
+            case RECORD -> {
+                log.info("模型调用录制到: {}", file);
+                yield new RecordingChatModel(openAiChatModel, file);
+            }
+        };
     }
 }
@@ -0,0 +1,75 @@
+package com.zhouruojun.manus.application.config;
+
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import com.zhouruojun.manus.infrastructure.tracing.BatchSpanProcessor;
+import com.zhouruojun.manus.infrastructure.tracing.FileSpanExporter;
+import com.zhouruojun.manus.infrastructure.tracing.OtlpHttpSpanExporter;
+import com.zhouruojun.manus.infrastructure.tracing.SpanExporter;
+import com.zhouruojun.manus.infrastructure.tracing.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 跟踪配置
+ * 根据manus.engine.tracing创建跨度导出器并安装到Tracing，关闭时导出剩余的跨度
+ */
+@Slf4j
+@Configuration
+public class TracingConfig {
+
+    private final BatchSpanProcessor processor;
+
+    public TracingConfig(EngineConfig engineConfig, ObjectProvider<MeterRegistry> meterRegistry) {
+        EngineConfig.TracingProperties properties = engineConfig.getTracing();
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+
+        if (!properties.isEnabled()) {
+            log.info("工作流跟踪已关闭");
+            Tracing.disable();
+            this.processor = null;
+            return;
+        }
+
+        SpanExporter exporter = createExporter(properties);
+        this.processor = exporter != null
+                ? new BatchSpanProcessor(exporter, properties.getQueueSize(), properties.getBatchSize(),
+                        properties.getFlushInterval(), registry)
+                : null;
+        Tracing.install(registry, processor);
+    }
+
+    private static SpanExporter createExporter(EngineConfig.TracingProperties properties) {
+        return switch (properties.getExporter().toLowerCase()) {
+            case "file" -> {
+                try {
+                    yield new FileSpanExporter(Path.of(properties.getFile()), properties.getServiceName());
+                } catch (IOException e) {
+                    log.warn("无法打开跨度文件 {}，只记录计时器: {}", properties.getFile(), e.getMessage());
+                    yield null;
+                }
+            }
+            case "otlp" -> new OtlpHttpSpanExporter(properties.getEndpoint(), properties.getServiceName(),
+                    properties.getExportTimeout());
+            default -> null;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (processor == null) {
+            return;
+        }
+        try {
+            processor.close();
+        } catch (Exception e) {
+            log.warn("关闭跨度导出器失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.zhouruojun.manus.application.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhouruojun.manus.domain.workflow.batch.BatchItem;
+import com.zhouruojun.manus.domain.workflow.batch.BatchOptions;
+import com.zhouruojun.manus.domain.workflow.batch.BatchReport;
+import com.zhouruojun.manus.domain.workflow.batch.BatchResult;
+import com.zhouruojun.manus.domain.workflow.engine.WorkflowEngine;
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量执行命令行模式
+ * 配置了manus.engine.batch.input时，启动后从JSONL文件读取请求（每行 {"id", "sessionId", "input"}），
+ * 通过WorkflowEngine.executeBatch执行，结果逐行写入JSONL文件，最后输出汇总报告
+ */
+@Service
+public class BatchCliService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchCliService.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final EngineConfig engineConfig;
+
+    public BatchCliService(EngineConfig engineConfig) {
+        this.engineConfig = engineConfig;
+    }
+
+    /**
+     * 是否以批量模式启动
+     */
+    public boolean isRequested() {
+        String input = engineConfig.getBatch().getInput();
+        return input != null && !input.isBlank();
+    }
+
+    /**
+     * 执行配置的批量文件
+     * @return 汇总报告
+     */
+    public BatchReport runBatch(WorkflowEngine workflowEngine) throws IOException {
+        EngineConfig.BatchProperties properties = engineConfig.getBatch();
+        Path input = Path.of(properties.getInput());
+        Path output = properties.getOutput() != null && !properties.getOutput().isBlank()
+                ? Path.of(properties.getOutput())
+                : input.resolveSibling(input.getFileName() + ".results.jsonl");
+
+        List<BatchItem> items = readItems(input);
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism()
+                : engineConfig.getAdmission().getMaxConcurrentRuns();
+        BatchOptions options = new BatchOptions(parallelism, properties.isOrdered());
+        log.info("批量模式: 从 {} 读取 {} 个请求，结果写入 {}", input, items.size(), output);
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            BatchReport report = workflowEngine.executeBatch(items, options, result -> write(writer, result)).join();
+            System.out.println("📊 批量执行完成: " + report);
+            System.out.println("📄 结果文件: " + output.toAbsolutePath());
+            return report;
+        }
+    }
+
+    /**
+     * 读取JSONL请求，空行跳过；无法解析的行保留为没有输入的请求，在结果中记为失败
+     */
+    private static List<BatchItem> readItems(Path input) throws IOException {
+        List<String> lines = Files.readAllLines(input, StandardCharsets.UTF_8);
+        List<BatchItem> items = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String defaultId = "line-" + (i + 1);
+            try {
+                JsonNode node = MAPPER.readTree(line);
+                items.add(new BatchItem(
+                        node.hasNonNull("id") ? node.get("id").asText() : defaultId,
+                        node.hasNonNull("sessionId") ? node.get("sessionId").asText() : null,
+                        node.hasNonNull("input") ? node.get("input").asText() : null));
+            } catch (IOException e) {
+                log.warn("批量输入第 {} 行无法解析: {}", i + 1, e.getMessage());
+                items.add(new BatchItem(defaultId, null, null));
+            }
+        }
+        return items;
+    }
+
+    private static void write(BufferedWriter writer, BatchResult result) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("id", result.id());
+        line.put("sessionId", result.sessionId());
+        line.put("success", result.success());
+        line.put("output", result.output());
+        line.put("reason", result.reason());
+        line.put("error", result.error());
+        line.put("latencyMs", result.latencyMillis());
+        try {
+            writer.write(MAPPER.writeValueAsString(line));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.zhouruojun.manus.application.service;
 
+import com.zhouruojun.manus.application.sharding.ShardRouter;
 import com.zhouruojun.manus.domain.workflow.engine.WorkflowEngine;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEvent;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEventListener;
 import com.zhouruojun.manus.domain.model.Message;
+import com.zhouruojun.manus.infrastructure.exception.WorkflowFailedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -10,6 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.List;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 用户交互服务
@@ -23,6 +30,10 @@ public class InteractionService {
     @Autowired
     private SessionManager sessionManager;
 
+    // 启用会话分片时由分片路由把请求发往会话所在的节点
+    @Autowired(required = false)
+    private ShardRouter shardRouter;
+
     /**
      * 启动交互式会话
      */
@@ -57,6 +68,9 @@ public class InteractionService {
                 }
                 
                 if ("clear".equalsIgnoreCase(userInput)) {
+                    if (shardRouter != null) {
+                        shardRouter.ownerOf(sessionId).dropSession(sessionId);
+                    }
                     sessionManager.clearSessionHistory(sessionId);
                     System.out.println("✅ 已清除当前会话的历史记录");
                     continue;
@@ -67,6 +81,12 @@ public class InteractionService {
                     continue;
                 }
 
+                // 分片模式下会话历史保存在会话所在的节点上
+                if (shardRouter != null) {
+                    processShardedInput(userInput, sessionId);
+                    continue;
+                }
+
                 // 添加用户消息到会话历史
                 sessionManager.addUserMessage(sessionId, userInput);
 
@@ -95,24 +115,85 @@ public class InteractionService {
             // 添加用户输入到历史记录 - 注意要在执行工作流前添加
             sessionManager.addUserMessage(sessionId, userInput);
 
-            // 执行工作流 - 传递会话历史
-            String result = workflowEngine.executeWorkflow(userInput, sessionId, sessionHistory).get();
+            // 执行工作流 - 传递会话历史，节点进度和总结令牌实时输出
+            AtomicBoolean streamed = new AtomicBoolean(false);
+            String result = replyOf(workflowEngine.executeWorkflow(userInput, sessionId, sessionHistory,
+                    printingListener(streamed)));
 
             // 添加系统响应到会话历史
             sessionManager.addSystemResponse(sessionId, result);
 
-            // 显示结果
+            // 显示结果 - 已经流式输出过的回复不再重复打印
+            if (streamed.get()) {
+                System.out.println();
+            } else {
+                System.out.println("\n🤖 多智能体系统响应：");
+                System.out.println("═".repeat(60));
+                System.out.println(result);
+            }
+            System.out.println("═".repeat(60));
+            
+        } catch (Exception e) {
+            log.error("❌ 处理请求时出错: {}", e.getMessage(), e);
+            System.out.println("\n❌ 发生错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 通过分片路由处理用户输入，会话历史由会话所在节点维护
+     */
+    private void processShardedInput(String userInput, String sessionId) {
+        log.info("🔄 正在处理您的请求: {}（节点 {}）", userInput, shardRouter.ownerOf(sessionId).id());
+        try {
+            System.out.println("\n⏳ 正在分析和处理您的请求...");
+            String result = shardRouter.execute(sessionId, userInput).get();
             System.out.println("\n🤖 多智能体系统响应：");
             System.out.println("═".repeat(60));
             System.out.println(result);
             System.out.println("═".repeat(60));
-            
         } catch (Exception e) {
             log.error("❌ 处理请求时出错: {}", e.getMessage(), e);
             System.out.println("\n❌ 发生错误: " + e.getMessage());
         }
     }
 
+    /**
+     * 等待工作流结果，未正常完成（被拒绝、出错、超时或取消）时以引擎给出的提示作为回复
+     */
+    private static String replyOf(CompletableFuture<String> execution) throws InterruptedException, ExecutionException {
+        try {
+            return execution.get();
+        } catch (ExecutionException e) {
+            WorkflowFailedException failure = WorkflowFailedException.find(e);
+            if (failure == null) {
+                throw e;
+            }
+            return failure.getMessage();
+        }
+    }
+
+    /**
+     * 创建在终端增量打印工作流事件的监听器
+     * @param streamed 收到第一个令牌时置为true
+     */
+    private WorkflowEventListener printingListener(AtomicBoolean streamed) {
+        return event -> {
+            switch (event.type()) {
+                case NODE_STARTED -> System.out.println("  ▶ " + event.node());
+                case TOKEN -> {
+                    if (streamed.compareAndSet(false, true)) {
+                        System.out.println("\n🤖 多智能体系统响应：");
+                        System.out.println("═".repeat(60));
+                    }
+                    System.out.print(event.content());
+                    System.out.flush();
+                }
+                case FAILED -> log.warn("工作流执行失败: {}", event.content());
+                default -> log.debug("工作流事件: {} {}", event.type(), event.node());
+            }
+        };
+    }
+
     /**
      * 显示欢迎信息
      */
@@ -56,6 +56,22 @@ public class SessionManager {
         log.debug("Added system response to session {}", sessionId);
     }
 
+    /**
+     * 导出会话历史的副本
+     */
+    public List<Message> exportSessionHistory(String sessionId) {
+        List<Message> history = sessionHistory.get(sessionId);
+        return history != null ? List.copyOf(history) : List.of();
+    }
+
+    /**
+     * 用给定的历史替换会话历史，用于会话在节点之间迁移
+     */
+    public void replaceSessionHistory(String sessionId, List<Message> history) {
+        sessionHistory.put(sessionId, new ArrayList<>(history));
+        log.debug("Replaced history for session {} with {} messages", sessionId, history.size());
+    }
+
     /**
      * 清除会话历史
      */
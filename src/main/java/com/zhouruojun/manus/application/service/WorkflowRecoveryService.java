@@ -0,0 +1,82 @@
+package com.zhouruojun.manus.application.service;
+
+import com.zhouruojun.manus.domain.workflow.engine.WorkflowEngine;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEventListener;
+import com.zhouruojun.manus.infrastructure.checkpoint.RunJournal;
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import com.zhouruojun.manus.infrastructure.exception.WorkflowFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 工作流恢复服务
+ * 启动时扫描运行日志，把上次进程崩溃或重启时未完成的运行从最后的检查点继续执行；
+ * 先于交互式会话运行，恢复在后台异步进行，不阻塞启动
+ */
+@Service
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class WorkflowRecoveryService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowRecoveryService.class);
+
+    private final WorkflowEngine workflowEngine;
+    private final SessionManager sessionManager;
+    private final EngineConfig engineConfig;
+
+    public WorkflowRecoveryService(WorkflowEngine workflowEngine, SessionManager sessionManager,
+                                   EngineConfig engineConfig) {
+        this.workflowEngine = workflowEngine;
+        this.sessionManager = sessionManager;
+        this.engineConfig = engineConfig;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!engineConfig.getRecovery().isEnabled()) {
+            return;
+        }
+
+        List<RunJournal.Entry> interrupted = workflowEngine.interruptedRuns();
+        if (interrupted.isEmpty()) {
+            return;
+        }
+        log.info("发现 {} 个未完成的工作流运行，开始恢复", interrupted.size());
+
+        long oldest = System.currentTimeMillis() - engineConfig.getRecovery().getMaxAge().toMillis();
+        for (RunJournal.Entry entry : interrupted) {
+            if (entry.startedAt() < oldest) {
+                log.info("运行 {} 开始于 {}，超过最大恢复时长，已放弃", entry.runId(), entry.startedAt());
+                workflowEngine.abandonRun(entry.runId());
+                continue;
+            }
+            resume(entry);
+        }
+    }
+
+    private void resume(RunJournal.Entry entry) {
+        workflowEngine.resumeRun(entry, WorkflowEventListener.NOOP)
+                .whenComplete((result, error) -> {
+                    String reply = result;
+                    if (error != null) {
+                        WorkflowFailedException failure = WorkflowFailedException.find(error);
+                        if (failure == null) {
+                            log.error("恢复运行 {} 失败: {}", entry.runId(), error.getMessage(), error);
+                            return;
+                        }
+                        log.warn("恢复的运行 {} 未正常完成（{}）: {}", entry.runId(), failure.getReason(), failure.getMessage());
+                        reply = failure.getMessage();
+                    } else {
+                        log.info("运行 {} 已恢复完成，会话: {}", entry.runId(), entry.sessionId());
+                    }
+                    sessionManager.addUserMessage(entry.sessionId(), entry.userInput());
+                    sessionManager.addSystemResponse(entry.sessionId(), reply);
+                });
+    }
+}
@@ -0,0 +1,96 @@
+package com.zhouruojun.manus.application.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一致性哈希环
+ * 每个节点在环上放置virtualNodes个虚拟节点，键顺时针归属于遇到的第一个虚拟节点；
+ * 节点加入或离开时只有相邻区间的键改变归属。环以不可变快照发布，读取不加锁
+ */
+public class ConsistentHashRing {
+
+    private final int virtualNodes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile NavigableMap<Long, String> ring = Collections.emptyNavigableMap();
+
+    /**
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+    }
+
+    /**
+     * 加入节点，已存在时不变
+     */
+    public void add(String nodeId) {
+        lock.lock();
+        try {
+            TreeMap<Long, String> next = new TreeMap<>(ring);
+            for (int i = 0; i < virtualNodes; i++) {
+                next.putIfAbsent(hash(nodeId + "#" + i), nodeId);
+            }
+            ring = Collections.unmodifiableNavigableMap(next);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除节点
+     */
+    public void remove(String nodeId) {
+        lock.lock();
+        try {
+            TreeMap<Long, String> next = new TreeMap<>(ring);
+            next.values().removeIf(nodeId::equals);
+            ring = Collections.unmodifiableNavigableMap(next);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取键所属的节点
+     * @return 节点ID，环为空时返回null
+     */
+    public String nodeFor(String key) {
+        NavigableMap<Long, String> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = current.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : current.firstEntry().getValue();
+    }
+
+    /**
+     * 当前环上的节点
+     */
+    public Set<String> nodes() {
+        return Collections.unmodifiableSet(new TreeSet<>(ring.values()));
+    }
+
+    /**
+     * 64位FNV-1a哈希，再经过MurmurHash3的fmix64打散，使相近的虚拟节点名在环上均匀分布
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,38 @@
+package com.zhouruojun.manus.application.sharding;
+
+import com.zhouruojun.manus.domain.model.Message;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 分片中的一个引擎实例
+ * 节点自己保存归属于它的会话历史，执行请求时读取并追加历史；会话迁移时通过导出/导入移交历史
+ */
+public interface EngineNode {
+
+    /**
+     * 节点ID，同时作为一致性哈希环上的节点名
+     */
+    String id();
+
+    /**
+     * 在该节点上执行会话的一次请求
+     */
+    CompletableFuture<String> execute(String sessionId, String userInput);
+
+    /**
+     * 导出会话历史
+     */
+    List<Message> exportSession(String sessionId);
+
+    /**
+     * 导入会话历史，覆盖节点上已有的历史
+     */
+    void importSession(String sessionId, List<Message> history);
+
+    /**
+     * 删除节点上该会话的历史和引擎状态
+     */
+    void dropSession(String sessionId);
+}
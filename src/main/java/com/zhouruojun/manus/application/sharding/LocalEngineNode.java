@@ -0,0 +1,72 @@
+package com.zhouruojun.manus.application.sharding;
+
+import com.zhouruojun.manus.application.service.SessionManager;
+import com.zhouruojun.manus.domain.model.Message;
+import com.zhouruojun.manus.domain.workflow.engine.WorkflowEngine;
+import com.zhouruojun.manus.infrastructure.exception.WorkflowFailedException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 本进程内的引擎节点，由一个WorkflowEngine和保存其会话历史的SessionManager组成；
+ * 同一JVM中可以创建多个实例模拟多节点
+ */
+public class LocalEngineNode implements EngineNode {
+
+    private final String id;
+    private final WorkflowEngine workflowEngine;
+    private final SessionManager sessionManager;
+
+    public LocalEngineNode(String id, WorkflowEngine workflowEngine, SessionManager sessionManager) {
+        this.id = id;
+        this.workflowEngine = workflowEngine;
+        this.sessionManager = sessionManager;
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public CompletableFuture<String> execute(String sessionId, String userInput) {
+        List<Message> history = sessionManager.exportSessionHistory(sessionId);
+        sessionManager.addUserMessage(sessionId, userInput);
+        return workflowEngine.executeWorkflow(userInput, sessionId, history)
+                .handle((result, error) -> {
+                    if (error != null) {
+                        // 未正常完成的运行以引擎给出的提示作为回复，其他异常照常向上传递
+                        WorkflowFailedException failure = WorkflowFailedException.find(error);
+                        if (failure == null) {
+                            throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                        }
+                        result = failure.getMessage();
+                    }
+                    sessionManager.addSystemResponse(sessionId, result);
+                    return result;
+                });
+    }
+
+    @Override
+    public List<Message> exportSession(String sessionId) {
+        return sessionManager.exportSessionHistory(sessionId);
+    }
+
+    @Override
+    public void importSession(String sessionId, List<Message> history) {
+        sessionManager.replaceSessionHistory(sessionId, history);
+    }
+
+    @Override
+    public void dropSession(String sessionId) {
+        sessionManager.clearSessionHistory(sessionId);
+        workflowEngine.cleanupSession(sessionId);
+    }
+
+    @Override
+    public String toString() {
+        return "local(" + id + ")";
+    }
+}
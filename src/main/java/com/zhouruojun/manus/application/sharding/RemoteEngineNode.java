@@ -0,0 +1,137 @@
+package com.zhouruojun.manus.application.sharding;
+
+import com.zhouruojun.manus.domain.model.Message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 其他进程中的引擎节点，通过HTTP访问对方的ShardServer
+ */
+public class RemoteEngineNode implements EngineNode {
+
+    private final String id;
+    private final URI baseUri;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+
+    /**
+     * @param id 节点ID
+     * @param baseUrl 对方ShardServer的地址，例如 http://127.0.0.1:9101
+     * @param requestTimeout 单个请求的超时时间，执行请求时应不短于工作流的截止时间
+     */
+    public RemoteEngineNode(String id, String baseUrl, Duration requestTimeout) {
+        this.id = id;
+        this.baseUri = URI.create(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl);
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public CompletableFuture<String> execute(String sessionId, String userInput) {
+        HttpRequest request;
+        try {
+            request = request(ShardProtocol.EXECUTE_PATH)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(ShardProtocol.executeRequest(sessionId, userInput)))
+                    .build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    try {
+                        return ShardProtocol.MAPPER.readTree(checked(response)).path("result").asText();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    @Override
+    public List<Message> exportSession(String sessionId) {
+        try {
+            HttpRequest request = request(ShardProtocol.SESSION_PATH + ShardProtocol.sessionQuery(sessionId)).GET().build();
+            return ShardProtocol.decodeHistory(checked(send(request)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void importSession(String sessionId, List<Message> history) {
+        try {
+            HttpRequest request = request(ShardProtocol.SESSION_PATH + ShardProtocol.sessionQuery(sessionId))
+                    .PUT(HttpRequest.BodyPublishers.ofByteArray(ShardProtocol.encodeHistory(history)))
+                    .build();
+            checked(send(request));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void dropSession(String sessionId) {
+        try {
+            HttpRequest request = request(ShardProtocol.SESSION_PATH + ShardProtocol.sessionQuery(sessionId)).DELETE().build();
+            checked(send(request));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 检查节点是否可达
+     */
+    public boolean isHealthy() {
+        try {
+            HttpRequest request = request(ShardProtocol.HEALTH_PATH).GET().build();
+            return send(request).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private HttpRequest.Builder request(String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(baseUri + pathAndQuery))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json");
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("请求节点 " + id + " 被中断", e);
+        }
+    }
+
+    private byte[] checked(HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new UncheckedIOException(new IOException(
+                    "节点 " + id + " 返回 " + response.statusCode() + ": " + new String(response.body(), StandardCharsets.UTF_8)));
+        }
+        return response.body();
+    }
+
+    @Override
+    public String toString() {
+        return "remote(" + id + "@" + baseUri + ")";
+    }
+}
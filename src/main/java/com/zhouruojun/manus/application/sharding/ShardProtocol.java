@@ -0,0 +1,81 @@
+package com.zhouruojun.manus.application.sharding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.zhouruojun.manus.domain.model.Message;
+import com.zhouruojun.manus.domain.model.Role;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 节点之间的HTTP协议
+ * POST /shard/execute {"sessionId", "input"} -> {"result"}；
+ * GET/PUT/DELETE /shard/session?sessionId=... 导出、导入和删除会话历史（{"history": [{"role", "content"}]}）；
+ * GET /shard/health 健康检查
+ */
+final class ShardProtocol {
+
+    static final String EXECUTE_PATH = "/shard/execute";
+    static final String SESSION_PATH = "/shard/session";
+    static final String HEALTH_PATH = "/shard/health";
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ShardProtocol() {
+    }
+
+    static byte[] executeRequest(String sessionId, String input) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("sessionId", sessionId);
+        body.put("input", input);
+        return MAPPER.writeValueAsBytes(body);
+    }
+
+    static byte[] executeResponse(String result) throws IOException {
+        return MAPPER.writeValueAsBytes(MAPPER.createObjectNode().put("result", result));
+    }
+
+    static byte[] encodeHistory(List<Message> history) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode();
+        ArrayNode messages = body.putArray("history");
+        for (Message message : history) {
+            messages.addObject()
+                    .put("role", message.getRole().name())
+                    .put("content", message.getContent());
+        }
+        return MAPPER.writeValueAsBytes(body);
+    }
+
+    static List<Message> decodeHistory(byte[] body) throws IOException {
+        List<Message> history = new ArrayList<>();
+        for (JsonNode node : MAPPER.readTree(body).path("history")) {
+            history.add(Message.builder()
+                    .role(Role.valueOf(node.path("role").asText()))
+                    .content(node.path("content").asText())
+                    .build());
+        }
+        return history;
+    }
+
+    static String sessionQuery(String sessionId) {
+        return "?sessionId=" + URLEncoder.encode(sessionId, StandardCharsets.UTF_8);
+    }
+
+    static String sessionIdFrom(String rawQuery) {
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                if (pair.startsWith("sessionId=")) {
+                    return URLDecoder.decode(pair.substring("sessionId=".length()), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        throw new IllegalArgumentException("缺少sessionId参数");
+    }
+}
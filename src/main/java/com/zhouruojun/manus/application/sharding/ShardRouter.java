@@ -0,0 +1,320 @@
+package com.zhouruojun.manus.application.sharding;
+
+import com.zhouruojun.manus.domain.model.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 会话分片路由
+ * 按sessionId在一致性哈希环上选择引擎节点，会话第一次请求后固定在该节点（会话亲和），后续请求都发往同一节点。
+ * 节点加入或离开时重新计算归属，只有归属改变的会话从原节点导出历史、导入新节点；
+ * 有请求正在执行的会话推迟到请求完成后再迁移，避免回复写入已迁出的节点；离开的节点在其会话全部迁出前仍保留，期间继续处理这些会话的请求。
+ * 拓扑锁只保护归属计算，导出、导入和清理等远程调用在锁外执行；迁移中的会话的新请求等迁移完成后再发往新节点，
+ * 其他会话的请求不受影响
+ *
+ * 节点成员是静态的：由配置或调用addNode/removeNode的代码决定，节点之间不交换成员信息，会话归属和进行中请求数也只保存在本进程内。
+ * 因此一个分片只能有一个路由器：所有请求经由同一个进程的ShardRouter进入，其他进程只作为被路由的节点（ShardServer）。
+ * 多个进程各自路由时，节点不变期间它们按同一个哈希环得到相同的归属，但节点变化后各自迁移，互相看不到对方的进行中请求
+ */
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    private final ConsistentHashRing ring;
+    private final Map<String, EngineNode> nodes = new ConcurrentHashMap<>();
+    // 会话 -> 当前持有其历史的节点
+    private final Map<String, String> assignments = new ConcurrentHashMap<>();
+    // 会话 -> 正在执行的请求数
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    // 会话 -> 正在进行的迁移，迁移完成前该会话的新请求等待
+    private final Map<String, CompletableFuture<Void>> migrating = new ConcurrentHashMap<>();
+    // 已离开哈希环、仍有会话等待迁出的节点
+    private final Set<String> departing = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock topologyLock = new ReentrantLock();
+    private final Counter movedSessions;
+    private final Counter lostSessions;
+
+    /**
+     * @param virtualNodes 每个节点在哈希环上的虚拟节点数
+     * @param meterRegistry 指标注册表
+     */
+    public ShardRouter(int virtualNodes, MeterRegistry meterRegistry) {
+        this.ring = new ConsistentHashRing(virtualNodes);
+        this.movedSessions = Counter.builder("manus.shard.sessions.moved")
+                .description("节点变化后迁移到其他节点的会话数")
+                .register(meterRegistry);
+        this.lostSessions = Counter.builder("manus.shard.sessions.lost")
+                .description("迁移时无法从原节点导出历史的会话数")
+                .register(meterRegistry);
+        Gauge.builder("manus.shard.nodes", nodes, Map::size)
+                .description("分片中的引擎节点数")
+                .register(meterRegistry);
+        Gauge.builder("manus.shard.sessions", assignments, Map::size)
+                .description("已分配到节点的会话数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 执行会话的一次请求
+     */
+    public CompletableFuture<String> execute(String sessionId, String userInput) {
+        EngineNode node;
+        topologyLock.lock();
+        try {
+            CompletableFuture<Void> migration = migrating.get(sessionId);
+            if (migration != null) {
+                return migration.thenCompose(ignored -> execute(sessionId, userInput));
+            }
+            node = ownerOf(sessionId);
+            inFlight.computeIfAbsent(sessionId, id -> new AtomicInteger()).incrementAndGet();
+        } finally {
+            topologyLock.unlock();
+        }
+
+        CompletableFuture<String> future;
+        try {
+            future = node.execute(sessionId, userInput);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> finish(sessionId));
+    }
+
+    /**
+     * 获取会话当前所在的节点，未分配时按哈希环分配。
+     * 已分配的会话始终返回持有其历史的节点，即使该节点已离开哈希环，直到会话迁出
+     */
+    public EngineNode ownerOf(String sessionId) {
+        String nodeId = assignments.get(sessionId);
+        if (nodeId != null) {
+            return nodes.get(nodeId);
+        }
+
+        String target = ring.nodeFor(sessionId);
+        if (target == null) {
+            throw new IllegalStateException("分片中没有可用的引擎节点");
+        }
+        assignments.put(sessionId, target);
+        return nodes.get(target);
+    }
+
+    /**
+     * 加入节点，并把哈希环上改为归属新节点的会话迁移过去
+     */
+    public void addNode(EngineNode node) {
+        List<Migration> migrations;
+        topologyLock.lock();
+        try {
+            nodes.put(node.id(), node);
+            ring.add(node.id());
+            departing.remove(node.id());
+            log.info("节点 {} 加入分片，当前节点: {}", node, ring.nodes());
+            migrations = planRebalance();
+        } finally {
+            topologyLock.unlock();
+        }
+        runAll(migrations);
+    }
+
+    /**
+     * 移除节点，原节点仍可访问时把其会话迁移到新的归属节点。
+     * 有请求正在执行的会话在请求完成后才迁出，原节点保留到最后一个会话迁出为止
+     */
+    public void removeNode(String nodeId) {
+        List<Migration> migrations;
+        topologyLock.lock();
+        try {
+            if (!nodes.containsKey(nodeId)) {
+                return;
+            }
+            ring.remove(nodeId);
+            departing.add(nodeId);
+            log.info("节点 {} 离开分片，当前节点: {}", nodeId, ring.nodes());
+            migrations = planRebalance();
+        } finally {
+            topologyLock.unlock();
+        }
+        runAll(migrations);
+    }
+
+    /**
+     * 当前的节点ID
+     */
+    public Set<String> nodeIds() {
+        return ring.nodes();
+    }
+
+    /**
+     * 把归属与哈希环不一致且没有进行中请求的会话迁移到归属节点
+     * @return 迁移的会话数
+     */
+    public int rebalance() {
+        List<Migration> migrations;
+        topologyLock.lock();
+        try {
+            migrations = planRebalance();
+        } finally {
+            topologyLock.unlock();
+        }
+        return runAll(migrations);
+    }
+
+    /**
+     * 在拓扑锁内选出需要迁移的会话并标记为迁移中
+     */
+    private List<Migration> planRebalance() {
+        List<Migration> migrations = new ArrayList<>();
+        for (Map.Entry<String, String> entry : assignments.entrySet()) {
+            Migration migration = plan(entry.getKey(), entry.getValue());
+            if (migration != null) {
+                migrations.add(migration);
+            }
+        }
+        return migrations;
+    }
+
+    /**
+     * 归属与哈希环不一致、没有进行中请求且不在迁移中的会话标记为迁移中
+     * @return 迁移计划，不需要迁移时返回null
+     */
+    private Migration plan(String sessionId, String fromId) {
+        String target = ring.nodeFor(sessionId);
+        if (fromId == null || target == null || target.equals(fromId) || isBusy(sessionId)
+                || migrating.containsKey(sessionId)) {
+            return null;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        migrating.put(sessionId, done);
+        return new Migration(sessionId, fromId, target, nodes.get(fromId), nodes.get(target), done);
+    }
+
+    private int runAll(List<Migration> migrations) {
+        int moved = 0;
+        for (Migration migration : migrations) {
+            if (migrate(migration)) {
+                moved++;
+            }
+        }
+        if (moved > 0) {
+            log.info("重新平衡迁移了 {} 个会话", moved);
+        }
+        releaseDeparted();
+        return moved;
+    }
+
+    /**
+     * 移除已离开哈希环且不再持有任何会话的节点
+     */
+    private void releaseDeparted() {
+        topologyLock.lock();
+        try {
+            for (String nodeId : departing) {
+                if (!assignments.containsValue(nodeId)) {
+                    departing.remove(nodeId);
+                    nodes.remove(nodeId);
+                    log.info("节点 {} 的会话已全部迁出，从分片中移除", nodeId);
+                }
+            }
+        } finally {
+            topologyLock.unlock();
+        }
+    }
+
+    /**
+     * 请求完成后减少计数，归属已经改变的空闲会话此时迁移
+     */
+    private void finish(String sessionId) {
+        Migration migration = null;
+        topologyLock.lock();
+        try {
+            AtomicInteger count = inFlight.get(sessionId);
+            if (count != null && count.decrementAndGet() <= 0) {
+                inFlight.remove(sessionId);
+                migration = plan(sessionId, assignments.get(sessionId));
+            }
+        } finally {
+            topologyLock.unlock();
+        }
+        if (migration != null) {
+            migrate(migration);
+            releaseDeparted();
+        }
+    }
+
+    private boolean isBusy(String sessionId) {
+        AtomicInteger count = inFlight.get(sessionId);
+        return count != null && count.get() > 0;
+    }
+
+    /**
+     * 在拓扑锁外把会话历史从原节点移到目标节点；原节点已不可访问时会话在目标节点从空历史开始。
+     * 结束后（无论成功与否）解除迁移标记，等待中的请求按最新的归属继续
+     * @return 会话是否已改为归属目标节点
+     */
+    private boolean migrate(Migration migration) {
+        try {
+            return transfer(migration);
+        } finally {
+            migrating.remove(migration.sessionId());
+            migration.done().complete(null);
+        }
+    }
+
+    private boolean transfer(Migration migration) {
+        String sessionId = migration.sessionId();
+        String fromId = migration.fromId();
+        String toId = migration.toId();
+        EngineNode from = migration.from();
+        EngineNode to = migration.to();
+        List<Message> history = List.of();
+        if (from != null) {
+            try {
+                history = from.exportSession(sessionId);
+            } catch (RuntimeException e) {
+                log.warn("无法从节点 {} 导出会话 {}，在节点 {} 上从空历史开始: {}", fromId, sessionId, toId, e.getMessage());
+                lostSessions.increment();
+                from = null;
+            }
+        } else {
+            lostSessions.increment();
+        }
+
+        try {
+            to.importSession(sessionId, history);
+        } catch (RuntimeException e) {
+            log.warn("会话 {} 导入节点 {} 失败，暂时保留在原节点: {}", sessionId, toId, e.getMessage());
+            return false;
+        }
+        assignments.put(sessionId, toId);
+        movedSessions.increment();
+        log.debug("会话 {} 从节点 {} 迁移到 {}（{} 条历史）", sessionId, fromId, toId, history.size());
+
+        if (from != null) {
+            try {
+                from.dropSession(sessionId);
+            } catch (RuntimeException e) {
+                log.warn("清理节点 {} 上已迁出的会话 {} 失败: {}", fromId, sessionId, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一次会话迁移，节点在计划时从拓扑中取出，避免迁移期间节点被移除后找不到原节点
+     */
+    private record Migration(String sessionId, String fromId, String toId, EngineNode from, EngineNode to,
+                             CompletableFuture<Void> done) {
+    }
+}
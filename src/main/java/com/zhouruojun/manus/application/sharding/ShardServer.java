@@ -0,0 +1,128 @@
+package com.zhouruojun.manus.application.sharding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 把本地引擎节点暴露给其他进程的HTTP服务（JDK内置HttpServer），协议见ShardProtocol；
+ * 每个请求在独立的虚拟线程上处理
+ */
+public class ShardServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardServer.class);
+
+    private final EngineNode node;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * 创建并启动服务
+     * @param node 对外提供的本地节点
+     * @param host 绑定地址，本机多进程测试时使用127.0.0.1
+     * @param port 端口
+     */
+    public ShardServer(EngineNode node, String host, int port) throws IOException {
+        this.node = node;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.setExecutor(executor);
+        server.createContext(ShardProtocol.EXECUTE_PATH, exchange -> handle(exchange, this::execute));
+        server.createContext(ShardProtocol.SESSION_PATH, exchange -> handle(exchange, this::session));
+        server.createContext(ShardProtocol.HEALTH_PATH, exchange -> handle(exchange,
+                e -> respond(e, 200, "ok".getBytes(StandardCharsets.UTF_8))));
+        server.start();
+        log.info("分片节点 {} 开始在 {}:{} 提供服务", node.id(), host, server.getAddress().getPort());
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void execute(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, new byte[0]);
+            return;
+        }
+        JsonNode body = ShardProtocol.MAPPER.readTree(exchange.getRequestBody().readAllBytes());
+        String result = node.execute(body.path("sessionId").asText(), body.path("input").asText()).join();
+        respond(exchange, 200, ShardProtocol.executeResponse(result));
+    }
+
+    private void session(HttpExchange exchange) throws IOException {
+        String sessionId = ShardProtocol.sessionIdFrom(exchange.getRequestURI().getRawQuery());
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> respond(exchange, 200, ShardProtocol.encodeHistory(node.exportSession(sessionId)));
+            case "PUT" -> {
+                node.importSession(sessionId, ShardProtocol.decodeHistory(exchange.getRequestBody().readAllBytes()));
+                respond(exchange, 204, null);
+            }
+            case "DELETE" -> {
+                node.dropSession(sessionId);
+                respond(exchange, 204, null);
+            }
+            default -> respond(exchange, 405, new byte[0]);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static void handle(HttpExchange exchange, Handler handler) {
+        try {
+            handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            respondQuietly(exchange, 400, String.valueOf(e.getMessage()));
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("处理分片请求 {} 失败: {}", exchange.getRequestURI(), cause.getMessage());
+            respondQuietly(exchange, 500, String.valueOf(cause.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respondQuietly(HttpExchange exchange, int status, String message) {
+        try {
+            respond(exchange, status, message.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("写回分片响应失败: {}", e.getMessage());
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+        log.info("分片节点 {} 已停止服务", node.id());
+    }
+}
@@ -1,6 +1,7 @@
 // Agent.java
 package com.zhouruojun.manus.domain.agent.base;
 
+import com.zhouruojun.manus.infrastructure.concurrent.Deadline;
 import org.springframework.ai.chat.messages.Message;
 
 import java.util.List;
@@ -23,6 +24,18 @@ public interface Agent {
 
     AgentState getState();
 
+    /**
+     * 重置智能体到刚初始化完成的状态
+     * 记忆恢复为系统提示词快照，步骤计数和运行状态清零，以便实例被复用
+     */
+    void reset();
+
+    /**
+     * 设置本次运行的截止时间，智能体在每个步骤、LLM调用和工具调用前检查
+     * @param deadline 截止时间
+     */
+    void setDeadline(Deadline deadline);
+
     /**
      * 获取智能体名称
      * @return 智能体名称
@@ -1,8 +1,14 @@
 package com.zhouruojun.manus.domain.agent.base;
 
 import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.domain.model.TokenManager;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowContextHolder;
+import com.zhouruojun.manus.infrastructure.concurrent.Deadline;
+import com.zhouruojun.manus.infrastructure.exception.DeadlineExceededException;
+import com.zhouruojun.manus.infrastructure.jfr.NodeExecutionEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.action.NodeAction;
+import org.springframework.ai.chat.messages.UserMessage;
 
 import java.util.Map;
 
@@ -29,25 +35,43 @@ public abstract class AgentNodeAdapter implements NodeAction<AgentMessageState>
 
     @Override
     public Map<String, Object> apply(AgentMessageState state) throws Exception {
+        Deadline deadline = WorkflowContextHolder.deadlineFor(state);
+        deadline.check(getNodeName());
+        NodeExecutionEvent event = NodeExecutionEvent.begin(getNodeName(), "agent");
         try {
             log.info("Processing agent node: {}", getNodeName());
-            return processAgentNode(state);
+            agent.setDeadline(deadline);
+            Map<String, Object> update = processAgentNode(state, deadline);
+            event.setResponse(update);
+            return update;
         } catch (Exception e) {
+            event.setFailed(true);
+            // 超时或取消需要交给引擎处理以返回部分结果，不能转换为普通错误
+            DeadlineExceededException deadlineExceeded = DeadlineExceededException.find(e);
+            if (deadlineExceeded != null) {
+                throw deadlineExceeded;
+            }
             log.error("Error in agent node {}: {}", getNodeName(), e.getMessage(), e);
             return Map.of(
                 "error", "智能体节点执行错误: " + e.getMessage(),
                 "messages", AgentMessageState.createAiMessage("智能体节点执行错误: " + e.getMessage()),
                 "finished", true
             );
+        } finally {
+            if (event.isEnabled()) {
+                event.setPromptTokens(TokenManager.estimateTokensForMessage(new UserMessage(state.userInput().orElse(""))));
+            }
+            event.finish();
         }
     }
 
     /**
      * 处理智能体节点的核心逻辑
      * @param state 当前状态
+     * @param deadline 本次运行的截止时间
      * @return 更新后的状态数据
      */
-    protected Map<String, Object> processAgentNode(AgentMessageState state) throws Exception {
+    protected Map<String, Object> processAgentNode(AgentMessageState state, Deadline deadline) throws Exception {
         String userInput = state.userInput().orElse("");
         
         // 如果有历史记录，处理历史上下文
@@ -77,7 +101,7 @@ public abstract class AgentNodeAdapter implements NodeAction<AgentMessageState>
         }
         
         // 运行智能体
-        String result = agent.run(userInput).get();
+        String result = deadline.await(getNodeName(), agent.run(userInput));
         
         // 创建AI响应消息
         var aiMessage = AgentMessageState.createAiMessage(result);
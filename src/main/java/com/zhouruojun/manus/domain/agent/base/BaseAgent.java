@@ -2,6 +2,8 @@ package com.zhouruojun.manus.domain.agent.base;
 
 import com.zhouruojun.manus.domain.model.LLM;
 import com.zhouruojun.manus.domain.model.Memory;
+import com.zhouruojun.manus.infrastructure.concurrent.AsyncExecutors;
+import com.zhouruojun.manus.infrastructure.concurrent.Deadline;
 import lombok.Builder.Default;
 import lombok.Data;
 import lombok.experimental.SuperBuilder;
@@ -51,6 +53,11 @@ public abstract class BaseAgent implements Agent {
     private int currentStep = 0;
     @Default
     private int duplicateThreshold = 2;
+    @Default
+    private Deadline deadline = Deadline.none();
+
+    // 初始化完成时的记忆快照（系统提示词），reset时恢复
+    private List<org.springframework.ai.chat.messages.Message> memorySnapshot;
 
     /**
      * 初始化智能体的基本组件 - 在构建后调用此方法
@@ -78,6 +85,21 @@ public abstract class BaseAgent implements Agent {
             SystemMessage systemMessage = new SystemMessage(enhancedPrompt);
             updateMemory(systemMessage);
         }
+
+        this.memorySnapshot = List.copyOf(memory.getMessages());
+    }
+
+    @Override
+    public void reset() {
+        memory.clearMemory();
+        if (memorySnapshot != null && !memorySnapshot.isEmpty()) {
+            memory.getChatMemory().add(conversationId, memorySnapshot);
+        }
+        this.state = AgentState.IDLE;
+        this.currentStep = 0;
+        this.response = null;
+        this.nextStepPrompt = null;
+        this.deadline = Deadline.none();
     }
 
     /**
@@ -134,6 +156,7 @@ public abstract class BaseAgent implements Agent {
 
             withState(AgentState.RUNNING, () -> {
                 while (currentStep < maxSteps && state != AgentState.FINISHED) {
+                    deadline.check(name + " 第" + (currentStep + 1) + "步");
                     currentStep++;
                     log.info("执行步骤 {}/{}", currentStep, maxSteps);
 
@@ -172,7 +195,7 @@ public abstract class BaseAgent implements Agent {
                 return "我没有执行任何步骤，请问您需要我帮您做什么？";
             }
             return String.join("\n", results);
-        });
+        }, AsyncExecutors.get());
     }
 
     @Override
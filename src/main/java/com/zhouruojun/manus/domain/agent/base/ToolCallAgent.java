@@ -1,6 +1,12 @@
 package com.zhouruojun.manus.domain.agent.base;
 
+import com.zhouruojun.manus.infrastructure.concurrent.AsyncExecutors;
+import com.zhouruojun.manus.infrastructure.exception.DeadlineExceededException;
 import com.zhouruojun.manus.infrastructure.exception.TokenLimitExceededException;
+import com.zhouruojun.manus.infrastructure.jfr.ToolExecutionEvent;
+import com.zhouruojun.manus.infrastructure.tracing.SpanKind;
+import com.zhouruojun.manus.infrastructure.tracing.Tracing;
+import com.zhouruojun.manus.domain.model.LlmStreamListener;
 import com.zhouruojun.manus.domain.model.Message;
 import com.zhouruojun.manus.infrastructure.tools.collection.ToolCollection;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,17 +16,28 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
 import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.execution.DefaultToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 /**
  * ToolCallAgent类用于处理工具/函数调用，提供增强的抽象能力
@@ -34,6 +51,8 @@ public class ToolCallAgent extends ReActAgent {
 
     private static final String TOOL_CALL_REQUIRED = "需要工具调用但未提供";
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ToolExecutionExceptionProcessor toolExceptionProcessor =
+            DefaultToolExecutionExceptionProcessor.builder().build();
 
     // 可用工具集合
     @Default
@@ -50,6 +69,15 @@ public class ToolCallAgent extends ReActAgent {
     private Prompt promptWithMemory;
     private String currentBase64Image = null;
 
+    // 流式推理：边接收边输出，工具调用的参数完整后立即开始执行
+    @Default
+    private boolean streaming = false;
+    @Default
+    private boolean earlyToolExecution = false;
+    // 本轮思考中提前启动的工具调用：工具调用ID -> 执行结果，登记在本次运行的截止时间上
+    @Default
+    private Map<String, Future<String>> earlyToolResults = new ConcurrentHashMap<>();
+
     // 执行控制
     private Integer maxObserve = null;
 
@@ -91,6 +119,15 @@ public class ToolCallAgent extends ReActAgent {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        toolCalls.clear();
+        discardEarlyToolResults();
+        promptWithMemory = null;
+        currentBase64Image = null;
+    }
+
     /**
      * 思考方法：处理当前状态并使用工具决定下一步操作
      * @return 是否需要执行行动
@@ -100,19 +137,24 @@ public class ToolCallAgent extends ReActAgent {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 log.info("🤔 {}开始思考阶段，可用工具数量: {}", getName(), availableTools.getToolCallbacks().length);
-                
-                // 调用LLM与工具选项 - 只进行一次推理，不执行工具
+                discardEarlyToolResults();
+
+                // 调用LLM与工具选项 - 只进行一次推理；流式推理时参数完整的工具调用会提前开始执行；超过截止时间时中断请求
                 ChatResponse response;
                 try {
-                    response = getLlm().askTool(
-                        getMemory().getMessages(),
+                    List<org.springframework.ai.chat.messages.Message> systemMsgs =
                         (getSystemPrompt() != null && !getSystemPrompt().trim().isEmpty()) ?
-                            Arrays.asList(Message.systemMessage(getSystemPrompt(), null).getSpringMessage()) : null,
-                            getMemory(),
-                            this.chatOption,
-                            getConversationId()).join();
+                            Arrays.asList(Message.systemMessage(getSystemPrompt(), null).getSpringMessage()) : null;
+                    response = getDeadline().call(getName() + " 思考", () -> streaming
+                        ? getLlm().askToolStreaming(getMemory().getMessages(), systemMsgs, getMemory(),
+                            this.chatOption, getConversationId(), thinkListener())
+                        : getLlm().askToolBlocking(getMemory().getMessages(), systemMsgs, getMemory(),
+                            this.chatOption, getConversationId()));
                     this.response = response;
 
+                } catch (DeadlineExceededException e) {
+                    discardEarlyToolResults();
+                    throw e;
                 } catch (Exception e) {
                     // 检查是否是令牌限制错误
                     if (e.getCause() instanceof TokenLimitExceededException) {
@@ -137,12 +179,15 @@ public class ToolCallAgent extends ReActAgent {
                 getMemory().getChatMemory().add(getConversationId(), response.getResult().getOutput());
 
                 return hasToolCalls;
+            } catch (DeadlineExceededException e) {
+                log.warn("⏱️ {}的思考阶段超过截止时间: {}", getName(), e.getMessage());
+                throw e;
             } catch (Exception e) {
                 log.error("❌ {}的思考过程中发生错误: {}", getName(), e.getMessage(), e);
                 setState(AgentState.FINISHED);
                 return false;
             }
-        });
+        }, AsyncExecutors.get());
     }
 
     /**
@@ -167,6 +212,7 @@ public class ToolCallAgent extends ReActAgent {
                 }
 
                 while (this.response.hasToolCalls()) {
+                    getDeadline().check(getName() + " 工具调用");
                     log.info("🔧 {}是否有工具调用: {}", getName(), this.response.hasToolCalls());
                     log.info("🔧 {}检测到工具调用，数量: {}", getName(), this.response.getResult().getOutput().getToolCalls().size());
                     // 记录工具调用详情
@@ -179,8 +225,27 @@ public class ToolCallAgent extends ReActAgent {
                     ToolCallingManager toolCallingManager = DefaultToolCallingManager.builder().build();
                     // 执行工具调用
                     log.info("🔧 {}正在执行工具...", getName());
-                    ToolExecutionResult toolExecutionResult = toolCallingManager.executeToolCalls(getLlm().prompt,
-                            this.response);
+                    ChatResponse pendingResponse = this.response;
+                    List<AssistantMessage.ToolCall> pendingCalls = pendingResponse.getResult().getOutput().getToolCalls();
+                    ToolExecutionEvent toolEvent = ToolExecutionEvent.begin(getName(),
+                            pendingCalls.stream().map(AssistantMessage.ToolCall::name).collect(Collectors.joining(",")),
+                            pendingCalls.size(),
+                            pendingCalls.stream().mapToLong(call -> call.arguments() != null ? call.arguments().length() : 0).sum());
+                    ToolExecutionResult toolExecutionResult;
+                    try {
+                        // 工具在当前线程中执行，沿用act开始时设置的智能体上下文
+                        toolExecutionResult = getDeadline().call(getName() + " 工具调用",
+                                () -> executeToolCalls(toolCallingManager, pendingResponse));
+                        List<org.springframework.ai.chat.messages.Message> history = toolExecutionResult.conversationHistory();
+                        String toolOutput = history.get(history.size() - 1).getText();
+                        toolEvent.setResponseSize(toolOutput != null ? toolOutput.length() : 0);
+                    } catch (RuntimeException e) {
+                        toolEvent.setFailed(true);
+                        discardEarlyToolResults();
+                        throw e;
+                    } finally {
+                        toolEvent.finish();
+                    }
                     log.info("✅ {}工具执行完成", getName());
                     
                     // 检查是否是terminate工具调用
@@ -205,7 +270,9 @@ public class ToolCallAgent extends ReActAgent {
                     getMemory().addMessage(getConversationId(), Message.userMessage(conversationalPrompt, null).getSpringMessage());
 
                     // 调用模型获取响应
-                    this.response = getLlm().chatModel.call(new Prompt(getMemory().getChatMemory().get(getConversationId()), this.chatOption));
+                    Prompt followUpPrompt = new Prompt(getMemory().getChatMemory().get(getConversationId()), this.chatOption);
+                    this.response = getDeadline().call(getName() + " 工具结果解释",
+                            () -> Tracing.trace(SpanKind.LLM, "followUp", () -> getLlm().chatModel.call(followUpPrompt)));
                     String result = this.response.getResult().getOutput().getText();
                     getMemory().addMessage(getConversationId(), this.response.getResult().getOutput());
                     results.add(result);
@@ -232,7 +299,117 @@ public class ToolCallAgent extends ReActAgent {
                 // 清理线程上下文
                 ToolCallAgentContextHolder.clear();
             }
-        });
+        }, AsyncExecutors.get());
+    }
+
+    /**
+     * 流式思考的回调：记录文本增量，工具调用的参数一旦完整就提前开始执行
+     */
+    private LlmStreamListener thinkListener() {
+        return new LlmStreamListener() {
+            @Override
+            public void onText(String delta) {
+                log.debug("💬 {}: {}", getName(), delta);
+            }
+
+            @Override
+            public void onToolCall(AssistantMessage.ToolCall toolCall) {
+                if (earlyToolExecution) {
+                    startToolEarly(toolCall);
+                }
+            }
+        };
+    }
+
+    /**
+     * 提前执行一个参数已完整的工具调用，结果在act阶段取用
+     * 没有ID、没有参数或找不到对应工具的调用留给act阶段按原有方式处理；
+     * 任务通过本次运行的截止时间提交，请求取消时随其他调用一起被中断
+     */
+    private void startToolEarly(AssistantMessage.ToolCall toolCall) {
+        if (toolCall.id() == null || toolCall.id().isEmpty()
+                || toolCall.arguments() == null || toolCall.arguments().isBlank()
+                || earlyToolResults.containsKey(toolCall.id())) {
+            return;
+        }
+        ToolCallback callback = findToolCallback(toolCall.name());
+        if (callback == null) {
+            return;
+        }
+        log.info("⚡ {}提前执行工具: {} 参数: {}", getName(), toolCall.name(), toolCall.arguments());
+        earlyToolResults.put(toolCall.id(), getDeadline().submit(getName() + " 提前执行工具", () -> {
+            ToolCallAgentContextHolder.setCurrentAgent(this);
+            try {
+                return callback.call(toolCall.arguments());
+            } finally {
+                ToolCallAgentContextHolder.clear();
+            }
+        }, AsyncExecutors.get()));
+    }
+
+    /**
+     * 执行一轮工具调用
+     * 没有提前执行的工具时交给ToolCallingManager；否则取用提前执行的结果，其余工具在当前线程执行，
+     * 并按ToolCallingManager的形式组装对话历史
+     */
+    private ToolExecutionResult executeToolCalls(ToolCallingManager toolCallingManager, ChatResponse pendingResponse) {
+        if (earlyToolResults.isEmpty()) {
+            return toolCallingManager.executeToolCalls(getLlm().prompt, pendingResponse);
+        }
+        AssistantMessage assistantMessage = pendingResponse.getResult().getOutput();
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>();
+        for (AssistantMessage.ToolCall toolCall : assistantMessage.getToolCalls()) {
+            Future<String> early = toolCall.id() != null ? earlyToolResults.remove(toolCall.id()) : null;
+            String result = early != null ? awaitEarlyResult(early) : invokeTool(toolCall);
+            responses.add(new ToolResponseMessage.ToolResponse(toolCall.id(), toolCall.name(), result));
+        }
+        discardEarlyToolResults();
+
+        List<org.springframework.ai.chat.messages.Message> history = new ArrayList<>(getLlm().prompt.getInstructions());
+        history.add(assistantMessage);
+        history.add(new ToolResponseMessage(responses, Map.of()));
+        return ToolExecutionResult.builder().conversationHistory(history).build();
+    }
+
+    private String awaitEarlyResult(Future<String> early) {
+        try {
+            return getDeadline().await(getName() + " 提前执行工具", early);
+        } catch (ToolExecutionException e) {
+            return toolExceptionProcessor.process(e);
+        }
+    }
+
+    private String invokeTool(AssistantMessage.ToolCall toolCall) {
+        ToolCallback callback = findToolCallback(toolCall.name());
+        if (callback == null) {
+            throw new IllegalStateException("未找到工具: " + toolCall.name());
+        }
+        try {
+            return callback.call(toolCall.arguments());
+        } catch (ToolExecutionException e) {
+            return toolExceptionProcessor.process(e);
+        }
+    }
+
+    private ToolCallback findToolCallback(String toolName) {
+        // 优先使用聊天选项中带跟踪的回调，与ToolCallingManager执行的回调一致
+        List<ToolCallback> callbacks = chatOption instanceof ToolCallingChatOptions toolOptions
+                ? toolOptions.getToolCallbacks()
+                : Arrays.asList(availableTools.getToolCallbacks());
+        for (ToolCallback callback : callbacks) {
+            if (callback.getToolDefinition().name().equals(toolName)) {
+                return callback;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 丢弃尚未取用的提前执行结果（例如思考失败或超时），并中断仍在执行的工具
+     */
+    private void discardEarlyToolResults() {
+        earlyToolResults.values().forEach(future -> future.cancel(true));
+        earlyToolResults.clear();
     }
 
     /**
@@ -3,6 +3,7 @@ package com.zhouruojun.manus.domain.agent.specialized;
 import com.zhouruojun.manus.domain.agent.base.Agent;
 import com.zhouruojun.manus.domain.agent.base.AgentState;
 import com.zhouruojun.manus.domain.agent.base.ToolCallAgent;
+import com.zhouruojun.manus.infrastructure.concurrent.Deadline;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.messages.Message;
@@ -59,6 +60,16 @@ public abstract class AbstractSpecializedAgent implements Agent {
         return delegate.getState();
     }
 
+    @Override
+    public void reset() {
+        delegate.reset();
+    }
+
+    @Override
+    public void setDeadline(Deadline deadline) {
+        delegate.setDeadline(deadline);
+    }
+
     @Override
     public void initialize() {
         // 默认实现委托给delegate的initialize方法
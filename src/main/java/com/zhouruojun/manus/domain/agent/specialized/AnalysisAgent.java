@@ -25,7 +25,21 @@ public class AnalysisAgent extends AbstractSpecializedAgent {
      * @param promptPath 提示词文件路径
      */
     public AnalysisAgent(ChatModel chatModel, ToolCollection analysisTools, String name, PromptLoader promptLoader, String promptPath) {
-        super(createDelegate(chatModel, analysisTools, name));
+        this(chatModel, analysisTools, name, name, promptLoader, promptPath);
+    }
+
+    /**
+     * 创建一个使用独立会话ID的分析智能体实例
+     *
+     * @param chatModel 聊天模型
+     * @param analysisTools 分析相关工具集合
+     * @param name 智能体名称
+     * @param conversationId 会话ID，同名智能体的多个实例需要使用不同的会话ID以隔离记忆
+     * @param promptLoader 提示词加载器
+     * @param promptPath 提示词文件路径
+     */
+    public AnalysisAgent(ChatModel chatModel, ToolCollection analysisTools, String name, String conversationId, PromptLoader promptLoader, String promptPath) {
+        super(createDelegate(chatModel, analysisTools, name, conversationId));
 
         // 设置系统提示词
         setSystemPrompt(promptLoader.loadPromptWithReplacements(
@@ -39,13 +53,13 @@ public class AnalysisAgent extends AbstractSpecializedAgent {
     /**
      * 创建委托的ToolCallAgent实例
      */
-    private static ToolCallAgent createDelegate(ChatModel chatModel, ToolCollection tools, String name) {
+    private static ToolCallAgent createDelegate(ChatModel chatModel, ToolCollection tools, String name, String conversationId) {
         return ToolCallAgent.builder()
                 .name(name)
                 .description("专注于数据分析和信息处理的智能体，擅长识别模式和提取见解。")
                 .chatModel(chatModel)
                 .availableTools(tools)
-                .conversationId(name)
+                .conversationId(conversationId)
                 .build();
     }
 }
\ No newline at end of file
@@ -24,7 +24,21 @@ public class SearchAgent extends AbstractSpecializedAgent {
      * @param promptPath 提示词文件路径
      */
     public SearchAgent(ChatModel chatModel, ToolCollection searchTools, String name, PromptLoader promptLoader, String promptPath) {
-        super(createDelegate(chatModel, searchTools, name));
+        this(chatModel, searchTools, name, name, promptLoader, promptPath);
+    }
+
+    /**
+     * 创建一个使用独立会话ID的搜索智能体实例
+     *
+     * @param chatModel 聊天模型
+     * @param searchTools 搜索相关工具集合
+     * @param name 智能体名称
+     * @param conversationId 会话ID，同名智能体的多个实例需要使用不同的会话ID以隔离记忆
+     * @param promptLoader 提示词加载器
+     * @param promptPath 提示词文件路径
+     */
+    public SearchAgent(ChatModel chatModel, ToolCollection searchTools, String name, String conversationId, PromptLoader promptLoader, String promptPath) {
+        super(createDelegate(chatModel, searchTools, name, conversationId));
 
         // 设置系统提示词
         setSystemPrompt(promptLoader.loadPromptWithReplacements(
@@ -38,13 +52,13 @@ public class SearchAgent extends AbstractSpecializedAgent {
     /**
      * 创建委托的ToolCallAgent实例
      */
-    private static ToolCallAgent createDelegate(ChatModel chatModel, ToolCollection tools, String name) {
+    private static ToolCallAgent createDelegate(ChatModel chatModel, ToolCollection tools, String name, String conversationId) {
         return ToolCallAgent.builder()
                 .name(name)
                 .description("专注于信息检索和查询的智能体，擅长使用各种搜索工具获取信息。")
                 .chatModel(chatModel)
                 .availableTools(tools)
-                .conversationId(name)
+                .conversationId(conversationId)
                 .build();
     }
 }
\ No newline at end of file
@@ -58,6 +58,20 @@ public class AgentMessageState extends MessagesState<ChatMessage> {
         return this.value("sessionId");
     }
     
+    /**
+     * 获取本次工作流运行ID
+     */
+    public Optional<String> runId() {
+        return this.value("runId");
+    }
+
+    /**
+     * 获取本次运行的截止时间（epoch毫秒）
+     */
+    public Optional<Long> deadlineAt() {
+        return this.value("deadlineAt");
+    }
+    
     /**
      * 检查是否完成
      */
@@ -87,6 +101,17 @@ public class AgentMessageState extends MessagesState<ChatMessage> {
         return this.value("toolResults");
     }
 
+    /**
+     * 获取需要并行执行的动作列表
+     * 协调器一次返回多个动作时写入，形如 "search,analysis"
+     */
+    public List<String> parallelActions() {
+        return this.<String>value("parallelActions")
+                .filter(actions -> !actions.isBlank())
+                .map(actions -> List.of(actions.split(",")))
+                .orElse(List.of());
+    }
+
     /**
      * 创建用户消息
      */
@@ -1,27 +1,81 @@
 package com.zhouruojun.manus.domain.model;
 
 import com.zhouruojun.manus.domain.model.Memory;
+import com.zhouruojun.manus.infrastructure.concurrent.AsyncExecutors;
+import com.zhouruojun.manus.infrastructure.jfr.LlmCallEvent;
+import com.zhouruojun.manus.infrastructure.tracing.Span;
+import com.zhouruojun.manus.infrastructure.tracing.SpanKind;
+import com.zhouruojun.manus.infrastructure.tracing.Tracing;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.Prompt;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+@Slf4j
 public class LLM {
     public final ChatModel chatModel;
     private String conversationId = "default";
+    // 会话ID -> 增量提示词组装器
+    private final Map<String, PromptAssembler> assemblers = new ConcurrentHashMap<>();
 
     public Prompt prompt;
 
+    // 提示词增长和大小指标，创建或绑定注册表时注册一次
+    private DistributionSummary appendGrowth;
+    private DistributionSummary rebuildGrowth;
+    private DistributionSummary promptTokens;
+
     public LLM(ChatModel chatModel) {
+        this(chatModel, Metrics.globalRegistry);
+    }
+
+    /**
+     * @param chatModel 聊天模型
+     * @param meterRegistry 提示词指标的注册表
+     */
+    public LLM(ChatModel chatModel, MeterRegistry meterRegistry) {
         this.chatModel = chatModel;
+        bindMetrics(meterRegistry);
+    }
+
+    /**
+     * 把提示词指标注册到指定的注册表，应在开始调用模型之前完成
+     * @param meterRegistry 指标注册表
+     */
+    public void bindMetrics(MeterRegistry meterRegistry) {
+        this.appendGrowth = growthSummary(meterRegistry, "append");
+        this.rebuildGrowth = growthSummary(meterRegistry, "rebuild");
+        this.promptTokens = DistributionSummary.builder("manus.llm.prompt.tokens")
+                .description("每一步提示词估算的token数")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary growthSummary(MeterRegistry meterRegistry, String kind) {
+        return DistributionSummary.builder("manus.llm.prompt.growth")
+                .description("每一步提示词估算token数的增长")
+                .baseUnit("tokens")
+                .tag("kind", kind)
+                .register(meterRegistry);
     }
 
     public void setConversationId(String conversationId) {
@@ -42,12 +96,33 @@ public class LLM {
             Prompt prompt = new Prompt(aiMessages);
 
             // 调用模型并获取响应
-            ChatResponse response = chatModel.call(prompt);
+            ChatResponse response = callTraced("call", prompt);
 
             this.prompt =prompt;
             // 返回响应内容
             return response.getResult().getOutput().getText();
-        });
+        }, AsyncExecutors.get());
+    }
+
+    /**
+     * 以流式方式调用LLM进行对话，每收到一段文本就回调onText
+     * @param messages 消息列表
+     * @param onText 文本增量回调
+     * @return 异步返回完整的响应内容
+     */
+    public CompletableFuture<String> stream(List<com.zhouruojun.manus.domain.model.Message> messages,
+                                            Consumer<String> onText) {
+        return CompletableFuture.supplyAsync(() -> {
+            Prompt prompt = new Prompt(convertToAiMessages(messages));
+            ChatResponse response = streamTraced("stream", prompt, new LlmStreamListener() {
+                @Override
+                public void onText(String delta) {
+                    onText.accept(delta);
+                }
+            });
+            this.prompt = prompt;
+            return response.getResult().getOutput().getText();
+        }, AsyncExecutors.get());
     }
 
     public CompletableFuture<ChatResponse> askTool(
@@ -57,28 +132,215 @@ public class LLM {
             ChatOptions chatOptions,
             String conversationId) {
 
-        return CompletableFuture.supplyAsync(() -> {
-            // 转换消息为Spring AI格式
-            List<Message> aiMessages = messages;
-            // 添加系统消息
-            if (systemMsgs != null && !systemMsgs.isEmpty()) {
-                List<Message> sysAiMsgs = systemMsgs;
-                for (Message sysMsg : sysAiMsgs) {
-                    aiMessages.add(0, sysMsg); // 系统消息放在最前面
+        return CompletableFuture.supplyAsync(
+                () -> askToolBlocking(messages, systemMsgs, memory, chatOptions, conversationId),
+                AsyncExecutors.get());
+    }
+
+    /**
+     * askTool的同步版本，在调用线程上直接请求模型
+     * 供需要在可中断任务中执行LLM调用的场景使用（例如截止时间控制）
+     */
+    public ChatResponse askToolBlocking(
+            List<Message> messages,
+            List<Message> systemMsgs,
+            Memory memory,
+            ChatOptions chatOptions,
+            String conversationId) {
+        // 调用模型并直接返回响应对象
+        return callTraced("askTool", prepareToolPrompt(messages, systemMsgs, memory, chatOptions, conversationId));
+    }
+
+    /**
+     * askTool的流式版本
+     * @param listener 文本增量和完整工具调用的回调
+     * @return 异步返回汇总后的响应，与askTool的结果形式相同
+     */
+    public CompletableFuture<ChatResponse> askToolStream(
+            List<Message> messages,
+            List<Message> systemMsgs,
+            Memory memory,
+            ChatOptions chatOptions,
+            String conversationId,
+            LlmStreamListener listener) {
+
+        return CompletableFuture.supplyAsync(
+                () -> askToolStreaming(messages, systemMsgs, memory, chatOptions, conversationId, listener),
+                AsyncExecutors.get());
+    }
+
+    /**
+     * askToolStream的同步版本，在调用线程上消费模型的流式响应
+     * 文本增量到达时立即回调；工具调用的参数一旦完整就回调，不等待整个响应结束
+     * @param listener 文本增量和完整工具调用的回调
+     * @return 汇总后的响应，包含完整文本和全部工具调用
+     */
+    public ChatResponse askToolStreaming(
+            List<Message> messages,
+            List<Message> systemMsgs,
+            Memory memory,
+            ChatOptions chatOptions,
+            String conversationId,
+            LlmStreamListener listener) {
+        Prompt prompt = prepareToolPrompt(messages, systemMsgs, memory, chatOptions, conversationId);
+        boolean[] emitted = new boolean[1];
+        LlmStreamListener tracking = new LlmStreamListener() {
+            @Override
+            public void onText(String delta) {
+                emitted[0] = true;
+                listener.onText(delta);
+            }
+
+            @Override
+            public void onToolCall(AssistantMessage.ToolCall toolCall) {
+                emitted[0] = true;
+                listener.onToolCall(toolCall);
+            }
+        };
+        try {
+            return streamTraced("askToolStream", prompt, tracking);
+        } catch (RuntimeException e) {
+            // 已经向调用方输出过内容、或者调用已被中断时不能重来
+            if (emitted[0] || Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            log.warn("流式调用语言模型失败，退回阻塞调用: {}", e.getMessage());
+            ChatResponse response = callTraced("askTool", prompt);
+            if (response != null && response.getResult() != null && response.getResult().getOutput() != null) {
+                AssistantMessage output = response.getResult().getOutput();
+                if (output.getText() != null && !output.getText().isEmpty()) {
+                    listener.onText(output.getText());
                 }
+                output.getToolCalls().forEach(listener::onToolCall);
             }
+            return response;
+        }
+    }
 
-            // 创建带工具的提示
-            Prompt prompt = new Prompt(aiMessages, chatOptions);
+    /**
+     * 组装带工具选项和会话记忆的提示
+     * 由会话的PromptAssembler增量组装：系统前缀不重复、提示词不写回记忆，并记录每一步提示词的增长
+     */
+    private Prompt prepareToolPrompt(
+            List<Message> messages,
+            List<Message> systemMsgs,
+            Memory memory,
+            ChatOptions chatOptions,
+            String conversationId) {
+        PromptAssembler.Assembly assembly = assemblers
+                .computeIfAbsent(conversationId, id -> new PromptAssembler())
+                .assemble(messages, systemMsgs, memory, chatOptions, conversationId);
 
-            memory.addMessages(conversationId, prompt.getInstructions());
+        String kind = assembly.rebuilt() ? "rebuild" : "append";
+        (assembly.rebuilt() ? rebuildGrowth : appendGrowth).record(Math.max(0, assembly.growthTokens()));
+        promptTokens.record(assembly.totalTokens());
+        log.debug("会话 {} 的提示词: {} 条消息, 约 {} tokens, 本步新增 {} 条 ({}{} tokens, {})",
+                conversationId, assembly.prompt().getInstructions().size(), assembly.totalTokens(),
+                assembly.appendedMessages(), assembly.growthTokens() >= 0 ? "+" : "", assembly.growthTokens(), kind);
 
-            Prompt promptWithMemory = new Prompt(memory.getChatMemory().get(conversationId), chatOptions);
+        this.prompt = assembly.prompt();
+        return assembly.prompt();
+    }
 
-            this.prompt = promptWithMemory;
-            // 调用模型并直接返回响应对象
-            return chatModel.call(promptWithMemory);
-        });
+    /**
+     * 在LLM跨度中调用模型，同时记录JFR事件
+     */
+    private ChatResponse callTraced(String operation, Prompt prompt) {
+        Span span = Tracing.start(SpanKind.LLM, operation)
+                .attribute("llm.conversation.id", conversationId)
+                .attribute("llm.prompt.messages", prompt.getInstructions().size());
+        LlmCallEvent event = LlmCallEvent.begin(operation, conversationId);
+        try {
+            ChatResponse response = chatModel.call(prompt);
+            recordResponse(span, event, response);
+            return response;
+        } catch (RuntimeException e) {
+            span.error(e);
+            event.setFailed(true);
+            throw e;
+        } finally {
+            span.end();
+            if (event.isEnabled()) {
+                event.setPromptMessages(prompt.getInstructions().size());
+                event.setPromptTokens(TokenManager.estimateTokenCount(prompt.getInstructions()));
+            }
+            event.finish();
+        }
+    }
+
+    /**
+     * 在LLM跨度中以流式方式调用模型，把各片段汇总为一个完整的响应
+     * 工具调用片段由ToolCallAssembler增量拼接，参数完整时立即回调。
+     * Spring AI 1.0.0的OpenAiChatModel已在内部把工具调用片段合并到最后一个片段，此时回调在响应结束时才发生
+     */
+    private ChatResponse streamTraced(String operation, Prompt prompt, LlmStreamListener listener) {
+        Span span = Tracing.start(SpanKind.LLM, operation)
+                .attribute("llm.conversation.id", conversationId)
+                .attribute("llm.prompt.messages", prompt.getInstructions().size());
+        LlmCallEvent event = LlmCallEvent.begin(operation, conversationId);
+        StringBuilder text = new StringBuilder();
+        ToolCallAssembler assembler = new ToolCallAssembler();
+        Map<String, Object> properties = new HashMap<>();
+        ChatGenerationMetadata[] generationMetadata = new ChatGenerationMetadata[1];
+        ChatResponseMetadata[] responseMetadata = new ChatResponseMetadata[1];
+        try {
+            chatModel.stream(prompt).toStream().forEach(chunk -> {
+                if (chunk == null) {
+                    return;
+                }
+                if (chunk.getMetadata() != null) {
+                    responseMetadata[0] = chunk.getMetadata();
+                }
+                Generation generation = chunk.getResult();
+                if (generation == null || generation.getOutput() == null) {
+                    return;
+                }
+                if (generation.getMetadata() != null && generation.getMetadata().getFinishReason() != null) {
+                    generationMetadata[0] = generation.getMetadata();
+                }
+                AssistantMessage output = generation.getOutput();
+                properties.putAll(output.getMetadata());
+                String delta = output.getText();
+                if (delta != null && !delta.isEmpty()) {
+                    text.append(delta);
+                    listener.onText(delta);
+                }
+                assembler.accept(output.getToolCalls()).forEach(listener::onToolCall);
+            });
+            assembler.finish().forEach(listener::onToolCall);
+
+            AssistantMessage message = new AssistantMessage(text.toString(), properties, assembler.toolCalls());
+            Generation generation = generationMetadata[0] != null
+                    ? new Generation(message, generationMetadata[0])
+                    : new Generation(message);
+            ChatResponse response = responseMetadata[0] != null
+                    ? new ChatResponse(List.of(generation), responseMetadata[0])
+                    : new ChatResponse(List.of(generation));
+            recordResponse(span, event, response);
+            return response;
+        } catch (RuntimeException e) {
+            span.error(e);
+            event.setFailed(true);
+            throw e;
+        } finally {
+            span.end();
+            if (event.isEnabled()) {
+                event.setPromptMessages(prompt.getInstructions().size());
+                event.setPromptTokens(TokenManager.estimateTokenCount(prompt.getInstructions()));
+            }
+            event.finish();
+        }
+    }
+
+    private static void recordResponse(Span span, LlmCallEvent event, ChatResponse response) {
+        if (response != null && response.getResult() != null && response.getResult().getOutput() != null) {
+            String text = response.getResult().getOutput().getText();
+            int toolCalls = response.getResult().getOutput().getToolCalls().size();
+            span.attribute("llm.response.length", text != null ? text.length() : 0)
+                .attribute("llm.tool_calls", toolCalls);
+            event.setResponseSize(text != null ? text.length() : 0);
+            event.setToolCalls(toolCalls);
+        }
     }
 
     /**
@@ -0,0 +1,24 @@
+package com.zhouruojun.manus.domain.model;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+
+/**
+ * 流式LLM调用的回调
+ * 回调在消费流的线程上执行，实现方不应长时间阻塞
+ */
+public interface LlmStreamListener {
+
+    /**
+     * 收到一段文本增量
+     * @param delta 文本增量
+     */
+    default void onText(String delta) {
+    }
+
+    /**
+     * 一个工具调用的参数已经完整
+     * @param toolCall 完整的工具调用
+     */
+    default void onToolCall(AssistantMessage.ToolCall toolCall) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.zhouruojun.manus.domain.model;
 
+import com.zhouruojun.manus.infrastructure.jfr.MemoryTruncationEvent;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.memory.ChatMemory;
@@ -86,6 +87,7 @@ public class Memory {
         if (messages.size() <= 2) {
             return; // 至少保留最新的两条消息
         }
+        MemoryTruncationEvent event = MemoryTruncationEvent.begin(conversationId, messages.size(), maxTokens);
 
         // 分离系统消息和其他消息
         List<Message> systemMessages = new ArrayList<>();
@@ -131,6 +133,7 @@ public class Memory {
         // 清除现有消息并添加保留的消息
         chatMemory.clear(conversationId);
         chatMemory.add(conversationId, messagesToKeep);
+        event.finish(messagesToKeep.size(), currentTotal);
     }
 
     public List<Message> getMessages() {
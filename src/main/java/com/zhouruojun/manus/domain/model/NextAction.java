@@ -9,6 +9,7 @@ public enum NextAction {
     ANALYSIS("analysis"),
     SUMMARY("summary"),
     HUMAN_INPUT("human_input"),
+    PARALLEL("parallel"),
     FINISH("FINISH");
 
     private final String value;
@@ -54,4 +55,12 @@ public enum NextAction {
 
         return SUMMARY; // 默认返回SUMMARY进行最终处理
     }
+
+    /**
+     * 判断该动作是否可以与其他智能体并行执行
+     * @return 搜索和分析动作返回true
+     */
+    public boolean isParallelizable() {
+        return this == SEARCH || this == ANALYSIS;
+    }
 }
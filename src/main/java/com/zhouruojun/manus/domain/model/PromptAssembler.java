@@ -0,0 +1,190 @@
+package com.zhouruojun.manus.domain.model;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 增量提示词组装器，每个会话一个实例
+ * 提示词 = 不可变的系统前缀 + 会话记忆。记忆是唯一的历史来源：调用方传入的消息中只有记忆里还没有的才追加到记忆，
+ * 组装好的提示词不会再写回记忆；记忆中已有的系统提示词不会再作为前缀重复发送。
+ * 与上一步相比记忆只是追加了消息时，沿用上一步的消息对象并只估算新增部分的token；
+ * 记忆窗口先淘汰了最早的消息再追加时，保留下来的消息仍是同一批对象，同样按追加处理，只扣除被淘汰部分的token。
+ * 记忆被重置、保留的消息顺序或对象发生变化时整体重建
+ */
+public class PromptAssembler {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<Message> prefix = List.of();
+    private List<Message> body = List.of();
+    private int prefixTokens;
+    private int bodyTokens;
+    private int lastTotalTokens;
+
+    /**
+     * 一次组装的结果
+     * @param prompt 提示词
+     * @param appendedMessages 本步新增的消息数，重建时为全部消息数
+     * @param growthTokens 追加时为新增消息的估算token数（不扣除被记忆窗口淘汰的消息），重建时为与上一步相比提示词估算token数的变化
+     * @param totalTokens 提示词估算的token数
+     * @param rebuilt 是否因记忆被截断或重置而整体重建
+     */
+    public record Assembly(Prompt prompt, int appendedMessages, int growthTokens, int totalTokens, boolean rebuilt) {
+    }
+
+    /**
+     * 组装提示词
+     * @param messages 调用方提供的消息，记忆中已有的会被跳过
+     * @param systemMsgs 系统消息，记忆中已包含相同内容时不再作为前缀
+     * @param memory 会话记忆
+     * @param chatOptions 聊天选项
+     * @param conversationId 会话ID
+     */
+    public Assembly assemble(List<Message> messages,
+                             List<Message> systemMsgs,
+                             Memory memory,
+                             ChatOptions chatOptions,
+                             String conversationId) {
+        lock.lock();
+        try {
+            List<Message> history = memory.getChatMemory().get(conversationId);
+            List<Message> fresh = missingFrom(history, messages);
+            if (!fresh.isEmpty()) {
+                memory.addMessages(conversationId, fresh);
+                history = memory.getChatMemory().get(conversationId);
+            }
+
+            boolean rebuilt = updatePrefix(systemCandidates(systemMsgs, messages), history);
+            int appended;
+            int appendedTokens = 0;
+            List<Message> evicted = new ArrayList<>();
+            int retained = retainedFromBody(history, evicted);
+            if (retained >= 0) {
+                List<Message> delta = history.subList(retained, history.size());
+                appended = delta.size();
+                appendedTokens = TokenManager.estimateTokenCount(delta);
+                bodyTokens += appendedTokens - TokenManager.estimateTokenCount(evicted);
+            } else {
+                appended = history.size();
+                bodyTokens = TokenManager.estimateTokenCount(history);
+                rebuilt = true;
+            }
+            body = List.copyOf(history);
+
+            List<Message> instructions = new ArrayList<>(prefix.size() + body.size());
+            instructions.addAll(prefix);
+            instructions.addAll(body);
+
+            int total = prefixTokens + bodyTokens;
+            int growth = rebuilt ? total - lastTotalTokens : appendedTokens;
+            lastTotalTokens = total;
+            return new Assembly(new Prompt(instructions, chatOptions), appended, growth, total, rebuilt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 判断记忆是否只是在上一步的基础上追加了消息，允许记忆窗口先淘汰部分旧消息
+     * 按对象比较（记忆返回的是同一批消息对象）：上一步的消息中未被淘汰的部分必须按原顺序位于记忆开头
+     * @param evicted 收集上一步中已被淘汰的消息
+     * @return 记忆开头保留自上一步的消息数，不是追加关系时返回-1
+     */
+    private int retainedFromBody(List<Message> history, List<Message> evicted) {
+        int retained = 0;
+        for (Message message : body) {
+            if (retained < history.size() && history.get(retained) == message) {
+                retained++;
+            } else {
+                evicted.add(message);
+            }
+        }
+        // 上一步的消息全部不在了，说明记忆被重置
+        if (retained == 0 && !body.isEmpty()) {
+            return -1;
+        }
+        if (!evicted.isEmpty()) {
+            // 跳过的消息如果仍在记忆中，说明顺序发生了变化，不是淘汰
+            Set<Message> current = Collections.newSetFromMap(new IdentityHashMap<>());
+            current.addAll(history);
+            for (Message message : evicted) {
+                if (current.contains(message)) {
+                    return -1;
+                }
+            }
+        }
+        return retained;
+    }
+
+    /**
+     * 计算系统前缀，内容不变时沿用已有的消息对象
+     * @return 前缀是否发生了变化
+     */
+    private boolean updatePrefix(List<Message> systemMsgs, List<Message> history) {
+        List<Message> candidates = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Message message : systemMsgs) {
+            String text = message.getText();
+            if (text != null && !text.isBlank() && !inMemory(text, history) && seen.add(text)) {
+                candidates.add(message);
+            }
+        }
+        if (candidates.equals(prefix)) {
+            return false;
+        }
+        prefix = Collections.unmodifiableList(candidates);
+        prefixTokens = TokenManager.estimateTokenCount(prefix);
+        return !body.isEmpty();
+    }
+
+    /**
+     * 系统前缀的候选：显式传入的系统消息在前，调用方消息中的系统消息在后
+     */
+    private static List<Message> systemCandidates(List<Message> systemMsgs, List<Message> messages) {
+        List<Message> candidates = new ArrayList<>();
+        if (systemMsgs != null) {
+            candidates.addAll(systemMsgs);
+        }
+        if (messages != null) {
+            for (Message message : messages) {
+                if (message instanceof SystemMessage) {
+                    candidates.add(message);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean inMemory(String systemText, List<Message> history) {
+        for (Message message : history) {
+            // 智能体初始化时写入记忆的系统提示词在原文后附加了元信息，包含原文即视为重复
+            if (message instanceof SystemMessage && message.getText() != null && message.getText().contains(systemText)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Message> missingFrom(List<Message> history, List<Message> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return List.of();
+        }
+        Set<Message> known = new HashSet<>(history);
+        List<Message> fresh = new ArrayList<>();
+        for (Message message : messages) {
+            if (!(message instanceof SystemMessage) && known.add(message)) {
+                fresh.add(message);
+            }
+        }
+        return fresh;
+    }
+}
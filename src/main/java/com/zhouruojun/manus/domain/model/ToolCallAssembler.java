@@ -0,0 +1,164 @@
+package com.zhouruojun.manus.domain.model;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式工具调用组装器
+ * 把流式响应中逐段到达的工具调用片段拼接成完整的AssistantMessage.ToolCall：
+ * 带ID的片段开始（或继续）一个工具调用，不带ID的片段追加到最近的工具调用上。
+ * 参数JSON的括号闭合、或者下一个工具调用开始时，当前工具调用即视为完整，可以提前执行。
+ * 非线程安全，每次流式调用使用独立的实例
+ */
+public class ToolCallAssembler {
+
+    private final Map<String, PendingCall> calls = new LinkedHashMap<>();
+    private PendingCall current;
+    private int anonymous;
+
+    /**
+     * 接收一个流式片段中的工具调用
+     * @param fragments 片段中的工具调用，可能只包含部分参数
+     * @return 因本次片段而变为完整的工具调用，按出现顺序
+     */
+    public List<AssistantMessage.ToolCall> accept(List<AssistantMessage.ToolCall> fragments) {
+        if (fragments == null || fragments.isEmpty()) {
+            return List.of();
+        }
+        List<AssistantMessage.ToolCall> completed = new ArrayList<>();
+        for (AssistantMessage.ToolCall fragment : fragments) {
+            PendingCall target = targetOf(fragment, completed);
+            target.append(fragment);
+            if (!target.emitted && target.isComplete()) {
+                target.emitted = true;
+                completed.add(target.toToolCall());
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * 流结束时调用，返回尚未发出的工具调用（例如没有参数的调用）
+     * @return 剩余的工具调用
+     */
+    public List<AssistantMessage.ToolCall> finish() {
+        List<AssistantMessage.ToolCall> remaining = new ArrayList<>();
+        for (PendingCall call : calls.values()) {
+            if (!call.emitted && call.hasName()) {
+                call.emitted = true;
+                remaining.add(call.toToolCall());
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * 已组装的全部工具调用，按出现顺序
+     */
+    public List<AssistantMessage.ToolCall> toolCalls() {
+        List<AssistantMessage.ToolCall> result = new ArrayList<>();
+        for (PendingCall call : calls.values()) {
+            if (call.hasName()) {
+                result.add(call.toToolCall());
+            }
+        }
+        return result;
+    }
+
+    private PendingCall targetOf(AssistantMessage.ToolCall fragment, List<AssistantMessage.ToolCall> completed) {
+        String id = fragment.id();
+        if (id != null && !id.isEmpty()) {
+            PendingCall existing = calls.get(id);
+            if (existing != null) {
+                current = existing;
+                return existing;
+            }
+        } else if (current != null) {
+            return current;
+        }
+
+        // 新的工具调用开始，上一个工具调用的参数不会再变化
+        if (current != null && !current.emitted && current.hasName()) {
+            current.emitted = true;
+            completed.add(current.toToolCall());
+        }
+        String key = id != null && !id.isEmpty() ? id : "#" + anonymous++;
+        current = new PendingCall(id);
+        calls.put(key, current);
+        return current;
+    }
+
+    /**
+     * 组装中的工具调用，增量扫描参数判断JSON是否已闭合
+     */
+    private static final class PendingCall {
+        private final String id;
+        private String type;
+        private String name;
+        private final StringBuilder arguments = new StringBuilder();
+        private int depth;
+        private boolean started;
+        private boolean closed;
+        private boolean inString;
+        private boolean escaped;
+        private boolean emitted;
+
+        private PendingCall(String id) {
+            this.id = id;
+        }
+
+        void append(AssistantMessage.ToolCall fragment) {
+            if (type == null && fragment.type() != null && !fragment.type().isEmpty()) {
+                type = fragment.type();
+            }
+            if (!hasName() && fragment.name() != null && !fragment.name().isEmpty()) {
+                name = fragment.name();
+            }
+            String text = fragment.arguments();
+            if (text == null || text.isEmpty()) {
+                return;
+            }
+            arguments.append(text);
+            scan(text);
+        }
+
+        private void scan(String text) {
+            for (int i = 0; i < text.length() && !closed; i++) {
+                char c = text.charAt(i);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                    started = true;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    closed = started && depth == 0;
+                }
+            }
+        }
+
+        boolean hasName() {
+            return name != null && !name.isEmpty();
+        }
+
+        boolean isComplete() {
+            return hasName() && closed;
+        }
+
+        AssistantMessage.ToolCall toToolCall() {
+            return new AssistantMessage.ToolCall(id, type != null ? type : "function", name, arguments.toString());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.zhouruojun.manus.domain.workflow.batch;
+
+/**
+ * 批量执行中的一个请求
+ * @param id 请求标识，原样写回结果
+ * @param sessionId 会话ID，为空时为该请求分配独立会话
+ * @param input 用户输入
+ */
+public record BatchItem(String id, String sessionId, String input) {
+
+    public static BatchItem of(String id, String input) {
+        return new BatchItem(id, null, input);
+    }
+}
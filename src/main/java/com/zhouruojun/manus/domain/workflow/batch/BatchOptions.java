@@ -0,0 +1,21 @@
+package com.zhouruojun.manus.domain.workflow.batch;
+
+/**
+ * 批量执行选项
+ * @param parallelism 同时执行的请求数上限
+ * @param ordered 为true时按输入顺序输出结果，否则按完成顺序输出
+ */
+public record BatchOptions(int parallelism, boolean ordered) {
+
+    public BatchOptions {
+        parallelism = Math.max(1, parallelism);
+    }
+
+    public static BatchOptions ordered(int parallelism) {
+        return new BatchOptions(parallelism, true);
+    }
+
+    public static BatchOptions unordered(int parallelism) {
+        return new BatchOptions(parallelism, false);
+    }
+}
@@ -0,0 +1,54 @@
+package com.zhouruojun.manus.domain.workflow.batch;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 批量执行的汇总报告
+ * @param total 请求总数
+ * @param succeeded 成功数
+ * @param failed 失败数
+ * @param elapsed 整个批次的耗时
+ * @param throughput 每秒完成的请求数
+ * @param p50Millis 单个请求耗时的中位数
+ * @param p95Millis 单个请求耗时的95分位
+ * @param p99Millis 单个请求耗时的99分位
+ * @param maxMillis 单个请求的最长耗时
+ */
+public record BatchReport(int total, int succeeded, int failed, Duration elapsed, double throughput,
+                          long p50Millis, long p95Millis, long p99Millis, long maxMillis) {
+
+    /**
+     * 根据全部结果生成报告
+     */
+    public static BatchReport of(List<BatchResult> results, Duration elapsed) {
+        long[] latencies = results.stream().mapToLong(BatchResult::latencyMillis).sorted().toArray();
+        int succeeded = (int) results.stream().filter(BatchResult::success).count();
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return new BatchReport(
+                results.size(),
+                succeeded,
+                results.size() - succeeded,
+                elapsed,
+                seconds > 0 ? results.size() / seconds : 0.0,
+                percentile(latencies, 0.50),
+                percentile(latencies, 0.95),
+                percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("共 %d 个请求，成功 %d，失败 %d，耗时 %.1fs，吞吐 %.2f 请求/秒，耗时 p50=%dms p95=%dms p99=%dms max=%dms",
+                total, succeeded, failed, elapsed.toMillis() / 1000.0, throughput,
+                p50Millis, p95Millis, p99Millis, maxMillis);
+    }
+}
@@ -0,0 +1,26 @@
+package com.zhouruojun.manus.domain.workflow.batch;
+
+/**
+ * 批量执行中单个请求的结果
+ * @param index 请求在批次中的位置
+ * @param id 请求标识
+ * @param sessionId 实际使用的会话ID
+ * @param success 是否执行成功
+ * @param output 工作流的输出，失败时为null
+ * @param reason 失败类别：引擎给出的REJECTED、FAILED、TIMED_OUT、CANCELLED，输入无效时为INVALID，
+ *               其他异常为ERROR；成功时为null
+ * @param error 失败原因，成功时为null；超时和取消时包含已获得的部分结果
+ * @param latencyMillis 从开始执行到完成的耗时（毫秒）
+ */
+public record BatchResult(int index, String id, String sessionId, boolean success, String output, String reason,
+                          String error, long latencyMillis) {
+
+    public static BatchResult succeeded(int index, BatchItem item, String sessionId, String output, long latencyMillis) {
+        return new BatchResult(index, item.id(), sessionId, true, output, null, null, latencyMillis);
+    }
+
+    public static BatchResult failed(int index, BatchItem item, String sessionId, String reason, String error,
+                                     long latencyMillis) {
+        return new BatchResult(index, item.id(), sessionId, false, null, reason, error, latencyMillis);
+    }
+}
@@ -0,0 +1,182 @@
+package com.zhouruojun.manus.domain.workflow.batch;
+
+import com.zhouruojun.manus.infrastructure.exception.WorkflowFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 批量执行器
+ * 由一个调度任务按输入顺序提交请求，信号量限制同时执行的请求数；每个请求的异常只影响自身结果。
+ * 请求是否成功只看工作流Future是否正常完成，不解析输出文本。
+ * 结果按输入顺序或完成顺序逐个交给回调，全部完成后生成吞吐和耗时报告
+ */
+public class BatchRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchRunner.class);
+
+    /**
+     * 执行单个请求的工作流，未正常完成时返回的Future应异常完成（引擎使用WorkflowFailedException）
+     */
+    @FunctionalInterface
+    public interface Workflow {
+        CompletableFuture<String> execute(String input, String sessionId);
+    }
+
+    private final Workflow workflow;
+    private final Executor executor;
+    private final Consumer<String> sessionCleanup;
+
+    /**
+     * @param workflow 执行单个请求的工作流
+     * @param executor 运行调度任务的执行器
+     * @param sessionCleanup 为请求分配的独立会话在完成后的清理动作
+     */
+    public BatchRunner(Workflow workflow, Executor executor, Consumer<String> sessionCleanup) {
+        this.workflow = workflow;
+        this.executor = executor;
+        this.sessionCleanup = sessionCleanup;
+    }
+
+    /**
+     * 执行一批请求
+     * @param items 请求列表
+     * @param options 并发度和输出顺序
+     * @param sink 每个请求完成后的结果回调，按options指定的顺序串行调用
+     * @return 全部请求完成后的汇总报告
+     */
+    public CompletableFuture<BatchReport> run(List<BatchItem> items, BatchOptions options, Consumer<BatchResult> sink) {
+        List<BatchItem> batch = List.copyOf(items);
+        return CompletableFuture.supplyAsync(() -> dispatch(batch, options, sink), executor);
+    }
+
+    private BatchReport dispatch(List<BatchItem> items, BatchOptions options, Consumer<BatchResult> sink) {
+        String batchId = UUID.randomUUID().toString().substring(0, 8);
+        log.info("批次 {} 开始执行 {} 个请求，并发度 {}，{}输出", batchId, items.size(), options.parallelism(),
+                options.ordered() ? "按顺序" : "按完成顺序");
+
+        Semaphore permits = new Semaphore(options.parallelism());
+        ResultSink resultSink = new ResultSink(sink, options.ordered());
+        List<CompletableFuture<BatchResult>> futures = new ArrayList<>(items.size());
+        long start = System.nanoTime();
+
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem item = items.get(i);
+            boolean ownSession = item.sessionId() == null || item.sessionId().isBlank();
+            String sessionId = ownSession ? "batch_" + batchId + "_" + i : item.sessionId();
+            int index = i;
+
+            if (item.input() == null || item.input().isBlank()) {
+                BatchResult result = BatchResult.failed(index, item, sessionId, "INVALID", "输入为空", 0);
+                resultSink.accept(result);
+                futures.add(CompletableFuture.completedFuture(result));
+                continue;
+            }
+
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                BatchResult result = BatchResult.failed(index, item, sessionId, "CANCELLED", "批量执行被中断", 0);
+                resultSink.accept(result);
+                futures.add(CompletableFuture.completedFuture(result));
+                continue;
+            }
+
+            long itemStart = System.nanoTime();
+            CompletableFuture<String> execution;
+            try {
+                execution = workflow.execute(item.input(), sessionId);
+            } catch (RuntimeException e) {
+                execution = CompletableFuture.failedFuture(e);
+            }
+
+            futures.add(execution
+                    .handle((output, error) -> {
+                        long latency = Duration.ofNanos(System.nanoTime() - itemStart).toMillis();
+                        if (error == null) {
+                            return BatchResult.succeeded(index, item, sessionId, output != null ? output : "", latency);
+                        }
+                        // 引擎以WorkflowFailedException报告被拒绝、出错、超时和取消的运行，其他异常按ERROR记录
+                        WorkflowFailedException failure = WorkflowFailedException.find(error);
+                        Throwable cause = failure != null ? failure
+                                : error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        String reason = failure != null ? failure.getReason().name() : "ERROR";
+                        log.warn("批次 {} 的请求 {} 执行失败（{}）: {}", batchId, item.id(), reason, cause.getMessage());
+                        return BatchResult.failed(index, item, sessionId, reason, String.valueOf(cause.getMessage()), latency);
+                    })
+                    .whenComplete((result, error) -> {
+                        permits.release();
+                        if (ownSession) {
+                            sessionCleanup.accept(sessionId);
+                        }
+                        resultSink.accept(result);
+                    }));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        List<BatchResult> results = futures.stream()
+                .map(CompletableFuture::join)
+                .sorted(Comparator.comparingInt(BatchResult::index))
+                .toList();
+        BatchReport report = BatchReport.of(results, Duration.ofNanos(System.nanoTime() - start));
+        log.info("批次 {} 执行完成: {}", batchId, report);
+        return report;
+    }
+
+    /**
+     * 串行地把结果交给回调，按顺序输出时缓存先完成的结果直到前面的结果到达
+     */
+    private static class ResultSink {
+
+        private final Consumer<BatchResult> sink;
+        private final boolean ordered;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Integer, BatchResult> pending = new HashMap<>();
+        private int nextIndex;
+
+        ResultSink(Consumer<BatchResult> sink, boolean ordered) {
+            this.sink = sink;
+            this.ordered = ordered;
+        }
+
+        void accept(BatchResult result) {
+            lock.lock();
+            try {
+                if (!ordered) {
+                    deliver(result);
+                    return;
+                }
+                pending.put(result.index(), result);
+                BatchResult next;
+                while ((next = pending.remove(nextIndex)) != null) {
+                    deliver(next);
+                    nextIndex++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void deliver(BatchResult result) {
+            try {
+                sink.accept(result);
+            } catch (RuntimeException e) {
+                log.warn("批量结果回调处理请求 {} 失败: {}", result.id(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhouruojun.manus.domain.workflow.context;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.infrastructure.concurrent.Deadline;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 工作流运行上下文注册中心
+ * 以运行ID索引正在执行的工作流，节点通过状态中的runId找到所属的运行上下文，
+ * 不依赖节点运行在哪个线程上
+ */
+public class WorkflowContextHolder {
+
+    // 运行ID -> 运行上下文
+    private static final Map<String, WorkflowRunContext> activeRuns = new ConcurrentHashMap<>();
+
+    /**
+     * 注册运行上下文
+     * @param context 运行上下文
+     */
+    public static void register(WorkflowRunContext context) {
+        activeRuns.put(context.getRunId(), context);
+    }
+
+    /**
+     * 注销运行上下文
+     * @param runId 运行ID
+     */
+    public static void unregister(String runId) {
+        if (runId != null) {
+            activeRuns.remove(runId);
+        }
+    }
+
+    /**
+     * 根据运行ID获取上下文
+     * @param runId 运行ID
+     * @return 运行上下文，不存在时返回null
+     */
+    public static WorkflowRunContext get(String runId) {
+        return runId != null ? activeRuns.get(runId) : null;
+    }
+
+    /**
+     * 根据状态中的runId获取上下文
+     * @param state 当前状态
+     * @return 运行上下文，不存在时返回null
+     */
+    public static WorkflowRunContext forState(AgentMessageState state) {
+        return state.runId().map(activeRuns::get).orElse(null);
+    }
+
+    /**
+     * 获取状态所属运行的截止时间
+     * 优先使用运行上下文中的截止时间（支持主动取消），其次使用状态中保存的deadlineAt
+     * @param state 当前状态
+     * @return 截止时间，均不存在时返回永不到期
+     */
+    public static Deadline deadlineFor(AgentMessageState state) {
+        WorkflowRunContext context = forState(state);
+        if (context != null) {
+            return context.getDeadline();
+        }
+        return state.deadlineAt().map(Deadline::at).orElseGet(Deadline::none);
+    }
+}
@@ -0,0 +1,77 @@
+package com.zhouruojun.manus.domain.workflow.context;
+
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEvent;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEventListener;
+import com.zhouruojun.manus.infrastructure.concurrent.Deadline;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单次工作流运行的上下文
+ * 保存运行ID、会话ID、事件监听器以及截止时间，供节点在执行过程中发出事件和检查超时/取消；
+ * 同时记录本次运行中出现过的路由状态指纹，用于循环检测
+ */
+@Slf4j
+@Getter
+public class WorkflowRunContext {
+
+    private final String runId;
+    private final String sessionId;
+    private final WorkflowEventListener listener;
+    private final Deadline deadline;
+
+    // 路由状态指纹 -> 出现次数
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Integer> routeFingerprints = new ConcurrentHashMap<>();
+
+    public WorkflowRunContext(String runId, String sessionId, WorkflowEventListener listener) {
+        this(runId, sessionId, listener, Deadline.none());
+    }
+
+    public WorkflowRunContext(String runId, String sessionId, WorkflowEventListener listener, Deadline deadline) {
+        this.runId = runId;
+        this.sessionId = sessionId;
+        this.listener = listener != null ? listener : WorkflowEventListener.NOOP;
+        this.deadline = deadline != null ? deadline : Deadline.none();
+    }
+
+    /**
+     * 取消本次运行，中断进行中的LLM和工具调用
+     */
+    public void cancel() {
+        log.info("工作流运行 {} 已取消", runId);
+        deadline.cancel();
+    }
+
+    /**
+     * 记录一次路由状态指纹
+     * @param fingerprint 路由状态指纹
+     * @return 该指纹在本次运行中出现的次数（包括本次）
+     */
+    public int recordRouteFingerprint(String fingerprint) {
+        return routeFingerprints.merge(fingerprint, 1, Integer::sum);
+    }
+
+    /**
+     * 是否有外部监听器订阅了事件
+     */
+    public boolean isStreaming() {
+        return listener != WorkflowEventListener.NOOP;
+    }
+
+    /**
+     * 发出事件，监听器的异常不会影响工作流执行
+     * @param event 工作流事件
+     */
+    public void emit(WorkflowEvent event) {
+        try {
+            listener.onEvent(event);
+        } catch (Exception e) {
+            log.warn("工作流事件监听器处理失败: {}", e.getMessage());
+        }
+    }
+}
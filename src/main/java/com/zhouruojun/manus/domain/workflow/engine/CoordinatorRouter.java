@@ -0,0 +1,83 @@
+package com.zhouruojun.manus.domain.workflow.engine;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import org.bsc.langgraph4j.action.EdgeAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 协调器路由
+ * 把协调器写入状态的next动作映射为图中的目标节点，无效或缺失时转到summary_agent；
+ * 配置了循环检测时，检测到重复的路由状态后强制转到summary_agent
+ */
+public class CoordinatorRouter implements EdgeAction<AgentMessageState> {
+
+    private static final Logger log = LoggerFactory.getLogger(CoordinatorRouter.class);
+
+    private static final String DEFAULT_TARGET = "summary_agent";
+
+    // 映射路由目标到智能体节点
+    private static final Map<String, String> ROUTE_MAPPING = Map.of(
+        "search", "search_agent",
+        "analysis", "analysis_agent",
+        "summary", "summary_agent",
+        "human_input", "human_input",
+        "parallel", "parallel_agents"
+    );
+
+    /**
+     * 协调器条件边的全部目标节点
+     */
+    public static final Set<String> TARGETS = Set.copyOf(ROUTE_MAPPING.values());
+
+    private final LoopDetector loopDetector;
+
+    public CoordinatorRouter() {
+        this(null);
+    }
+
+    /**
+     * @param loopDetector 循环检测器，null表示不检测
+     */
+    public CoordinatorRouter(LoopDetector loopDetector) {
+        this.loopDetector = loopDetector;
+    }
+
+    @Override
+    public String apply(AgentMessageState state) {
+        String next = state.next().orElse("summary_agent");
+        // 确保next值不为空，如果为空或为空字符串，默认为summary_agent
+        if (next == null || next.isEmpty()) {
+            next = "summary_agent";
+        }
+        log.info("Coordinator routing to: {}", next);
+
+        String targetNode = ROUTE_MAPPING.getOrDefault(next, DEFAULT_TARGET);
+
+        // 检查映射后的节点是否有效
+        if (!TARGETS.contains(targetNode)) {
+            log.warn("无效的路由目标: {}，默认转为summary_agent", targetNode);
+            targetNode = DEFAULT_TARGET;
+        }
+
+        if (loopDetector != null && !DEFAULT_TARGET.equals(targetNode) && loopDetector.isLooping(state, targetNode)) {
+            targetNode = DEFAULT_TARGET;
+        }
+
+        log.info("Final routing target: {}", targetNode);
+        return targetNode;
+    }
+
+    /**
+     * 条件边的映射：目标节点ID到自身
+     */
+    public static Map<String, String> edgeMapping() {
+        Map<String, String> mapping = new HashMap<>();
+        TARGETS.forEach(target -> mapping.put(target, target));
+        return mapping;
+    }
+}
@@ -0,0 +1,75 @@
+package com.zhouruojun.manus.domain.workflow.engine;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowContextHolder;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowRunContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 路由循环检测
+ * 每次协调器路由时对与路由相关的状态（next、currentAgent、toolResults和result的哈希）取指纹，
+ * 同一运行中相同指纹重复出现超过maxRepeats次时判定为循环（例如coordinator与search_agent来回往返且结果没有变化），
+ * 由路由强制转到summary_agent结束
+ */
+public class LoopDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(LoopDetector.class);
+
+    private final int maxRepeats;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 创建循环检测器
+     * @param maxRepeats 同一指纹允许的重复次数，超过后强制总结
+     * @param meterRegistry 指标注册表
+     */
+    public LoopDetector(int maxRepeats, MeterRegistry meterRegistry) {
+        this.maxRepeats = Math.max(0, maxRepeats);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 记录当前路由状态并判断是否陷入循环
+     * @param state 协调器输出后的状态
+     * @param target 路由目标节点
+     * @return 是否需要打断循环
+     */
+    public boolean isLooping(AgentMessageState state, String target) {
+        WorkflowRunContext context = WorkflowContextHolder.forState(state);
+        if (context == null) {
+            return false;
+        }
+
+        int occurrences = context.recordRouteFingerprint(fingerprint(state));
+        if (occurrences - 1 <= maxRepeats) {
+            return false;
+        }
+
+        log.warn("运行 {} 的路由状态已重复 {} 次（目标: {}），强制转到summary_agent",
+                context.getRunId(), occurrences - 1, target);
+        Counter.builder("manus.workflow.loop.breaks")
+                .description("检测到路由循环后被强制总结的次数")
+                .tag("target", target)
+                .register(meterRegistry)
+                .increment();
+        return true;
+    }
+
+    /**
+     * 路由状态指纹
+     */
+    static String fingerprint(AgentMessageState state) {
+        return state.next().orElse("") + '|'
+                + state.currentAgent().orElse("") + '|'
+                + digest(state.toolResults().orElse("")) + '|'
+                + digest(state.result().orElse(""));
+    }
+
+    private static String digest(String text) {
+        String normalized = text.strip().replaceAll("\\s+", " ");
+        return normalized.length() + ":" + Integer.toHexString(normalized.hashCode());
+    }
+}
@@ -1,32 +1,80 @@
 package com.zhouruojun.manus.domain.workflow.engine;
 
+import com.zhouruojun.manus.domain.workflow.batch.BatchItem;
+import com.zhouruojun.manus.domain.workflow.batch.BatchOptions;
+import com.zhouruojun.manus.domain.workflow.batch.BatchReport;
+import com.zhouruojun.manus.domain.workflow.batch.BatchResult;
+import com.zhouruojun.manus.domain.workflow.batch.BatchRunner;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowContextHolder;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowRunContext;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEvent;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEventListener;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEventPublisher;
 import com.zhouruojun.manus.domain.workflow.node.AgentNodeFactory;
+import com.zhouruojun.manus.domain.workflow.node.base.EventEmittingNode;
+import com.zhouruojun.manus.domain.workflow.node.base.RunScopedAgentNode;
+import com.zhouruojun.manus.domain.workflow.node.base.TracedNode;
 import com.zhouruojun.manus.domain.workflow.node.specialized.*;
+import com.zhouruojun.manus.domain.workflow.routing.PreRouter;
+import com.zhouruojun.manus.domain.workflow.routing.RoutingDecisionCache;
 import com.zhouruojun.manus.domain.model.AgentMessageState;
 import com.zhouruojun.manus.domain.model.Message;
+import com.zhouruojun.manus.infrastructure.checkpoint.RunJournal;
 import com.zhouruojun.manus.infrastructure.serializers.AgentSerializers;
 import com.zhouruojun.manus.infrastructure.tools.PromptLoader;
+import com.zhouruojun.manus.infrastructure.concurrent.AdmissionController;
+import com.zhouruojun.manus.infrastructure.concurrent.Deadline;
+import com.zhouruojun.manus.infrastructure.concurrent.SingleFlight;
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import com.zhouruojun.manus.infrastructure.exception.DeadlineExceededException;
+import com.zhouruojun.manus.infrastructure.exception.WorkflowFailedException;
 import com.zhouruojun.manus.infrastructure.config.PromptConfig;
+import com.zhouruojun.manus.infrastructure.tracing.Span;
+import com.zhouruojun.manus.infrastructure.tracing.SpanKind;
+import com.zhouruojun.manus.infrastructure.tracing.Tracing;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.MDC;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.bsc.langgraph4j.serializer.StateSerializer;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.NodeOutput;
 import org.bsc.langgraph4j.RunnableConfig;
 import org.bsc.langgraph4j.StateGraph;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.CompileConfig;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
 import org.bsc.langgraph4j.checkpoint.MemorySaver;
-import org.bsc.langgraph4j.action.EdgeAction;
+import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.async.AsyncGenerator;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.bsc.langgraph4j.StateGraph.END;
 import static org.bsc.langgraph4j.StateGraph.START;
@@ -43,26 +91,55 @@ public class WorkflowEngine {
     private static final Logger log = LoggerFactory.getLogger(WorkflowEngine.class);
 
     private ChatModel chatModel;
-    private MemorySaver checkpointSaver;
+    private BaseCheckpointSaver checkpointSaver;
     private CompiledGraph<AgentMessageState> compiledGraph;
     private Map<String, AgentMessageState> sessionStates;
     private StateSerializer<AgentMessageState> stateSerializer;
     private AgentNodeFactory agentNodeFactory;
     private PromptLoader promptLoader;
     private PromptConfig promptConfig;
+    private EngineConfig engineConfig;
+    private Executor workflowExecutor;
+    private AdmissionController admissionController;
+    private SingleFlight<String, String> singleFlight;
+    private RunJournal runJournal;
+    private PreRouter preRouter;
+    private RoutingDecisionCache routingDecisionCache;
+    // 正在执行的运行ID，避免同一运行被重复恢复
+    private final Set<String> activeRuns = ConcurrentHashMap.newKeySet();
 
     @Autowired
     public WorkflowEngine(ChatModel chatModel,
                           AgentNodeFactory agentNodeFactory,
                           PromptLoader promptLoader,
                           PromptConfig promptConfig,
+                          EngineConfig engineConfig,
+                          @Qualifier("workflowExecutor") Executor workflowExecutor,
+                          AdmissionController admissionController,
                           @Autowired(required = false)
-                               StateSerializer<AgentMessageState> serializer) {
+                               StateSerializer<AgentMessageState> serializer,
+                          @Autowired(required = false)
+                               BaseCheckpointSaver checkpointSaver,
+                          @Autowired(required = false)
+                               SingleFlight<String, String> singleFlight,
+                          @Autowired(required = false)
+                               RunJournal runJournal,
+                          @Autowired(required = false)
+                               PreRouter preRouter,
+                          @Autowired(required = false)
+                               RoutingDecisionCache routingDecisionCache) {
         this.chatModel = chatModel;
         this.agentNodeFactory = agentNodeFactory;
         this.promptLoader = promptLoader;
         this.promptConfig = promptConfig;
-        this.checkpointSaver = new MemorySaver();
+        this.engineConfig = engineConfig;
+        this.workflowExecutor = workflowExecutor;
+        this.admissionController = admissionController;
+        this.singleFlight = singleFlight;
+        this.runJournal = runJournal;
+        this.preRouter = preRouter;
+        this.routingDecisionCache = routingDecisionCache;
+        this.checkpointSaver = (checkpointSaver != null) ? checkpointSaver : new MemorySaver();
         this.sessionStates = new ConcurrentHashMap<>();
 
         // 初始化StateSerializer
@@ -81,55 +158,37 @@ public class WorkflowEngine {
      */
     private CompiledGraph<AgentMessageState> buildAgentWorkflow() throws GraphStateException {
         // 创建节点实例 - 使用智能体节点和传统节点的混合
-        CoordinatorNode coordinatorNode = new CoordinatorNode(chatModel, promptLoader, promptConfig.getNode().getCoordinator());
+        CoordinatorNode coordinatorNode = new CoordinatorNode(chatModel, promptLoader, promptConfig.getNode().getCoordinator(),
+                preRouter, routingDecisionCache);
         
-        // 使用AgentNodeFactory创建支持工具调用的智能体节点
-        SearchAgentNode searchAgentNode = agentNodeFactory.createSearchAgentNode();
-        AnalysisAgentNode analysisAgentNode = agentNodeFactory.createAnalysisAgentNode();
+        // 使用AgentNodeFactory创建支持工具调用的智能体节点，每次运行使用独立的智能体实例
+        RunScopedAgentNode searchAgentNode = agentNodeFactory.createRunScopedSearchAgentNode();
+        RunScopedAgentNode analysisAgentNode = agentNodeFactory.createRunScopedAnalysisAgentNode();
         SummaryNode summaryNode = new SummaryNode(chatModel, promptLoader, promptConfig.getNode().getSummary());
+
+        // 并行节点：协调器同时请求搜索和分析时并发执行两个智能体
+        Map<String, NodeAction<AgentMessageState>> parallelBranches = new LinkedHashMap<>();
+        parallelBranches.put("search", searchAgentNode);
+        parallelBranches.put("analysis", analysisAgentNode);
+        ParallelAgentsNode parallelAgentsNode = new ParallelAgentsNode(parallelBranches, workflowExecutor);
         
         // 保留传统的HumanInputNode
         HumanInputNode humanInputNode = new HumanInputNode();
 
-        // 路由函数
-        EdgeAction<AgentMessageState> coordinatorRouter = (AgentMessageState state) -> {
-            String next = state.next().orElse("summary_agent");
-            // 确保next值不为空，如果为空或为空字符串，默认为summary_agent
-            if (next == null || next.isEmpty()) {
-                next = "summary_agent";
-            }
-            log.info("Coordinator routing to: {}", next);
-
-            // 映射路由目标到智能体节点
-            Map<String, String> routeMapping = Map.of(
-                "search", "search_agent",
-                "analysis", "analysis_agent",
-                "summary", "summary_agent",
-                "human_input", "human_input"
-            );
-
-            String targetNode = routeMapping.getOrDefault(next, "summary_agent");
-            
-            // 检查映射后的节点是否有效
-            if (!Map.of("search_agent", "search_agent", 
-                       "analysis_agent", "analysis_agent", 
-                       "summary_agent", "summary_agent",
-                       "human_input", "human_input").containsKey(targetNode)) {
-                log.warn("无效的路由目标: {}，默认转为summary_agent", targetNode);
-                targetNode = "summary_agent";
-            }
-
-            log.info("Final routing target: {}", targetNode);
-            return targetNode;
-        };
+        // 路由函数，检测到协调器与智能体之间的循环时提前转到总结
+        EngineConfig.LoopDetectionProperties loopDetection = engineConfig.getLoopDetection();
+        CoordinatorRouter coordinatorRouter = new CoordinatorRouter(loopDetection.isEnabled()
+                ? new LoopDetector(loopDetection.getMaxRepeats(), Metrics.globalRegistry)
+                : null);
 
         // 构建状态图
         StateGraph<AgentMessageState> stateGraph = new StateGraph<>(AgentMessageState.SCHEMA, stateSerializer)
-                .addNode("coordinator", node_async(coordinatorNode))
-                .addNode("search_agent", node_async(searchAgentNode))
-                .addNode("analysis_agent", node_async(analysisAgentNode))
-                .addNode("summary_agent", node_async(summaryNode))
-                .addNode("human_input", node_async(humanInputNode))
+                .addNode("coordinator", node_async(instrument("coordinator", coordinatorNode)))
+                .addNode("search_agent", node_async(instrument("search_agent", searchAgentNode)))
+                .addNode("analysis_agent", node_async(instrument("analysis_agent", analysisAgentNode)))
+                .addNode("summary_agent", node_async(instrument("summary_agent", summaryNode)))
+                .addNode("human_input", node_async(instrument("human_input", humanInputNode)))
+                .addNode("parallel_agents", node_async(instrument("parallel_agents", parallelAgentsNode)))
 
                 // 从开始节点到协调器
                 .addEdge(START, "coordinator")
@@ -137,17 +196,13 @@ public class WorkflowEngine {
                 // 协调器的条件边
                 .addConditionalEdges("coordinator",
                     edge_async(coordinatorRouter),
-                    Map.of(
-                        "search_agent", "search_agent",
-                        "analysis_agent", "analysis_agent",
-                        "summary_agent", "summary_agent",
-                        "human_input", "human_input"
-                    ))
+                    CoordinatorRouter.edgeMapping())
 
                 // 各专业智能体完成后回到协调器
                 .addEdge("search_agent", "coordinator")
                 .addEdge("analysis_agent", "coordinator")
                 .addEdge("human_input", "coordinator")
+                .addEdge("parallel_agents", "coordinator")
                 
                 // summary_agent节点直接连接到END，作为最终输出
                 .addEdge("summary_agent", END)
@@ -161,6 +216,13 @@ public class WorkflowEngine {
         return stateGraph.compile(compileConfig);
     }
 
+    /**
+     * 为图节点加上开始事件和跟踪跨度
+     */
+    private static NodeAction<AgentMessageState> instrument(String nodeId, NodeAction<AgentMessageState> node) {
+        return TracedNode.of(nodeId, EventEmittingNode.of(nodeId, node));
+    }
+
     /**
      * 执行智能体工作流
      */
@@ -172,58 +234,264 @@ public class WorkflowEngine {
      * 执行智能体工作流 - 带会话历史的重载方法
      */
     public CompletableFuture<String> executeWorkflow(String userInput, String sessionId, List<Message> sessionHistory) {
+        return executeWorkflow(userInput, sessionId, sessionHistory, WorkflowEventListener.NOOP);
+    }
+
+    /**
+     * 以流式方式执行智能体工作流
+     * 每次订阅都会启动一次新的工作流运行，依次发布节点开始/完成事件、总结节点的LLM令牌，
+     * 最后发布COMPLETED或FAILED事件后结束。订阅者处理慢时不阻塞工作流：缓冲区满时丢弃令牌事件，
+     * 其他事件最多等待stream-offer-timeout
+     */
+    public Flow.Publisher<WorkflowEvent> streamWorkflow(String userInput, String sessionId, List<Message> sessionHistory) {
+        return subscriber -> {
+            WorkflowEventPublisher publisher = new WorkflowEventPublisher(subscriber, workflowExecutor,
+                    Flow.defaultBufferSize(), engineConfig.getStreamOfferTimeout());
+            executeWorkflow(userInput, sessionId, sessionHistory, publisher)
+                    .whenComplete((result, error) -> {
+                        // 未正常完成的运行已经发布了FAILED或COMPLETED事件，正常结束流
+                        if (error != null && WorkflowFailedException.find(error) == null) {
+                            publisher.closeExceptionally(error);
+                        } else {
+                            publisher.close();
+                        }
+                    });
+        };
+    }
+
+    /**
+     * 执行智能体工作流 - 带事件监听器的重载方法
+     * 监听器会在工作流执行线程上收到节点进度和总结令牌
+     * 相同的进行中请求（规范化输入和会话历史相同）只执行一次，后到的调用方共享结果；
+     * 运行前需要先通过准入控制。被拒绝、执行出错、超时或取消时返回的Future以WorkflowFailedException异常完成，
+     * 异常信息是面向用户的提示，这样的结果不会在合并窗口内被其他请求复用
+     */
+    public CompletableFuture<String> executeWorkflow(String userInput, String sessionId, List<Message> sessionHistory,
+                                                     WorkflowEventListener listener) {
+        if (singleFlight == null) {
+            return admitAndRun(userInput, sessionId, sessionHistory, listener);
+        }
+
+        SingleFlight.Call<String> call = singleFlight.execute(requestKey(userInput, sessionHistory),
+                () -> admitAndRun(userInput, sessionId, sessionHistory, listener));
+        if (!call.shared()) {
+            return call.future();
+        }
+
+        log.info("会话 {} 的请求与进行中的相同请求合并", sessionId);
+        // 完成事件作为副作用挂在共享结果上，返回SingleFlight给出的副本本身：
+        // 调用方取消它时SingleFlight才能感知，所有调用方都取消后取消实际运行
+        call.future().whenComplete((result, error) -> {
+            if (result != null) {
+                listener.onEvent(WorkflowEvent.completed(sessionId, result));
+                return;
+            }
+            WorkflowFailedException failure = WorkflowFailedException.find(error);
+            if (failure != null) {
+                listener.onEvent(WorkflowEvent.failed(sessionId, failure.getMessage()));
+            }
+        });
+        return call.future();
+    }
+
+    /**
+     * 批量执行工作流请求，并发度与准入控制的全局并发上限一致，结果按输入顺序汇总
+     */
+    public CompletableFuture<BatchReport> executeBatch(List<BatchItem> items) {
+        return executeBatch(items, BatchOptions.ordered(engineConfig.getAdmission().getMaxConcurrentRuns()), result -> { });
+    }
+
+    /**
+     * 批量执行工作流请求
+     * 每个请求照常经过请求合并和准入控制，未指定会话的请求使用独立会话并在完成后清理；
+     * 单个请求失败只记录在其结果中，不影响其他请求
+     * @param items 请求列表
+     * @param options 并发度和结果输出顺序
+     * @param sink 每个请求完成后的结果回调
+     * @return 全部请求完成后的吞吐和耗时报告
+     */
+    public CompletableFuture<BatchReport> executeBatch(List<BatchItem> items, BatchOptions options,
+                                                      Consumer<BatchResult> sink) {
+        BatchRunner runner = new BatchRunner(this::executeWorkflow, workflowExecutor, this::cleanupSession);
+        return runner.run(items, options, sink);
+    }
+
+    /**
+     * 为新请求分配运行ID（同时作为检查点线程ID）并通过准入控制后执行
+     */
+    private CompletableFuture<String> admitAndRun(String userInput, String sessionId, List<Message> sessionHistory,
+                                                  WorkflowEventListener listener) {
+        String runId = sessionId + "_run_" + UUID.randomUUID();
+        return admit(sessionId, runId, listener,
+                runContext -> runWorkflow(userInput, sessionHistory, false, runContext));
+    }
+
+    /**
+     * 恢复会话最近一次被中断的工作流运行
+     * 从该运行最后持久化的检查点继续执行，不会重新执行已完成的节点
+     */
+    public CompletableFuture<String> resumeWorkflow(String sessionId) {
+        return resumeWorkflow(sessionId, WorkflowEventListener.NOOP);
+    }
+
+    /**
+     * 恢复会话最近一次被中断的工作流运行 - 带事件监听器的重载方法
+     */
+    public CompletableFuture<String> resumeWorkflow(String sessionId, WorkflowEventListener listener) {
+        if (runJournal == null) {
+            return CompletableFuture.failedFuture(new WorkflowFailedException(WorkflowFailedException.Reason.REJECTED,
+                    "未启用运行日志（需要文件检查点存储），无法恢复会话 " + sessionId));
+        }
+        Optional<RunJournal.Entry> entry = runJournal.latestForSession(sessionId);
+        if (entry.isEmpty()) {
+            return CompletableFuture.failedFuture(new WorkflowFailedException(WorkflowFailedException.Reason.REJECTED,
+                    "会话 " + sessionId + " 没有可恢复的工作流运行"));
+        }
+        return resumeRun(entry.get(), listener);
+    }
+
+    /**
+     * 恢复指定的被中断运行，沿用原运行ID以找到其检查点线程
+     */
+    public CompletableFuture<String> resumeRun(RunJournal.Entry entry, WorkflowEventListener listener) {
+        if (activeRuns.contains(entry.runId())) {
+            return CompletableFuture.failedFuture(new WorkflowFailedException(WorkflowFailedException.Reason.REJECTED,
+                    "工作流运行 " + entry.runId() + " 正在执行中"));
+        }
+        log.info("恢复会话 {} 被中断的工作流运行 {}", entry.sessionId(), entry.runId());
+        return admit(entry.sessionId(), entry.runId(), listener,
+                runContext -> runWorkflow(entry.userInput(), null, true, runContext));
+    }
+
+    /**
+     * 获取上次进程退出时未完成的运行，按开始时间排序
+     */
+    public List<RunJournal.Entry> interruptedRuns() {
+        if (runJournal == null) {
+            return List.of();
+        }
+        return runJournal.pending().stream()
+                .filter(entry -> !activeRuns.contains(entry.runId()))
+                .toList();
+    }
+
+    /**
+     * 放弃一个被中断的运行：注销运行日志并释放其检查点
+     */
+    public void abandonRun(String runId) {
+        if (runJournal != null) {
+            runJournal.complete(runId);
+        }
+        releaseCheckpoints(runId);
+    }
+
+    /**
+     * 通过准入控制后执行工作流
+     * 截止时间从请求进入引擎时开始计算（包含排队时间）；取消返回的Future会取消本次运行。
+     * 未获准入时以REJECTED原因的WorkflowFailedException异常完成
+     */
+    private CompletableFuture<String> admit(String sessionId, String runId, WorkflowEventListener listener,
+                                            Function<WorkflowRunContext, CompletableFuture<String>> run) {
+        WorkflowRunContext runContext = new WorkflowRunContext(runId, sessionId, listener,
+                Deadline.after(engineConfig.getRequestTimeout()));
+
+        CompletableFuture<String> future = admissionController.acquire(sessionId)
+                .handle((permit, error) -> {
+                    if (error == null) {
+                        return permit;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    log.warn("会话 {} 的工作流未被准入: {}", sessionId, cause.getMessage());
+                    String message = "系统繁忙，请稍后重试: " + cause.getMessage();
+                    listener.onEvent(WorkflowEvent.failed(sessionId, message));
+                    throw new WorkflowFailedException(WorkflowFailedException.Reason.REJECTED, message, cause);
+                })
+                .thenCompose(permit -> run.apply(runContext)
+                        .whenComplete((result, error) -> permit.close()));
+
+        future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                runContext.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 在工作流执行器上执行一次已获准入的工作流运行
+     * 新运行在运行日志中登记，正常结束（包括失败和超时）后注销；进程崩溃时登记保留，重启后可从检查点恢复。
+     * resume为true时从该运行线程最后一个检查点继续执行，没有检查点时使用原始输入从头执行。
+     * 执行出错或检测到循环时以FAILED原因异常完成；超过截止时间或被取消时停止执行，
+     * 以TIMED_OUT或CANCELLED原因异常完成，异常信息包含已获得的部分结果
+     */
+    private CompletableFuture<String> runWorkflow(String userInput, List<Message> sessionHistory, boolean resume,
+                                                  WorkflowRunContext runContext) {
         return CompletableFuture.supplyAsync(() -> {
+            String runId = runContext.getRunId();
+            String sessionId = runContext.getSessionId();
+            Deadline deadline = runContext.getDeadline();
+            if (!activeRuns.add(runId)) {
+                throw new WorkflowFailedException(WorkflowFailedException.Reason.REJECTED,
+                        "工作流运行 " + runId + " 正在执行中");
+            }
+            WorkflowContextHolder.register(runContext);
+            // requestId和sessionId随MDC经由包装的执行器传递到节点、智能体和LLM调用线程
+            MDC.put(Tracing.REQUEST_ID, runId);
+            MDC.put(Tracing.SESSION_ID, sessionId);
+            Span runSpan = Tracing.start(SpanKind.WORKFLOW, resume ? "resume" : "run")
+                    .attribute("session.id", sessionId)
+                    .attribute("run.id", runId);
+
+            StringBuilder resultBuilder = new StringBuilder();
+            AgentMessageState lastState = null;
+            // 超时或取消时被放弃的调用可能仍在后台执行，本次运行的智能体不能再归还到池中
+            boolean abandoned = false;
             try {
-                log.info("开始执行智能体工作流，会话ID: {}", sessionId);
-
-                // 清理可能存在的旧会话状态
-                cleanupSession(sessionId);
-
-                // 准备历史消息数据 - 如果有历史记录则添加到初始状态
-                Map<String, Object> initialData;
-                if (sessionHistory != null && !sessionHistory.isEmpty()) {
-                    initialData = Map.of(
-                        "userInput", userInput,
-                        "sessionId", sessionId,
-                        "messages", AgentMessageState.createMessagesWithHistory(userInput, sessionHistory),
-                        "sessionHistory", sessionHistory,
-                        "next", "coordinator",
-                        "currentAgent", "start",
-                        "finished", false,
-                        "toolResults", "",
-                        "result", "",
-                        "hasHistory", true
-                    );
-                    log.info("工作流中包含 {} 条历史消息", sessionHistory.size());
-                } else {
-                    initialData = Map.of(
-                        "userInput", userInput,
-                        "sessionId", sessionId,
-                        "messages", AgentMessageState.createUserMessage(userInput),
-                        "sessionHistory", new java.util.ArrayList<Message>(),
-                        "next", "coordinator",
-                        "currentAgent", "start",
-                        "finished", false,
-                        "toolResults", "",
-                        "result", "",
-                        "hasHistory", false
-                    );
-                }
+                deadline.check("开始执行");
+                log.info("开始执行智能体工作流，会话ID: {}, 运行ID: {}", sessionId, runId);
 
-                // 运行配置
+                // 运行配置，运行ID即检查点线程ID
                 RunnableConfig config = RunnableConfig.builder()
-                        .threadId(sessionId + "_agent_" + System.currentTimeMillis())
+                        .threadId(runId)
                         .build();
 
-                // 执行工作流
+                Optional<Checkpoint> checkpoint = resume ? checkpointSaver.get(config) : Optional.empty();
+                if (resume && checkpoint.isEmpty()) {
+                    log.warn("运行 {} 没有可用的检查点，使用原始输入从头执行", runId);
+                }
+
+                Map<String, Object> initialData = null;
+                if (checkpoint.isPresent()) {
+                    String nextNodeId = checkpoint.get().getNextNodeId();
+                    log.info("运行 {} 从检查点恢复，上一节点: {}，下一节点: {}",
+                            runId, checkpoint.get().getNodeId(), nextNodeId);
+                    if (nextNodeId == null || END.equals(nextNodeId)) {
+                        // 崩溃发生在最后一个检查点之后、运行注销之前，直接使用检查点中的结果
+                        lastState = new AgentMessageState(checkpoint.get().getState());
+                        String result = lastState.result().orElse("");
+                        runContext.emit(WorkflowEvent.completed(sessionId, result));
+                        return result;
+                    }
+                } else {
+                    // 清理可能存在的旧会话状态
+                    cleanupSession(sessionId);
+
+                    // 准备历史消息数据 - 如果有历史记录则添加到初始状态
+                    initialData = createInitialData(userInput, sessionId, runId, sessionHistory);
+                    initialData.put("deadlineAt", deadline.getExpiresAt());
+                    if (runJournal != null && !resume) {
+                        runJournal.begin(new RunJournal.Entry(runId, sessionId, userInput, System.currentTimeMillis()));
+                    }
+                }
+
+                // 执行工作流，输入为null时LangGraph4j从配置线程的最后一个检查点继续
                 AsyncGenerator<NodeOutput<AgentMessageState>> stream =
                         compiledGraph.stream(initialData, config);
 
-                StringBuilder resultBuilder = new StringBuilder();
                 String finalResult = null;
                 int iterationCount = 0;
                 final int MAX_ITERATIONS = 25;
-                AgentMessageState lastState = null;
 
                 try {
                     for (NodeOutput<AgentMessageState> output : stream) {
@@ -232,6 +500,7 @@ public class WorkflowEngine {
                         lastState = state;
 
                         log.info("正在处理智能体节点: {} (迭代次数: {})", nodeName, ++iterationCount);
+                        runContext.emit(WorkflowEvent.nodeFinished(sessionId, nodeName, state.currentAgent().orElse("")));
 
                         // 记录智能体节点的执行结果
                         if (state.result().isPresent()) {
@@ -255,9 +524,11 @@ public class WorkflowEngine {
                             log.warn("已达到最大迭代次数 ({})，终止工作流执行", MAX_ITERATIONS);
                             break;
                         }
+
+                        deadline.check(nodeName + " 之后");
                     }
                 } catch (IllegalStateException e) {
-                    if (e.getMessage().contains("Maximum number of iterations")) {
+                    if (e.getMessage() != null && e.getMessage().contains("Maximum number of iterations")) {
                         log.warn("工作流执行中检测到循环，正在优雅终止", e);
                         String forcedTermination = "智能体工作流检测到循环。已强制终止并尝试返回部分结果。\n";
 
@@ -266,19 +537,145 @@ public class WorkflowEngine {
                         } else {
                             forcedTermination += "\n很抱歉，智能体系统无法为您的问题提供有效答案。请尝试重新表述您的问题。";
                         }
-                        return forcedTermination;
+                        runContext.emit(WorkflowEvent.failed(sessionId, forcedTermination));
+                        throw new WorkflowFailedException(WorkflowFailedException.Reason.FAILED, forcedTermination, e);
                     } else {
                         throw e;
                     }
                 }
 
-                return finalResult != null ? finalResult : resultBuilder.toString().trim();
+                String result = finalResult != null ? finalResult : resultBuilder.toString().trim();
+                runContext.emit(WorkflowEvent.completed(sessionId, result));
+                return result;
 
+            } catch (WorkflowFailedException e) {
+                throw e;
             } catch (Exception e) {
+                DeadlineExceededException deadlineExceeded = DeadlineExceededException.find(e);
+                if (deadlineExceeded != null) {
+                    abandoned = true;
+                    log.warn("工作流运行 {} 未完成: {}", runId, deadlineExceeded.getMessage());
+                    runSpan.error(deadlineExceeded);
+                    String partial = partialResult(deadlineExceeded, resultBuilder, lastState);
+                    runContext.emit(WorkflowEvent.completed(sessionId, partial));
+                    throw new WorkflowFailedException(deadlineExceeded.isCancelled()
+                            ? WorkflowFailedException.Reason.CANCELLED
+                            : WorkflowFailedException.Reason.TIMED_OUT, partial, deadlineExceeded);
+                }
                 log.error("工作流执行过程中发生错误", e);
-                return "智能体工作流执行过程中发生错误: " + e.getMessage();
+                runSpan.error(e);
+                String error = "智能体工作流执行过程中发生错误: " + e.getMessage();
+                runContext.emit(WorkflowEvent.failed(sessionId, error));
+                throw new WorkflowFailedException(WorkflowFailedException.Reason.FAILED, error, e);
+            } finally {
+                WorkflowContextHolder.unregister(runId);
+                agentNodeFactory.releaseRun(runId, !abandoned);
+                // 先注销运行再释放检查点，崩溃在两者之间时只会留下由保留策略回收的检查点
+                if (runJournal != null) {
+                    runJournal.complete(runId);
+                }
+                releaseCheckpoints(runId);
+                activeRuns.remove(runId);
+                runSpan.end();
+                MDC.remove(Tracing.REQUEST_ID);
+                MDC.remove(Tracing.SESSION_ID);
+                // 取消时可能中断了执行线程，清除中断标记避免影响线程池中的后续任务
+                Thread.interrupted();
             }
-        });
+        }, workflowExecutor);
+    }
+
+    /**
+     * 超时或取消时组装部分结果：优先使用各节点已产出的结果，其次使用最近的工具结果
+     */
+    private String partialResult(DeadlineExceededException reason, StringBuilder resultBuilder, AgentMessageState lastState) {
+        String header = reason.isCancelled()
+                ? "请求已取消，以下是取消前获得的部分结果：\n"
+                : "请求处理超时，以下是目前获得的部分结果：\n";
+
+        if (resultBuilder.length() > 0) {
+            return header + resultBuilder.toString().trim();
+        }
+        if (lastState != null && lastState.toolResults().filter(text -> !text.isBlank()).isPresent()) {
+            return header + lastState.toolResults().get();
+        }
+        return reason.isCancelled()
+                ? "请求已取消，尚未获得任何结果。"
+                : "很抱歉，请求处理超时，尚未获得任何结果。请稍后重试或简化您的问题。";
+    }
+
+    /**
+     * 计算请求合并键：规范化后的用户输入与会话历史指纹的SHA-256
+     * 规范化包括NFKC（统一全角/半角）、去除首尾空白、合并连续空白和转小写
+     */
+    static String requestKey(String userInput, List<Message> sessionHistory) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(normalize(userInput).getBytes(StandardCharsets.UTF_8));
+            if (sessionHistory != null) {
+                for (Message message : sessionHistory) {
+                    digest.update((byte) 0);
+                    digest.update(message.getRole().name().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) ':');
+                    digest.update(String.valueOf(message.getContent()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .strip()
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 运行结束后释放该运行的检查点，避免每次请求的检查点线程长期驻留
+     */
+    private void releaseCheckpoints(String runId) {
+        if (!engineConfig.getCheckpoint().isReleaseOnComplete()) {
+            return;
+        }
+        try {
+            checkpointSaver.clear(RunnableConfig.builder().threadId(runId).build());
+        } catch (Exception e) {
+            log.warn("释放运行 {} 的检查点失败: {}", runId, e.getMessage());
+        }
+    }
+
+    /**
+     * 构建工作流初始状态
+     */
+    private Map<String, Object> createInitialData(String userInput, String sessionId, String runId, List<Message> sessionHistory) {
+        boolean hasHistory = sessionHistory != null && !sessionHistory.isEmpty();
+
+        Map<String, Object> initialData = new HashMap<>();
+        initialData.put("userInput", userInput);
+        initialData.put("sessionId", sessionId);
+        initialData.put("runId", runId);
+        initialData.put("next", "coordinator");
+        initialData.put("currentAgent", "start");
+        initialData.put("finished", false);
+        initialData.put("toolResults", "");
+        initialData.put("result", "");
+        initialData.put("hasHistory", hasHistory);
+
+        if (hasHistory) {
+            initialData.put("messages", AgentMessageState.createMessagesWithHistory(userInput, sessionHistory));
+            initialData.put("sessionHistory", sessionHistory);
+            log.info("工作流中包含 {} 条历史消息", sessionHistory.size());
+        } else {
+            initialData.put("messages", AgentMessageState.createUserMessage(userInput));
+            initialData.put("sessionHistory", new ArrayList<Message>());
+        }
+        return initialData;
     }
 
     /**
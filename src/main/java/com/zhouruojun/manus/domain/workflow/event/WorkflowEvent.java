@@ -0,0 +1,45 @@
+package com.zhouruojun.manus.domain.workflow.event;
+
+/**
+ * 工作流事件
+ * 用于流式输出节点进度和总结节点的LLM令牌
+ *
+ * @param type 事件类型
+ * @param sessionId 会话ID
+ * @param node 产生事件的节点名称
+ * @param content 事件内容（令牌文本、最终结果或错误信息）
+ * @param timestamp 事件时间戳（毫秒）
+ */
+public record WorkflowEvent(Type type, String sessionId, String node, String content, long timestamp) {
+
+    /**
+     * 工作流事件类型
+     */
+    public enum Type {
+        NODE_STARTED,
+        NODE_FINISHED,
+        TOKEN,
+        COMPLETED,
+        FAILED
+    }
+
+    public static WorkflowEvent nodeStarted(String sessionId, String node) {
+        return new WorkflowEvent(Type.NODE_STARTED, sessionId, node, "", System.currentTimeMillis());
+    }
+
+    public static WorkflowEvent nodeFinished(String sessionId, String node, String content) {
+        return new WorkflowEvent(Type.NODE_FINISHED, sessionId, node, content, System.currentTimeMillis());
+    }
+
+    public static WorkflowEvent token(String sessionId, String node, String token) {
+        return new WorkflowEvent(Type.TOKEN, sessionId, node, token, System.currentTimeMillis());
+    }
+
+    public static WorkflowEvent completed(String sessionId, String result) {
+        return new WorkflowEvent(Type.COMPLETED, sessionId, null, result, System.currentTimeMillis());
+    }
+
+    public static WorkflowEvent failed(String sessionId, String error) {
+        return new WorkflowEvent(Type.FAILED, sessionId, null, error, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,20 @@
+package com.zhouruojun.manus.domain.workflow.event;
+
+/**
+ * 工作流事件监听器
+ * 在工作流执行线程上回调，实现应尽量轻量且不抛出异常
+ */
+@FunctionalInterface
+public interface WorkflowEventListener {
+
+    /**
+     * 不处理任何事件的监听器
+     */
+    WorkflowEventListener NOOP = event -> { };
+
+    /**
+     * 接收工作流事件
+     * @param event 工作流事件
+     */
+    void onEvent(WorkflowEvent event);
+}
@@ -0,0 +1,87 @@
+package com.zhouruojun.manus.domain.workflow.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把工作流事件发布给一个订阅者，订阅者处理慢时不阻塞工作流执行线程
+ * 令牌事件在订阅者缓冲区已满时直接丢弃（完整回复仍由COMPLETED事件携带）；
+ * 其他事件最多等待offerTimeout，仍然没有空间时丢弃
+ */
+public class WorkflowEventPublisher implements WorkflowEventListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowEventPublisher.class);
+
+    private final SubmissionPublisher<WorkflowEvent> publisher;
+    private final long offerTimeoutMillis;
+    private final AtomicLong droppedTokens = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    /**
+     * @param subscriber 订阅者
+     * @param executor 向订阅者投递事件的执行器
+     * @param bufferSize 订阅者的缓冲区大小
+     * @param offerTimeout 非令牌事件等待缓冲区空间的最长时间
+     */
+    public WorkflowEventPublisher(Flow.Subscriber<? super WorkflowEvent> subscriber, Executor executor,
+                                  int bufferSize, Duration offerTimeout) {
+        this.publisher = new SubmissionPublisher<>(executor, bufferSize);
+        this.offerTimeoutMillis = Math.max(0, offerTimeout.toMillis());
+        this.publisher.subscribe(subscriber);
+    }
+
+    @Override
+    public void onEvent(WorkflowEvent event) {
+        if (event.type() == WorkflowEvent.Type.TOKEN) {
+            publisher.offer(event, (subscriber, dropped) -> {
+                droppedTokens.incrementAndGet();
+                return false;
+            });
+            return;
+        }
+        publisher.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS, (subscriber, dropped) -> {
+            droppedEvents.incrementAndGet();
+            log.warn("订阅者处理过慢，丢弃 {} 事件: 会话 {}", dropped.type(), dropped.sessionId());
+            return false;
+        });
+    }
+
+    /**
+     * 正常结束流
+     */
+    @Override
+    public void close() {
+        logDropped();
+        publisher.close();
+    }
+
+    /**
+     * 以异常结束流
+     */
+    public void closeExceptionally(Throwable error) {
+        logDropped();
+        publisher.closeExceptionally(error);
+    }
+
+    public long getDroppedTokens() {
+        return droppedTokens.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private void logDropped() {
+        if (droppedTokens.get() > 0 || droppedEvents.get() > 0) {
+            log.info("流式输出结束，订阅者处理过慢丢弃了 {} 个令牌事件、{} 个其他事件",
+                    droppedTokens.get(), droppedEvents.get());
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.zhouruojun.manus.domain.workflow.node;
 
+import com.zhouruojun.manus.domain.agent.base.AgentNodeAdapter;
+import com.zhouruojun.manus.domain.agent.specialized.AbstractSpecializedAgent;
+import com.zhouruojun.manus.domain.workflow.node.base.AgentPool;
+import com.zhouruojun.manus.domain.workflow.node.base.RunScopedAgentNode;
 import com.zhouruojun.manus.domain.workflow.node.specialized.AnalysisAgentNode;
 import com.zhouruojun.manus.domain.workflow.node.specialized.SearchAgentNode;
 import com.zhouruojun.manus.domain.workflow.node.specialized.SummaryAgentNode;
 import com.zhouruojun.manus.infrastructure.tools.collection.ToolCollection;
 import com.zhouruojun.manus.infrastructure.tools.PromptLoader;
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
 import com.zhouruojun.manus.infrastructure.config.PromptConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 
 /**
  * 智能体节点工厂类
@@ -25,17 +36,27 @@ public class AgentNodeFactory {
     private final Map<String, ToolCollection> toolCollections;
     private final PromptLoader promptLoader;
     private final PromptConfig promptConfig;
+    private final EngineConfig.AgentPoolProperties poolProperties;
+    private final EngineConfig.LlmProperties llmProperties;
+    private final MeterRegistry meterRegistry;
+    private final List<RunScopedAgentNode> runScopedNodes = new CopyOnWriteArrayList<>();
 
     /**
      * 构造工厂
      * @param chatModel Spring AI的ChatModel
      * @param promptLoader 提示词加载器
      * @param promptConfig 提示词配置
+     * @param engineConfig 引擎配置，提供智能体池参数
+     * @param meterRegistry 指标注册表，未配置时使用全局注册表
      */
-    public AgentNodeFactory(ChatModel chatModel, PromptLoader promptLoader, PromptConfig promptConfig) {
+    public AgentNodeFactory(ChatModel chatModel, PromptLoader promptLoader, PromptConfig promptConfig,
+                            EngineConfig engineConfig, ObjectProvider<MeterRegistry> meterRegistry) {
         this.chatModel = chatModel;
         this.promptLoader = promptLoader;
         this.promptConfig = promptConfig;
+        this.poolProperties = engineConfig.getAgentPool();
+        this.llmProperties = engineConfig.getLlm();
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
         this.toolCollections = new HashMap<>();
         log.info("智能体节点工厂初始化完成（工具集合将按需创建）");
     }
@@ -66,6 +87,16 @@ public class AgentNodeFactory {
         return createSearchAgentNode("search_agent");
     }
 
+    /**
+     * 创建运行级搜索智能体节点，每次工作流运行从搜索智能体池借出独立的实例
+     * @return RunScopedAgentNode实例
+     */
+    public RunScopedAgentNode createRunScopedSearchAgentNode() {
+        ToolCollection searchTools = getOrCreateToolCollection("search");
+        return registerRunScoped(createPool("search_agent", conversationId ->
+                new SearchAgentNode(chatModel, searchTools, "search_agent", conversationId, promptLoader, promptConfig.getAgent().getSearch())));
+    }
+
     /**
      * 创建分析智能体节点
      * @param agentName 智能体名称
@@ -84,6 +115,53 @@ public class AgentNodeFactory {
         return createAnalysisAgentNode("analysis_agent");
     }
 
+    /**
+     * 创建运行级分析智能体节点，每次工作流运行从分析智能体池借出独立的实例
+     * @return RunScopedAgentNode实例
+     */
+    public RunScopedAgentNode createRunScopedAnalysisAgentNode() {
+        ToolCollection analysisTools = getOrCreateToolCollection("analysis");
+        return registerRunScoped(createPool("analysis_agent", conversationId ->
+                new AnalysisAgentNode(chatModel, analysisTools, "analysis_agent", conversationId, promptLoader, promptConfig.getAgent().getAnalysis())));
+    }
+
+    /**
+     * 释放指定工作流运行占用的所有运行级智能体实例
+     * @param runId 运行ID
+     * @param reusable 运行是否正常结束；因超时或取消结束时被放弃的调用可能仍在执行，实例不再归还到池中
+     */
+    public void releaseRun(String runId, boolean reusable) {
+        runScopedNodes.forEach(node -> node.release(runId, reusable));
+    }
+
+    private AgentPool createPool(String agentType, Function<String, AgentNodeAdapter> nodeFactory) {
+        return new AgentPool(agentType, nodeFactory.andThen(this::applyLlmSettings),
+                poolProperties.getMinSize(),
+                poolProperties.getMaxSize(),
+                poolProperties.getBorrowTimeout(),
+                meterRegistry);
+    }
+
+    /**
+     * 按配置设置智能体的流式推理选项，并把提示词指标注册到注入的注册表
+     */
+    private AgentNodeAdapter applyLlmSettings(AgentNodeAdapter node) {
+        if (node.getAgent() instanceof AbstractSpecializedAgent specialized) {
+            if (specialized.getDelegate().getLlm() != null) {
+                specialized.getDelegate().getLlm().bindMetrics(meterRegistry);
+            }
+            specialized.getDelegate().setStreaming(llmProperties.isStreaming());
+            specialized.getDelegate().setEarlyToolExecution(llmProperties.isEarlyToolExecution());
+        }
+        return node;
+    }
+
+    private RunScopedAgentNode registerRunScoped(AgentPool pool) {
+        RunScopedAgentNode node = new RunScopedAgentNode(pool);
+        runScopedNodes.add(node);
+        return node;
+    }
+
     /**
      * 创建总结智能体节点
      * @param agentName 智能体名称
@@ -0,0 +1,181 @@
+package com.zhouruojun.manus.domain.workflow.node.base;
+
+import com.zhouruojun.manus.domain.agent.base.AgentNodeAdapter;
+import com.zhouruojun.manus.domain.agent.base.AgentRegistry;
+import com.zhouruojun.manus.domain.agent.specialized.AbstractSpecializedAgent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 智能体池
+ * 预先创建并初始化同类型的智能体节点，工作流运行时借出、结束后重置归还，
+ * 避免每次请求都重新构建LLM、加载提示词和注册智能体
+ *
+ * 最小数量的实例在创建时预热，同时借出的实例数不超过最大数量，超出时等待直到超时
+ */
+@Slf4j
+public class AgentPool {
+
+    private final String agentType;
+    private final Function<String, AgentNodeAdapter> nodeFactory;
+    private final int maxSize;
+    private final Duration borrowTimeout;
+
+    // 空闲实例，后进先出以保持最近使用的实例常驻
+    private final LinkedBlockingDeque<AgentNodeAdapter> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+
+    private final Timer borrowTimer;
+    private final Counter createdCounter;
+    private final Counter discardedCounter;
+
+    /**
+     * 创建智能体池
+     * @param agentType 智能体类型，用作会话ID前缀和指标标签
+     * @param nodeFactory 根据会话ID创建智能体节点的工厂
+     * @param minSize 预热的实例数量
+     * @param maxSize 同时借出的最大实例数量
+     * @param borrowTimeout 等待空闲实例的最长时间
+     * @param registry 指标注册表
+     */
+    public AgentPool(String agentType,
+                     Function<String, AgentNodeAdapter> nodeFactory,
+                     int minSize,
+                     int maxSize,
+                     Duration borrowTimeout,
+                     MeterRegistry registry) {
+        this.agentType = agentType;
+        this.nodeFactory = nodeFactory;
+        this.maxSize = Math.max(1, maxSize);
+        this.borrowTimeout = borrowTimeout;
+        this.permits = new Semaphore(this.maxSize, true);
+
+        this.borrowTimer = Timer.builder("manus.agent.pool.borrow")
+                .description("从智能体池借出实例的等待时间")
+                .tag("agent", agentType)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.createdCounter = Counter.builder("manus.agent.pool.created")
+                .tag("agent", agentType)
+                .register(registry);
+        this.discardedCounter = Counter.builder("manus.agent.pool.discarded")
+                .tag("agent", agentType)
+                .register(registry);
+        Gauge.builder("manus.agent.pool.idle", idle, LinkedBlockingDeque::size)
+                .tag("agent", agentType)
+                .register(registry);
+        Gauge.builder("manus.agent.pool.active", this, pool -> pool.getActiveCount())
+                .tag("agent", agentType)
+                .register(registry);
+
+        int warm = Math.min(Math.max(0, minSize), this.maxSize);
+        for (int i = 0; i < warm; i++) {
+            idle.offerLast(create());
+        }
+        log.info("智能体池 {} 初始化完成，预热实例: {}，最大实例: {}", agentType, warm, this.maxSize);
+    }
+
+    /**
+     * 借出一个智能体节点，没有空闲实例且未达到上限时创建新实例
+     * @return 已重置的智能体节点
+     * @throws TimeoutException 等待超过borrowTimeout仍没有可用实例
+     */
+    public AgentNodeAdapter borrow() throws InterruptedException, TimeoutException {
+        long start = System.nanoTime();
+        if (!permits.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            borrowTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new TimeoutException("等待" + agentType + "智能体超时: " + borrowTimeout);
+        }
+
+        try {
+            AgentNodeAdapter node = idle.pollFirst();
+            if (node == null) {
+                node = create();
+            }
+            borrowTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return node;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还智能体节点，重置失败的实例直接丢弃
+     * @param node 借出的智能体节点
+     */
+    public void giveBack(AgentNodeAdapter node) {
+        try {
+            node.getAgent().reset();
+            idle.offerFirst(node);
+        } catch (Exception e) {
+            log.warn("智能体 {} 重置失败，丢弃该实例: {}", conversationIdOf(node), e.getMessage());
+            discard(node);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 丢弃借出的智能体节点而不归还到池中
+     * 运行因超时或取消结束时，被放弃的LLM调用或工具调用可能仍在后台执行并写入智能体的记忆，
+     * 这样的实例不能重置后借给下一次运行
+     * @param node 借出的智能体节点
+     */
+    public void invalidate(AgentNodeAdapter node) {
+        try {
+            log.info("智能体 {} 可能仍有进行中的调用，丢弃该实例", conversationIdOf(node));
+            discard(node);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 获取已创建的实例总数
+     */
+    public int getTotalCount() {
+        return total.get();
+    }
+
+    /**
+     * 获取当前借出的实例数量
+     */
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    private AgentNodeAdapter create() {
+        String conversationId = agentType + "#" + sequence.incrementAndGet();
+        AgentNodeAdapter node = nodeFactory.apply(conversationId);
+        total.incrementAndGet();
+        createdCounter.increment();
+        return node;
+    }
+
+    private void discard(AgentNodeAdapter node) {
+        String conversationId = conversationIdOf(node);
+        if (conversationId != null) {
+            AgentRegistry.unregisterAgent(conversationId);
+        }
+        total.decrementAndGet();
+        discardedCounter.increment();
+    }
+
+    private static String conversationIdOf(AgentNodeAdapter node) {
+        return node.getAgent() instanceof AbstractSpecializedAgent agent ? agent.getConversationId() : null;
+    }
+}
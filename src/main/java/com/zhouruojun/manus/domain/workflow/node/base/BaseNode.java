@@ -4,9 +4,19 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zhouruojun.manus.domain.model.AgentMessageState;
 import com.zhouruojun.manus.domain.model.NextAction;
+import com.zhouruojun.manus.domain.model.TokenManager;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowContextHolder;
+import com.zhouruojun.manus.infrastructure.concurrent.Deadline;
+import com.zhouruojun.manus.infrastructure.exception.DeadlineExceededException;
+import com.zhouruojun.manus.infrastructure.exception.LlmStreamInterruptedException;
+import com.zhouruojun.manus.infrastructure.jfr.NodeExecutionEvent;
+import com.zhouruojun.manus.infrastructure.tracing.Span;
+import com.zhouruojun.manus.infrastructure.tracing.SpanKind;
+import com.zhouruojun.manus.infrastructure.tracing.Tracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.messages.SystemMessage;
@@ -14,8 +24,12 @@ import org.bsc.langgraph4j.action.NodeAction;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * LangGraph4j节点基础类
@@ -25,29 +39,58 @@ public abstract class BaseNode implements NodeAction<AgentMessageState> {
 
     private static final Logger log = LoggerFactory.getLogger(BaseNode.class);
 
+    // callChatModel调用失败时返回内容的前缀
+    protected static final String CHAT_MODEL_ERROR_PREFIX = "调用语言模型时发生错误";
+
     protected final ChatModel chatModel;
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final Pattern JSON_PATTERN = Pattern.compile("\\{[\\s\\S]*\\}");
 
+    // 节点在图的执行线程上同步运行，当前运行的截止时间通过线程变量传给LLM调用
+    private static final ThreadLocal<Deadline> CURRENT_DEADLINE = ThreadLocal.withInitial(Deadline::none);
+
     public BaseNode(ChatModel chatModel) {
         this.chatModel = chatModel;
     }
 
     @Override
     public Map<String, Object> apply(AgentMessageState state) throws Exception {
+        Deadline deadline = WorkflowContextHolder.deadlineFor(state);
+        deadline.check(getNodeName());
+        CURRENT_DEADLINE.set(deadline);
+        NodeExecutionEvent event = NodeExecutionEvent.begin(getNodeName(), "node");
         try {
             log.info("Processing node: {}", getNodeName());
-            return processNode(state);
+            Map<String, Object> update = processNode(state);
+            event.setResponse(update);
+            return update;
+        } catch (DeadlineExceededException e) {
+            event.setFailed(true);
+            throw e;
         } catch (Exception e) {
+            event.setFailed(true);
             log.error("Error in node {}: {}", getNodeName(), e.getMessage(), e);
             return Map.of(
                 "error", "节点执行错误: " + e.getMessage(),
                 "messages", state.lastMessage().orElse(AgentMessageState.createAiMessage("节点执行错误"))
             );
+        } finally {
+            if (event.isEnabled()) {
+                event.setPromptTokens(TokenManager.estimateTokensForMessage(new UserMessage(state.userInput().orElse(""))));
+            }
+            event.finish();
+            CURRENT_DEADLINE.remove();
         }
     }
 
+    /**
+     * 获取当前节点所属运行的截止时间
+     */
+    protected Deadline currentDeadline() {
+        return CURRENT_DEADLINE.get();
+    }
+
     /**
      * 具体的节点处理逻辑
      * @param state 当前状态
@@ -64,6 +107,7 @@ public abstract class BaseNode implements NodeAction<AgentMessageState> {
      * 调用ChatModel获取响应
      */
     protected String callChatModel(String systemPrompt, String userInput) {
+        Span span = Tracing.start(SpanKind.LLM, getNodeName() + ".call");
         try {
             List<org.springframework.ai.chat.messages.Message> messages = List.of(
                 new SystemMessage(systemPrompt),
@@ -71,14 +115,75 @@ public abstract class BaseNode implements NodeAction<AgentMessageState> {
             );
             
             Prompt prompt = new Prompt(messages);
-            var response = chatModel.call(prompt);
-            return response.getResult().getOutput().getText();
+            var response = currentDeadline().call(getNodeName() + " LLM调用", () -> chatModel.call(prompt));
+            String text = response.getResult().getOutput().getText();
+            span.attribute("llm.response.length", text != null ? text.length() : 0);
+            return text;
+        } catch (DeadlineExceededException e) {
+            span.error(e);
+            throw e;
         } catch (Exception e) {
+            span.error(e);
             log.error("Error calling chat model", e);
-            return "调用语言模型时发生错误: " + e.getMessage();
+            return CHAT_MODEL_ERROR_PREFIX + ": " + e.getMessage();
+        } finally {
+            span.end();
         }
     }
 
+    /**
+     * 以流式方式调用ChatModel，每收到一段文本就回调onToken
+     * 流式调用失败且尚未输出任何内容时退回到阻塞调用；已经输出部分内容后失败（包括超过截止时间）时
+     * 抛出LlmStreamInterruptedException，携带已接收的内容，不会把不完整的回复当作正常结果返回
+     * @throws LlmStreamInterruptedException 输出部分内容后中断
+     */
+    protected String streamChatModel(String systemPrompt, String userInput, Consumer<String> onToken) {
+        // 流在当前线程中消费，截止时间到达时中断；已接收的内容随异常交给调用方
+        StringBuffer content = new StringBuffer();
+        Deadline deadline = currentDeadline();
+        Span span = Tracing.start(SpanKind.LLM, getNodeName() + ".stream");
+        try {
+            Prompt prompt = new Prompt(List.of(
+                new SystemMessage(systemPrompt),
+                new UserMessage(userInput)
+            ));
+
+            return deadline.call(getNodeName() + " LLM流式调用", () -> {
+                chatModel.stream(prompt).toStream().forEach(chunk -> {
+                    String token = textOf(chunk);
+                    if (token != null && !token.isEmpty()) {
+                        content.append(token);
+                        onToken.accept(token);
+                    }
+                });
+                return content.toString();
+            });
+        } catch (Exception e) {
+            span.error(e);
+            if (e instanceof DeadlineExceededException && content.length() == 0) {
+                throw e;
+            }
+            if (content.length() > 0) {
+                log.error("流式调用语言模型中断，已接收 {} 个字符", content.length(), e);
+                throw new LlmStreamInterruptedException(content.toString(), e);
+            }
+            log.warn("流式调用语言模型失败，退回阻塞调用: {}", e.getMessage());
+            String response = callChatModel(systemPrompt, userInput);
+            onToken.accept(response);
+            return response;
+        } finally {
+            span.attribute("llm.response.length", content.length());
+            span.end();
+        }
+    }
+
+    private static String textOf(ChatResponse chunk) {
+        if (chunk == null || chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+            return null;
+        }
+        return chunk.getResult().getOutput().getText();
+    }
+
     /**
      * 解析下一步动作
      */
@@ -110,4 +215,44 @@ public abstract class BaseNode implements NodeAction<AgentMessageState> {
         // 4. 最后兜底 - 默认到summary进行最终处理
         return NextAction.SUMMARY.getValue();
     }
+
+    /**
+     * 解析下一步动作列表
+     * 支持 "action": ["search", "analysis"] 或 "action": "search,analysis" 的形式，
+     * 只有可并行的动作（search、analysis）才会被合并为多个动作，否则退回单个动作
+     */
+    protected List<String> parseNextActions(String response) {
+        try {
+            Matcher m = JSON_PATTERN.matcher(response.trim());
+            if (m.find()) {
+                JsonNode action = MAPPER.readTree(m.group()).get("action");
+                if (action != null) {
+                    List<String> rawActions = new ArrayList<>();
+                    if (action.isArray()) {
+                        action.forEach(node -> rawActions.add(node.asText()));
+                    } else {
+                        rawActions.addAll(List.of(action.asText().split("[,，+]")));
+                    }
+
+                    Set<String> parallel = new LinkedHashSet<>();
+                    for (String raw : rawActions) {
+                        NextAction next = NextAction.fromString(raw);
+                        if (next.isParallelizable()) {
+                            parallel.add(next.getValue());
+                        }
+                    }
+                    if (parallel.size() > 1) {
+                        return List.copyOf(parallel);
+                    }
+                    if (!rawActions.isEmpty()) {
+                        return List.of(NextAction.fromString(rawActions.get(0)).getValue());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("多动作JSON解析失败，转入单动作解析", e);
+        }
+
+        return List.of(parseNextAction(response));
+    }
 }
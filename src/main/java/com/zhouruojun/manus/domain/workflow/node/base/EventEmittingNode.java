@@ -0,0 +1,43 @@
+package com.zhouruojun.manus.domain.workflow.node.base;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowContextHolder;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowRunContext;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEvent;
+import org.bsc.langgraph4j.action.NodeAction;
+
+import java.util.Map;
+
+/**
+ * 节点事件装饰器
+ * 在节点开始执行时向所属运行发出NODE_STARTED事件，节点完成事件由引擎的NodeOutput循环发出
+ */
+public class EventEmittingNode implements NodeAction<AgentMessageState> {
+
+    private final String nodeId;
+    private final NodeAction<AgentMessageState> delegate;
+
+    public EventEmittingNode(String nodeId, NodeAction<AgentMessageState> delegate) {
+        this.nodeId = nodeId;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Map<String, Object> apply(AgentMessageState state) throws Exception {
+        WorkflowRunContext context = WorkflowContextHolder.forState(state);
+        if (context != null) {
+            context.emit(WorkflowEvent.nodeStarted(context.getSessionId(), nodeId));
+        }
+        return delegate.apply(state);
+    }
+
+    /**
+     * 包装节点
+     * @param nodeId 图中的节点ID
+     * @param delegate 被包装的节点
+     * @return 带事件的节点
+     */
+    public static EventEmittingNode of(String nodeId, NodeAction<AgentMessageState> delegate) {
+        return new EventEmittingNode(nodeId, delegate);
+    }
+}
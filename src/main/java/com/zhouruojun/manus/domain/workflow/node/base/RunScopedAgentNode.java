@@ -0,0 +1,66 @@
+package com.zhouruojun.manus.domain.workflow.node.base;
+
+import com.zhouruojun.manus.domain.agent.base.AgentNodeAdapter;
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.action.NodeAction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 运行级智能体节点
+ * 图中只注册一个节点，但每次工作流运行从智能体池借出独立的智能体实例，
+ * 不同运行之间不再共享智能体的记忆、状态和响应，可以安全地并发执行
+ */
+@Slf4j
+public class RunScopedAgentNode implements NodeAction<AgentMessageState> {
+
+    private final AgentPool pool;
+    // runId -> 该运行借出的智能体节点
+    private final Map<String, AgentNodeAdapter> instances = new ConcurrentHashMap<>();
+
+    /**
+     * 创建运行级智能体节点
+     * @param pool 智能体池
+     */
+    public RunScopedAgentNode(AgentPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public Map<String, Object> apply(AgentMessageState state) throws Exception {
+        String runId = state.runId().orElse("default");
+        AgentNodeAdapter node = instances.get(runId);
+        if (node == null) {
+            node = pool.borrow();
+            instances.put(runId, node);
+        }
+        return node.apply(state);
+    }
+
+    /**
+     * 释放指定运行借出的智能体实例
+     * @param runId 运行ID
+     * @param reusable 为true时重置后归还到池中；运行因超时或取消结束时为false，实例直接丢弃
+     */
+    public void release(String runId, boolean reusable) {
+        AgentNodeAdapter node = instances.remove(runId);
+        if (node == null) {
+            return;
+        }
+        if (reusable) {
+            pool.giveBack(node);
+            log.debug("已归还运行 {} 的智能体", runId);
+        } else {
+            pool.invalidate(node);
+        }
+    }
+
+    /**
+     * 获取当前被运行占用的智能体实例数量
+     */
+    public int getActiveCount() {
+        return instances.size();
+    }
+}
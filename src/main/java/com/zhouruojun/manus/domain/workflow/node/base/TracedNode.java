@@ -0,0 +1,51 @@
+package com.zhouruojun.manus.domain.workflow.node.base;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.infrastructure.tracing.Span;
+import com.zhouruojun.manus.infrastructure.tracing.SpanKind;
+import com.zhouruojun.manus.infrastructure.tracing.Tracing;
+import org.bsc.langgraph4j.action.NodeAction;
+
+import java.util.Map;
+
+/**
+ * 节点跟踪装饰器
+ * 每次节点执行记录一个NODE跨度，节点内的LLM调用和工具调用作为其子跨度
+ */
+public class TracedNode implements NodeAction<AgentMessageState> {
+
+    private final String nodeId;
+    private final NodeAction<AgentMessageState> delegate;
+
+    public TracedNode(String nodeId, NodeAction<AgentMessageState> delegate) {
+        this.nodeId = nodeId;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Map<String, Object> apply(AgentMessageState state) throws Exception {
+        Span span = Tracing.start(SpanKind.NODE, nodeId);
+        try {
+            Map<String, Object> update = delegate.apply(state);
+            if (update.get("error") != null) {
+                span.attribute("node.error", String.valueOf(update.get("error")));
+            }
+            return update;
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * 包装节点
+     * @param nodeId 图中的节点ID
+     * @param delegate 被包装的节点
+     * @return 带跟踪的节点
+     */
+    public static TracedNode of(String nodeId, NodeAction<AgentMessageState> delegate) {
+        return new TracedNode(nodeId, delegate);
+    }
+}
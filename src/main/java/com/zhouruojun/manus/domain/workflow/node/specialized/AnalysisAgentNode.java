@@ -23,8 +23,21 @@ public class AnalysisAgentNode extends AgentNodeAdapter {
      * @param promptPath 提示词文件路径
      */
     public AnalysisAgentNode(ChatModel chatModel, ToolCollection toolCollection, String agentName, PromptLoader promptLoader, String promptPath) {
-        super(new AnalysisAgent(chatModel, toolCollection, agentName, promptLoader, promptPath));
-        log.info("分析智能体节点初始化完成，智能体名称: {}", agentName);
+        this(chatModel, toolCollection, agentName, agentName, promptLoader, promptPath);
+    }
+
+    /**
+     * 创建使用独立会话ID的分析智能体节点
+     * @param chatModel Spring AI的ChatModel
+     * @param toolCollection 工具集合
+     * @param agentName 智能体名称
+     * @param conversationId 智能体会话ID
+     * @param promptLoader 提示词加载器
+     * @param promptPath 提示词文件路径
+     */
+    public AnalysisAgentNode(ChatModel chatModel, ToolCollection toolCollection, String agentName, String conversationId, PromptLoader promptLoader, String promptPath) {
+        super(new AnalysisAgent(chatModel, toolCollection, agentName, conversationId, promptLoader, promptPath));
+        log.info("分析智能体节点初始化完成，智能体名称: {}, 会话ID: {}", agentName, conversationId);
     }
 
     /**
@@ -2,28 +2,60 @@ package com.zhouruojun.manus.domain.workflow.node.specialized;
 
 import com.zhouruojun.manus.domain.workflow.node.base.BaseNode;
 import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.domain.model.NextAction;
+import com.zhouruojun.manus.domain.workflow.routing.PreRouter;
+import com.zhouruojun.manus.domain.workflow.routing.RoutingDecisionCache;
+import com.zhouruojun.manus.domain.workflow.routing.RoutingDecision;
 import com.zhouruojun.manus.infrastructure.tools.PromptLoader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * 协调器节点 - 负责分析任务并决定下一步行动
- * 基于LangGraph4j的NodeAction实现
+ * 基于LangGraph4j的NodeAction实现，配置了预路由时能由规则确定的决策不再调用LLM，
+ * 配置了决策缓存时相同上下文复用之前LLM给出的决策
  */
 @Slf4j
 public class CoordinatorNode extends BaseNode {
 
     private final String systemPrompt;
+    private final PreRouter preRouter;
+    private final RoutingDecisionCache decisionCache;
 
     public CoordinatorNode(ChatModel chatModel, PromptLoader promptLoader, String promptPath) {
+        this(chatModel, promptLoader, promptPath, null, null);
+    }
+
+    /**
+     * @param preRouter 前置路由，null表示每次都调用LLM
+     * @param decisionCache 路由决策缓存，null表示不缓存
+     */
+    public CoordinatorNode(ChatModel chatModel, PromptLoader promptLoader, String promptPath,
+                           PreRouter preRouter, RoutingDecisionCache decisionCache) {
         super(chatModel);
         this.systemPrompt = promptLoader.loadPrompt(promptPath);
+        this.preRouter = preRouter;
+        this.decisionCache = decisionCache;
     }
 
     @Override
     protected Map<String, Object> processNode(AgentMessageState state) throws Exception {
+        if (preRouter != null) {
+            Optional<RoutingDecision> decision = preRouter.route(state);
+            if (decision.isPresent()) {
+                return Map.of(
+                    "currentAgent", "coordinator",
+                    "next", decision.get().action(),
+                    "parallelActions", "",
+                    "messages", AgentMessageState.createAiMessage("协调器: " + decision.get().reason())
+                );
+            }
+        }
+
         String userInput = state.userInput().orElse("");
         
         // 构建上下文信息
@@ -51,19 +83,53 @@ public class CoordinatorNode extends BaseNode {
         }
         
         String context = contextBuilder.toString();
-        
+
+        // 相同上下文之前已由LLM决策过时直接复用
+        Optional<RoutingDecisionCache.CachedRoute> cached = decisionCache != null
+                ? decisionCache.get(context)
+                : Optional.empty();
+        if (cached.isPresent()) {
+            log.info("协调器路由决策缓存命中: {}", cached.get().actions());
+            return routeTo(cached.get().actions(), cached.get().response());
+        }
+
         // 调用语言模型进行决策
         String response = callChatModel(systemPrompt, context);
-        // 解析下一步动作
-        String nextAction = parseNextAction(response);
-        
+        // 解析下一步动作，可能同时包含多个可并行的动作
+        List<String> nextActions = parseNextActions(response);
+
+        if (decisionCache != null && !response.startsWith(CHAT_MODEL_ERROR_PREFIX)) {
+            decisionCache.put(context, new RoutingDecisionCache.CachedRoute(nextActions, response));
+        }
+        if (preRouter != null && nextActions.size() == 1) {
+            preRouter.learn(state, nextActions.get(0));
+        }
+
+        return routeTo(nextActions, response);
+    }
+
+    /**
+     * 根据下一步动作生成状态更新
+     */
+    private Map<String, Object> routeTo(List<String> nextActions, String response) {
         // 创建AI响应消息
         var aiMessage = AgentMessageState.createAiMessage("协调器: " + response);
         
+        if (nextActions.size() > 1) {
+            log.info("协调器请求并行执行: {}", nextActions);
+            return Map.of(
+                "currentAgent", "coordinator",
+                "next", NextAction.PARALLEL.getValue(),
+                "parallelActions", String.join(",", nextActions),
+                "messages", aiMessage
+            );
+        }
+
         // 返回状态更新
         return Map.of(
             "currentAgent", "coordinator",
-            "next", nextAction,
+            "next", nextActions.get(0),
+            "parallelActions", "",
             "messages", aiMessage
         );
     }
@@ -0,0 +1,126 @@
+package com.zhouruojun.manus.domain.workflow.node.specialized;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.infrastructure.exception.DeadlineExceededException;
+import dev.langchain4j.data.message.ChatMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.action.NodeAction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 并行智能体节点 - 将协调器一次返回的多个动作分发给对应的智能体节点并发执行
+ * 所有分支完成后按注册顺序（而非完成顺序）合并结果，保证写回状态的内容是确定的
+ */
+@Slf4j
+public class ParallelAgentsNode implements NodeAction<AgentMessageState> {
+
+    // 动作 -> 智能体节点，按插入顺序合并结果
+    private final Map<String, NodeAction<AgentMessageState>> branches;
+    private final Executor executor;
+
+    /**
+     * 创建并行智能体节点
+     * @param branches 动作到智能体节点的映射，合并时按该映射的迭代顺序
+     * @param executor 执行各分支的执行器
+     */
+    public ParallelAgentsNode(Map<String, NodeAction<AgentMessageState>> branches, Executor executor) {
+        this.branches = new LinkedHashMap<>(branches);
+        this.executor = executor;
+    }
+
+    @Override
+    public Map<String, Object> apply(AgentMessageState state) throws Exception {
+        List<String> requested = state.parallelActions();
+        log.info("Processing parallel agents node: {}", requested);
+
+        // 按注册顺序启动被请求的分支
+        Map<String, CompletableFuture<Map<String, Object>>> futures = new LinkedHashMap<>();
+        branches.forEach((action, node) -> {
+            if (requested.contains(action)) {
+                futures.put(action, CompletableFuture.supplyAsync(() -> applyBranch(action, node, state), executor));
+            }
+        });
+
+        if (futures.isEmpty()) {
+            log.warn("并行节点没有可执行的分支，转交协调器重新决策");
+            return Map.of(
+                "currentAgent", "parallel",
+                "next", "coordinator",
+                "parallelActions", "",
+                "messages", AgentMessageState.createAiMessage("并行节点没有可执行的分支")
+            );
+        }
+
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+
+        // 确定性合并：按分支注册顺序拼接结果
+        List<String> toolResults = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        List<ChatMessage> messages = new ArrayList<>();
+        boolean allFinished = true;
+
+        for (Map.Entry<String, CompletableFuture<Map<String, Object>>> entry : futures.entrySet()) {
+            Map<String, Object> update = entry.getValue().join();
+
+            appendIfPresent(toolResults, update.get("toolResults"));
+            appendIfPresent(results, update.get("result"));
+            appendIfPresent(errors, update.get("error"));
+
+            Object message = update.get("messages");
+            if (message instanceof ChatMessage chatMessage) {
+                messages.add(chatMessage);
+            }
+
+            allFinished &= Boolean.TRUE.equals(update.get("finished"));
+        }
+
+        Map<String, Object> merged = new HashMap<>();
+        merged.put("currentAgent", "parallel");
+        merged.put("next", "coordinator");
+        merged.put("parallelActions", "");
+        merged.put("toolResults", String.join("\n\n", toolResults));
+        merged.put("result", String.join("\n\n", results));
+        merged.put("messages", messages);
+        if (!errors.isEmpty()) {
+            merged.put("error", String.join("\n", errors));
+        }
+        // 只有所有分支都失败结束时才终止工作流，部分失败交给协调器继续决策
+        if (allFinished) {
+            merged.put("finished", true);
+        }
+
+        log.info("并行节点完成，合并了 {} 个分支的结果", futures.size());
+        return merged;
+    }
+
+    /**
+     * 执行单个分支，异常转换为错误状态，避免影响其他分支；超时或取消直接向上抛出
+     */
+    private Map<String, Object> applyBranch(String action, NodeAction<AgentMessageState> node, AgentMessageState state) {
+        try {
+            return node.apply(state);
+        } catch (DeadlineExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("并行分支 {} 执行失败: {}", action, e.getMessage(), e);
+            return Map.of(
+                "error", action + " 分支执行错误: " + e.getMessage(),
+                "finished", true
+            );
+        }
+    }
+
+    private static void appendIfPresent(List<String> target, Object value) {
+        if (value instanceof String text && !text.isBlank()) {
+            target.add(text);
+        }
+    }
+}
@@ -2,6 +2,10 @@ package com.zhouruojun.manus.domain.workflow.node.specialized;
 
 import com.zhouruojun.manus.domain.workflow.node.base.BaseNode;
 import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowContextHolder;
+import com.zhouruojun.manus.domain.workflow.context.WorkflowRunContext;
+import com.zhouruojun.manus.domain.workflow.event.WorkflowEvent;
+import com.zhouruojun.manus.infrastructure.exception.LlmStreamInterruptedException;
 import com.zhouruojun.manus.infrastructure.tools.PromptLoader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
@@ -59,8 +63,29 @@ public class SummaryNode extends BaseNode {
             }
         }
 
-        // 调用语言模型生成最终回复
-        String finalReply = callChatModel(systemPrompt, replyContext.toString());
+        // 调用语言模型生成最终回复，有订阅者时逐个令牌推送
+        WorkflowRunContext runContext = WorkflowContextHolder.forState(state);
+        String finalReply;
+        if (runContext != null && runContext.isStreaming()) {
+            try {
+                finalReply = streamChatModel(systemPrompt, replyContext.toString(),
+                        token -> runContext.emit(WorkflowEvent.token(runContext.getSessionId(), "summary_agent", token)));
+            } catch (LlmStreamInterruptedException e) {
+                // 回复不完整：保留已推送的内容并注明中断，同时记录错误
+                String notice = "\n\n（回复生成中断: " + e.getCause().getMessage() + "）";
+                runContext.emit(WorkflowEvent.token(runContext.getSessionId(), "summary_agent", notice));
+                finalReply = e.getPartialContent() + notice;
+                return Map.of(
+                        "currentAgent", "summary",
+                        "result", finalReply,
+                        "finished", true,
+                        "error", e.getMessage(),
+                        "messages", AgentMessageState.createAiMessage(finalReply)
+                );
+            }
+        } else {
+            finalReply = callChatModel(systemPrompt, replyContext.toString());
+        }
 
         // 创建AI响应消息
         var aiMessage = AgentMessageState.createAiMessage(finalReply);
@@ -0,0 +1,114 @@
+package com.zhouruojun.manus.domain.workflow.routing;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 协调器的前置路由
+ * 按顺序询问各分类器，任一分类器给出决策时协调器跳过LLM调用；都不确定时回退到LLM，
+ * 并把LLM的决策交给分类器学习。学习型分类器给出的决策按explorationRate的比例仍交给LLM（outcome=sampled），
+ * 使转移表在状态达到阈值后继续得到新的样本，LLM的行为变化时能够重新回退。
+ * 跳过、抽样和回退的次数通过manus.coordinator.preroute指标暴露
+ */
+public class PreRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(PreRouter.class);
+
+    private final List<RouteClassifier> classifiers;
+    private final MeterRegistry meterRegistry;
+    private final double explorationRate;
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * @param classifiers 按顺序询问的分类器
+     * @param meterRegistry 指标注册表
+     */
+    public PreRouter(List<RouteClassifier> classifiers, MeterRegistry meterRegistry) {
+        this(classifiers, 0.0, meterRegistry);
+    }
+
+    /**
+     * @param classifiers 按顺序询问的分类器
+     * @param explorationRate 学习型分类器的决策仍交给LLM的比例，0表示不抽样
+     * @param meterRegistry 指标注册表
+     */
+    public PreRouter(List<RouteClassifier> classifiers, double explorationRate, MeterRegistry meterRegistry) {
+        this.classifiers = List.copyOf(classifiers);
+        this.explorationRate = Math.min(1.0, Math.max(0.0, explorationRate));
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("manus.coordinator.preroute.skip.ratio", this, PreRouter::skipRatio)
+                .description("协调器跳过LLM调用的比例")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试不调用LLM确定下一步动作
+     * @param state 协调器执行前的状态
+     * @return 有分类器确定时返回决策，否则返回空
+     */
+    public Optional<RoutingDecision> route(AgentMessageState state) {
+        total.increment();
+        for (RouteClassifier classifier : classifiers) {
+            Optional<RoutingDecision> decision;
+            try {
+                decision = classifier.classify(state);
+            } catch (RuntimeException e) {
+                log.warn("路由分类器 {} 执行失败，跳过: {}", classifier.name(), e.getMessage());
+                continue;
+            }
+            if (decision.isPresent()) {
+                if (classifier.learnsFromLlm() && ThreadLocalRandom.current().nextDouble() < explorationRate) {
+                    record("sampled", classifier.name());
+                    log.debug("预路由抽样复核 {} -> {}，交给LLM决策", classifier.name(), decision.get().action());
+                    return Optional.empty();
+                }
+                skipped.increment();
+                record("skipped", classifier.name());
+                log.info("预路由命中 {} -> {}（{}）", classifier.name(), decision.get().action(), decision.get().reason());
+                return decision;
+            }
+        }
+        record("fallback", "llm");
+        return Optional.empty();
+    }
+
+    /**
+     * 把LLM做出的决策交给分类器学习
+     */
+    public void learn(AgentMessageState state, String action) {
+        for (RouteClassifier classifier : classifiers) {
+            try {
+                classifier.observe(state, action);
+            } catch (RuntimeException e) {
+                log.warn("路由分类器 {} 学习失败: {}", classifier.name(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 跳过LLM调用的比例
+     */
+    public double skipRatio() {
+        long count = total.sum();
+        return count == 0 ? 0.0 : (double) skipped.sum() / count;
+    }
+
+    private void record(String outcome, String source) {
+        Counter.builder("manus.coordinator.preroute")
+                .description("协调器预路由的决策次数")
+                .tag("outcome", outcome)
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,39 @@
+package com.zhouruojun.manus.domain.workflow.routing;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+
+import java.util.Optional;
+
+/**
+ * 协调器前置的快速路由分类器
+ * 能够确定下一步动作时返回决策，否则返回空交给下一个分类器，全部为空时由协调器调用LLM决策
+ */
+public interface RouteClassifier {
+
+    /**
+     * 分类器名称，作为指标的source标签
+     */
+    String name();
+
+    /**
+     * 根据协调器看到的状态给出路由决策
+     * @param state 协调器执行前的状态
+     * @return 有把握时返回决策，否则返回空
+     */
+    Optional<RoutingDecision> classify(AgentMessageState state);
+
+    /**
+     * 观察一次由LLM做出的路由决策，可用于学习
+     * @param state 协调器执行前的状态
+     * @param action LLM选择的动作
+     */
+    default void observe(AgentMessageState state, String action) {
+    }
+
+    /**
+     * 决策是否来自对LLM决策的学习；这类决策需要持续抽样交给LLM复核，否则一旦达到阈值就不再更新
+     */
+    default boolean learnsFromLlm() {
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package com.zhouruojun.manus.domain.workflow.routing;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 基于用户输入的路由规则，输入匹配正则或包含任一关键词时命中
+ * @param name 规则名称
+ * @param action 命中后的动作
+ * @param pattern 正则表达式，可以为null
+ * @param keywords 关键词（忽略大小写），可以为空
+ */
+public record RouteRule(String name, String action, Pattern pattern, List<String> keywords) {
+
+    public RouteRule {
+        keywords = keywords == null ? List.of() : keywords.stream()
+                .filter(keyword -> keyword != null && !keyword.isBlank())
+                .map(keyword -> keyword.toLowerCase(Locale.ROOT))
+                .toList();
+    }
+
+    /**
+     * 创建规则
+     * @param regex 正则表达式（忽略大小写），为空表示只匹配关键词
+     */
+    public static RouteRule of(String name, String action, String regex, List<String> keywords) {
+        Pattern pattern = regex == null || regex.isBlank()
+                ? null
+                : Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return new RouteRule(name, action, pattern, keywords);
+    }
+
+    /**
+     * 判断用户输入是否命中该规则
+     */
+    public boolean matches(String input) {
+        if (pattern != null && pattern.matcher(input).find()) {
+            return true;
+        }
+        String lower = input.toLowerCase(Locale.ROOT);
+        return keywords.stream().anyMatch(lower::contains);
+    }
+}
@@ -0,0 +1,10 @@
+package com.zhouruojun.manus.domain.workflow.routing;
+
+/**
+ * 预路由的决策结果
+ * @param action 下一步动作（NextAction的值）
+ * @param source 给出决策的分类器名称，用于日志和指标标签
+ * @param reason 决策原因
+ */
+public record RoutingDecision(String action, String source, String reason) {
+}
@@ -0,0 +1,173 @@
+package com.zhouruojun.manus.domain.workflow.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 协调器路由决策缓存
+ * 以规范化后的协调器上下文（用户请求、之前的执行结果、当前结果）的哈希为键，缓存LLM给出的下一步动作，
+ * 按LRU限制条目数，超过TTL的条目在读取时失效。命中和未命中次数通过manus.coordinator.route.cache指标暴露，
+ * 运行期间可以通过setEnabled关闭
+ */
+public class RoutingDecisionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingDecisionCache.class);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final AtomicBoolean enabled;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * 缓存的决策
+     * @param actions 下一步动作，多于一个时表示并行执行
+     * @param response LLM的原始回复，用于生成协调器消息
+     */
+    public record CachedRoute(List<String> actions, String response) {
+    }
+
+    private record Entry(CachedRoute route, long expiresAt) {
+    }
+
+    /**
+     * @param maxEntries 最多缓存的决策数
+     * @param ttl 决策的有效期
+     * @param enabled 初始是否启用
+     * @param meterRegistry 指标注册表
+     */
+    public RoutingDecisionCache(int maxEntries, Duration ttl, boolean enabled, MeterRegistry meterRegistry) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.enabled = new AtomicBoolean(enabled);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > RoutingDecisionCache.this.maxEntries;
+            }
+        };
+        this.hits = Counter.builder("manus.coordinator.route.cache")
+                .description("协调器路由决策缓存的查询次数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("manus.coordinator.route.cache")
+                .description("协调器路由决策缓存的查询次数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("manus.coordinator.route.cache.size", this, RoutingDecisionCache::size)
+                .description("协调器路由决策缓存的条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 查询上下文对应的决策
+     * @param context 协调器发送给LLM的上下文
+     * @return 未过期的决策，关闭或未命中时返回空
+     */
+    public Optional<CachedRoute> get(String context) {
+        if (!enabled.get()) {
+            return Optional.empty();
+        }
+        String key = keyOf(context);
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return Optional.of(entry.route());
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * 缓存LLM对该上下文给出的决策
+     */
+    public void put(String context, CachedRoute route) {
+        if (!enabled.get()) {
+            return;
+        }
+        String key = keyOf(context);
+        lock.lock();
+        try {
+            entries.put(key, new Entry(route, System.nanoTime() + ttlNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 运行期间开启或关闭缓存，关闭时清空已有条目
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled.getAndSet(enabled) != enabled) {
+            log.info("协调器路由决策缓存已{}", enabled ? "开启" : "关闭");
+        }
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled.get();
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 上下文规范化（Unicode兼容形式、忽略大小写、合并空白）后取SHA-256
+     */
+    static String keyOf(String context) {
+        String normalized = Normalizer.normalize(context, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .strip()
+                .replaceAll("\\s+", " ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
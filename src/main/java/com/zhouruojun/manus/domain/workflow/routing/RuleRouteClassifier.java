@@ -0,0 +1,90 @@
+package com.zhouruojun.manus.domain.workflow.routing;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import com.zhouruojun.manus.domain.model.NextAction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * 基于关键词和正则的路由分类器
+ * 首轮（还没有智能体执行过）按用户输入匹配规则，例如问候和询问对话历史直接转到总结；
+ * 开启postAgentShortcuts时，智能体执行后如果结果看起来已经完整（分析已完成，或只需要搜索的请求已拿到搜索结果且没有错误），
+ * 也直接转到总结。该判断不看结果内容，可能跳过LLM本会要求的补充步骤，因此默认关闭
+ */
+public class RuleRouteClassifier implements RouteClassifier {
+
+    // 用户输入中表示需要分析处理的词，命中时搜索结果之后仍交给LLM判断是否继续分析
+    static final Pattern ANALYSIS_INTENT = Pattern.compile(
+            "分析|比较|对比|评估|计算|统计|趋势|预测|analy[sz]e|compare|evaluate|calculate|trend|forecast",
+            Pattern.CASE_INSENSITIVE);
+
+    private final List<RouteRule> rules;
+    private final boolean postAgentShortcuts;
+
+    /**
+     * @param rules 首轮按顺序匹配的规则
+     */
+    public RuleRouteClassifier(List<RouteRule> rules) {
+        this(rules, false);
+    }
+
+    /**
+     * @param rules 首轮按顺序匹配的规则
+     * @param postAgentShortcuts 智能体给出结果后是否直接转到总结
+     */
+    public RuleRouteClassifier(List<RouteRule> rules, boolean postAgentShortcuts) {
+        this.rules = List.copyOf(rules);
+        this.postAgentShortcuts = postAgentShortcuts;
+    }
+
+    /**
+     * 内置规则：问候、致谢和询问对话历史的请求直接总结
+     */
+    public static List<RouteRule> defaultRules() {
+        List<RouteRule> defaults = new ArrayList<>();
+        defaults.add(RouteRule.of("greeting", NextAction.SUMMARY.getValue(),
+                "^\\s*(你好|您好|嗨|哈喽|早上好|中午好|下午好|晚上好|谢谢|多谢|再见|hi|hello|hey|thanks|thank you|bye)"
+                        + "[\\s!！。.,，~～?？]*$",
+                List.of()));
+        defaults.add(RouteRule.of("history", NextAction.SUMMARY.getValue(),
+                "(我|我们)(刚才|刚刚|之前|上一个|上次|前面).{0,4}(问|说|聊)了?(什么|啥|哪些)"
+                        + "|what did (i|we) (just )?(ask|say|talk about)",
+                List.of()));
+        return defaults;
+    }
+
+    @Override
+    public String name() {
+        return "rules";
+    }
+
+    @Override
+    public Optional<RoutingDecision> classify(AgentMessageState state) {
+        String previous = state.currentAgent().orElse("start");
+        String input = state.userInput().orElse("");
+
+        if ("start".equals(previous)) {
+            for (RouteRule rule : rules) {
+                if (rule.matches(input)) {
+                    return Optional.of(new RoutingDecision(rule.action(), name(), "命中规则 " + rule.name()));
+                }
+            }
+            return Optional.empty();
+        }
+
+        if (!postAgentShortcuts || state.hasError() || state.result().orElse("").isBlank()) {
+            return Optional.empty();
+        }
+        return switch (previous) {
+            case "analysis_agent", "parallel" ->
+                    Optional.of(new RoutingDecision(NextAction.SUMMARY.getValue(), name(), previous + " 已给出结果"));
+            case "search_agent" -> ANALYSIS_INTENT.matcher(input).find()
+                    ? Optional.empty()
+                    : Optional.of(new RoutingDecision(NextAction.SUMMARY.getValue(), name(), "搜索结果已满足不需要分析的请求"));
+            default -> Optional.empty();
+        };
+    }
+}
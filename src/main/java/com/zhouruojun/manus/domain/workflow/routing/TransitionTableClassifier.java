@@ -0,0 +1,95 @@
+package com.zhouruojun.manus.domain.workflow.routing;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 从历史路由决策中学习的转移表
+ * 以（上一个智能体、是否有结果、是否有错误、是否有历史、输入是否要求分析）为状态，统计LLM在该状态下选择各动作的次数；
+ * 样本数达到minSamples且占比最高的动作不低于minConfidence时直接采用该动作。
+ * 首轮的决策主要取决于请求内容本身，状态特征无法区分，因此只学习智能体执行之后的转移
+ */
+public class TransitionTableClassifier implements RouteClassifier {
+
+    private final int minSamples;
+    private final double minConfidence;
+    // 状态键 -> (动作 -> 次数)
+    private final Map<String, Map<String, LongAdder>> table = new ConcurrentHashMap<>();
+
+    /**
+     * @param minSamples 状态至少观察到的LLM决策数
+     * @param minConfidence 最常见动作的最低占比
+     */
+    public TransitionTableClassifier(int minSamples, double minConfidence) {
+        this.minSamples = Math.max(1, minSamples);
+        this.minConfidence = minConfidence;
+    }
+
+    @Override
+    public String name() {
+        return "transitions";
+    }
+
+    @Override
+    public Optional<RoutingDecision> classify(AgentMessageState state) {
+        if (isFirstPass(state)) {
+            return Optional.empty();
+        }
+        String key = stateKey(state);
+        Map<String, LongAdder> counts = table.get(key);
+        if (counts == null) {
+            return Optional.empty();
+        }
+
+        long total = 0;
+        String best = null;
+        long bestCount = 0;
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            long count = entry.getValue().sum();
+            total += count;
+            if (count > bestCount) {
+                best = entry.getKey();
+                bestCount = count;
+            }
+        }
+        if (best == null || total < minSamples || (double) bestCount / total < minConfidence) {
+            return Optional.empty();
+        }
+        return Optional.of(new RoutingDecision(best, name(),
+                String.format("状态 %s 下历史选择 %s 的比例为 %d/%d", key, best, bestCount, total)));
+    }
+
+    @Override
+    public boolean learnsFromLlm() {
+        return true;
+    }
+
+    @Override
+    public void observe(AgentMessageState state, String action) {
+        if (isFirstPass(state)) {
+            return;
+        }
+        table.computeIfAbsent(stateKey(state), key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(action, a -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * 路由状态键，只取与路由相关且取值有限的特征，保证表的大小有上限
+     */
+    static String stateKey(AgentMessageState state) {
+        return state.currentAgent().orElse("start")
+                + "|result=" + !state.result().orElse("").isBlank()
+                + "|error=" + state.hasError()
+                + "|history=" + state.hasHistory()
+                + "|analysis=" + RuleRouteClassifier.ANALYSIS_INTENT.matcher(state.userInput().orElse("")).find();
+    }
+
+    private static boolean isFirstPass(AgentMessageState state) {
+        return "start".equals(state.currentAgent().orElse("start"));
+    }
+}
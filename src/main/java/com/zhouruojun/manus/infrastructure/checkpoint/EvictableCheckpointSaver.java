@@ -0,0 +1,44 @@
+package com.zhouruojun.manus.infrastructure.checkpoint;
+
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 支持删除单个检查点的检查点存储
+ * BaseCheckpointSaver只能按线程整体清除，保留策略按线程裁剪旧检查点时需要该能力
+ */
+public interface EvictableCheckpointSaver extends BaseCheckpointSaver {
+
+    /**
+     * 删除指定线程中的单个检查点
+     * @param config 运行配置，用于确定线程ID
+     * @param checkpointId 检查点ID
+     * @return 检查点存在并被删除时返回true
+     */
+    boolean remove(RunnableConfig config, String checkpointId);
+
+    /**
+     * 检查点实际占用的存储字节数
+     * @return 字节数，无法确定时返回-1，由调用方自行估算
+     */
+    default long storedBytes(RunnableConfig config, String checkpointId) {
+        return -1;
+    }
+
+    /**
+     * 存储中已有的检查点，保留策略在启动时据此接管重启前写入的线程
+     * @return 线程ID -> 检查点列表（最新的在前），不支持时返回空
+     */
+    default Map<String, List<StoredCheckpoint>> storedCheckpoints() {
+        return Map.of();
+    }
+
+    /**
+     * 已有的检查点及其占用的存储字节数
+     */
+    record StoredCheckpoint(String id, long bytes) {
+    }
+}
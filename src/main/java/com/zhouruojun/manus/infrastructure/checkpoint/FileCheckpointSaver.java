@@ -0,0 +1,1157 @@
+package com.zhouruojun.manus.infrastructure.checkpoint;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.bsc.langgraph4j.serializer.StateSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 基于本地文件的持久化检查点存储
+ * 检查点以追加方式写入分段日志文件，内存中维护 线程ID -> 记录偏移 的索引；
+ * 分段写满后封存并生成 .idx 索引文件，启动时优先加载索引文件、只扫描未封存的分段，
+ * 已封存分段通过内存映射读取
+ *
+ * 同一线程的检查点每snapshotInterval个写一次完整快照，其余只写相对上一个检查点的增量：
+ * 值变化的通道写入新值，只在末尾追加的列表通道（messages）只写追加的元素，未变化的通道（sessionHistory等）不写。
+ * 读取增量检查点时沿基准链回溯到最近的完整快照再依次应用增量；被删除但仍是其他检查点基准的记录继续保留，
+ * 直到不再被引用
+ *
+ * 记录格式: [int 长度][int CRC32][记录体]
+ * 记录体:   [byte 类型][UTF 线程ID]，PUT记录还包含 [UTF 检查点ID][节点ID][下一节点ID][int 状态长度][状态字节]，
+ *          DELTA记录在下一节点ID后还包含 [UTF 基准检查点ID][追加通道列表][删除通道列表]，状态字节只包含变化的通道，
+ *          REMOVE记录还包含 [UTF 检查点ID]
+ */
+@Slf4j
+public class FileCheckpointSaver implements EvictableCheckpointSaver, AutoCloseable {
+
+    private static final String THREAD_ID_DEFAULT = "$default";
+    private static final String SEGMENT_PREFIX = "checkpoints-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int HEADER_BYTES = 8;
+
+    static final byte TYPE_PUT = 1;
+    static final byte TYPE_CLEAR = 2;
+    static final byte TYPE_REMOVE = 3;
+    static final byte TYPE_DELTA = 4;
+
+    // 索引文件版本，旧版本文件以记录数开头，新版本以负的版本号开头
+    private static final int INDEX_VERSION = 2;
+
+    private final Path directory;
+    private final StateSerializer<AgentMessageState> serializer;
+    private final long segmentSizeBytes;
+    private final boolean syncOnWrite;
+    private final int snapshotInterval;
+    private final DistributionSummary fullBytes;
+    private final DistributionSummary deltaBytes;
+
+    // 所有索引和分段状态都由该锁保护，使用ReentrantLock避免虚拟线程被固定
+    private final ReentrantLock lock = new ReentrantLock();
+    // 线程ID -> 检查点引用列表（最新的在前）
+    private final Map<String, LinkedList<CheckpointRef>> index = new HashMap<>();
+    // 线程ID -> (检查点ID -> 引用)：已删除但仍被增量检查点作为基准的检查点
+    private final Map<String, Map<String, CheckpointRef>> retainedBases = new HashMap<>();
+    // 线程ID -> 最近写入的检查点状态，用于计算下一个检查点的增量
+    private final Map<String, LastState> lastStates = new HashMap<>();
+    // 分段ID -> 分段
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    // 最近使用的已封存分段的内存映射
+    private final LinkedHashMap<Integer, MappedByteBuffer> mappedSegments;
+    private Segment active;
+
+    /**
+     * 创建文件检查点存储并从已有文件恢复索引
+     * @param directory 存储目录
+     * @param serializer 状态序列化器
+     * @param segmentSizeBytes 单个分段的大小上限
+     * @param mappedSegmentLimit 同时保持内存映射的已封存分段数量
+     * @param syncOnWrite 每次写入后是否强制刷盘
+     */
+    public FileCheckpointSaver(Path directory,
+                               StateSerializer<AgentMessageState> serializer,
+                               long segmentSizeBytes,
+                               int mappedSegmentLimit,
+                               boolean syncOnWrite) {
+        this(directory, serializer, segmentSizeBytes, mappedSegmentLimit, syncOnWrite, 1, Metrics.globalRegistry);
+    }
+
+    /**
+     * 创建文件检查点存储并从已有文件恢复索引
+     * @param directory 存储目录
+     * @param serializer 状态序列化器
+     * @param segmentSizeBytes 单个分段的大小上限
+     * @param mappedSegmentLimit 同时保持内存映射的已封存分段数量
+     * @param syncOnWrite 每次写入后是否强制刷盘
+     * @param snapshotInterval 每个线程每隔多少个检查点写一次完整快照，1表示始终写完整快照
+     * @param registry 指标注册表
+     */
+    public FileCheckpointSaver(Path directory,
+                               StateSerializer<AgentMessageState> serializer,
+                               long segmentSizeBytes,
+                               int mappedSegmentLimit,
+                               boolean syncOnWrite,
+                               int snapshotInterval,
+                               MeterRegistry registry) {
+        this.directory = directory;
+        this.serializer = serializer;
+        this.segmentSizeBytes = segmentSizeBytes;
+        this.syncOnWrite = syncOnWrite;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+        this.fullBytes = writeSummary(registry, "full");
+        this.deltaBytes = writeSummary(registry, "delta");
+        this.mappedSegments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+                return size() > Math.max(1, mappedSegmentLimit);
+            }
+        };
+
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("检查点目录初始化失败: " + directory, e);
+        }
+    }
+
+    @Override
+    public Collection<Checkpoint> list(RunnableConfig config) {
+        lock.lock();
+        try {
+            String threadId = threadIdOf(config);
+            List<Checkpoint> result = new ArrayList<>();
+            // 同一次列举中已重建的状态，增量链上的公共前缀只重建一次
+            Map<String, Map<String, Object>> resolved = new HashMap<>();
+            for (CheckpointRef ref : index.getOrDefault(threadId, new LinkedList<>()).reversed()) {
+                result.add(readCheckpoint(threadId, ref, resolved));
+            }
+            return result.reversed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Checkpoint> get(RunnableConfig config) {
+        lock.lock();
+        try {
+            String threadId = threadIdOf(config);
+            LinkedList<CheckpointRef> refs = index.get(threadId);
+            if (refs == null || refs.isEmpty()) {
+                return Optional.empty();
+            }
+            if (config.checkPointId().isPresent()) {
+                String checkPointId = config.checkPointId().get();
+                return refs.stream()
+                        .filter(ref -> ref.id().equals(checkPointId))
+                        .findFirst()
+                        .map(ref -> readCheckpoint(threadId, ref, new HashMap<>()));
+            }
+            return Optional.of(readCheckpoint(threadId, refs.getFirst(), new HashMap<>()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        String threadId = threadIdOf(config);
+        Map<String, Object> state = checkpoint.getState();
+
+        if (config.checkPointId().isPresent()) {
+            return replace(config, threadId, config.checkPointId().get(), checkpoint);
+        }
+
+        // 在锁外序列化：基准是该线程最新的检查点时只序列化增量，否则序列化完整状态
+        LastState base = deltaBase(threadId);
+        Delta delta = base != null ? Delta.between(base.state(), state) : null;
+        byte[] encoded = delta != null ? serializeState(delta.changed()) : serializeState(state);
+
+        lock.lock();
+        try {
+            LinkedList<CheckpointRef> refs = index.computeIfAbsent(threadId, k -> new LinkedList<>());
+            if (delta != null && (refs.isEmpty() || !refs.getFirst().id().equals(base.id()))) {
+                // 序列化期间最新检查点发生变化，改写完整快照
+                delta = null;
+                encoded = serializeState(state);
+            }
+
+            CheckpointRef ref = delta != null
+                    ? appendDelta(threadId, checkpoint, base.id(), delta, encoded)
+                    : append(threadId, checkpoint, encoded);
+            refs.addFirst(ref);
+            lastStates.put(threadId, new LastState(checkpoint.getId(), Delta.copyOf(state),
+                    delta != null ? base.depth() + 1 : 0));
+            return RunnableConfig.builder(config)
+                    .checkPointId(checkpoint.getId())
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 替换已有检查点：依赖它的增量检查点先改写为完整快照，再追加新的完整记录，索引指向新位置
+     */
+    private RunnableConfig replace(RunnableConfig config, String threadId, String checkPointId, Checkpoint checkpoint)
+            throws IOException {
+        byte[] encoded = serializeState(checkpoint.getState());
+        lock.lock();
+        try {
+            LinkedList<CheckpointRef> refs = index.computeIfAbsent(threadId, k -> new LinkedList<>());
+            int position = positionOf(refs, checkPointId);
+            if (position < 0) {
+                throw new NoSuchElementException(String.format("Checkpoint with id %s not found!", checkPointId));
+            }
+            materializeDependents(threadId, checkPointId);
+            CheckpointRef ref = append(threadId, checkpoint, encoded);
+            release(refs.set(position, ref));
+
+            LastState last = lastStates.get(threadId);
+            if (last != null && last.id().equals(checkPointId)) {
+                lastStates.put(threadId, new LastState(checkPointId, Delta.copyOf(checkpoint.getState()), 0));
+            }
+            return config;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean clear(RunnableConfig config) {
+        String threadId = threadIdOf(config);
+        lock.lock();
+        try {
+            LinkedList<CheckpointRef> refs = index.remove(threadId);
+            lastStates.remove(threadId);
+            if (refs == null) {
+                return false;
+            }
+            appendRecord(encodeClear(threadId), IndexEntry.clear(threadId));
+            refs.forEach(this::release);
+            releaseRetained(threadId);
+            reclaimSegments();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入检查点清除记录失败: " + threadId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(RunnableConfig config, String checkpointId) {
+        String threadId = threadIdOf(config);
+        lock.lock();
+        try {
+            LinkedList<CheckpointRef> refs = index.get(threadId);
+            int position = refs == null ? -1 : positionOf(refs, checkpointId);
+            if (position < 0) {
+                return false;
+            }
+            appendRecord(encodeRemove(threadId, checkpointId), IndexEntry.remove(threadId, checkpointId));
+            retain(threadId, refs.remove(position));
+            if (refs.isEmpty()) {
+                index.remove(threadId);
+                lastStates.remove(threadId);
+            }
+            pruneRetained(threadId);
+            reclaimSegments();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入检查点删除记录失败: " + threadId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前保存了检查点的线程数量
+     */
+    public int getThreadCount() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前的分段数量
+     */
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long storedBytes(RunnableConfig config, String checkpointId) {
+        lock.lock();
+        try {
+            LinkedList<CheckpointRef> refs = index.get(threadIdOf(config));
+            int position = refs == null ? -1 : positionOf(refs, checkpointId);
+            return position < 0 ? -1 : refs.get(position).length();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, List<StoredCheckpoint>> storedCheckpoints() {
+        lock.lock();
+        try {
+            Map<String, List<StoredCheckpoint>> stored = new HashMap<>();
+            index.forEach((threadId, refs) -> stored.put(threadId, refs.stream()
+                    .map(ref -> new StoredCheckpoint(ref.id(), ref.length()))
+                    .toList()));
+            return stored;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (active != null && active.channel != null) {
+                active.channel.force(true);
+                active.channel.close();
+                active.channel = null;
+            }
+            mappedSegments.clear();
+            log.info("文件检查点存储已关闭: {}", directory);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 写入
+    // ---------------------------------------------------------------------
+
+    private CheckpointRef append(String threadId, Checkpoint checkpoint, byte[] state) throws IOException {
+        IndexEntry entry = IndexEntry.put(threadId, checkpoint.getId(), checkpoint.getNodeId(), checkpoint.getNextNodeId());
+        CheckpointRef ref = appendRecord(encodePut(threadId, checkpoint, state), entry);
+        fullBytes.record(ref.length());
+        return ref;
+    }
+
+    private CheckpointRef appendDelta(String threadId, Checkpoint checkpoint, String baseId, Delta delta, byte[] state)
+            throws IOException {
+        IndexEntry entry = IndexEntry.delta(threadId, checkpoint.getId(), checkpoint.getNodeId(),
+                checkpoint.getNextNodeId(), baseId);
+        CheckpointRef ref = appendRecord(encodeDelta(threadId, checkpoint, baseId, delta, state), entry);
+        deltaBytes.record(ref.length());
+        return ref;
+    }
+
+    /**
+     * 该线程下一个检查点可以使用的增量基准：最近写入的状态仍是最新检查点且距上一个完整快照不足snapshotInterval
+     * @return 基准状态，需要写完整快照时返回null
+     */
+    private LastState deltaBase(String threadId) {
+        if (snapshotInterval <= 1) {
+            return null;
+        }
+        lock.lock();
+        try {
+            LastState last = lastStates.get(threadId);
+            LinkedList<CheckpointRef> refs = index.get(threadId);
+            if (last == null || refs == null || refs.isEmpty() || !refs.getFirst().id().equals(last.id())
+                    || last.depth() + 1 >= snapshotInterval) {
+                return null;
+            }
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 把以checkpointId为基准的增量检查点改写为完整快照，使该检查点可以被替换
+     * 已删除的基准改写后再次写入删除记录，恢复时仍然不可见
+     */
+    private void materializeDependents(String threadId, String checkpointId) throws IOException {
+        LinkedList<CheckpointRef> refs = index.getOrDefault(threadId, new LinkedList<>());
+        for (int i = 0; i < refs.size(); i++) {
+            CheckpointRef ref = refs.get(i);
+            if (checkpointId.equals(ref.baseId())) {
+                refs.set(i, materialize(threadId, ref));
+            }
+        }
+        Map<String, CheckpointRef> retained = retainedBases.getOrDefault(threadId, Map.of());
+        for (CheckpointRef ref : List.copyOf(retained.values())) {
+            if (checkpointId.equals(ref.baseId())) {
+                CheckpointRef full = materialize(threadId, ref);
+                appendRecord(encodeRemove(threadId, ref.id()), IndexEntry.remove(threadId, ref.id()));
+                retained.put(ref.id(), full);
+            }
+        }
+    }
+
+    private CheckpointRef materialize(String threadId, CheckpointRef ref) throws IOException {
+        Checkpoint checkpoint = readCheckpoint(threadId, ref, new HashMap<>());
+        CheckpointRef full = append(threadId, checkpoint, serializeState(checkpoint.getState()));
+        release(ref);
+        return full;
+    }
+
+    /**
+     * 被删除的检查点仍是其他检查点的基准时保留其记录，否则直接释放
+     */
+    private void retain(String threadId, CheckpointRef ref) {
+        retainedBases.computeIfAbsent(threadId, k -> new HashMap<>()).put(ref.id(), ref);
+    }
+
+    /**
+     * 释放不再被任何可见检查点的基准链引用的保留记录
+     */
+    private void pruneRetained(String threadId) {
+        Map<String, CheckpointRef> retained = retainedBases.get(threadId);
+        if (retained == null) {
+            return;
+        }
+        Set<String> needed = new HashSet<>();
+        for (CheckpointRef ref : index.getOrDefault(threadId, new LinkedList<>())) {
+            String baseId = ref.baseId();
+            while (baseId != null && needed.add(baseId)) {
+                CheckpointRef base = findRef(threadId, baseId);
+                baseId = base != null ? base.baseId() : null;
+            }
+        }
+        retained.values().removeIf(ref -> {
+            if (needed.contains(ref.id())) {
+                return false;
+            }
+            release(ref);
+            return true;
+        });
+        if (retained.isEmpty()) {
+            retainedBases.remove(threadId);
+        }
+    }
+
+    private void releaseRetained(String threadId) {
+        Map<String, CheckpointRef> retained = retainedBases.remove(threadId);
+        if (retained != null) {
+            retained.values().forEach(this::release);
+        }
+    }
+
+    private CheckpointRef findRef(String threadId, String checkpointId) {
+        LinkedList<CheckpointRef> refs = index.get(threadId);
+        int position = refs == null ? -1 : positionOf(refs, checkpointId);
+        if (position >= 0) {
+            return refs.get(position);
+        }
+        return retainedBases.getOrDefault(threadId, Map.of()).get(checkpointId);
+    }
+
+    private CheckpointRef appendRecord(byte[] body, IndexEntry entry) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + body.length);
+        buffer.putInt(body.length).putInt((int) crc.getValue()).put(body).flip();
+
+        long offset = active.size;
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += active.channel.write(buffer, position);
+        }
+        if (syncOnWrite) {
+            active.channel.force(false);
+        }
+
+        int length = HEADER_BYTES + body.length;
+        active.size += length;
+        IndexEntry located = entry.at(offset, length);
+        active.entries.add(located);
+
+        CheckpointRef ref = located.toRef(active.id);
+        if (entry.type() == TYPE_PUT || entry.type() == TYPE_DELTA) {
+            active.liveRecords++;
+        }
+
+        if (active.size >= segmentSizeBytes) {
+            roll();
+        }
+        return ref;
+    }
+
+    /**
+     * 封存当前分段并开启新分段
+     */
+    private void roll() throws IOException {
+        Segment sealed = active;
+        writeIndexFile(sealed);
+        sealed.channel.force(true);
+        sealed.channel.close();
+        sealed.channel = null;
+        sealed.sealed = true;
+        sealed.entries = null;
+
+        active = openSegment(sealed.id + 1);
+        log.info("检查点分段 {} 已封存，开启新分段 {}", sealed.id, active.id);
+        reclaimSegments();
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Segment segment = new Segment(id, segmentPath(id));
+        segment.channel = FileChannel.open(segment.path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment.size = segment.channel.size();
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * 释放一条检查点引用，对应分段的存活记录数减一
+     */
+    private void release(CheckpointRef ref) {
+        Segment segment = segments.get(ref.segmentId());
+        if (segment != null) {
+            segment.liveRecords--;
+        }
+    }
+
+    /**
+     * 从最旧的分段开始删除已无存活记录的封存分段
+     * 只从头部删除，保证较新分段中的清除记录不会因旧分段残留而失效
+     */
+    private void reclaimSegments() {
+        while (!segments.isEmpty()) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (!oldest.sealed || oldest.liveRecords > 0 || oldest == active) {
+                return;
+            }
+            segments.remove(oldest.id);
+            mappedSegments.remove(oldest.id);
+            try {
+                Files.deleteIfExists(oldest.path);
+                Files.deleteIfExists(indexPath(oldest.id));
+                log.info("已回收检查点分段 {}", oldest.id);
+            } catch (IOException e) {
+                log.warn("删除检查点分段 {} 失败: {}", oldest.id, e.getMessage());
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 读取
+    // ---------------------------------------------------------------------
+
+    /**
+     * 读取检查点，增量检查点沿基准链回溯到完整快照（或已重建的检查点）后依次应用增量
+     * @param resolved 已重建的 检查点ID -> 状态，读取后加入本检查点的状态
+     */
+    private Checkpoint readCheckpoint(String threadId, CheckpointRef ref, Map<String, Map<String, Object>> resolved) {
+        try {
+            LastState last = lastStates.get(threadId);
+            Map<String, Object> state;
+            if (last != null && last.id().equals(ref.id())) {
+                state = Delta.copyOf(last.state());
+            } else if (resolved.containsKey(ref.id())) {
+                state = resolved.get(ref.id());
+            } else {
+                LinkedList<StoredRecord> chain = new LinkedList<>();
+                chain.addFirst(readStored(ref));
+                while (chain.getFirst().baseId() != null && !resolved.containsKey(chain.getFirst().baseId())) {
+                    CheckpointRef base = findRef(threadId, chain.getFirst().baseId());
+                    if (base == null) {
+                        throw new IOException("检查点 " + chain.getFirst().id() + " 的基准 " + chain.getFirst().baseId() + " 不存在");
+                    }
+                    chain.addFirst(readStored(base));
+                }
+
+                StoredRecord first = chain.getFirst();
+                state = first.baseId() == null
+                        ? new HashMap<>(deserializeState(first.state()))
+                        : Delta.apply(resolved.get(first.baseId()), first, deserializeState(first.state()));
+                for (StoredRecord delta : chain.subList(1, chain.size())) {
+                    state = Delta.apply(state, delta, deserializeState(delta.state()));
+                }
+            }
+            resolved.put(ref.id(), state);
+
+            return Checkpoint.builder()
+                    .id(ref.id())
+                    .state(state)
+                    .nodeId(ref.nodeId())
+                    .nextNodeId(ref.nextNodeId())
+                    .build();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("读取检查点失败: " + ref.id(), e);
+        }
+    }
+
+    private StoredRecord readStored(CheckpointRef ref) throws IOException {
+        ByteBuffer record = readRecord(ref);
+        int bodyLength = record.getInt();
+        int expectedCrc = record.getInt();
+        byte[] body = new byte[bodyLength];
+        record.get(body);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("检查点记录校验失败: " + ref.id());
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        in.readUTF();
+        String id = in.readUTF();
+        String nodeId = readNullableUTF(in);
+        String nextNodeId = readNullableUTF(in);
+        String baseId = null;
+        List<String> appended = List.of();
+        List<String> removed = List.of();
+        if (type == TYPE_DELTA) {
+            baseId = in.readUTF();
+            appended = readStrings(in);
+            removed = readStrings(in);
+        }
+        byte[] state = new byte[in.readInt()];
+        in.readFully(state);
+        return new StoredRecord(id, nodeId, nextNodeId, baseId, appended, removed, state);
+    }
+
+    private ByteBuffer readRecord(CheckpointRef ref) throws IOException {
+        if (active != null && ref.segmentId() == active.id) {
+            ByteBuffer buffer = ByteBuffer.allocate(ref.length());
+            long position = ref.offset();
+            while (buffer.hasRemaining()) {
+                int read = active.channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("检查点记录不完整: " + ref.id());
+                }
+                position += read;
+            }
+            return buffer.flip();
+        }
+        return mapped(ref.segmentId()).slice((int) ref.offset(), ref.length());
+    }
+
+    private MappedByteBuffer mapped(int segmentId) throws IOException {
+        MappedByteBuffer buffer = mappedSegments.get(segmentId);
+        if (buffer == null) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segmentId), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mappedSegments.put(segmentId, buffer);
+        }
+        return buffer;
+    }
+
+    // ---------------------------------------------------------------------
+    // 恢复
+    // ---------------------------------------------------------------------
+
+    /**
+     * 启动恢复：封存分段从索引文件加载，未封存的分段扫描记录并截断不完整的尾部
+     */
+    private void recover() throws IOException {
+        long start = System.currentTimeMillis();
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(ids::add);
+        }
+
+        int scanned = 0;
+        for (int id : ids) {
+            Segment segment = new Segment(id, segmentPath(id));
+            segments.put(id, segment);
+
+            List<IndexEntry> entries;
+            if (Files.exists(indexPath(id))) {
+                entries = readIndexFile(id);
+                segment.sealed = true;
+                segment.size = Files.size(segment.path);
+            } else {
+                entries = scanSegment(segment);
+                scanned++;
+            }
+
+            for (IndexEntry entry : entries) {
+                applyRecovered(entry, id);
+            }
+            if (!segment.sealed) {
+                segment.entries = new ArrayList<>(entries);
+            }
+        }
+
+        // 最后一个未封存的分段继续作为活动分段，否则开启新分段
+        Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (last != null && !last.sealed) {
+            last.channel = FileChannel.open(last.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            active = last;
+        } else {
+            active = openSegment(last == null ? 1 : last.id + 1);
+        }
+        // 恢复中途的未封存分段（非最后一个）补写索引，视为已封存
+        for (Segment segment : segments.values()) {
+            if (!segment.sealed && segment != active) {
+                writeIndexFile(segment);
+                segment.sealed = true;
+                segment.entries = null;
+            }
+        }
+        for (String threadId : List.copyOf(retainedBases.keySet())) {
+            pruneRetained(threadId);
+        }
+        reclaimSegments();
+
+        long checkpoints = index.values().stream().mapToLong(List::size).sum();
+        log.info("文件检查点存储恢复完成: 目录={}, 分段={}, 扫描分段={}, 线程={}, 检查点={}, 耗时={}ms",
+                directory, segments.size(), scanned, index.size(), checkpoints, System.currentTimeMillis() - start);
+    }
+
+    private void applyRecovered(IndexEntry entry, int segmentId) {
+        if (entry.type() == TYPE_CLEAR) {
+            LinkedList<CheckpointRef> refs = index.remove(entry.threadId());
+            if (refs != null) {
+                refs.forEach(this::release);
+            }
+            releaseRetained(entry.threadId());
+            return;
+        }
+        if (entry.type() == TYPE_REMOVE) {
+            LinkedList<CheckpointRef> refs = index.get(entry.threadId());
+            int position = refs == null ? -1 : positionOf(refs, entry.id());
+            if (position >= 0) {
+                // 恢复完成后统一释放不再被引用的基准
+                retain(entry.threadId(), refs.remove(position));
+                if (refs.isEmpty()) {
+                    index.remove(entry.threadId());
+                }
+            }
+            return;
+        }
+
+        CheckpointRef ref = entry.toRef(segmentId);
+        segments.get(segmentId).liveRecords++;
+        // 已删除的基准被改写为完整快照后重新写入，旧的保留记录不再需要
+        CheckpointRef rewritten = retainedBases.getOrDefault(entry.threadId(), Map.of()).get(entry.id());
+        if (rewritten != null) {
+            retainedBases.get(entry.threadId()).remove(entry.id());
+            release(rewritten);
+        }
+        LinkedList<CheckpointRef> refs = index.computeIfAbsent(entry.threadId(), k -> new LinkedList<>());
+        int position = positionOf(refs, entry.id());
+        if (position >= 0) {
+            release(refs.set(position, ref));
+        } else {
+            refs.addFirst(ref);
+        }
+    }
+
+    private List<IndexEntry> scanSegment(Segment segment) throws IOException {
+        List<IndexEntry> entries = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int position = 0;
+            while (position + HEADER_BYTES <= size) {
+                int bodyLength = data.getInt(position);
+                int expectedCrc = data.getInt(position + 4);
+                if (bodyLength <= 0 || position + HEADER_BYTES + (long) bodyLength > size) {
+                    break;
+                }
+                byte[] body = new byte[bodyLength];
+                data.get(position + HEADER_BYTES, body);
+
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+
+                entries.add(decodeEntry(body).at(position, HEADER_BYTES + bodyLength));
+                position += HEADER_BYTES + bodyLength;
+            }
+
+            if (position < size) {
+                log.warn("检查点分段 {} 尾部存在不完整记录，截断 {} 字节", segment.id, size - position);
+                channel.truncate(position);
+            }
+            segment.size = position;
+        }
+        return entries;
+    }
+
+    // ---------------------------------------------------------------------
+    // 编解码
+    // ---------------------------------------------------------------------
+
+    private byte[] encodePut(String threadId, Checkpoint checkpoint, byte[] state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(state.length + 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_PUT);
+        out.writeUTF(threadId);
+        out.writeUTF(checkpoint.getId());
+        writeNullableUTF(out, checkpoint.getNodeId());
+        writeNullableUTF(out, checkpoint.getNextNodeId());
+        out.writeInt(state.length);
+        out.write(state);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeDelta(String threadId, Checkpoint checkpoint, String baseId, Delta delta, byte[] state)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(state.length + 192);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_DELTA);
+        out.writeUTF(threadId);
+        out.writeUTF(checkpoint.getId());
+        writeNullableUTF(out, checkpoint.getNodeId());
+        writeNullableUTF(out, checkpoint.getNextNodeId());
+        out.writeUTF(baseId);
+        writeStrings(out, delta.appended());
+        writeStrings(out, delta.removed());
+        out.writeInt(state.length);
+        out.write(state);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeClear(String threadId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_CLEAR);
+        out.writeUTF(threadId);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeRemove(String threadId, String checkpointId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_REMOVE);
+        out.writeUTF(threadId);
+        out.writeUTF(checkpointId);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private IndexEntry decodeEntry(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        String threadId = in.readUTF();
+        if (type == TYPE_CLEAR) {
+            return IndexEntry.clear(threadId);
+        }
+        if (type == TYPE_REMOVE) {
+            return IndexEntry.remove(threadId, in.readUTF());
+        }
+        if (type == TYPE_DELTA) {
+            return IndexEntry.delta(threadId, in.readUTF(), readNullableUTF(in), readNullableUTF(in), in.readUTF());
+        }
+        return IndexEntry.put(threadId, in.readUTF(), readNullableUTF(in), readNullableUTF(in));
+    }
+
+    private byte[] serializeState(Map<String, Object> state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            serializer.write(new AgentMessageState(state), out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Map<String, Object> deserializeState(byte[] state) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+            return serializer.read(in).data();
+        }
+    }
+
+    private void writeIndexFile(Segment segment) throws IOException {
+        Path tmp = indexPath(segment.id).resolveSibling(indexPath(segment.id).getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+            out.writeInt(-INDEX_VERSION);
+            out.writeInt(segment.entries.size());
+            for (IndexEntry entry : segment.entries) {
+                out.writeByte(entry.type());
+                out.writeUTF(entry.threadId());
+                writeNullableUTF(out, entry.id());
+                writeNullableUTF(out, entry.nodeId());
+                writeNullableUTF(out, entry.nextNodeId());
+                out.writeLong(entry.offset());
+                out.writeInt(entry.length());
+                writeNullableUTF(out, entry.baseId());
+            }
+        }
+        Files.move(tmp, indexPath(segment.id), java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<IndexEntry> readIndexFile(int segmentId) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(indexPath(segmentId)))) {
+            // 旧版本索引文件没有版本号和基准检查点ID
+            int first = in.readInt();
+            boolean versioned = first < 0;
+            int count = versioned ? in.readInt() : first;
+            List<IndexEntry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(new IndexEntry(in.readByte(), in.readUTF(), readNullableUTF(in),
+                        readNullableUTF(in), readNullableUTF(in), in.readLong(), in.readInt(),
+                        versioned ? readNullableUTF(in) : null));
+            }
+            return entries;
+        }
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    private static DistributionSummary writeSummary(MeterRegistry registry, String kind) {
+        return DistributionSummary.builder("manus.checkpoint.write.bytes")
+                .description("每个检查点写入的字节数")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    // ---------------------------------------------------------------------
+    // 辅助
+    // ---------------------------------------------------------------------
+
+    private static int positionOf(List<CheckpointRef> refs, String checkPointId) {
+        for (int i = 0; i < refs.size(); i++) {
+            if (refs.get(i).id().equals(checkPointId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String threadIdOf(RunnableConfig config) {
+        return config.threadId().orElse(THREAD_ID_DEFAULT);
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private Path indexPath(int id) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, INDEX_SUFFIX));
+    }
+
+    /**
+     * 检查点在分段中的位置
+     */
+    record CheckpointRef(String id, String nodeId, String nextNodeId, int segmentId, long offset, int length,
+                         String baseId) {
+    }
+
+    /**
+     * 分段中的一条记录的索引信息
+     */
+    record IndexEntry(byte type, String threadId, String id, String nodeId, String nextNodeId, long offset, int length,
+                      String baseId) {
+
+        static IndexEntry put(String threadId, String id, String nodeId, String nextNodeId) {
+            return new IndexEntry(TYPE_PUT, threadId, id, nodeId, nextNodeId, -1, 0, null);
+        }
+
+        static IndexEntry delta(String threadId, String id, String nodeId, String nextNodeId, String baseId) {
+            return new IndexEntry(TYPE_DELTA, threadId, id, nodeId, nextNodeId, -1, 0, baseId);
+        }
+
+        static IndexEntry clear(String threadId) {
+            return new IndexEntry(TYPE_CLEAR, threadId, null, null, null, -1, 0, null);
+        }
+
+        static IndexEntry remove(String threadId, String id) {
+            return new IndexEntry(TYPE_REMOVE, threadId, id, null, null, -1, 0, null);
+        }
+
+        IndexEntry at(long offset, int length) {
+            return new IndexEntry(type, threadId, id, nodeId, nextNodeId, offset, length, baseId);
+        }
+
+        CheckpointRef toRef(int segmentId) {
+            return new CheckpointRef(id, nodeId, nextNodeId, segmentId, offset, length, baseId);
+        }
+    }
+
+    /**
+     * 从分段读出的PUT或DELTA记录
+     */
+    private record StoredRecord(String id, String nodeId, String nextNodeId, String baseId,
+                                List<String> appended, List<String> removed, byte[] state) {
+    }
+
+    /**
+     * 线程最近写入的检查点状态
+     * @param depth 距上一个完整快照的增量数
+     */
+    private record LastState(String id, Map<String, Object> state, int depth) {
+    }
+
+    /**
+     * 两个相邻检查点之间的通道变化
+     * @param changed 变化的通道及新值，追加通道只包含追加的元素
+     * @param appended 只在末尾追加元素的列表通道
+     * @param removed 被删除的通道
+     */
+    record Delta(Map<String, Object> changed, List<String> appended, List<String> removed) {
+
+        static Delta between(Map<String, Object> base, Map<String, Object> next) {
+            Map<String, Object> changed = new HashMap<>();
+            List<String> appended = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : next.entrySet()) {
+                String key = entry.getKey();
+                Object value = entry.getValue();
+                if (!base.containsKey(key)) {
+                    changed.put(key, value);
+                    continue;
+                }
+                Object previous = base.get(key);
+                if (previous instanceof List<?> before && value instanceof List<?> after && isPrefix(before, after)) {
+                    if (after.size() > before.size()) {
+                        changed.put(key, new ArrayList<>(after.subList(before.size(), after.size())));
+                        appended.add(key);
+                    }
+                } else if (!Objects.equals(previous, value)) {
+                    changed.put(key, value);
+                }
+            }
+            for (String key : base.keySet()) {
+                if (!next.containsKey(key)) {
+                    removed.add(key);
+                }
+            }
+            return new Delta(changed, appended, removed);
+        }
+
+        static Map<String, Object> apply(Map<String, Object> base, StoredRecord record, Map<String, Object> changed) {
+            Map<String, Object> state = new HashMap<>(base);
+            record.removed().forEach(state::remove);
+            for (Map.Entry<String, Object> entry : changed.entrySet()) {
+                if (record.appended().contains(entry.getKey()) && state.get(entry.getKey()) instanceof List<?> before) {
+                    List<Object> merged = new ArrayList<>(before);
+                    merged.addAll((List<?>) entry.getValue());
+                    state.put(entry.getKey(), merged);
+                } else {
+                    state.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return state;
+        }
+
+        /**
+         * 复制状态，列表通道复制一份，避免后续节点修改原列表影响增量计算
+         */
+        static Map<String, Object> copyOf(Map<String, Object> state) {
+            Map<String, Object> copy = new HashMap<>(state);
+            copy.replaceAll((key, value) -> value instanceof List<?> list ? new ArrayList<>(list) : value);
+            return copy;
+        }
+
+        private static boolean isPrefix(List<?> prefix, List<?> list) {
+            if (prefix.size() > list.size()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.size(); i++) {
+                Object a = prefix.get(i);
+                Object b = list.get(i);
+                if (a != b && !Objects.equals(a, b)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 日志分段
+     */
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private FileChannel channel;
+        private long size;
+        private int liveRecords;
+        private boolean sealed;
+        private List<IndexEntry> entries = new ArrayList<>();
+
+        private Segment(int id, Path path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+}
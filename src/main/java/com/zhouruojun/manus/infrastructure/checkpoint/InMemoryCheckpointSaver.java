@@ -0,0 +1,122 @@
+package com.zhouruojun.manus.infrastructure.checkpoint;
+
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 内存检查点存储
+ * 语义与MemorySaver一致（最新的检查点在前），额外支持删除单个检查点，供保留策略裁剪使用
+ */
+public class InMemoryCheckpointSaver implements EvictableCheckpointSaver {
+
+    private static final String THREAD_ID_DEFAULT = "$default";
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, LinkedList<Checkpoint>> checkpoints = new HashMap<>();
+
+    @Override
+    public Collection<Checkpoint> list(RunnableConfig config) {
+        lock.lock();
+        try {
+            return List.copyOf(checkpoints.getOrDefault(threadIdOf(config), new LinkedList<>()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Checkpoint> get(RunnableConfig config) {
+        lock.lock();
+        try {
+            LinkedList<Checkpoint> list = checkpoints.get(threadIdOf(config));
+            if (list == null || list.isEmpty()) {
+                return Optional.empty();
+            }
+            if (config.checkPointId().isPresent()) {
+                String checkPointId = config.checkPointId().get();
+                return list.stream()
+                        .filter(checkpoint -> checkpoint.getId().equals(checkPointId))
+                        .findFirst();
+            }
+            return Optional.of(list.getFirst());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        lock.lock();
+        try {
+            LinkedList<Checkpoint> list = checkpoints.computeIfAbsent(threadIdOf(config), k -> new LinkedList<>());
+
+            if (config.checkPointId().isPresent()) {
+                String checkPointId = config.checkPointId().get();
+                int position = positionOf(list, checkPointId);
+                if (position < 0) {
+                    throw new NoSuchElementException(String.format("Checkpoint with id %s not found!", checkPointId));
+                }
+                list.set(position, checkpoint);
+                return config;
+            }
+
+            list.addFirst(checkpoint);
+            return RunnableConfig.builder(config)
+                    .checkPointId(checkpoint.getId())
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean clear(RunnableConfig config) {
+        lock.lock();
+        try {
+            return checkpoints.remove(threadIdOf(config)) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(RunnableConfig config, String checkpointId) {
+        lock.lock();
+        try {
+            String threadId = threadIdOf(config);
+            LinkedList<Checkpoint> list = checkpoints.get(threadId);
+            if (list == null) {
+                return false;
+            }
+            boolean removed = list.removeIf(checkpoint -> checkpoint.getId().equals(checkpointId));
+            if (list.isEmpty()) {
+                checkpoints.remove(threadId);
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int positionOf(List<Checkpoint> list, String checkPointId) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getId().equals(checkPointId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String threadIdOf(RunnableConfig config) {
+        return config.threadId().orElse(THREAD_ID_DEFAULT);
+    }
+}
@@ -0,0 +1,442 @@
+package com.zhouruojun.manus.infrastructure.checkpoint;
+
+import com.zhouruojun.manus.domain.model.AgentMessageState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.bsc.langgraph4j.serializer.StateSerializer;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 带保留策略的检查点存储装饰器
+ * 在委托存储之上执行：每线程最大检查点数、线程空闲TTL、全局字节预算（按线程LRU淘汰），
+ * 并通过Micrometer暴露检查点数量和保留字节数
+ *
+ * 检查点大小优先使用委托存储报告的实际写入字节数，否则通过状态序列化器估算；按线程裁剪单个检查点需要委托存储实现EvictableCheckpointSaver
+ *
+ * 创建时接管委托存储中已有的检查点（重启前写入的线程从创建时刻开始计算空闲时间）并立即执行各项限制；
+ * 配置了TTL时由后台线程按TTL的1/4（1秒到1分钟之间）周期清除空闲线程，不依赖新的写入触发
+ */
+@Slf4j
+public class RetentionCheckpointSaver implements BaseCheckpointSaver, AutoCloseable {
+
+    private static final String THREAD_ID_DEFAULT = "$default";
+    private static final long MIN_SWEEP_MILLIS = 1_000;
+    private static final long MAX_SWEEP_MILLIS = 60_000;
+
+    private final BaseCheckpointSaver delegate;
+    private final StateSerializer<AgentMessageState> serializer;
+    private final int maxPerThread;
+    private final long ttlMillis;
+    private final long maxRetainedBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // 按访问顺序排列，最久未访问的线程在前
+    private final LinkedHashMap<String, ThreadUsage> threads = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong checkpointCount = new AtomicLong();
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    private final Counter trimEvictions;
+    private final Counter ttlEvictions;
+    private final Counter budgetEvictions;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * 创建保留策略装饰器
+     * @param delegate 实际存储
+     * @param serializer 用于估算检查点大小的状态序列化器
+     * @param maxPerThread 每个线程保留的最大检查点数，小于等于0表示不限制
+     * @param ttl 线程空闲超过该时长后整体清除，null或0表示不限制
+     * @param maxRetainedBytes 全局保留字节预算，小于等于0表示不限制
+     * @param registry 指标注册表
+     */
+    public RetentionCheckpointSaver(BaseCheckpointSaver delegate,
+                                    StateSerializer<AgentMessageState> serializer,
+                                    int maxPerThread,
+                                    Duration ttl,
+                                    long maxRetainedBytes,
+                                    MeterRegistry registry) {
+        this.delegate = delegate;
+        this.serializer = serializer;
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.ttlMillis = ttl == null ? 0 : ttl.toMillis();
+
+        if (maxPerThread > 0 && !(delegate instanceof EvictableCheckpointSaver)) {
+            log.warn("检查点存储 {} 不支持删除单个检查点，每线程最大检查点数限制不生效", delegate.getClass().getSimpleName());
+            this.maxPerThread = 0;
+        } else {
+            this.maxPerThread = maxPerThread;
+        }
+
+        Gauge.builder("manus.checkpoint.count", checkpointCount, AtomicLong::get)
+                .description("当前保留的检查点数量")
+                .register(registry);
+        Gauge.builder("manus.checkpoint.retained.bytes", retainedBytes, AtomicLong::get)
+                .description("当前保留的检查点估算字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("manus.checkpoint.threads", this, saver -> saver.getThreadCount())
+                .description("当前保留检查点的线程数量")
+                .register(registry);
+        this.trimEvictions = evictionCounter(registry, "max_per_thread");
+        this.ttlEvictions = evictionCounter(registry, "ttl");
+        this.budgetEvictions = evictionCounter(registry, "byte_budget");
+
+        adoptStored();
+        this.sweeper = ttlMillis > 0 ? startSweeper() : null;
+    }
+
+    @Override
+    public Collection<Checkpoint> list(RunnableConfig config) {
+        touch(threadIdOf(config));
+        return delegate.list(config);
+    }
+
+    @Override
+    public Optional<Checkpoint> get(RunnableConfig config) {
+        touch(threadIdOf(config));
+        return delegate.get(config);
+    }
+
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        RunnableConfig result = delegate.put(config, checkpoint);
+        long bytes = storedBytes(result, checkpoint);
+
+        String threadId = threadIdOf(config);
+        List<Runnable> evictions = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            collectExpired(now, threadId, evictions);
+
+            ThreadUsage usage = threads.computeIfAbsent(threadId, ThreadUsage::new);
+            usage.lastAccess = now;
+            // 替换已有检查点时数量不变，只调整字节数
+            boolean replaced = config.checkPointId().isPresent()
+                    && usage.replace(config.checkPointId().get(), checkpoint.getId(), bytes, this);
+            if (!replaced) {
+                usage.entries.addFirst(new Entry(checkpoint.getId(), bytes));
+                usage.bytes += bytes;
+                checkpointCount.incrementAndGet();
+                retainedBytes.addAndGet(bytes);
+            }
+
+            collectOverflow(usage, evictions);
+            collectOverBudget(usage, evictions);
+        } finally {
+            lock.unlock();
+        }
+
+        // 在锁外执行实际删除，避免持锁进行IO
+        evictions.forEach(Runnable::run);
+        return result;
+    }
+
+    @Override
+    public boolean clear(RunnableConfig config) {
+        lock.lock();
+        try {
+            ThreadUsage usage = threads.remove(threadIdOf(config));
+            if (usage != null) {
+                forget(usage);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delegate.clear(config);
+    }
+
+    /**
+     * 主动清除所有空闲超过TTL的线程
+     * @return 被清除的线程数量
+     */
+    public int evictExpired() {
+        List<Runnable> evictions = new ArrayList<>();
+        lock.lock();
+        try {
+            collectExpired(System.currentTimeMillis(), null, evictions);
+        } finally {
+            lock.unlock();
+        }
+        evictions.forEach(Runnable::run);
+        return evictions.size();
+    }
+
+    public long getCheckpointCount() {
+        return checkpointCount.get();
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    public int getThreadCount() {
+        lock.lock();
+        try {
+            return threads.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 保留策略
+    // ---------------------------------------------------------------------
+
+    /**
+     * 接管委托存储中已有的检查点，超出每线程上限或字节预算的部分立即淘汰
+     */
+    private void adoptStored() {
+        if (!(delegate instanceof EvictableCheckpointSaver evictable)) {
+            return;
+        }
+        Map<String, List<EvictableCheckpointSaver.StoredCheckpoint>> stored = evictable.storedCheckpoints();
+        if (stored.isEmpty()) {
+            return;
+        }
+        List<Runnable> evictions = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            stored.forEach((threadId, checkpoints) -> {
+                ThreadUsage usage = threads.computeIfAbsent(threadId, ThreadUsage::new);
+                usage.lastAccess = now;
+                for (EvictableCheckpointSaver.StoredCheckpoint checkpoint : checkpoints) {
+                    usage.entries.addLast(new Entry(checkpoint.id(), checkpoint.bytes()));
+                    usage.bytes += checkpoint.bytes();
+                    checkpointCount.incrementAndGet();
+                    retainedBytes.addAndGet(checkpoint.bytes());
+                }
+                collectOverflow(usage, evictions);
+            });
+            collectOverBudget(null, evictions);
+        } finally {
+            lock.unlock();
+        }
+        evictions.forEach(Runnable::run);
+        log.info("检查点保留策略接管已有检查点: 线程={}, 检查点={}, 字节={}, 启动时淘汰={}",
+                threads.size(), checkpointCount.get(), retainedBytes.get(), evictions.size());
+    }
+
+    private ScheduledExecutorService startSweeper() {
+        long interval = Math.max(MIN_SWEEP_MILLIS, Math.min(MAX_SWEEP_MILLIS, ttlMillis / 4));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("manus-checkpoint-ttl").daemon(true).factory());
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                int evicted = evictExpired();
+                if (evicted > 0) {
+                    log.debug("定时清除空闲检查点线程 {} 个", evicted);
+                }
+            } catch (RuntimeException e) {
+                log.warn("定时清除空闲检查点线程失败: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    private void touch(String threadId) {
+        lock.lock();
+        try {
+            ThreadUsage usage = threads.get(threadId);
+            if (usage != null) {
+                usage.lastAccess = System.currentTimeMillis();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 收集空闲超时的线程；访问顺序即最近访问时间顺序，遇到未超时的线程即可停止
+     */
+    private void collectExpired(long now, String currentThreadId, List<Runnable> evictions) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        Iterator<ThreadUsage> iterator = threads.values().iterator();
+        while (iterator.hasNext()) {
+            ThreadUsage usage = iterator.next();
+            if (now - usage.lastAccess <= ttlMillis) {
+                break;
+            }
+            if (usage.threadId.equals(currentThreadId)) {
+                continue;
+            }
+            iterator.remove();
+            forget(usage);
+            ttlEvictions.increment();
+            evictions.add(() -> clearDelegate(usage.threadId, "TTL"));
+        }
+    }
+
+    /**
+     * 裁剪当前线程超出上限的最旧检查点
+     */
+    private void collectOverflow(ThreadUsage usage, List<Runnable> evictions) {
+        if (maxPerThread <= 0) {
+            return;
+        }
+        while (usage.entries.size() > maxPerThread) {
+            evictions.add(removeOldest(usage));
+            trimEvictions.increment();
+        }
+    }
+
+    /**
+     * 超出全局字节预算时，先按LRU整体清除其他线程，仍然超出时裁剪当前线程（至少保留最新的检查点）
+     * @param current 当前写入的线程，启动接管时为null
+     */
+    private void collectOverBudget(ThreadUsage current, List<Runnable> evictions) {
+        if (maxRetainedBytes <= 0) {
+            return;
+        }
+        while (retainedBytes.get() > maxRetainedBytes && !threads.isEmpty()) {
+            ThreadUsage eldest = threads.values().iterator().next();
+            if (eldest != current) {
+                threads.remove(eldest.threadId);
+                forget(eldest);
+                budgetEvictions.increment();
+                evictions.add(() -> clearDelegate(eldest.threadId, "字节预算"));
+            } else if (current.entries.size() > 1 && delegate instanceof EvictableCheckpointSaver) {
+                evictions.add(removeOldest(current));
+                budgetEvictions.increment();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private Runnable removeOldest(ThreadUsage usage) {
+        Entry oldest = usage.entries.removeLast();
+        usage.bytes -= oldest.bytes();
+        checkpointCount.decrementAndGet();
+        retainedBytes.addAndGet(-oldest.bytes());
+        RunnableConfig config = RunnableConfig.builder().threadId(usage.threadId).build();
+        return () -> ((EvictableCheckpointSaver) delegate).remove(config, oldest.id());
+    }
+
+    private void forget(ThreadUsage usage) {
+        checkpointCount.addAndGet(-usage.entries.size());
+        retainedBytes.addAndGet(-usage.bytes);
+    }
+
+    private void clearDelegate(String threadId, String reason) {
+        try {
+            delegate.clear(RunnableConfig.builder().threadId(threadId).build());
+            log.debug("检查点线程 {} 已清除，原因: {}", threadId, reason);
+        } catch (Exception e) {
+            log.warn("清除检查点线程 {} 失败: {}", threadId, e.getMessage());
+        }
+    }
+
+    /**
+     * 委托存储能报告实际写入字节数（例如增量检查点）时使用实际值，否则按完整状态估算
+     */
+    private long storedBytes(RunnableConfig config, Checkpoint checkpoint) {
+        if (delegate instanceof EvictableCheckpointSaver evictable) {
+            long stored = evictable.storedBytes(config, checkpoint.getId());
+            if (stored >= 0) {
+                return stored;
+            }
+        }
+        return sizeOf(checkpoint);
+    }
+
+    private long sizeOf(Checkpoint checkpoint) {
+        CountingOutputStream counter = new CountingOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(counter)) {
+            serializer.write(new AgentMessageState(checkpoint.getState()), out);
+        } catch (IOException e) {
+            log.debug("估算检查点大小失败: {}", e.getMessage());
+        }
+        return counter.count;
+    }
+
+    private static Counter evictionCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("manus.checkpoint.evictions")
+                .description("被保留策略淘汰的检查点数量")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static String threadIdOf(RunnableConfig config) {
+        return config.threadId().orElse(THREAD_ID_DEFAULT);
+    }
+
+    private record Entry(String id, long bytes) {
+    }
+
+    /**
+     * 单个线程的检查点占用情况，最新的检查点在前
+     */
+    private static final class ThreadUsage {
+        private final String threadId;
+        private final LinkedList<Entry> entries = new LinkedList<>();
+        private long bytes;
+        private long lastAccess;
+
+        private ThreadUsage(String threadId) {
+            this.threadId = threadId;
+        }
+
+        private boolean replace(String oldId, String newId, long newBytes, RetentionCheckpointSaver owner) {
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (entry.id().equals(oldId)) {
+                    entries.set(i, new Entry(newId, newBytes));
+                    bytes += newBytes - entry.bytes();
+                    owner.retainedBytes.addAndGet(newBytes - entry.bytes());
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
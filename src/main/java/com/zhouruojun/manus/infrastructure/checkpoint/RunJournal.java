@@ -0,0 +1,143 @@
+package com.zhouruojun.manus.infrastructure.checkpoint;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * 工作流运行日志
+ * 每个进行中的运行在目录中对应一个文件，运行结束后删除；
+ * 进程崩溃或重启后仍然存在的文件即为被中断的运行，可以从其检查点线程恢复
+ */
+@Slf4j
+public class RunJournal {
+
+    private static final String SUFFIX = ".run";
+
+    private final Path directory;
+
+    /**
+     * 创建运行日志
+     * @param directory 日志目录
+     */
+    public RunJournal(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("运行日志目录初始化失败: " + directory, e);
+        }
+    }
+
+    /**
+     * 记录运行开始
+     * @param entry 运行信息
+     */
+    public void begin(Entry entry) {
+        Properties properties = new Properties();
+        properties.setProperty("runId", entry.runId());
+        properties.setProperty("sessionId", entry.sessionId());
+        properties.setProperty("userInput", entry.userInput() != null ? entry.userInput() : "");
+        properties.setProperty("startedAt", String.valueOf(entry.startedAt()));
+
+        Path target = pathOf(entry.runId());
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(new OutputStreamWriter(out, StandardCharsets.UTF_8), "manus workflow run");
+        } catch (IOException e) {
+            log.warn("写入运行日志 {} 失败: {}", entry.runId(), e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("写入运行日志 {} 失败: {}", entry.runId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 记录运行结束
+     * @param runId 运行ID
+     */
+    public void complete(String runId) {
+        try {
+            Files.deleteIfExists(pathOf(runId));
+        } catch (IOException e) {
+            log.warn("删除运行日志 {} 失败: {}", runId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取所有未结束的运行，按开始时间排序
+     */
+    public List<Entry> pending() {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(path -> read(path).ifPresent(entries::add));
+        } catch (IOException e) {
+            log.warn("读取运行日志目录失败: {}", e.getMessage());
+        }
+        entries.sort(Comparator.comparingLong(Entry::startedAt));
+        return entries;
+    }
+
+    /**
+     * 获取会话最近一次未结束的运行
+     * @param sessionId 会话ID
+     */
+    public Optional<Entry> latestForSession(String sessionId) {
+        List<Entry> entries = pending();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).sessionId().equals(sessionId)) {
+                return Optional.of(entries.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Entry> read(Path path) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            return Optional.of(new Entry(
+                    properties.getProperty("runId"),
+                    properties.getProperty("sessionId"),
+                    properties.getProperty("userInput"),
+                    Long.parseLong(properties.getProperty("startedAt", "0"))));
+        } catch (IOException | RuntimeException e) {
+            log.warn("运行日志 {} 无法读取，已忽略: {}", path.getFileName(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Path pathOf(String runId) {
+        // 运行ID包含会话ID，替换掉文件名中不安全的字符
+        return directory.resolve(runId.replaceAll("[^A-Za-z0-9_.-]", "_") + SUFFIX);
+    }
+
+    /**
+     * 运行信息
+     * @param runId 运行ID，同时也是检查点线程ID
+     * @param sessionId 会话ID
+     * @param userInput 用户输入
+     * @param startedAt 开始时间（epoch毫秒）
+     */
+    public record Entry(String runId, String sessionId, String userInput, long startedAt) {
+    }
+}
@@ -0,0 +1,227 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 工作流准入控制
+ * 限制全局同时运行的工作流数量，同一会话同时只允许一个运行；
+ * 超出限制的请求进入有界等待队列，排队超时或队列已满时拒绝
+ *
+ * 许可以异步方式授予，排队期间不占用执行线程
+ */
+@Slf4j
+public class AdmissionController {
+
+    /**
+     * 同一会话已有运行时新请求的处理方式
+     */
+    public enum SessionPolicy {
+        QUEUE, REJECT;
+
+        public static SessionPolicy fromString(String value) {
+            return "reject".equalsIgnoreCase(value) ? REJECT : QUEUE;
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueueSize;
+    private final Duration queueTimeout;
+    private final SessionPolicy sessionPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private final Set<String> activeSessions = new HashSet<>();
+    private int running;
+
+    private final Timer waitTimer;
+    private final Counter queueFullRejections;
+    private final Counter sessionRejections;
+    private final Counter timeouts;
+
+    /**
+     * 创建准入控制器
+     * @param maxConcurrent 全局最大并发运行数
+     * @param maxQueueSize 等待队列容量
+     * @param queueTimeout 排队超时时间
+     * @param sessionPolicy 同一会话已有运行时的处理方式
+     * @param registry 指标注册表
+     */
+    public AdmissionController(int maxConcurrent, int maxQueueSize, Duration queueTimeout,
+                               SessionPolicy sessionPolicy, MeterRegistry registry) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueueSize = Math.max(0, maxQueueSize);
+        this.queueTimeout = queueTimeout;
+        this.sessionPolicy = sessionPolicy;
+
+        this.waitTimer = Timer.builder("manus.admission.wait")
+                .description("工作流在准入队列中的等待时间")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.queueFullRejections = rejectionCounter(registry, "queue_full");
+        this.sessionRejections = rejectionCounter(registry, "session_busy");
+        this.timeouts = rejectionCounter(registry, "timeout");
+        Gauge.builder("manus.admission.queue.depth", this, controller -> controller.getQueueDepth())
+                .description("准入队列中等待的工作流数量")
+                .register(registry);
+        Gauge.builder("manus.admission.running", this, controller -> controller.getRunningCount())
+                .description("正在运行的工作流数量")
+                .register(registry);
+    }
+
+    /**
+     * 申请运行许可
+     * @param sessionId 会话ID
+     * @return 获得许可时完成的Future；被拒绝时以RejectedExecutionException、排队超时时以TimeoutException异常完成
+     */
+    public CompletableFuture<Permit> acquire(String sessionId) {
+        Waiter waiter = new Waiter(sessionId, System.nanoTime());
+        lock.lock();
+        try {
+            boolean sessionBusy = activeSessions.contains(sessionId);
+            // 有空闲名额时队列中只剩等待同会话运行结束的请求，可以直接放行
+            if (!sessionBusy && running < maxConcurrent) {
+                return CompletableFuture.completedFuture(grant(waiter));
+            }
+            if (sessionBusy && sessionPolicy == SessionPolicy.REJECT) {
+                sessionRejections.increment();
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("会话 " + sessionId + " 已有正在执行的工作流"));
+            }
+            if (queue.size() >= maxQueueSize) {
+                queueFullRejections.increment();
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("工作流等待队列已满 (" + maxQueueSize + ")"));
+            }
+            queue.addLast(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        CompletableFuture.delayedExecutor(queueTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> expire(waiter));
+        log.debug("会话 {} 的工作流进入准入队列", sessionId);
+        return waiter.future;
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRunningCount() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit grant(Waiter waiter) {
+        running++;
+        activeSessions.add(waiter.sessionId);
+        waitTimer.record(System.nanoTime() - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+        return new Permit(waiter.sessionId);
+    }
+
+    private void release(String sessionId) {
+        List<Runnable> completions = new ArrayList<>();
+        lock.lock();
+        try {
+            running--;
+            activeSessions.remove(sessionId);
+
+            // 按到达顺序授予许可，跳过会话仍在运行的请求以保证同一会话内的先后顺序
+            Iterator<Waiter> iterator = queue.iterator();
+            while (running < maxConcurrent && iterator.hasNext()) {
+                Waiter next = iterator.next();
+                if (activeSessions.contains(next.sessionId)) {
+                    continue;
+                }
+                iterator.remove();
+                Permit permit = grant(next);
+                completions.add(() -> {
+                    if (!next.future.complete(permit)) {
+                        permit.close();
+                    }
+                });
+            }
+        } finally {
+            lock.unlock();
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    private void expire(Waiter waiter) {
+        lock.lock();
+        try {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+            timeouts.increment();
+        } finally {
+            lock.unlock();
+        }
+        log.warn("会话 {} 的工作流排队超过 {}，已拒绝", waiter.sessionId, queueTimeout);
+        waiter.future.completeExceptionally(new TimeoutException("工作流排队超时: " + queueTimeout));
+    }
+
+    private static Counter rejectionCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("manus.admission.rejected")
+                .description("被准入控制拒绝的工作流数量")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * 运行许可，运行结束后必须关闭以释放名额
+     */
+    public final class Permit implements AutoCloseable {
+        private final String sessionId;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(sessionId);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final String sessionId;
+        private final long enqueuedAt;
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        private Waiter(String sessionId, long enqueuedAt) {
+            this.sessionId = sessionId;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工作流异步执行器持有者
+ * 为引擎、智能体（run/think/act）和LLM调用提供统一的Executor，
+ * 避免阻塞式的LLM HTTP调用占满公共ForkJoinPool
+ */
+@Slf4j
+public final class AsyncExecutors {
+
+    // 未配置时退回到公共ForkJoinPool，保持与原有行为一致
+    private static volatile Executor executor = ForkJoinPool.commonPool();
+
+    private AsyncExecutors() {
+    }
+
+    /**
+     * 获取当前的工作流执行器
+     * @return 执行器实例
+     */
+    public static Executor get() {
+        return executor;
+    }
+
+    /**
+     * 安装全局工作流执行器
+     * @param newExecutor 新的执行器
+     */
+    public static void install(Executor newExecutor) {
+        if (newExecutor != null) {
+            executor = newExecutor;
+            log.info("已安装工作流执行器: {}", newExecutor.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * 根据执行模式创建执行器
+     * @param mode 执行模式
+     * @param platformPoolSize platform模式下的线程数
+     * @return 执行器实例
+     */
+    public static Executor create(ExecutorMode mode, int platformPoolSize) {
+        return switch (mode) {
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("manus-vt-", 0).factory());
+            case PLATFORM -> Executors.newFixedThreadPool(Math.max(1, platformPoolSize),
+                    namedPlatformThreadFactory("manus-worker-"));
+            case FORKJOIN -> ForkJoinPool.commonPool();
+        };
+    }
+
+    /**
+     * 创建带名称前缀的平台线程工厂
+     */
+    private static ThreadFactory namedPlatformThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
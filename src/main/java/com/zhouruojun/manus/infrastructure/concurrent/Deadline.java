@@ -0,0 +1,263 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+import com.zhouruojun.manus.infrastructure.exception.DeadlineExceededException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 请求截止时间
+ * 以绝对时间（epoch毫秒）表示，可以写入工作流状态随检查点保存；
+ * 同时支持调用方主动取消，取消时会中断所有通过本对象发起的进行中调用
+ */
+public final class Deadline {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    // 到期时中断call所在线程的定时器，只执行中断操作，单个守护线程即可
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private final long expiresAt;
+    private volatile boolean cancelled;
+    // 通过submit/await发起的进行中调用，取消时统一中断
+    private final Set<Future<?>> inFlight = ConcurrentHashMap.newKeySet();
+    // 通过call在调用方线程中执行的调用，取消时中断其线程
+    private final Set<InlineCall> inlineCalls = ConcurrentHashMap.newKeySet();
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * 从现在起经过timeout后到期
+     */
+    public static Deadline after(Duration timeout) {
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            return none();
+        }
+        return new Deadline(System.currentTimeMillis() + timeout.toMillis());
+    }
+
+    /**
+     * 在指定的epoch毫秒时刻到期
+     */
+    public static Deadline at(long expiresAtMillis) {
+        return new Deadline(expiresAtMillis);
+    }
+
+    /**
+     * 永不到期（仍可取消）
+     */
+    public static Deadline none() {
+        return new Deadline(NO_DEADLINE);
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isExpired() {
+        return cancelled || System.currentTimeMillis() >= expiresAt;
+    }
+
+    /**
+     * 剩余时间（毫秒），已到期时返回0
+     */
+    public long remainingMillis() {
+        if (expiresAt == NO_DEADLINE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    /**
+     * 取消请求，中断所有进行中的调用
+     */
+    public void cancel() {
+        cancelled = true;
+        inFlight.forEach(future -> future.cancel(true));
+        inlineCalls.forEach(InlineCall::interrupt);
+    }
+
+    /**
+     * 检查是否已到期，到期时抛出DeadlineExceededException
+     * @param stage 当前阶段，用于异常信息
+     */
+    public void check(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException(stage, cancelled);
+        }
+    }
+
+    /**
+     * 在截止时间内执行阻塞调用
+     * 调用直接在当前线程中执行，到期或取消时中断当前线程（进行中的HTTP请求随线程中断而取消）。
+     * 调用方本身通常就是工作流执行器中的任务，不再向同一执行器提交任务并阻塞等待，避免嵌套调用占满有界线程池
+     * @param stage 当前阶段
+     * @param task 阻塞调用
+     * @return 调用结果
+     */
+    public <T> T call(String stage, Callable<T> task) {
+        check(stage);
+        InlineCall call = new InlineCall(Thread.currentThread());
+        inlineCalls.add(call);
+        ScheduledFuture<?> timer = null;
+        boolean interrupted;
+        T result = null;
+        Exception failure = null;
+        try {
+            if (cancelled) {
+                call.interrupt();
+            } else if (expiresAt != NO_DEADLINE) {
+                timer = TIMER.schedule(call::interrupt, remainingMillis(), TimeUnit.MILLISECONDS);
+            }
+            result = task.call();
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            inlineCalls.remove(call);
+            interrupted = call.finish();
+        }
+
+        if (interrupted) {
+            throw new DeadlineExceededException(stage, cancelled);
+        }
+        if (failure == null) {
+            return result;
+        }
+        if (failure instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException(stage, true);
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new CompletionException(failure);
+    }
+
+    /**
+     * 在executor中异步执行调用，不等待结果
+     * 任务完成前登记为进行中的调用，取消请求时与其他调用一起被中断；结果通过await在截止时间内获取
+     * @param stage 当前阶段
+     * @param task 阻塞调用
+     * @param executor 执行调用的执行器
+     * @return 可取消的结果
+     */
+    public <T> Future<T> submit(String stage, Callable<T> task, Executor executor) {
+        check(stage);
+        FutureTask<T> future = new FutureTask<>(task) {
+            @Override
+            protected void done() {
+                inFlight.remove(this);
+            }
+        };
+        inFlight.add(future);
+        if (cancelled) {
+            future.cancel(true);
+        }
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * 在截止时间内等待异步结果，到期或取消时取消该Future
+     * @param stage 当前阶段
+     * @param future 异步结果
+     * @return 结果
+     */
+    public <T> T await(String stage, Future<T> future) {
+        check(stage);
+        inFlight.add(future);
+        try {
+            return waitFor(stage, future);
+        } finally {
+            inFlight.remove(future);
+        }
+    }
+
+    private <T> T waitFor(String stage, Future<T> future) {
+        try {
+            return future.get(remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new DeadlineExceededException(stage, false);
+        } catch (CancellationException e) {
+            throw new DeadlineExceededException(stage, cancelled);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException(stage, true);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "manus-deadline-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 调用按时完成时取消的定时任务立即移出队列
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * 在调用方线程中执行的一次调用；调用结束后不再中断该线程，线程会继续执行其他代码
+     */
+    private static final class InlineCall {
+        private final Thread thread;
+        private boolean finished;
+        private boolean interrupted;
+
+        private InlineCall(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void interrupt() {
+            if (!finished && !interrupted) {
+                interrupted = true;
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * 结束调用，清除由本调用设置的中断标记
+         * @return 调用期间是否因到期或取消被中断
+         */
+        synchronized boolean finish() {
+            finished = true;
+            if (interrupted) {
+                Thread.interrupted();
+            }
+            return interrupted;
+        }
+    }
+}
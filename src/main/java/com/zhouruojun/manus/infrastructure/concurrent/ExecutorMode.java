@@ -0,0 +1,40 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+/**
+ * 工作流执行模式
+ * 决定引擎、智能体和LLM调用在哪类线程上运行
+ */
+public enum ExecutorMode {
+    VIRTUAL("virtual"),
+    PLATFORM("platform"),
+    FORKJOIN("forkjoin");
+
+    private final String value;
+
+    ExecutorMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 从配置字符串获取执行模式
+     * @param value 配置值
+     * @return 对应的执行模式，无法识别时返回VIRTUAL
+     */
+    public static ExecutorMode fromString(String value) {
+        if (value == null) {
+            return VIRTUAL;
+        }
+
+        String normalized = value.trim().toLowerCase();
+        for (ExecutorMode mode : ExecutorMode.values()) {
+            if (mode.getValue().equals(normalized)) {
+                return mode;
+            }
+        }
+        return VIRTUAL;
+    }
+}
@@ -0,0 +1,71 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 虚拟线程固定（pinning）诊断
+ * 通过JFR事件流监听jdk.VirtualThreadPinned，记录在synchronized块或本地方法中
+ * 阻塞而占住载体线程的调用栈，便于定位需要改为ReentrantLock的位置
+ */
+@Slf4j
+public class PinnedThreadMonitor implements AutoCloseable {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_FRAMES = 12;
+
+    private final RecordingStream stream;
+    private final AtomicLong pinnedCount = new AtomicLong();
+
+    /**
+     * 启动固定诊断
+     * @param threshold 固定时长超过该阈值才会记录
+     */
+    public PinnedThreadMonitor(Duration threshold) {
+        this.stream = new RecordingStream();
+        this.stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        this.stream.onEvent(PINNED_EVENT, this::report);
+        this.stream.startAsync();
+        log.info("虚拟线程固定诊断已启动，阈值: {} ms", threshold.toMillis());
+    }
+
+    private void report(RecordedEvent event) {
+        pinnedCount.incrementAndGet();
+
+        String threadName = event.getThread() != null ? event.getThread().getJavaName() : "unknown";
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        String frames = stackTrace == null ? "<无调用栈>" : stackTrace.getFrames().stream()
+                .limit(MAX_FRAMES)
+                .map(PinnedThreadMonitor::formatFrame)
+                .collect(Collectors.joining("\n\tat "));
+
+        log.warn("虚拟线程 {} 被固定在载体线程上 {} ms\n\tat {}",
+                threadName, event.getDuration().toMillis(), frames);
+    }
+
+    private static String formatFrame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + "(line:" + frame.getLineNumber() + ")";
+    }
+
+    /**
+     * 获取已记录的固定事件数量
+     * @return 固定事件数量
+     */
+    public long getPinnedCount() {
+        return pinnedCount.get();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+        log.info("虚拟线程固定诊断已关闭，共记录 {} 次固定", pinnedCount.get());
+    }
+}
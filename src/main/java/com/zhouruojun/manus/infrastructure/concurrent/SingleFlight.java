@@ -0,0 +1,134 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并执行（single-flight）
+ * 同一个键同时只执行一次调用，后到的调用方直接共享正在执行的结果；
+ * 调用成功后结果在合并窗口内继续保留，窗口内的重复请求同样直接复用；
+ * 只有所有调用方都取消时才取消实际调用
+ *
+ * @param <K> 请求键类型
+ * @param <V> 结果类型
+ */
+@Slf4j
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final Duration window;
+
+    private final Counter leaderCounter;
+    private final Counter sharedCounter;
+
+    /**
+     * 创建合并执行器
+     * @param name 指标名称中的标识
+     * @param window 调用完成后结果继续保留的时长，0表示只合并正在执行的调用
+     * @param registry 指标注册表
+     */
+    public SingleFlight(String name, Duration window, MeterRegistry registry) {
+        this.window = window == null ? Duration.ZERO : window;
+        this.leaderCounter = requestCounter(registry, name, "leader");
+        this.sharedCounter = requestCounter(registry, name, "shared");
+    }
+
+    /**
+     * 执行调用或加入已有的同键调用
+     * @param key 请求键
+     * @param call 实际调用，只有首个调用方会执行
+     * @return 调用结果及是否为共享结果
+     */
+    public Call<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            sharedCounter.increment();
+            return new Call<>(subscribe(key, existing), true);
+        }
+
+        leaderCounter.increment();
+        CompletableFuture<V> source;
+        try {
+            source = call.get();
+        } catch (RuntimeException e) {
+            source = CompletableFuture.failedFuture(e);
+        }
+
+        flight.source = source;
+        source.whenComplete((value, error) -> {
+            // 失败的结果不保留，后续请求重新执行
+            if (error != null || window.isZero() || window.isNegative()) {
+                flights.remove(key, flight);
+            } else {
+                CompletableFuture.delayedExecutor(window.toMillis(), TimeUnit.MILLISECONDS)
+                        .execute(() -> flights.remove(key, flight));
+            }
+            if (error != null) {
+                flight.promise.completeExceptionally(error);
+            } else {
+                flight.promise.complete(value);
+            }
+        });
+        return new Call<>(subscribe(key, flight), false);
+    }
+
+    /**
+     * 为调用方创建结果副本，避免某个调用方取消或完成时影响其他调用方；
+     * 所有副本都被取消时取消实际调用
+     */
+    private CompletableFuture<V> subscribe(K key, Flight<V> flight) {
+        flight.subscribers.incrementAndGet();
+        CompletableFuture<V> copy = flight.promise.copy();
+        copy.whenComplete((value, error) -> {
+            if (error instanceof CancellationException && flight.subscribers.decrementAndGet() == 0) {
+                flights.remove(key, flight);
+                CompletableFuture<V> source = flight.source;
+                if (source != null) {
+                    log.info("合并请求的所有调用方均已取消，取消实际调用");
+                    source.cancel(true);
+                }
+            }
+        });
+        return copy;
+    }
+
+    /**
+     * 获取当前保留的调用数量
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, String name, String role) {
+        return Counter.builder("manus.singleflight.requests")
+                .description("合并执行的请求数量")
+                .tag("name", name)
+                .tag("role", role)
+                .register(registry);
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> promise = new CompletableFuture<>();
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private volatile CompletableFuture<V> source;
+    }
+
+    /**
+     * 合并执行的结果
+     * @param future 结果Future
+     * @param shared 是否复用了其他调用方发起的执行
+     */
+    public record Call<V>(CompletableFuture<V> future, boolean shared) {
+    }
+}
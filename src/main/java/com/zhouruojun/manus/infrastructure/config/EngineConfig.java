@@ -0,0 +1,605 @@
+package com.zhouruojun.manus.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 工作流引擎配置
+ * 集中管理引擎执行相关的参数
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "manus.engine")
+public class EngineConfig {
+
+    /**
+     * 执行模式：virtual（虚拟线程）、platform（平台线程池）、forkjoin（公共ForkJoinPool）
+     */
+    private String executor = "virtual";
+
+    /**
+     * platform模式下的线程池大小
+     */
+    private int platformPoolSize = 64;
+
+    /**
+     * 是否开启虚拟线程固定（pinning）诊断
+     */
+    private boolean pinnedThreadDiagnostics = true;
+
+    /**
+     * 虚拟线程被固定超过该时长（毫秒）时输出告警
+     */
+    private long pinnedThresholdMs = 20;
+
+    /**
+     * 单次请求的截止时间（包含排队时间），超时后中断进行中的LLM和工具调用并返回部分结果，0表示不限制
+     */
+    private Duration requestTimeout = Duration.ofMinutes(3);
+
+    /**
+     * 流式输出时节点进度、完成等事件等待慢订阅者的最长时间，超时后丢弃该事件；令牌事件在订阅者缓冲区满时直接丢弃
+     */
+    private Duration streamOfferTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 准入控制配置
+     */
+    private AdmissionProperties admission = new AdmissionProperties();
+
+    /**
+     * 相同请求合并配置
+     */
+    private CoalescingProperties coalescing = new CoalescingProperties();
+
+    /**
+     * 智能体池配置
+     */
+    private AgentPoolProperties agentPool = new AgentPoolProperties();
+
+    /**
+     * 检查点存储配置
+     */
+    private CheckpointProperties checkpoint = new CheckpointProperties();
+
+    /**
+     * 中断运行恢复配置
+     */
+    private RecoveryProperties recovery = new RecoveryProperties();
+
+    /**
+     * 跟踪配置
+     */
+    private TracingProperties tracing = new TracingProperties();
+
+    /**
+     * 模型调用录制/回放配置
+     */
+    private ModelHarnessProperties modelHarness = new ModelHarnessProperties();
+
+    /**
+     * 路由循环检测配置
+     */
+    private LoopDetectionProperties loopDetection = new LoopDetectionProperties();
+
+    /**
+     * 协调器预路由配置
+     */
+    private PreRouterProperties preRouter = new PreRouterProperties();
+
+    /**
+     * 协调器路由决策缓存配置
+     */
+    private RouteCacheProperties routeCache = new RouteCacheProperties();
+
+    /**
+     * 批量执行命令行模式配置
+     */
+    private BatchProperties batch = new BatchProperties();
+
+    /**
+     * 会话分片配置
+     */
+    private ShardingProperties sharding = new ShardingProperties();
+
+    /**
+     * 智能体LLM调用配置
+     */
+    private LlmProperties llm = new LlmProperties();
+
+    /**
+     * LLM响应缓存配置
+     */
+    private LlmCacheProperties llmCache = new LlmCacheProperties();
+
+    /**
+     * 访问模型接口的HTTP传输层配置
+     */
+    private LlmHttpProperties llmHttp = new LlmHttpProperties();
+
+    @Data
+    public static class AdmissionProperties {
+        /**
+         * 全局同时运行的最大工作流数量
+         */
+        private int maxConcurrentRuns = 8;
+
+        /**
+         * 等待队列容量，队列已满时直接拒绝
+         */
+        private int maxQueueSize = 64;
+
+        /**
+         * 排队超时时间
+         */
+        private Duration queueTimeout = Duration.ofSeconds(60);
+
+        /**
+         * 同一会话已有运行时的处理方式：queue（排队）、reject（拒绝）
+         */
+        private String sessionPolicy = "queue";
+    }
+
+    @Data
+    public static class CoalescingProperties {
+        /**
+         * 是否合并相同的进行中请求（相同的规范化输入和会话历史）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 请求完成后结果继续用于合并的时长，0表示只合并进行中的请求
+         */
+        private Duration window = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class AgentPoolProperties {
+        /**
+         * 每种智能体启动时预热的实例数量
+         */
+        private int minSize = 2;
+
+        /**
+         * 每种智能体同时借出的最大实例数量
+         */
+        private int maxSize = 16;
+
+        /**
+         * 等待空闲智能体的最长时间
+         */
+        private Duration borrowTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class CheckpointProperties {
+        /**
+         * 存储类型：memory（内存）、file（本地分段日志文件）
+         */
+        private String store = "file";
+
+        /**
+         * file模式下的存储目录
+         */
+        private String directory = "data/checkpoints";
+
+        /**
+         * 状态序列化方式：STD、JSON（对应AgentSerializers）
+         */
+        private String serializer = "STD";
+
+        /**
+         * 单个日志分段的大小上限（字节），写满后封存并开启新分段
+         */
+        private long segmentSizeBytes = 16 * 1024 * 1024;
+
+        /**
+         * 同时保持内存映射的已封存分段数量
+         */
+        private int mappedSegments = 4;
+
+        /**
+         * 每次写入后是否强制刷盘
+         */
+        private boolean syncOnWrite = false;
+
+        /**
+         * 文件存储中每个线程每隔多少个检查点写一次完整快照，其余只写增量，1表示始终写完整快照
+         */
+        private int snapshotInterval = 8;
+
+        /**
+         * 是否启用保留策略
+         */
+        private boolean retentionEnabled = true;
+
+        /**
+         * 每个线程保留的最大检查点数，小于等于0表示不限制
+         */
+        private int maxPerThread = 10;
+
+        /**
+         * 线程空闲超过该时长后清除其全部检查点，后台按该时长的1/4周期检查
+         */
+        private Duration ttl = Duration.ofMinutes(30);
+
+        /**
+         * 全局保留字节预算，超出时按线程LRU淘汰，小于等于0表示不限制
+         */
+        private long maxRetainedBytes = 256L * 1024 * 1024;
+
+        /**
+         * 工作流运行结束后是否立即释放该运行的检查点
+         */
+        private boolean releaseOnComplete = true;
+    }
+
+    @Data
+    public static class RecoveryProperties {
+        /**
+         * 启动时是否自动恢复上次进程退出时未完成的运行（需要文件检查点存储）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 只恢复开始时间在该时长以内的运行，更早的运行直接放弃
+         */
+        private Duration maxAge = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class TracingProperties {
+        /**
+         * 是否记录节点、LLM调用和工具调用的跨度及计时器
+         */
+        private boolean enabled = true;
+
+        /**
+         * 跨度导出方式：none（只记录计时器）、file（OTLP/JSON文件）、otlp（OTLP HTTP接收端）
+         */
+        private String exporter = "file";
+
+        /**
+         * file模式下的输出文件
+         */
+        private String file = "data/traces/spans.jsonl";
+
+        /**
+         * otlp模式下的接收端地址
+         */
+        private String endpoint = "http://localhost:4318/v1/traces";
+
+        /**
+         * 导出时的service.name
+         */
+        private String serviceName = "manus-langgraph";
+
+        /**
+         * 导出队列容量，队列满时丢弃跨度
+         */
+        private int queueSize = 2048;
+
+        /**
+         * 每批导出的最大跨度数
+         */
+        private int batchSize = 512;
+
+        /**
+         * 导出刷新间隔
+         */
+        private Duration flushInterval = Duration.ofSeconds(2);
+
+        /**
+         * otlp模式下的请求超时
+         */
+        private Duration exportTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class ModelHarnessProperties {
+        /**
+         * off（直接调用模型）、record（调用模型并录制）、replay（只回放录制文件，不访问模型）；
+         * YAML中需要加引号，未加引号的off会被解析为false（同样表示关闭），其他值启动时报错
+         */
+        private String mode = "off";
+
+        /**
+         * 录制文件（JSONL）
+         */
+        private String file = "data/replay/chat-model.jsonl";
+
+        /**
+         * 回放时是否要求提示词指纹严格匹配，关闭时未命中的调用按录制顺序回放
+         */
+        private boolean strict = false;
+
+        /**
+         * 回放时的合成延迟：none、recorded（录制时的耗时）、fixed
+         */
+        private String latencyMode = "none";
+
+        /**
+         * fixed模式下每次调用的延迟
+         */
+        private Duration fixedLatency = Duration.ZERO;
+    }
+
+    @Data
+    public static class LoopDetectionProperties {
+        /**
+         * 是否检测协调器路由循环
+         */
+        private boolean enabled = true;
+
+        /**
+         * 同一路由状态指纹允许的重复次数，超过后强制转到summary_agent
+         */
+        private int maxRepeats = 2;
+    }
+
+    @Data
+    public static class PreRouterProperties {
+        /**
+         * 是否在协调器调用LLM之前尝试规则路由
+         */
+        private boolean enabled = true;
+
+        /**
+         * 是否启用内置规则（问候、询问历史直接总结）
+         */
+        private boolean defaultRules = true;
+
+        /**
+         * 智能体给出结果后是否不经LLM直接总结（分析或并行执行已有结果、不需要分析的请求已有搜索结果）
+         */
+        private boolean postAgentRules = false;
+
+        /**
+         * 自定义规则，优先于内置规则匹配首轮用户输入
+         */
+        private List<RuleProperties> rules = new ArrayList<>();
+
+        /**
+         * 是否从LLM的路由决策中学习转移表
+         */
+        private boolean learning = true;
+
+        /**
+         * 转移表中某状态至少观察到的决策数
+         */
+        private int minSamples = 50;
+
+        /**
+         * 转移表中最常见动作的最低占比
+         */
+        private double minConfidence = 0.95;
+
+        /**
+         * 转移表给出的决策仍交给LLM复核的比例，使转移表持续学习
+         */
+        private double explorationRate = 0.05;
+    }
+
+    @Data
+    public static class RouteCacheProperties {
+        /**
+         * 是否缓存协调器的路由决策
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最多缓存的决策数，超出后按LRU淘汰
+         */
+        private int maxEntries = 1024;
+
+        /**
+         * 决策的有效期
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class BatchProperties {
+        /**
+         * 批量请求的JSONL文件，配置后以批量模式运行而不进入交互式会话
+         */
+        private String input;
+
+        /**
+         * 结果JSONL文件，为空时写到输入文件旁的 <输入文件名>.results.jsonl
+         */
+        private String output;
+
+        /**
+         * 同时执行的请求数，0表示与admission.max-concurrent-runs一致
+         */
+        private int parallelism = 0;
+
+        /**
+         * 是否按输入顺序写出结果，false时按完成顺序写出
+         */
+        private boolean ordered = true;
+    }
+
+    @Data
+    public static class ShardingProperties {
+        /**
+         * 是否按会话在多个引擎节点之间分片
+         */
+        private boolean enabled = false;
+
+        /**
+         * 本节点ID，在所有节点中唯一
+         */
+        private String nodeId = "node-1";
+
+        /**
+         * 每个节点在一致性哈希环上的虚拟节点数
+         */
+        private int virtualNodes = 128;
+
+        /**
+         * 本节点对外提供服务的绑定地址
+         */
+        private String host = "127.0.0.1";
+
+        /**
+         * 本节点对外提供服务的端口，不配置时不启动服务
+         */
+        private Integer port;
+
+        /**
+         * 访问其他节点的请求超时，应不短于request-timeout
+         */
+        private Duration requestTimeout = Duration.ofMinutes(4);
+
+        /**
+         * 其他节点
+         */
+        private List<ShardPeerProperties> peers = new ArrayList<>();
+    }
+
+    @Data
+    public static class LlmProperties {
+        /**
+         * 智能体思考阶段是否使用流式调用，边接收边拼接工具调用
+         */
+        private boolean streaming = false;
+
+        /**
+         * 流式调用时，工具调用的参数完整后是否立即开始执行，不等待整个响应结束。
+         * 需要模型逐段输出工具调用片段：Spring AI 1.0.0的OpenAiChatModel在OpenAiApi内把工具调用片段缓冲合并到
+         * finish_reason=tool_calls的最后一个片段，此时工具调用只能在响应结束时一起拿到，开启也不会提前执行，因此默认关闭
+         */
+        private boolean earlyToolExecution = false;
+    }
+
+    @Data
+    public static class LlmCacheProperties {
+        /**
+         * 是否缓存模型响应，相同的消息、模型参数和工具定义直接返回缓存的响应
+         */
+        private boolean enabled = true;
+
+        /**
+         * 内存层的字节预算，超出时按LRU淘汰
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * 缓存条目的有效期
+         */
+        private Duration ttl = Duration.ofHours(1);
+
+        /**
+         * 磁盘层目录，不配置时只使用内存层
+         */
+        private String directory;
+
+        /**
+         * 温度大于0的请求是否绕过缓存；请求和模型默认值都未指定温度时照常缓存。
+         * Spring AI的OpenAI模型默认温度为0.7，未配置spring.ai.openai.chat.options.temperature时开启会使所有请求绕过缓存
+         */
+        private boolean bypassSampled = false;
+    }
+
+    @Data
+    public static class LlmHttpProperties {
+        /**
+         * 是否使用可调的连接池访问模型接口，关闭时使用Spring Boot默认的HTTP客户端
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大同时进行的请求数（连接池容量），超出的请求排队等待
+         */
+        private int maxConnections = 32;
+
+        /**
+         * 是否使用HTTP/2，服务端不支持时自动退回HTTP/1.1
+         */
+        private boolean http2 = false;
+
+        /**
+         * 建立连接的超时时间
+         */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 读超时：阻塞调用为等待完整响应的时间，流式调用为相邻两个数据块的最大间隔
+         */
+        private Duration readTimeout = Duration.ofMinutes(3);
+
+        /**
+         * 空闲连接的期望保活时间。JDK HttpClient只从JVM启动参数 -Djdk.httpclient.keepalive.timeout=秒数 读取该值，
+         * 这里只用于启动时核对，不一致时输出告警；默认与JDK 21的默认值一致
+         */
+        private Duration keepAlive = Duration.ofSeconds(30);
+
+        /**
+         * 连接池满时等待空闲连接的最长时间
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(60);
+
+        /**
+         * 是否以gzip压缩较大的请求体，需要服务端支持Content-Encoding: gzip
+         */
+        private boolean gzipRequests = false;
+
+        /**
+         * 请求体达到该字节数才压缩
+         */
+        private int gzipMinBytes = 16 * 1024;
+
+        /**
+         * 启动时预先建立的连接数，0表示不预热
+         */
+        private int warmupConnections = 2;
+
+        /**
+         * 预热请求的路径，相对于spring.ai.openai.base-url
+         */
+        private String warmupPath = "/v1/models";
+    }
+
+    @Data
+    public static class ShardPeerProperties {
+        /**
+         * 节点ID
+         */
+        private String id;
+
+        /**
+         * 节点的服务地址，例如 http://127.0.0.1:9102
+         */
+        private String url;
+    }
+
+    @Data
+    public static class RuleProperties {
+        /**
+         * 规则名称
+         */
+        private String name;
+
+        /**
+         * 命中后的动作：search | analysis | summary | human_input
+         */
+        private String action = "summary";
+
+        /**
+         * 匹配用户输入的正则表达式（忽略大小写）
+         */
+        private String pattern;
+
+        /**
+         * 用户输入包含任一关键词即命中（忽略大小写）
+         */
+        private List<String> keywords = new ArrayList<>();
+    }
+}
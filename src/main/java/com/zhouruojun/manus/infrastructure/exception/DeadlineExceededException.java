@@ -0,0 +1,46 @@
+package com.zhouruojun.manus.infrastructure.exception;
+
+/**
+ * 表示请求超过截止时间或被取消时抛出的异常
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private final boolean cancelled;
+
+    /**
+     * 创建一个新的DeadlineExceededException实例
+     *
+     * @param stage 超时发生的阶段
+     * @param cancelled 是否由调用方主动取消
+     */
+    public DeadlineExceededException(String stage, boolean cancelled) {
+        super((cancelled ? "请求已取消" : "请求超过截止时间") + "，阶段: " + stage);
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * 是否由调用方主动取消
+     *
+     * @return 主动取消时返回true，超时返回false
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 在异常链中查找DeadlineExceededException
+     *
+     * @param error 任意异常
+     * @return 找到的异常，不存在时返回null
+     */
+    public static DeadlineExceededException find(Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof DeadlineExceededException deadlineExceeded) {
+                return deadlineExceeded;
+            }
+            current = current.getCause();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.zhouruojun.manus.infrastructure.exception;
+
+/**
+ * 表示流式调用语言模型在输出部分内容后中断时抛出的异常
+ * 已经接收并推送给订阅者的内容通过getPartialContent获取，由调用方决定如何呈现
+ */
+public class LlmStreamInterruptedException extends RuntimeException {
+
+    private final String partialContent;
+
+    /**
+     * 创建一个新的LlmStreamInterruptedException实例
+     *
+     * @param partialContent 中断前已接收的内容
+     * @param cause 中断的原因
+     */
+    public LlmStreamInterruptedException(String partialContent, Throwable cause) {
+        super("流式调用语言模型中断: " + cause.getMessage(), cause);
+        this.partialContent = partialContent;
+    }
+
+    /**
+     * 获取中断前已接收的内容
+     *
+     * @return 已接收的内容
+     */
+    public String getPartialContent() {
+        return partialContent;
+    }
+}
@@ -0,0 +1,82 @@
+package com.zhouruojun.manus.infrastructure.exception;
+
+/**
+ * 表示工作流没有正常完成时抛出的异常
+ * 引擎以该异常异常完成返回的Future，异常信息就是面向用户的提示（超时和取消时包含已获得的部分结果），
+ * 由交互界面、分片节点等调用方转换为回复文本
+ */
+public class WorkflowFailedException extends RuntimeException {
+
+    /**
+     * 未完成的原因
+     */
+    public enum Reason {
+        /**
+         * 未通过准入控制，或同一运行正在执行
+         */
+        REJECTED,
+        /**
+         * 执行过程中出错
+         */
+        FAILED,
+        /**
+         * 超过截止时间
+         */
+        TIMED_OUT,
+        /**
+         * 调用方主动取消
+         */
+        CANCELLED
+    }
+
+    private final Reason reason;
+
+    /**
+     * 创建一个新的WorkflowFailedException实例
+     *
+     * @param reason 未完成的原因
+     * @param message 面向用户的提示
+     */
+    public WorkflowFailedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    /**
+     * 创建一个新的WorkflowFailedException实例，包含原因
+     *
+     * @param reason 未完成的原因
+     * @param message 面向用户的提示
+     * @param cause 原因
+     */
+    public WorkflowFailedException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    /**
+     * 获取未完成的原因
+     *
+     * @return 未完成的原因
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * 在异常链中查找WorkflowFailedException
+     *
+     * @param error 任意异常
+     * @return 找到的异常，不存在时返回null
+     */
+    public static WorkflowFailedException find(Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof WorkflowFailedException workflowFailed) {
+                return workflowFailed;
+            }
+            current = current.getCause();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,279 @@
+package com.zhouruojun.manus.infrastructure.http;
+
+import com.zhouruojun.manus.infrastructure.config.EngineConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 访问OpenAI兼容接口的HTTP传输层
+ * 基于可调的JDK HttpClient（HTTP/2开关、连接超时、空闲连接保活），阻塞调用和流式调用共用同一个客户端和连接池。
+ * JDK HttpClient不限制连接数，这里用信号量限制同时进行的请求数：HTTP/1.1下每个进行中的请求占用一个连接，
+ * 因此信号量的许可就是连接池的容量，等待许可的请求数即排队数。较大的请求体可以gzip压缩后发送，
+ * 启动时可以预先建立连接。连接池使用情况通过manus.llm.http.*指标暴露
+ *
+ * JDK HttpClient的空闲连接数上限和保活时间只能通过JVM系统属性jdk.httpclient.connectionPoolSize、
+ * jdk.httpclient.keepalive.timeout配置，它们在JVM中第一次使用HttpClient时读取一次并对所有HttpClient生效，
+ * 因此必须作为启动参数（-D）传入；这里只检查实际生效的值，与配置不一致时输出告警和需要的参数
+ */
+@Slf4j
+public class LlmHttpTransport {
+
+    static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    // JDK 21中HTTP/1.1空闲连接的默认保活秒数
+    static final long JDK_DEFAULT_KEEP_ALIVE_SECONDS = 30;
+
+    private final HttpClient httpClient;
+    private final int maxConnections;
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+    private final Duration readTimeout;
+    private final boolean gzipRequests;
+    private final int gzipMinBytes;
+
+    private final Timer acquireTimer;
+    private final Counter gzipped;
+    private final DistributionSummary gzipSavedBytes;
+
+    /**
+     * 一个连接许可，释放多次只生效一次
+     */
+    public final class ConnectionPermit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ConnectionPermit() {
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * @param properties 传输层配置
+     * @param meterRegistry 指标注册表
+     */
+    public LlmHttpTransport(EngineConfig.LlmHttpProperties properties, MeterRegistry meterRegistry) {
+        this.maxConnections = Math.max(1, properties.getMaxConnections());
+        this.permits = new Semaphore(maxConnections, true);
+        this.acquireTimeout = properties.getAcquireTimeout();
+        this.readTimeout = properties.getReadTimeout();
+        this.gzipRequests = properties.isGzipRequests();
+        this.gzipMinBytes = Math.max(0, properties.getGzipMinBytes());
+
+        checkJvmSettings(properties.getKeepAlive());
+
+        this.httpClient = HttpClient.newBuilder()
+                .version(properties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        this.acquireTimer = Timer.builder("manus.llm.http.acquire")
+                .description("等待LLM连接池许可的时间")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.gzipped = Counter.builder("manus.llm.http.gzip.requests")
+                .description("以gzip压缩发送的LLM请求数")
+                .register(meterRegistry);
+        this.gzipSavedBytes = DistributionSummary.builder("manus.llm.http.gzip.saved")
+                .description("gzip压缩节省的请求体字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("manus.llm.http.connections.active", this, LlmHttpTransport::activeConnections)
+                .description("正在使用的LLM连接数")
+                .register(meterRegistry);
+        Gauge.builder("manus.llm.http.connections.max", this, transport -> transport.maxConnections)
+                .description("LLM连接池容量")
+                .register(meterRegistry);
+        Gauge.builder("manus.llm.http.connections.pending", this, LlmHttpTransport::pendingRequests)
+                .description("等待LLM连接的请求数")
+                .register(meterRegistry);
+        Gauge.builder("manus.llm.http.connections.utilization", this,
+                        transport -> (double) transport.activeConnections() / transport.maxConnections)
+                .description("LLM连接池使用率")
+                .register(meterRegistry);
+
+        log.info("LLM HTTP传输层: 最大连接数 {}, HTTP/2 {}, 连接超时 {}, 读超时 {}, gzip请求 {}（不小于 {} 字节）",
+                maxConnections, properties.isHttp2(), properties.getConnectTimeout(), readTimeout,
+                gzipRequests, gzipMinBytes);
+    }
+
+    /**
+     * 检查JVM级别的连接池参数：保活时间与配置不一致，或空闲连接数上限小于max-connections（连接归还时会被关闭）时告警
+     */
+    private void checkJvmSettings(Duration keepAlive) {
+        long effectiveKeepAlive = longProperty(KEEP_ALIVE_PROPERTY, JDK_DEFAULT_KEEP_ALIVE_SECONDS);
+        if (keepAlive != null && effectiveKeepAlive != keepAlive.toSeconds()) {
+            log.warn("LLM连接实际的空闲保活时间为 {} 秒，与配置的keep-alive {} 不一致；该值对整个JVM生效，需要以启动参数 -D{}={} 设置",
+                    effectiveKeepAlive, keepAlive, KEEP_ALIVE_PROPERTY, keepAlive.toSeconds());
+        }
+        // 0表示不限制；同时进行的请求数不超过max-connections，空闲连接数也不会超过它
+        long poolSize = longProperty(POOL_SIZE_PROPERTY, 0);
+        if (poolSize > 0 && poolSize < maxConnections) {
+            log.warn("JVM参数 {}={} 小于max-connections {}，超出的连接归还时会被关闭；需要以启动参数 -D{}={} 设置",
+                    POOL_SIZE_PROPERTY, poolSize, maxConnections, POOL_SIZE_PROPERTY, maxConnections);
+        }
+    }
+
+    private static long longProperty(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 阻塞调用（RestClient）使用的请求工厂
+     */
+    public ClientHttpRequestFactory requestFactory() {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(readTimeout);
+        return factory;
+    }
+
+    /**
+     * 阻塞调用的拦截器：占用连接许可直到响应关闭，按配置压缩请求体
+     */
+    public ClientHttpRequestInterceptor interceptor() {
+        return new PooledRequestInterceptor(this);
+    }
+
+    /**
+     * 流式调用（WebClient）使用的连接器：占用连接许可直到响应体读完，按配置压缩请求体
+     */
+    public ClientHttpConnector connector() {
+        return new PooledClientHttpConnector(new JdkClientHttpConnector(httpClient), this);
+    }
+
+    /**
+     * 等待连接许可
+     * @throws IOException 超过acquire-timeout仍没有空闲连接，或者等待时被中断
+     */
+    public ConnectionPermit acquire() throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("等待LLM连接超时（" + acquireTimeout + "），进行中的请求数: " + activeConnections());
+            }
+            return new ConnectionPermit();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待LLM连接时被中断");
+        } finally {
+            acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 按配置压缩请求体：请求体不小于gzip-min-bytes、尚未编码且压缩后更小时，返回压缩后的内容并设置请求头
+     */
+    byte[] encodeBody(HttpHeaders headers, byte[] body) {
+        if (!gzipRequests || body == null || body.length < gzipMinBytes || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return body;
+        }
+        byte[] compressed = gzip(body);
+        if (compressed.length >= body.length) {
+            return body;
+        }
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        headers.setContentLength(compressed.length);
+        gzipped.increment();
+        gzipSavedBytes.record(body.length - compressed.length);
+        return compressed;
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 预先建立连接：同时发出connections个请求，使连接池中保留对应数量的空闲连接。
+     * 任何HTTP响应（包括401、404）都说明连接已经建立。异步执行，不阻塞启动
+     * @param uri 预热请求的地址
+     * @param connections 预热的连接数
+     * @return 成功建立的连接数
+     */
+    public CompletableFuture<Integer> warmUp(URI uri, int connections) {
+        int count = Math.min(Math.max(0, connections), maxConnections);
+        List<CompletableFuture<Boolean>> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .timeout(readTimeout)
+                    .build();
+            requests.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> true)
+                    .exceptionally(e -> {
+                        log.warn("LLM连接预热失败 {}: {}", uri, e.getMessage());
+                        return false;
+                    }));
+        }
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    int warmed = (int) requests.stream().filter(CompletableFuture::join).count();
+                    log.info("LLM连接预热完成: {}/{} 个连接, {}", warmed, count, uri);
+                    return warmed;
+                });
+    }
+
+    public int activeConnections() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    public int pendingRequests() {
+        return permits.getQueueLength();
+    }
+
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+}
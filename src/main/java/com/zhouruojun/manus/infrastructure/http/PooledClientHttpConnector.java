@@ -0,0 +1,89 @@
+package com.zhouruojun.manus.infrastructure.http;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.ClientHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 流式调用的连接器
+ * 在弹性线程上等待连接许可，响应体读完、出错或被取消时归还；请求体按配置压缩。
+ * 流式响应的读超时按相邻两个数据块的间隔计算，长时间生成的回复不会因为总时长被中断
+ */
+class PooledClientHttpConnector implements ClientHttpConnector {
+
+    private final ClientHttpConnector delegate;
+    private final LlmHttpTransport transport;
+
+    PooledClientHttpConnector(ClientHttpConnector delegate, LlmHttpTransport transport) {
+        this.delegate = delegate;
+        this.transport = transport;
+    }
+
+    @Override
+    public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+                                            Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+        return Mono.fromCallable(transport::acquire)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(permit -> delegate.connect(method, uri, request -> requestCallback.apply(new GzipRequest(request)))
+                        .<ClientHttpResponse>map(response -> new PermitReleasingResponse(response, permit))
+                        .doOnError(e -> permit.release())
+                        .doOnCancel(permit::release));
+    }
+
+    /**
+     * 按配置压缩请求体的请求，需要先汇总完整的请求体才能判断大小
+     */
+    private final class GzipRequest extends ClientHttpRequestDecorator {
+
+        GzipRequest(ClientHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return DataBufferUtils.join(body)
+                    .flatMap(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        byte[] encoded = transport.encodeBody(getHeaders(), bytes);
+                        return super.writeWith(Mono.just(bufferFactory().wrap(encoded)));
+                    })
+                    .switchIfEmpty(Mono.defer(() -> super.writeWith(Flux.empty())));
+        }
+    }
+
+    /**
+     * 响应体结束时归还连接许可的响应
+     */
+    private final class PermitReleasingResponse extends ClientHttpResponseDecorator {
+        private final LlmHttpTransport.ConnectionPermit permit;
+
+        PermitReleasingResponse(ClientHttpResponse delegate, LlmHttpTransport.ConnectionPermit permit) {
+            super(delegate);
+            this.permit = permit;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return super.getBody()
+                    .timeout(transport.readTimeout())
+                    .onErrorMap(TimeoutException.class,
+                            e -> new TimeoutException("LLM流式响应超过 " + transport.readTimeout() + " 没有新的数据"))
+                    .doFinally(signal -> permit.release());
+        }
+    }
+}
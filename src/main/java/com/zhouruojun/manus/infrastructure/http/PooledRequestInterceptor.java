@@ -0,0 +1,79 @@
+package com.zhouruojun.manus.infrastructure.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 阻塞调用的拦截器
+ * 发送前按配置压缩请求体并占用一个连接许可，响应关闭时归还；发送失败时立即归还
+ */
+class PooledRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private final LlmHttpTransport transport;
+
+    PooledRequestInterceptor(LlmHttpTransport transport) {
+        this.transport = transport;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        byte[] encoded = transport.encodeBody(request.getHeaders(), body);
+        LlmHttpTransport.ConnectionPermit permit = transport.acquire();
+        try {
+            return new PermitReleasingResponse(execution.execute(request, encoded), permit);
+        } catch (IOException | RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭时归还连接许可的响应
+     */
+    private static final class PermitReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final LlmHttpTransport.ConnectionPermit permit;
+
+        PermitReleasingResponse(ClientHttpResponse delegate, LlmHttpTransport.ConnectionPermit permit) {
+            this.delegate = delegate;
+            this.permit = permit;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                permit.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.zhouruojun.manus.infrastructure.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * LLM调用事件，覆盖LLM.askTool和LLM.call
+ */
+@Name("com.zhouruojun.manus.LlmCall")
+@Label("Manus LLM Call")
+@Description("一次阻塞的模型调用")
+public class LlmCallEvent extends ManusEvent {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Conversation ID")
+    String conversationId;
+
+    @Label("Prompt Messages")
+    int promptMessages;
+
+    @Label("Prompt Token Estimate")
+    int promptTokens;
+
+    @Label("Response Size")
+    @DataAmount(DataAmount.BYTES)
+    long responseSize;
+
+    @Label("Tool Calls")
+    int toolCalls;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * 开始记录LLM调用
+     * @param operation 调用方式（call、askTool）
+     * @param conversationId 智能体会话ID
+     */
+    public static LlmCallEvent begin(String operation, String conversationId) {
+        LlmCallEvent event = new LlmCallEvent();
+        event.operation = operation;
+        event.conversationId = conversationId;
+        event.begin();
+        return event;
+    }
+
+    public void setPromptMessages(int promptMessages) {
+        this.promptMessages = promptMessages;
+    }
+
+    public void setPromptTokens(int promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    public void setResponseSize(long responseSize) {
+        this.responseSize = responseSize;
+    }
+
+    public void setToolCalls(int toolCalls) {
+        this.toolCalls = toolCalls;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * 结束并提交事件
+     */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            bindContext();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.zhouruojun.manus.infrastructure.jfr;
+
+import com.zhouruojun.manus.infrastructure.tracing.Tracing;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.slf4j.MDC;
+
+/**
+ * Manus JFR事件基类
+ * 事件的持续时间由begin/commit记录；会话ID和运行ID取自随执行器传递的MDC，
+ * 录制中可以按请求把GC停顿、锁竞争与具体的工作流阶段对应起来
+ */
+@Category({"Manus", "Workflow"})
+@StackTrace(false)
+abstract class ManusEvent extends Event {
+
+    @Label("Session ID")
+    String sessionId;
+
+    @Label("Run ID")
+    String runId;
+
+    /**
+     * 从当前线程的MDC填充会话ID和运行ID
+     */
+    void bindContext() {
+        this.sessionId = MDC.get(Tracing.SESSION_ID);
+        this.runId = MDC.get(Tracing.REQUEST_ID);
+    }
+}
@@ -0,0 +1,60 @@
+package com.zhouruojun.manus.infrastructure.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 记忆截断事件，覆盖Memory.truncateMessages
+ */
+@Name("com.zhouruojun.manus.MemoryTruncation")
+@Label("Manus Memory Truncation")
+@Description("智能体记忆超过token限制后的截断")
+public class MemoryTruncationEvent extends ManusEvent {
+
+    @Label("Conversation ID")
+    String conversationId;
+
+    @Label("Messages Before")
+    int messagesBefore;
+
+    @Label("Messages After")
+    int messagesAfter;
+
+    @Label("Prompt Token Estimate")
+    @Description("截断后保留消息的token估算")
+    int promptTokens;
+
+    @Label("Max Tokens")
+    int maxTokens;
+
+    /**
+     * 开始记录记忆截断
+     * @param conversationId 智能体会话ID
+     * @param messagesBefore 截断前的消息数
+     * @param maxTokens token上限
+     */
+    public static MemoryTruncationEvent begin(String conversationId, int messagesBefore, int maxTokens) {
+        MemoryTruncationEvent event = new MemoryTruncationEvent();
+        event.conversationId = conversationId;
+        event.messagesBefore = messagesBefore;
+        event.maxTokens = maxTokens;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 结束并提交事件
+     * @param messagesAfter 截断后的消息数
+     * @param promptTokens 截断后的token估算
+     */
+    public void finish(int messagesAfter, int promptTokens) {
+        end();
+        if (shouldCommit()) {
+            this.messagesAfter = messagesAfter;
+            this.promptTokens = promptTokens;
+            bindContext();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.zhouruojun.manus.infrastructure.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.Map;
+
+/**
+ * 节点执行事件，覆盖BaseNode和AgentNodeAdapter的apply
+ */
+@Name("com.zhouruojun.manus.NodeExecution")
+@Label("Manus Node Execution")
+@Description("工作流节点的一次执行")
+public class NodeExecutionEvent extends ManusEvent {
+
+    @Label("Node Name")
+    String nodeName;
+
+    @Label("Node Type")
+    @Description("node（普通节点）或agent（智能体节点）")
+    String nodeType;
+
+    @Label("Prompt Token Estimate")
+    @Description("节点输入的token估算")
+    int promptTokens;
+
+    @Label("Response Size")
+    @DataAmount(DataAmount.BYTES)
+    long responseSize;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * 开始记录节点执行
+     * @param nodeName 节点名称
+     * @param nodeType node或agent
+     */
+    public static NodeExecutionEvent begin(String nodeName, String nodeType) {
+        NodeExecutionEvent event = new NodeExecutionEvent();
+        event.nodeName = nodeName;
+        event.nodeType = nodeType;
+        event.begin();
+        return event;
+    }
+
+    public void setPromptTokens(int promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    /**
+     * 以节点状态更新中result的长度作为响应大小
+     * @param update 节点返回的状态更新
+     */
+    public void setResponse(Map<String, Object> update) {
+        if (update != null && update.get("result") instanceof String result) {
+            this.responseSize = result.length();
+        }
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * 结束并提交事件，只有事件启用且超过阈值时才提交
+     */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            bindContext();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.zhouruojun.manus.infrastructure.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Description;
+
+/**
+ * 工具执行事件，覆盖ToolCallAgent.act中的一轮工具调用
+ */
+@Name("com.zhouruojun.manus.ToolExecution")
+@Label("Manus Tool Execution")
+@Description("智能体执行一轮工具调用")
+public class ToolExecutionEvent extends ManusEvent {
+
+    @Label("Agent Name")
+    String agentName;
+
+    @Label("Tool Names")
+    String toolNames;
+
+    @Label("Tool Count")
+    int toolCount;
+
+    @Label("Arguments Size")
+    @DataAmount(DataAmount.BYTES)
+    long argumentsSize;
+
+    @Label("Response Size")
+    @DataAmount(DataAmount.BYTES)
+    long responseSize;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * 开始记录工具执行
+     * @param agentName 智能体名称
+     * @param toolNames 本轮调用的工具名称，逗号分隔
+     * @param toolCount 工具调用数量
+     * @param argumentsSize 参数总长度
+     */
+    public static ToolExecutionEvent begin(String agentName, String toolNames, int toolCount, long argumentsSize) {
+        ToolExecutionEvent event = new ToolExecutionEvent();
+        event.agentName = agentName;
+        event.toolNames = toolNames;
+        event.toolCount = toolCount;
+        event.argumentsSize = argumentsSize;
+        event.begin();
+        return event;
+    }
+
+    public void setResponseSize(long responseSize) {
+        this.responseSize = responseSize;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * 结束并提交事件
+     */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            bindContext();
+            commit();
+        }
+    }
+}
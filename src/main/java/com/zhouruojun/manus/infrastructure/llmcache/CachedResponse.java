@@ -0,0 +1,82 @@
+package com.zhouruojun.manus.infrastructure.llmcache;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存的模型响应，磁盘层以JSON保存
+ * @param text 回复文本
+ * @param toolCalls 工具调用
+ * @param finishReason 结束原因
+ * @param tokens 这次调用消耗的token数，命中时计入节省的token
+ * @param createdAt 写入时间（毫秒）
+ */
+public record CachedResponse(String text,
+                             List<CachedToolCall> toolCalls,
+                             String finishReason,
+                             int tokens,
+                             long createdAt) {
+
+    public record CachedToolCall(String id, String type, String name, String arguments) {
+    }
+
+    /**
+     * 从模型响应创建缓存条目，没有输出时返回null
+     */
+    public static CachedResponse of(ChatResponse response, int estimatedTokens) {
+        Generation generation = response != null ? response.getResult() : null;
+        if (generation == null || generation.getOutput() == null) {
+            return null;
+        }
+        AssistantMessage output = generation.getOutput();
+        List<CachedToolCall> calls = new ArrayList<>();
+        for (AssistantMessage.ToolCall call : output.getToolCalls()) {
+            calls.add(new CachedToolCall(call.id(), call.type(), call.name(), call.arguments()));
+        }
+        String finishReason = generation.getMetadata() != null ? generation.getMetadata().getFinishReason() : null;
+        Integer total = response.getMetadata() != null && response.getMetadata().getUsage() != null
+                ? response.getMetadata().getUsage().getTotalTokens() : null;
+        int tokens = total != null && total > 0 ? total : estimatedTokens;
+        return new CachedResponse(output.getText(), calls, finishReason, tokens, System.currentTimeMillis());
+    }
+
+    /**
+     * 还原为模型响应
+     */
+    public ChatResponse toChatResponse() {
+        List<AssistantMessage.ToolCall> calls = new ArrayList<>();
+        if (toolCalls != null) {
+            for (CachedToolCall call : toolCalls) {
+                calls.add(new AssistantMessage.ToolCall(call.id(), call.type(), call.name(), call.arguments()));
+            }
+        }
+        AssistantMessage output = new AssistantMessage(text != null ? text : "", Map.of(), calls);
+        ChatGenerationMetadata metadata = ChatGenerationMetadata.builder()
+                .finishReason(finishReason)
+                .build();
+        return new ChatResponse(List.of(new Generation(output, metadata)));
+    }
+
+    /**
+     * 内存中占用的字节数估算，用于字节预算
+     */
+    long sizeBytes() {
+        long size = 96 + 2L * length(text) + 2L * length(finishReason);
+        if (toolCalls != null) {
+            for (CachedToolCall call : toolCalls) {
+                size += 64 + 2L * (length(call.id()) + length(call.type()) + length(call.name()) + length(call.arguments()));
+            }
+        }
+        return size;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -0,0 +1,148 @@
+package com.zhouruojun.manus.infrastructure.llmcache;
+
+import com.zhouruojun.manus.domain.model.TokenManager;
+import com.zhouruojun.manus.domain.model.ToolCallAssembler;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带响应缓存的ChatModel
+ * 以消息、生效的模型参数和工具定义的规范化哈希为键精确匹配，命中时不访问远端模型。
+ * LLM.call/askTool、各节点的callChatModel以及智能体的工具结果解释都经过同一个ChatModel，因此都会被缓存；
+ * 流式调用命中时一次性返回完整响应，未命中时透传模型的流并在结束后缓存汇总的结果。
+ * 温度大于0的请求每次结果不同，可以配置为绕过缓存
+ */
+public class CachingChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final LlmResponseCache cache;
+    private final boolean bypassSampled;
+
+    /**
+     * @param delegate 实际的模型
+     * @param cache 响应缓存
+     * @param bypassSampled 为true时，温度大于0的请求不读也不写缓存
+     */
+    public CachingChatModel(ChatModel delegate, LlmResponseCache cache, boolean bypassSampled) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.bypassSampled = bypassSampled;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String key = keyOf(prompt);
+        if (key == null) {
+            return delegate.call(prompt);
+        }
+        var cached = cache.get(key);
+        if (cached.isPresent()) {
+            return cached.get().toChatResponse();
+        }
+        ChatResponse response = delegate.call(prompt);
+        store(key, prompt, response);
+        return response;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            String key = keyOf(prompt);
+            if (key == null) {
+                return delegate.stream(prompt);
+            }
+            var cached = cache.get(key);
+            if (cached.isPresent()) {
+                return Flux.just(cached.get().toChatResponse());
+            }
+            StreamAggregate aggregate = new StreamAggregate();
+            return delegate.stream(prompt)
+                    .doOnNext(aggregate::accept)
+                    .doOnComplete(() -> store(key, prompt, aggregate.toChatResponse()));
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    /**
+     * 计算缓存键，需要绕过缓存时返回null
+     */
+    private String keyOf(Prompt prompt) {
+        ChatOptions defaults = delegate.getDefaultOptions();
+        if (bypassSampled) {
+            Double temperature = LlmCacheKey.temperature(prompt, defaults);
+            if (temperature != null && temperature > 0) {
+                cache.recordBypass();
+                return null;
+            }
+        }
+        return LlmCacheKey.of(prompt, defaults);
+    }
+
+    private void store(String key, Prompt prompt, ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return;
+        }
+        AssistantMessage output = response.getResult().getOutput();
+        String text = output.getText();
+        if ((text == null || text.isBlank()) && !output.hasToolCalls()) {
+            return;
+        }
+        int estimated = TokenManager.estimateTokenCount(prompt.getInstructions())
+                + TokenManager.estimateTokensForMessage(output);
+        CachedResponse entry = CachedResponse.of(response, estimated);
+        if (entry != null) {
+            cache.put(key, entry);
+        }
+    }
+
+    /**
+     * 汇总流式片段：拼接文本，工具调用片段交给ToolCallAssembler组装，保留最后的结束原因和用量
+     */
+    private static final class StreamAggregate {
+        private final StringBuilder text = new StringBuilder();
+        private final ToolCallAssembler toolCalls = new ToolCallAssembler();
+        private Generation last;
+        private ChatResponseMetadata metadata;
+
+        void accept(ChatResponse chunk) {
+            if (chunk == null) {
+                return;
+            }
+            if (chunk.getMetadata() != null) {
+                metadata = chunk.getMetadata();
+            }
+            Generation generation = chunk.getResult();
+            if (generation == null || generation.getOutput() == null) {
+                return;
+            }
+            if (generation.getMetadata() != null && generation.getMetadata().getFinishReason() != null) {
+                last = generation;
+            }
+            if (generation.getOutput().getText() != null) {
+                text.append(generation.getOutput().getText());
+            }
+            toolCalls.accept(generation.getOutput().getToolCalls());
+        }
+
+        ChatResponse toChatResponse() {
+            AssistantMessage output = new AssistantMessage(text.toString(), Map.of(), toolCalls.toolCalls());
+            Generation generation = last != null ? new Generation(output, last.getMetadata()) : new Generation(output);
+            return metadata != null
+                    ? new ChatResponse(List.of(generation), metadata)
+                    : new ChatResponse(List.of(generation));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.zhouruojun.manus.infrastructure.llmcache;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * LLM响应缓存的键
+ * 对消息序列（类型、文本、工具调用、工具结果）、生效的模型参数和工具定义计算SHA-256。
+ * 模型参数按固定顺序逐项写入，请求未指定的参数取模型默认值；工具定义按名称排序，与注册顺序无关
+ */
+public final class LlmCacheKey {
+
+    private LlmCacheKey() {
+    }
+
+    /**
+     * 计算缓存键
+     * @param prompt 提示词
+     * @param defaults 模型的默认参数，可以为null
+     * @return 十六进制的SHA-256
+     */
+    public static String of(Prompt prompt, ChatOptions defaults) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Message message : prompt.getInstructions()) {
+                update(digest, message.getMessageType().name());
+                update(digest, message.getText());
+                if (message instanceof AssistantMessage assistant) {
+                    for (AssistantMessage.ToolCall call : assistant.getToolCalls()) {
+                        update(digest, call.name());
+                        update(digest, call.arguments());
+                    }
+                } else if (message instanceof ToolResponseMessage toolResponse) {
+                    for (ToolResponseMessage.ToolResponse response : toolResponse.getResponses()) {
+                        update(digest, response.name());
+                        update(digest, response.responseData());
+                    }
+                }
+            }
+
+            ChatOptions options = prompt.getOptions();
+            update(digest, "options");
+            update(digest, option(options, defaults, ChatOptions::getModel));
+            update(digest, option(options, defaults, ChatOptions::getTemperature));
+            update(digest, option(options, defaults, ChatOptions::getTopP));
+            update(digest, option(options, defaults, ChatOptions::getTopK));
+            update(digest, option(options, defaults, ChatOptions::getMaxTokens));
+            update(digest, option(options, defaults, ChatOptions::getFrequencyPenalty));
+            update(digest, option(options, defaults, ChatOptions::getPresencePenalty));
+            update(digest, option(options, defaults, ChatOptions::getStopSequences));
+
+            update(digest, "tools");
+            for (ToolDefinition tool : toolDefinitions(options)) {
+                update(digest, tool.name());
+                update(digest, tool.description());
+                update(digest, tool.inputSchema());
+            }
+            if (options instanceof ToolCallingChatOptions toolOptions && toolOptions.getToolNames() != null) {
+                for (String name : new TreeSet<>(toolOptions.getToolNames())) {
+                    update(digest, name);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 请求生效的温度，请求和模型默认值都未指定时返回null
+     */
+    public static Double temperature(Prompt prompt, ChatOptions defaults) {
+        return option(prompt.getOptions(), defaults, ChatOptions::getTemperature);
+    }
+
+    private static <T> T option(ChatOptions options, ChatOptions defaults, Function<ChatOptions, T> getter) {
+        T value = options != null ? getter.apply(options) : null;
+        if (value == null && defaults != null) {
+            value = getter.apply(defaults);
+        }
+        return value;
+    }
+
+    private static List<ToolDefinition> toolDefinitions(ChatOptions options) {
+        List<ToolDefinition> definitions = new ArrayList<>();
+        if (options instanceof ToolCallingChatOptions toolOptions && toolOptions.getToolCallbacks() != null) {
+            Set<String> seen = new TreeSet<>();
+            for (ToolCallback callback : toolOptions.getToolCallbacks()) {
+                ToolDefinition definition = callback.getToolDefinition();
+                if (seen.add(definition.name())) {
+                    definitions.add(definition);
+                }
+            }
+        }
+        definitions.sort(Comparator.comparing(ToolDefinition::name));
+        return definitions;
+    }
+
+    private static void update(MessageDigest digest, Object value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,286 @@
+package com.zhouruojun.manus.infrastructure.llmcache;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LLM响应缓存
+ * 内存层按LRU淘汰，总字节数不超过预算；可选的磁盘层每个键一个JSON文件，内存未命中时读取并提升到内存层，
+ * 进程重启和基准重跑之间也能复用。两层的条目超过TTL后失效。
+ * 命中、未命中和绕过次数记录在manus.llm.cache计数器，命中节省的token数记录在manus.llm.cache.saved.tokens
+ */
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final String SUFFIX = ".json";
+
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter savedTokens;
+
+    private record Entry(CachedResponse response, long sizeBytes) {
+    }
+
+    /**
+     * @param maxBytes 内存层的字节预算
+     * @param ttl 条目的有效期
+     * @param directory 磁盘层目录，为null时只使用内存层
+     * @param meterRegistry 指标注册表
+     */
+    public LlmResponseCache(long maxBytes, Duration ttl, Path directory, MeterRegistry meterRegistry) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.ttlMillis = ttl.toMillis();
+        this.directory = directory;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+                purgeExpired();
+            } catch (IOException e) {
+                throw new IllegalStateException("无法创建LLM响应缓存目录: " + directory, e);
+            }
+        }
+
+        this.memoryHits = requests(meterRegistry, "hit", "memory");
+        this.diskHits = requests(meterRegistry, "hit", "disk");
+        this.misses = requests(meterRegistry, "miss", "none");
+        this.bypasses = requests(meterRegistry, "bypass", "none");
+        this.savedTokens = Counter.builder("manus.llm.cache.saved.tokens")
+                .description("LLM响应缓存命中节省的token数")
+                .register(meterRegistry);
+        Gauge.builder("manus.llm.cache.hit.ratio", this, LlmResponseCache::hitRatio)
+                .description("LLM响应缓存的命中率（不含绕过的请求）")
+                .register(meterRegistry);
+        Gauge.builder("manus.llm.cache.bytes", this, LlmResponseCache::sizeBytes)
+                .description("LLM响应缓存内存层占用的字节数")
+                .register(meterRegistry);
+        Gauge.builder("manus.llm.cache.size", this, LlmResponseCache::size)
+                .description("LLM响应缓存内存层的条目数")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry registry, String result, String tier) {
+        return Counter.builder("manus.llm.cache")
+                .description("LLM响应缓存的查询次数")
+                .tag("result", result)
+                .tag("tier", tier)
+                .register(registry);
+    }
+
+    /**
+     * 查询缓存，先查内存层再查磁盘层
+     * @param key LlmCacheKey计算的键
+     * @return 未过期的响应，未命中时返回空
+     */
+    public Optional<CachedResponse> get(String key) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && !isExpired(entry.response(), now)) {
+                hit(memoryHits, entry.response());
+                return Optional.of(entry.response());
+            }
+            if (entry != null) {
+                remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        CachedResponse stored = readDisk(key, now);
+        if (stored != null) {
+            putMemory(key, stored);
+            hit(diskHits, stored);
+            return Optional.of(stored);
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * 写入缓存，磁盘层启用时同时写入磁盘
+     */
+    public void put(String key, CachedResponse response) {
+        putMemory(key, response);
+        writeDisk(key, response);
+    }
+
+    /**
+     * 记录一次因请求不确定（例如温度大于0）而绕过缓存的调用
+     */
+    public void recordBypass() {
+        bypasses.increment();
+    }
+
+    /**
+     * 清空内存层，磁盘层保留
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long sizeBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double hitRatio() {
+        double hits = memoryHits.count() + diskHits.count();
+        double total = hits + misses.count();
+        return total > 0 ? hits / total : 0;
+    }
+
+    private void hit(Counter counter, CachedResponse response) {
+        counter.increment();
+        savedTokens.increment(response.tokens());
+    }
+
+    private boolean isExpired(CachedResponse response, long now) {
+        return ttlMillis > 0 && now - response.createdAt() > ttlMillis;
+    }
+
+    private void putMemory(String key, CachedResponse response) {
+        long size = response.sizeBytes() + 2L * key.length();
+        if (size > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            remove(key);
+            entries.put(key, new Entry(response, size));
+            bytes += size;
+            // 按最久未访问的顺序淘汰，直到回到预算以内
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().sizeBytes();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.sizeBytes();
+        }
+    }
+
+    private CachedResponse readDisk(String key, long now) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + SUFFIX);
+        try {
+            CachedResponse stored = MAPPER.readValue(Files.readAllBytes(file), CachedResponse.class);
+            if (isExpired(stored, now)) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return stored;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("读取LLM响应缓存文件 {} 失败: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, CachedResponse response) {
+        if (directory == null) {
+            return;
+        }
+        Path file = directory.resolve(key + SUFFIX);
+        Path temp = null;
+        try {
+            // 先写临时文件再原子替换，并发写入同一个键时读到的总是完整的文件
+            temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, MAPPER.writeValueAsBytes(response));
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("写入LLM响应缓存文件 {} 失败: {}", file, e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // 临时文件留到下次启动时清理
+                }
+            }
+        }
+    }
+
+    /**
+     * 启动时删除过期的缓存文件和未完成的临时文件
+     */
+    private void purgeExpired() throws IOException {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")
+                        || (name.endsWith(SUFFIX) && readDisk(name.substring(0, name.length() - SUFFIX.length()), now) == null)) {
+                    Files.deleteIfExists(file);
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.info("清理了 {} 个过期的LLM响应缓存文件", removed);
+        }
+    }
+}
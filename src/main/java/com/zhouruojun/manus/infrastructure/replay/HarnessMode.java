@@ -0,0 +1,30 @@
+package com.zhouruojun.manus.infrastructure.replay;
+
+/**
+ * 模型调用录制/回放的模式
+ */
+public enum HarnessMode {
+    /** 直接调用模型 */
+    OFF,
+    /** 调用模型并录制 */
+    RECORD,
+    /** 只回放录制文件，不访问模型 */
+    REPLAY;
+
+    /**
+     * 解析配置值。未加引号的off在YAML中会被解析为false，空值、off和false都表示关闭；
+     * 只有显式的record才会录制，无法识别的值直接报错，避免拼写错误时悄悄录制所有调用
+     */
+    public static HarnessMode fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return OFF;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "off", "false" -> OFF;
+            case "record" -> RECORD;
+            case "replay" -> REPLAY;
+            default -> throw new IllegalArgumentException(
+                    "无法识别的manus.engine.model-harness.mode: " + value + "，可选 off | record | replay");
+        };
+    }
+}
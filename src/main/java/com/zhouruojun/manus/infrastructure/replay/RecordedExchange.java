@@ -0,0 +1,120 @@
+package com.zhouruojun.manus.infrastructure.replay;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次录制的模型交互，录制文件中每行一条JSON
+ * @param key 提示词指纹，回放时按指纹匹配
+ * @param messages 提示词消息（类型和文本），便于人工查看
+ * @param text 模型回复文本
+ * @param toolCalls 模型请求的工具调用
+ * @param finishReason 结束原因
+ * @param latencyMillis 录制时的调用耗时
+ */
+public record RecordedExchange(String key,
+                               List<RecordedMessage> messages,
+                               String text,
+                               List<RecordedToolCall> toolCalls,
+                               String finishReason,
+                               long latencyMillis) {
+
+    public record RecordedMessage(String type, String text) {
+    }
+
+    public record RecordedToolCall(String id, String type, String name, String arguments) {
+    }
+
+    /**
+     * 从提示词和模型响应创建录制记录
+     */
+    public static RecordedExchange of(Prompt prompt, String text, List<AssistantMessage.ToolCall> toolCalls,
+                                      String finishReason, long latencyMillis) {
+        List<RecordedMessage> messages = new ArrayList<>();
+        for (Message message : prompt.getInstructions()) {
+            messages.add(new RecordedMessage(message.getMessageType().name(), message.getText()));
+        }
+        List<RecordedToolCall> calls = new ArrayList<>();
+        if (toolCalls != null) {
+            for (AssistantMessage.ToolCall call : toolCalls) {
+                calls.add(new RecordedToolCall(call.id(), call.type(), call.name(), call.arguments()));
+            }
+        }
+        return new RecordedExchange(fingerprint(prompt), messages, text, calls, finishReason, latencyMillis);
+    }
+
+    /**
+     * 从模型响应创建录制记录
+     */
+    public static RecordedExchange of(Prompt prompt, ChatResponse response, long latencyMillis) {
+        Generation generation = response != null ? response.getResult() : null;
+        if (generation == null || generation.getOutput() == null) {
+            return of(prompt, "", List.of(), null, latencyMillis);
+        }
+        String finishReason = generation.getMetadata() != null ? generation.getMetadata().getFinishReason() : null;
+        return of(prompt, generation.getOutput().getText(), generation.getOutput().getToolCalls(),
+                finishReason, latencyMillis);
+    }
+
+    /**
+     * 还原为模型响应
+     */
+    public ChatResponse toChatResponse() {
+        List<AssistantMessage.ToolCall> calls = new ArrayList<>();
+        if (toolCalls != null) {
+            for (RecordedToolCall call : toolCalls) {
+                calls.add(new AssistantMessage.ToolCall(call.id(), call.type(), call.name(), call.arguments()));
+            }
+        }
+        AssistantMessage output = new AssistantMessage(text != null ? text : "", Map.of(), calls);
+        ChatGenerationMetadata metadata = ChatGenerationMetadata.builder()
+                .finishReason(finishReason)
+                .build();
+        return new ChatResponse(List.of(new Generation(output, metadata)));
+    }
+
+    /**
+     * 计算提示词指纹：按顺序覆盖每条消息的类型、文本、工具调用和工具结果
+     */
+    public static String fingerprint(Prompt prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Message message : prompt.getInstructions()) {
+                update(digest, message.getMessageType().name());
+                update(digest, message.getText());
+                if (message instanceof AssistantMessage assistant) {
+                    for (AssistantMessage.ToolCall call : assistant.getToolCalls()) {
+                        update(digest, call.name());
+                        update(digest, call.arguments());
+                    }
+                } else if (message instanceof ToolResponseMessage toolResponse) {
+                    for (ToolResponseMessage.ToolResponse response : toolResponse.getResponses()) {
+                        update(digest, response.name());
+                        update(digest, response.responseData());
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,113 @@
+package com.zhouruojun.manus.infrastructure.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 录制ChatModel装饰器
+ * 把每次调用的提示词和响应（包括工具调用）追加到JSONL文件，供ReplayChatModel离线回放
+ */
+@Slf4j
+public class RecordingChatModel implements ChatModel, AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ChatModel delegate;
+    private final Path file;
+    private final BufferedWriter writer;
+    // 用ReentrantLock保护写入，避免虚拟线程在synchronized中阻塞时被固定
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public RecordingChatModel(ChatModel delegate, Path file) {
+        this.delegate = delegate;
+        this.file = file;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法打开录制文件: " + file, e);
+        }
+        log.info("模型调用录制到: {}", file);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        long start = System.nanoTime();
+        ChatResponse response = delegate.call(prompt);
+        record(RecordedExchange.of(prompt, response, (System.nanoTime() - start) / 1_000_000));
+        return response;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        long start = System.nanoTime();
+        StringBuilder text = new StringBuilder();
+        List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+        String[] finishReason = new String[1];
+        return delegate.stream(prompt)
+                .doOnNext(chunk -> {
+                    if (chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+                        return;
+                    }
+                    AssistantMessage output = chunk.getResult().getOutput();
+                    if (output.getText() != null) {
+                        text.append(output.getText());
+                    }
+                    toolCalls.addAll(output.getToolCalls());
+                    if (chunk.getResult().getMetadata() != null && chunk.getResult().getMetadata().getFinishReason() != null) {
+                        finishReason[0] = chunk.getResult().getMetadata().getFinishReason();
+                    }
+                })
+                .doOnComplete(() -> record(RecordedExchange.of(prompt, text.toString(), toolCalls, finishReason[0],
+                        (System.nanoTime() - start) / 1_000_000)));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private void record(RecordedExchange exchange) {
+        lock.lock();
+        try {
+            writer.write(MAPPER.writeValueAsString(exchange));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("写入录制文件 {} 失败: {}", file, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            writer.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.zhouruojun.manus.infrastructure.replay;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 回放ChatModel
+ * 按提示词指纹返回RecordingChatModel录制的响应，相同提示词的多次录制按录制顺序依次返回，用完后重复最后一条；
+ * 非严格模式下指纹未命中时按录制顺序返回下一条尚未使用的响应。可选合成延迟用于模拟远端耗时
+ */
+@Slf4j
+public class ReplayChatModel implements ChatModel {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * 合成延迟方式
+     */
+    public enum LatencyMode {
+        /** 不延迟 */
+        NONE,
+        /** 使用录制时的耗时 */
+        RECORDED,
+        /** 固定延迟 */
+        FIXED;
+
+        public static LatencyMode fromString(String value) {
+            return value == null ? NONE : valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    private final List<RecordedExchange> sequence;
+    private final Map<String, Deque<RecordedExchange>> byKey = new HashMap<>();
+    private final Map<String, RecordedExchange> lastByKey = new HashMap<>();
+    // 已返回过的录制记录（按实例区分，相同内容的多次录制各算一次）
+    private final Set<RecordedExchange> used = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final boolean strict;
+    private final LatencyMode latencyMode;
+    private final Duration fixedLatency;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int cursor;
+
+    public ReplayChatModel(List<RecordedExchange> exchanges, boolean strict, LatencyMode latencyMode, Duration fixedLatency) {
+        this.sequence = new ArrayList<>(exchanges);
+        this.strict = strict;
+        this.latencyMode = latencyMode;
+        this.fixedLatency = fixedLatency != null ? fixedLatency : Duration.ZERO;
+        for (RecordedExchange exchange : exchanges) {
+            byKey.computeIfAbsent(exchange.key(), key -> new ArrayDeque<>()).addLast(exchange);
+        }
+    }
+
+    /**
+     * 从录制文件加载
+     * @param file RecordingChatModel写出的JSONL文件
+     */
+    public static ReplayChatModel load(Path file, boolean strict, LatencyMode latencyMode, Duration fixedLatency) {
+        List<RecordedExchange> exchanges = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    exchanges.add(MAPPER.readValue(line, RecordedExchange.class));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法读取录制文件: " + file, e);
+        }
+        log.info("从 {} 加载了 {} 条录制的模型调用", file, exchanges.size());
+        return new ReplayChatModel(exchanges, strict, latencyMode, fixedLatency);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        RecordedExchange exchange = next(prompt);
+        simulateLatency(exchange);
+        return exchange.toChatResponse();
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> Flux.just(call(prompt)));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().build();
+    }
+
+    private RecordedExchange next(Prompt prompt) {
+        String key = RecordedExchange.fingerprint(prompt);
+        lock.lock();
+        try {
+            Deque<RecordedExchange> candidates = byKey.get(key);
+            while (candidates != null && !candidates.isEmpty()) {
+                RecordedExchange exchange = candidates.pollFirst();
+                if (used.add(exchange)) {
+                    lastByKey.put(key, exchange);
+                    return exchange;
+                }
+            }
+            if (lastByKey.containsKey(key)) {
+                return lastByKey.get(key);
+            }
+            if (!strict) {
+                // 非严格模式：提示词中含有时间戳等不稳定内容时按录制顺序回放
+                while (cursor < sequence.size()) {
+                    RecordedExchange exchange = sequence.get(cursor++);
+                    if (used.add(exchange)) {
+                        return exchange;
+                    }
+                }
+            }
+            throw new IllegalStateException("没有与提示词匹配的录制响应: " + key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void simulateLatency(RecordedExchange exchange) {
+        long millis = switch (latencyMode) {
+            case NONE -> 0;
+            case RECORDED -> exchange.latencyMillis();
+            case FIXED -> fixedLatency.toMillis();
+        };
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // 截止时间或取消中断了调用，保持中断标记交给调用方处理
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("回放调用被中断", e);
+        }
+    }
+}
@@ -6,9 +6,8 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,9 +31,12 @@ public class PromptLoader {
                 return promptCache.get(fileName);
             }
 
-            // 从classpath加载文件
+            // 从classpath加载文件，按流读取以便在jar包中同样可用
             ClassPathResource resource = new ClassPathResource("prompts/" + fileName);
-            String content = Files.readString(Path.of(resource.getURI()), StandardCharsets.UTF_8);
+            String content;
+            try (InputStream in = resource.getInputStream()) {
+                content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
             
             // 缓存结果
             promptCache.put(fileName, content);
@@ -1,5 +1,6 @@
 package com.zhouruojun.manus.infrastructure.tools.collection;
 
+import com.zhouruojun.manus.infrastructure.tracing.TracedToolCallback;
 import lombok.Getter;
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.model.tool.ToolCallingChatOptions;
@@ -465,11 +466,12 @@ public class ToolCollection {
 
     /**
      * 创建包含所有工具的ChatOptions
+     * 工具回调包装为带跟踪的回调，每次工具执行记录一个跨度
      * @return 包含工具的ChatOptions
      */
     public ChatOptions toChatOptions() {
         return ToolCallingChatOptions.builder()
-                .toolCallbacks(getToolCallbacks())
+                .toolCallbacks(Arrays.stream(getToolCallbacks()).map(TracedToolCallback::of).toArray(ToolCallback[]::new))
                 .internalToolExecutionEnabled(internalToolExecutionEnabled)
                 .build();
     }
@@ -0,0 +1,96 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量跨度处理器
+ * 结束的跨度进入有界队列，由单独的守护线程按批次大小或刷新间隔交给导出器；
+ * 队列满时丢弃跨度并计数，导出不会阻塞工作流线程
+ */
+@Slf4j
+public class BatchSpanProcessor implements AutoCloseable {
+
+    private final SpanExporter exporter;
+    private final BlockingQueue<Span> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Counter dropped;
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    public BatchSpanProcessor(SpanExporter exporter, int queueSize, int batchSize, Duration flushInterval,
+                              MeterRegistry meterRegistry) {
+        this.exporter = exporter;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushInterval.toMillis());
+        this.dropped = Counter.builder("manus.tracing.spans.dropped")
+                .description("导出队列已满被丢弃的跨度数")
+                .register(meterRegistry);
+        this.worker = Thread.ofPlatform()
+                .name("manus-span-exporter")
+                .daemon(true)
+                .start(this::exportLoop);
+    }
+
+    /**
+     * 提交已结束的跨度
+     */
+    public void submit(Span span) {
+        if (!queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    public String getExporterName() {
+        return exporter.name();
+    }
+
+    private void exportLoop() {
+        List<Span> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Span first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                export(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void export(List<Span> batch) {
+        try {
+            exporter.export(batch);
+        } catch (Exception e) {
+            log.warn("导出 {} 个跨度失败: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 停止导出线程，导出队列中剩余的跨度后关闭导出器
+     */
+    @Override
+    public void close() throws Exception {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        exporter.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 文件跨度导出器
+ * 每批跨度编码为一行OTLP/JSON追加到文件，格式与OpenTelemetry Collector的file导出器一致
+ */
+public class FileSpanExporter implements SpanExporter {
+
+    private final Path file;
+    private final String serviceName;
+    private final OutputStream out;
+
+    public FileSpanExporter(Path file, String serviceName) throws IOException {
+        this.file = file;
+        this.serviceName = serviceName;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+    }
+
+    @Override
+    public void export(List<Span> spans) throws Exception {
+        out.write(OtlpJson.encode(serviceName, spans));
+        out.write('\n');
+        out.flush();
+    }
+
+    @Override
+    public String name() {
+        return "file(" + file + ")";
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
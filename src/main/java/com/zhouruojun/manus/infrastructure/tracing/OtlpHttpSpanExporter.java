@@ -0,0 +1,48 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * OTLP HTTP跨度导出器
+ * 以OTLP/JSON格式POST到本地Collector的/v1/traces接口
+ */
+public class OtlpHttpSpanExporter implements SpanExporter {
+
+    private final URI endpoint;
+    private final String serviceName;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+
+    public OtlpHttpSpanExporter(String endpoint, String serviceName, Duration timeout) {
+        this.endpoint = URI.create(endpoint);
+        this.serviceName = serviceName;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public void export(List<Span> spans) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(OtlpJson.encode(serviceName, spans)))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("OTLP接收端返回 " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    @Override
+    public String name() {
+        return "otlp(" + endpoint + ")";
+    }
+}
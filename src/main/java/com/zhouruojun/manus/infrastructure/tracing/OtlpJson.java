@@ -0,0 +1,80 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OTLP/JSON编码
+ * 把跨度编码为ExportTraceServiceRequest的JSON形式，可直接POST到OTLP HTTP接收端（/v1/traces），
+ * 也可以按行写入文件后由OpenTelemetry Collector的otlpjsonfile接收器读取
+ */
+final class OtlpJson {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SCOPE_NAME = "com.zhouruojun.manus.workflow";
+
+    private OtlpJson() {
+    }
+
+    static byte[] encode(String serviceName, List<Span> spans) throws Exception {
+        ObjectNode request = MAPPER.createObjectNode();
+        ObjectNode resourceSpans = request.putArray("resourceSpans").addObject();
+
+        ArrayNode resourceAttributes = resourceSpans.putObject("resource").putArray("attributes");
+        addAttribute(resourceAttributes, "service.name", serviceName);
+
+        ObjectNode scopeSpans = resourceSpans.putArray("scopeSpans").addObject();
+        scopeSpans.putObject("scope").put("name", SCOPE_NAME);
+        ArrayNode spanArray = scopeSpans.putArray("spans");
+
+        for (Span span : spans) {
+            ObjectNode node = spanArray.addObject();
+            node.put("traceId", span.getTraceId());
+            node.put("spanId", span.getSpanId());
+            if (span.getParentSpanId() != null) {
+                node.put("parentSpanId", span.getParentSpanId());
+            }
+            node.put("name", span.getKind().getValue() + " " + span.getName());
+            node.put("kind", span.getKind().getOtlpKind());
+            // OTLP/JSON中64位整数编码为字符串
+            node.put("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+            node.put("endTimeUnixNano", Long.toString(span.getEndEpochNanos()));
+
+            ArrayNode attributes = node.putArray("attributes");
+            addAttribute(attributes, "manus.span.kind", span.getKind().getValue());
+            for (Map.Entry<String, Object> entry : span.getAttributes().entrySet()) {
+                addAttribute(attributes, entry.getKey(), entry.getValue());
+            }
+
+            ObjectNode status = node.putObject("status");
+            if (span.isError()) {
+                // STATUS_CODE_ERROR
+                status.put("code", 2);
+                status.put("message", span.getErrorMessage());
+            } else {
+                // STATUS_CODE_OK
+                status.put("code", 1);
+            }
+        }
+        return MAPPER.writeValueAsBytes(request);
+    }
+
+    private static void addAttribute(ArrayNode attributes, String key, Object value) {
+        ObjectNode attribute = attributes.addObject();
+        attribute.put("key", key);
+        ObjectNode anyValue = attribute.putObject("value");
+        if (value instanceof Boolean bool) {
+            anyValue.put("boolValue", bool);
+        } else if (value instanceof Integer || value instanceof Long) {
+            anyValue.put("intValue", value.toString());
+        } else if (value instanceof Number number) {
+            anyValue.put("doubleValue", number.doubleValue());
+        } else {
+            anyValue.put("stringValue", String.valueOf(value));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一次计时跨度
+ * 由Tracing.start创建并成为当前线程的当前跨度，end时恢复父跨度、记录计时器并提交导出；
+ * 属性只应由创建跨度的线程写入
+ */
+@Getter
+public final class Span implements AutoCloseable {
+
+    private final SpanKind kind;
+    private final String name;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final long startEpochNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+    // 创建前线程上的当前跨度，结束时恢复
+    @Getter(AccessLevel.PACKAGE)
+    private final Span previous;
+    @Getter(AccessLevel.NONE)
+    private final long startNanos;
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    private volatile long durationNanos;
+    private volatile String errorMessage;
+
+    Span(SpanKind kind, String name, String traceId, String spanId, Span parent, Span previous) {
+        this.kind = kind;
+        this.name = name;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parent != null ? parent.getSpanId() : null;
+        this.previous = previous;
+        this.startEpochNanos = System.currentTimeMillis() * 1_000_000L;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 设置属性
+     * @param key 属性名
+     * @param value 属性值，null时忽略
+     * @return 当前跨度
+     */
+    public Span attribute(String key, Object value) {
+        if (value != null) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * 标记跨度失败
+     * @param error 异常
+     */
+    public void error(Throwable error) {
+        this.errorMessage = error.getClass().getSimpleName() + ": " + error.getMessage();
+    }
+
+    /**
+     * 结束跨度，重复调用无效
+     */
+    public void end() {
+        if (ended.compareAndSet(false, true)) {
+            this.durationNanos = System.nanoTime() - startNanos;
+            Tracing.finish(this);
+        }
+    }
+
+    @Override
+    public void close() {
+        end();
+    }
+
+    public Map<String, Object> getAttributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    public long getEndEpochNanos() {
+        return startEpochNanos + durationNanos;
+    }
+
+    public boolean isError() {
+        return errorMessage != null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import java.util.List;
+
+/**
+ * 跨度导出器
+ * 由BatchSpanProcessor在单独的导出线程上按批调用
+ */
+public interface SpanExporter extends AutoCloseable {
+
+    /**
+     * 导出一批已结束的跨度
+     * @param spans 跨度列表
+     * @throws Exception 导出失败，该批跨度被丢弃
+     */
+    void export(List<Span> spans) throws Exception;
+
+    /**
+     * 导出器名称，用于日志
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    default void close() throws Exception {
+    }
+}
@@ -0,0 +1,25 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import lombok.Getter;
+
+/**
+ * 跨度类型
+ * 决定计时器名称（manus.{value}.duration）以及导出时的OTLP SpanKind
+ */
+@Getter
+public enum SpanKind {
+    WORKFLOW("workflow", 1),
+    NODE("node", 1),
+    LLM("llm", 3),
+    TOOL("tool", 1);
+
+    private final String value;
+
+    // OTLP SpanKind：1=INTERNAL，3=CLIENT
+    private final int otlpKind;
+
+    SpanKind(String value, int otlpKind) {
+        this.value = value;
+        this.otlpKind = otlpKind;
+    }
+}
@@ -0,0 +1,57 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * 工具回调跟踪装饰器
+ * 每次工具执行记录一个TOOL跨度，作为当前节点或智能体步骤跨度的子跨度
+ */
+public class TracedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    public TracedToolCallback(ToolCallback delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        Span span = Tracing.start(SpanKind.TOOL, getToolDefinition().name());
+        try {
+            String result = delegate.call(toolInput, toolContext);
+            span.attribute("tool.input.length", toolInput != null ? toolInput.length() : 0)
+                .attribute("tool.result.length", result != null ? result.length() : 0);
+            return result;
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * 包装工具回调，已包装的直接返回
+     */
+    public static ToolCallback of(ToolCallback callback) {
+        return callback instanceof TracedToolCallback ? callback : new TracedToolCallback(callback);
+    }
+}
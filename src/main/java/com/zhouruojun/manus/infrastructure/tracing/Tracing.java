@@ -0,0 +1,183 @@
+package com.zhouruojun.manus.infrastructure.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作流跟踪持有者
+ * 维护线程上的当前跨度，跨度结束时写入Micrometer计时器（manus.{kind}.duration，带百分位）并提交给导出器；
+ * 通过propagating包装的执行器在CompletableFuture切换线程时传递当前跨度和MDC（包括requestId）
+ */
+@Slf4j
+public final class Tracing {
+
+    public static final String REQUEST_ID = "requestId";
+    public static final String SESSION_ID = "sessionId";
+    public static final String TRACE_ID = "traceId";
+    public static final String SPAN_ID = "spanId";
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private static volatile boolean enabled = true;
+    private static volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+    private static volatile BatchSpanProcessor processor;
+
+    private Tracing() {
+    }
+
+    /**
+     * 安装跟踪配置
+     * @param registry 计时器注册表
+     * @param spanProcessor 跨度导出处理器，null表示只记录计时器
+     */
+    public static void install(MeterRegistry registry, BatchSpanProcessor spanProcessor) {
+        meterRegistry = registry != null ? registry : Metrics.globalRegistry;
+        processor = spanProcessor;
+        enabled = true;
+        log.info("已安装工作流跟踪，导出器: {}", spanProcessor != null ? spanProcessor.getExporterName() : "无");
+    }
+
+    /**
+     * 关闭跟踪，之后创建的跨度不再记录
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    /**
+     * 开始一个跨度并设为当前线程的当前跨度
+     * 有当前跨度时作为其子跨度，否则开始一条新的跟踪
+     * @param kind 跨度类型
+     * @param name 跨度名称，同时作为计时器的name标签
+     * @return 新跨度，必须调用end结束
+     */
+    public static Span start(SpanKind kind, String name) {
+        Span parent = CURRENT.get();
+        String traceId = parent != null ? parent.getTraceId() : randomHex(16);
+        Span span = new Span(kind, name, traceId, randomHex(8), parent, parent);
+        CURRENT.set(span);
+        MDC.put(TRACE_ID, traceId);
+        MDC.put(SPAN_ID, span.getSpanId());
+        return span;
+    }
+
+    /**
+     * 在跨度中执行任务，异常时标记跨度失败
+     */
+    public static <T> T trace(SpanKind kind, String name, Callable<T> task) throws Exception {
+        Span span = start(kind, name);
+        try {
+            return task.call();
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * 获取当前线程的当前跨度
+     * @return 当前跨度，不存在时返回null
+     */
+    public static Span current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 结束跨度：恢复父跨度、记录计时器、提交导出
+     */
+    static void finish(Span span) {
+        if (CURRENT.get() == span) {
+            restore(span.getPrevious());
+        }
+        if (!enabled) {
+            return;
+        }
+
+        Timer.builder("manus." + span.getKind().getValue() + ".duration")
+                .tag("name", span.getName())
+                .tag("outcome", span.isError() ? "error" : "success")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(span.getDurationNanos(), TimeUnit.NANOSECONDS);
+
+        BatchSpanProcessor current = processor;
+        if (current != null) {
+            current.submit(span);
+        }
+    }
+
+    /**
+     * 包装执行器，提交任务时捕获当前跨度和MDC，并在执行线程上恢复
+     * @param delegate 被包装的执行器
+     * @return 传递跟踪上下文的执行器
+     */
+    public static Executor propagating(Executor delegate) {
+        return task -> delegate.execute(wrap(task));
+    }
+
+    /**
+     * 包装任务，使其在执行时带上提交时的跨度和MDC
+     */
+    public static Runnable wrap(Runnable task) {
+        Span captured = CURRENT.get();
+        Map<String, String> capturedMdc = MDC.getCopyOfContextMap();
+        return () -> {
+            Span previousSpan = CURRENT.get();
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            setCurrent(captured);
+            setMdc(capturedMdc);
+            try {
+                task.run();
+            } finally {
+                setCurrent(previousSpan);
+                setMdc(previousMdc);
+            }
+        };
+    }
+
+    private static void restore(Span span) {
+        setCurrent(span);
+        if (span != null) {
+            MDC.put(TRACE_ID, span.getTraceId());
+            MDC.put(SPAN_ID, span.getSpanId());
+        } else {
+            MDC.remove(TRACE_ID);
+            MDC.remove(SPAN_ID);
+        }
+    }
+
+    private static void setCurrent(Span span) {
+        if (span != null) {
+            CURRENT.set(span);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    private static void setMdc(Map<String, String> context) {
+        if (context != null) {
+            MDC.setContextMap(context);
+        } else {
+            MDC.clear();
+        }
+    }
+
+    private static String randomHex(int bytes) {
+        byte[] id = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(id);
+        return HexFormat.of().formatHex(id);
+    }
+}
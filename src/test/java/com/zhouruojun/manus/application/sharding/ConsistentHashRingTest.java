@@ -0,0 +1,109 @@
+package com.zhouruojun.manus.application.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ConsistentHashRing的分布和节点变化时的迁移量测试
+ */
+class ConsistentHashRingTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final int KEYS = 20_000;
+
+    @Test
+    void emptyRingHasNoOwner() {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+
+        assertNull(ring.nodeFor("session"));
+        assertTrue(ring.nodes().isEmpty());
+    }
+
+    @Test
+    void spreadsKeysEvenlyAcrossNodes() {
+        ConsistentHashRing ring = ring("a", "b", "c", "d");
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.nodeFor("session-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(Set.of("a", "b", "c", "d"), counts.keySet());
+        int expected = KEYS / 4;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            assertTrue(Math.abs(entry.getValue() - expected) < expected * 0.2,
+                    "节点 " + entry.getKey() + " 分到 " + entry.getValue() + " 个键");
+        }
+    }
+
+    @Test
+    void joiningNodeTakesKeysOnlyFromExistingOwners() {
+        ConsistentHashRing ring = ring("a", "b", "c", "d");
+        Map<String, String> before = owners(ring);
+
+        ring.add("e");
+
+        int moved = 0;
+        for (Map.Entry<String, String> entry : owners(ring).entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                assertEquals("e", entry.getValue(), "键 " + entry.getKey() + " 只能迁到新节点");
+                moved++;
+            }
+        }
+        // 理想情况下迁移1/5的键
+        assertTrue(moved > KEYS * 0.15 && moved < KEYS * 0.25, "迁移了 " + moved + " 个键");
+    }
+
+    @Test
+    void leavingNodeHandsOverOnlyItsOwnKeys() {
+        ConsistentHashRing ring = ring("a", "b", "c", "d");
+        Map<String, String> before = owners(ring);
+
+        ring.remove("b");
+
+        assertEquals(Set.of("a", "c", "d"), ring.nodes());
+        for (Map.Entry<String, String> entry : owners(ring).entrySet()) {
+            String previous = before.get(entry.getKey());
+            if (previous.equals("b")) {
+                assertTrue(List.of("a", "c", "d").contains(entry.getValue()));
+            } else {
+                assertEquals(previous, entry.getValue(), "键 " + entry.getKey() + " 不应迁移");
+            }
+        }
+    }
+
+    @Test
+    void addingExistingNodeChangesNothing() {
+        ConsistentHashRing ring = ring("a", "b");
+        Map<String, String> before = owners(ring);
+
+        ring.add("a");
+
+        assertEquals(before, owners(ring));
+        assertEquals(Set.of("a", "b"), ring.nodes());
+    }
+
+    private static ConsistentHashRing ring(String... nodeIds) {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        for (String nodeId : nodeIds) {
+            ring.add(nodeId);
+        }
+        return ring;
+    }
+
+    private static Map<String, String> owners(ConsistentHashRing ring) {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owners.put("session-" + i, ring.nodeFor("session-" + i));
+        }
+        return owners;
+    }
+}
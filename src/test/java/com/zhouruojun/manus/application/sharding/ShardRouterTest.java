@@ -0,0 +1,257 @@
+package com.zhouruojun.manus.application.sharding;
+
+import com.zhouruojun.manus.application.service.SessionManager;
+import com.zhouruojun.manus.domain.model.Message;
+import com.zhouruojun.manus.domain.workflow.engine.WorkflowEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ShardRouter的会话亲和和节点变化时的会话迁移测试
+ * 节点是使用真实SessionManager的LocalEngineNode，只模拟WorkflowEngine的执行结果
+ */
+class ShardRouterTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final int SESSIONS = 200;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ShardRouter router = new ShardRouter(VIRTUAL_NODES, registry);
+    private final Map<String, SessionManager> sessionManagers = new HashMap<>();
+    // 会话 -> 尚未完成的执行，用于模拟正在进行的请求
+    private final Map<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void keepsSessionOnItsFirstNode() {
+        addNodes("a", "b", "c");
+
+        String owner = router.ownerOf("session").id();
+        assertEquals(owner + ": 第一次", router.execute("session", "第一次").join());
+        assertEquals(owner + ": 第二次", router.execute("session", "第二次").join());
+
+        assertEquals(4, history(owner, "session").size());
+        for (String nodeId : List.of("a", "b", "c")) {
+            if (!nodeId.equals(owner)) {
+                assertTrue(history(nodeId, "session").isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void joiningNodeReceivesOnlyTheSessionsItNowOwns() {
+        addNodes("a", "b");
+        Map<String, String> before = runSessions();
+
+        addNodes("c");
+
+        int moved = 0;
+        for (int i = 0; i < SESSIONS; i++) {
+            String sessionId = "session-" + i;
+            String owner = router.ownerOf(sessionId).id();
+            if (!owner.equals(before.get(sessionId))) {
+                assertEquals("c", owner);
+                assertTrue(history(before.get(sessionId), sessionId).isEmpty(), "原节点上的历史应已删除");
+                moved++;
+            }
+            assertEquals(2, history(owner, sessionId).size());
+        }
+        assertTrue(moved > 0 && moved < SESSIONS / 2, "迁移了 " + moved + " 个会话");
+    }
+
+    @Test
+    void leavingNodeHandsItsSessionsToTheRemainingNodes() {
+        addNodes("a", "b", "c");
+        Map<String, String> before = runSessions();
+
+        router.removeNode("b");
+
+        for (int i = 0; i < SESSIONS; i++) {
+            String sessionId = "session-" + i;
+            String owner = router.ownerOf(sessionId).id();
+            assertNotEquals("b", owner);
+            if (!before.get(sessionId).equals("b")) {
+                assertEquals(before.get(sessionId), owner, "会话 " + sessionId + " 不应迁移");
+            }
+            assertEquals(2, history(owner, sessionId).size());
+            assertTrue(history("b", sessionId).isEmpty());
+        }
+        assertTrue(router.execute("session-0", "再次").join().startsWith(router.ownerOf("session-0").id()));
+    }
+
+    @Test
+    void defersMigrationOfInFlightSessionUntilTheRequestCompletes() {
+        addNodes("a");
+        String sessionId = sessionOwnedBy("b", "a", "b");
+        CompletableFuture<String> running = new CompletableFuture<>();
+        pending.put(sessionId, running);
+        CompletableFuture<String> reply = router.execute(sessionId, "进行中");
+
+        addNodes("b");
+
+        // 请求仍在a上执行，会话留在a
+        assertEquals("a", router.ownerOf(sessionId).id());
+        assertEquals(1, history("a", sessionId).size());
+        assertTrue(history("b", sessionId).isEmpty());
+
+        running.complete("完成");
+        assertEquals("完成", reply.join());
+
+        // 请求完成后连同回复一起迁到b
+        assertEquals("b", router.ownerOf(sessionId).id());
+        assertEquals(2, history("b", sessionId).size());
+        assertTrue(history("a", sessionId).isEmpty());
+        assertEquals("b: 下一次", router.execute(sessionId, "下一次").join());
+    }
+
+    @Test
+    void leavingNodeKeepsInFlightSessionsUntilTheyMigrate() {
+        addNodes("a", "b");
+        String sessionId = sessionOwnedBy("b", "a", "b");
+        router.execute(sessionId, "之前").join();
+        CompletableFuture<String> running = new CompletableFuture<>();
+        pending.put(sessionId, running);
+        CompletableFuture<String> reply = router.execute(sessionId, "进行中");
+
+        router.removeNode("b");
+
+        // 请求仍在b上执行，b离开哈希环但保留到会话迁出，期间的新请求仍发往b
+        assertEquals(Set.of("a"), router.nodeIds());
+        assertEquals("b", router.ownerOf(sessionId).id());
+        assertEquals("b: 并发", router.execute(sessionId, "并发").join());
+        assertTrue(history("a", sessionId).isEmpty());
+
+        running.complete("完成");
+        assertEquals("完成", reply.join());
+
+        // 最后一个请求完成后连同全部历史迁到a，b随之移除
+        assertEquals("a", router.ownerOf(sessionId).id());
+        assertEquals(6, history("a", sessionId).size());
+        assertTrue(history("b", sessionId).isEmpty());
+        assertEquals(0.0, registry.get("manus.shard.sessions.lost").counter().count());
+        assertEquals(1.0, registry.get("manus.shard.nodes").gauge().value());
+        assertEquals("a: 下一次", router.execute(sessionId, "下一次").join());
+    }
+
+    @Test
+    void requestsForMigratingSessionWaitWhileOthersProceed() throws Exception {
+        addNodes("a");
+        String moving = sessionOwnedBy("b", "a", "b");
+        String staying = sessionOwnedBy("a", "a", "b");
+        router.execute(moving, "迁移前").join();
+
+        CountDownLatch importing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        addBlockingNode("b", importing, release);
+        Future<?> join = executor.submit(() -> router.addNode(node("b")));
+        assertTrue(importing.await(5, TimeUnit.SECONDS));
+
+        // 迁移期间该会话的请求等待，其他会话不受影响
+        CompletableFuture<String> waiting = router.execute(moving, "迁移中");
+        assertEquals("a: 其他会话", router.execute(staying, "其他会话").get(5, TimeUnit.SECONDS));
+        assertFalse(waiting.isDone());
+
+        release.countDown();
+        join.get(5, TimeUnit.SECONDS);
+        assertEquals("b: 迁移中", waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(4, history("b", moving).size());
+        assertTrue(history("a", moving).isEmpty());
+    }
+
+    private void addNodes(String... nodeIds) {
+        for (String nodeId : nodeIds) {
+            sessionManagers.put(nodeId, new SessionManager());
+            router.addNode(node(nodeId));
+        }
+    }
+
+    /**
+     * 为节点准备一个导入会话历史时阻塞的SessionManager，节点由调用方加入
+     */
+    private void addBlockingNode(String nodeId, CountDownLatch importing, CountDownLatch release) {
+        sessionManagers.put(nodeId, new SessionManager() {
+            @Override
+            public void replaceSessionHistory(String sessionId, List<Message> history) {
+                importing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.replaceSessionHistory(sessionId, history);
+            }
+        });
+    }
+
+    private LocalEngineNode node(String nodeId) {
+        WorkflowEngine engine = mock(WorkflowEngine.class);
+        when(engine.executeWorkflow(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            String userInput = invocation.getArgument(0);
+            String sessionId = invocation.getArgument(1);
+            CompletableFuture<String> running = pending.remove(sessionId);
+            return running != null ? running : CompletableFuture.completedFuture(nodeId + ": " + userInput);
+        });
+        return new LocalEngineNode(nodeId, engine, sessionManagers.get(nodeId));
+    }
+
+    /**
+     * 每个会话执行一次请求
+     * @return 会话 -> 执行时所在的节点
+     */
+    private Map<String, String> runSessions() {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            String sessionId = "session-" + i;
+            router.execute(sessionId, "你好").join();
+            owners.put(sessionId, router.ownerOf(sessionId).id());
+        }
+        return owners;
+    }
+
+    /**
+     * 找一个在给定节点组成的环上归属target的会话
+     */
+    private static String sessionOwnedBy(String target, String... nodeIds) {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        for (String nodeId : nodeIds) {
+            ring.add(nodeId);
+        }
+        for (int i = 0; ; i++) {
+            String sessionId = "session-" + i;
+            if (target.equals(ring.nodeFor(sessionId))) {
+                return sessionId;
+            }
+        }
+    }
+
+    private List<Message> history(String nodeId, String sessionId) {
+        return sessionManagers.get(nodeId).exportSessionHistory(sessionId);
+    }
+}
@@ -0,0 +1,111 @@
+package com.zhouruojun.manus.domain.model;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PromptAssembler的追加、记忆窗口淘汰和重建判断测试
+ * 使用默认的Memory，其记忆窗口保留最近20条消息
+ */
+class PromptAssemblerTest {
+
+    private static final String CONVERSATION = "conversation";
+
+    private final Memory memory = new Memory();
+    private final PromptAssembler assembler = new PromptAssembler();
+
+    @Test
+    void countsOnlyNewMessagesWhenMemoryGrows() {
+        memory.addMessage(CONVERSATION, new SystemMessage("你是搜索助手"));
+        PromptAssembler.Assembly first = assemble(List.of(new UserMessage("查询java的最新版本")));
+        assertEquals(2, first.appendedMessages());
+
+        AssistantMessage reply = new AssistantMessage("java 25");
+        memory.addMessage(CONVERSATION, reply);
+        PromptAssembler.Assembly second = assemble(List.of());
+
+        assertFalse(second.rebuilt());
+        assertEquals(1, second.appendedMessages());
+        assertEquals(TokenManager.estimateTokensForMessage(reply), second.growthTokens());
+        assertEquals(TokenManager.estimateTokenCount(history()), second.totalTokens());
+    }
+
+    @Test
+    void treatsWindowEvictionFollowedByNewMessagesAsAppend() {
+        memory.addMessage(CONVERSATION, new SystemMessage("你是搜索助手"));
+        for (int i = 0; i < 19; i++) {
+            memory.addMessage(CONVERSATION, new UserMessage("第" + i + "步"));
+        }
+        assemble(List.of());
+        assertEquals(20, history().size());
+
+        List<Message> added = List.of(new UserMessage("第19步"), new AssistantMessage("第20步的回复"));
+        memory.addMessages(CONVERSATION, added);
+        PromptAssembler.Assembly next = assemble(List.of());
+
+        // 窗口淘汰了最早的两条，只有新增的两条计入增长
+        assertEquals(20, history().size());
+        assertFalse(next.rebuilt());
+        assertEquals(2, next.appendedMessages());
+        assertEquals(TokenManager.estimateTokenCount(added), next.growthTokens());
+        assertEquals(TokenManager.estimateTokenCount(history()), next.totalTokens());
+        assertEquals(history(), next.prompt().getInstructions());
+    }
+
+    @Test
+    void rebuildsAfterMemoryReset() {
+        assemble(List.of(new UserMessage("第一个问题"), new AssistantMessage("第一个回答")));
+
+        memory.getChatMemory().clear(CONVERSATION);
+        PromptAssembler.Assembly next = assemble(List.of(new UserMessage("新的问题")));
+
+        assertTrue(next.rebuilt());
+        assertEquals(1, next.appendedMessages());
+        assertEquals(TokenManager.estimateTokenCount(history()), next.totalTokens());
+    }
+
+    @Test
+    void rebuildsWhenRetainedMessagesChangeOrder() {
+        UserMessage question = new UserMessage("问题");
+        AssistantMessage answer = new AssistantMessage("回答");
+        assemble(List.of(question, answer));
+
+        memory.getChatMemory().clear(CONVERSATION);
+        memory.addMessages(CONVERSATION, List.of(answer, question));
+        PromptAssembler.Assembly next = assemble(List.of());
+
+        assertTrue(next.rebuilt());
+        assertEquals(2, next.appendedMessages());
+    }
+
+    @Test
+    void skipsSystemPromptAlreadyInMemory() {
+        memory.addMessage(CONVERSATION, new SystemMessage("你是搜索助手\n当前时间: 2026-10-17"));
+
+        PromptAssembler.Assembly assembly = assembler.assemble(List.of(new UserMessage("你好")),
+                List.of(new SystemMessage("你是搜索助手"), new SystemMessage("只使用中文回答")),
+                memory, null, CONVERSATION);
+
+        List<Message> instructions = assembly.prompt().getInstructions();
+        assertEquals(3, instructions.size());
+        assertEquals("只使用中文回答", instructions.get(0).getText());
+        assertEquals(history(), instructions.subList(1, 3));
+    }
+
+    private PromptAssembler.Assembly assemble(List<Message> messages) {
+        return assembler.assemble(messages, null, memory, null, CONVERSATION);
+    }
+
+    private List<Message> history() {
+        return memory.getChatMemory().get(CONVERSATION);
+    }
+}
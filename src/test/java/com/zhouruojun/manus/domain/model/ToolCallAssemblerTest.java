@@ -0,0 +1,88 @@
+package com.zhouruojun.manus.domain.model;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ToolCallAssembler的片段拼接和完整性判断测试
+ */
+class ToolCallAssemblerTest {
+
+    @Test
+    void emitsCallOnceItsArgumentsClose() {
+        ToolCallAssembler assembler = new ToolCallAssembler();
+
+        assertTrue(assembler.accept(List.of(fragment("call-1", "search", "{\"query\":"))).isEmpty());
+        assertTrue(assembler.accept(List.of(fragment("", "", "\"java"))).isEmpty());
+        List<AssistantMessage.ToolCall> completed = assembler.accept(List.of(fragment("", "", "\"}")));
+
+        assertEquals(List.of(new AssistantMessage.ToolCall("call-1", "function", "search", "{\"query\":\"java\"}")),
+                completed);
+        assertTrue(assembler.finish().isEmpty());
+    }
+
+    @Test
+    void ignoresBracketsInsideStrings() {
+        ToolCallAssembler assembler = new ToolCallAssembler();
+
+        assertTrue(assembler.accept(List.of(fragment("call-1", "search", "{\"query\":\"a}]\\\"b\""))).isEmpty());
+        List<AssistantMessage.ToolCall> completed = assembler.accept(List.of(fragment("", "", "}")));
+
+        assertEquals(1, completed.size());
+        assertEquals("{\"query\":\"a}]\\\"b\"}", completed.get(0).arguments());
+    }
+
+    @Test
+    void nextCallCompletesThePreviousOne() {
+        ToolCallAssembler assembler = new ToolCallAssembler();
+
+        // 第一个调用的参数没有闭合，第二个调用开始时视为完整
+        assertTrue(assembler.accept(List.of(fragment("call-1", "search", "{\"query\":\"java\""))).isEmpty());
+        List<AssistantMessage.ToolCall> completed = assembler.accept(List.of(
+                fragment("call-2", "analyze", "{}")));
+
+        assertEquals(List.of("call-1", "call-2"), completed.stream().map(AssistantMessage.ToolCall::id).toList());
+        assertEquals(List.of("search", "analyze"), assembler.toolCalls().stream().map(AssistantMessage.ToolCall::name).toList());
+    }
+
+    @Test
+    void appendsFragmentsToTheCallWithTheSameId() {
+        ToolCallAssembler assembler = new ToolCallAssembler();
+
+        assembler.accept(List.of(fragment("call-1", "search", "{\"query\":"), fragment("call-2", "analyze", "{\"data\":")));
+        List<AssistantMessage.ToolCall> completed = assembler.accept(List.of(fragment("call-2", "", "1}")));
+
+        assertEquals(List.of(new AssistantMessage.ToolCall("call-2", "function", "analyze", "{\"data\":1}")), completed);
+        assertEquals("{\"query\":", assembler.toolCalls().get(0).arguments());
+    }
+
+    @Test
+    void finishReturnsCallsThatNeverClosed() {
+        ToolCallAssembler assembler = new ToolCallAssembler();
+
+        assertTrue(assembler.accept(List.of(fragment("call-1", "now", null))).isEmpty());
+        List<AssistantMessage.ToolCall> remaining = assembler.finish();
+
+        assertEquals(List.of(new AssistantMessage.ToolCall("call-1", "function", "now", "")), remaining);
+        assertTrue(assembler.finish().isEmpty());
+        assertEquals(remaining, assembler.toolCalls());
+    }
+
+    @Test
+    void ignoresEmptyFragments() {
+        ToolCallAssembler assembler = new ToolCallAssembler();
+
+        assertTrue(assembler.accept(null).isEmpty());
+        assertTrue(assembler.accept(List.of()).isEmpty());
+        assertTrue(assembler.toolCalls().isEmpty());
+    }
+
+    private static AssistantMessage.ToolCall fragment(String id, String name, String arguments) {
+        return new AssistantMessage.ToolCall(id, id.isEmpty() ? "" : "function", name, arguments);
+    }
+}
@@ -0,0 +1,302 @@
+package com.zhouruojun.manus.infrastructure.checkpoint;
+
+import com.zhouruojun.manus.infrastructure.serializers.AgentSerializers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FileCheckpointSaver的恢复、分段回收和增量检查点测试
+ */
+class FileCheckpointSaverTest {
+
+    private static final String THREAD = "thread-1";
+    // 每条记录都会写满分段，写入后立即封存
+    private static final long ROLL_EVERY_RECORD = 1;
+    private static final long LARGE_SEGMENT = 16L * 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private FileCheckpointSaver saver;
+
+    @AfterEach
+    void closeSaver() throws IOException {
+        if (saver != null) {
+            saver.close();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 恢复
+    // ---------------------------------------------------------------------
+
+    @Test
+    void recoversCheckpointsAfterRestart() throws Exception {
+        saver = open(LARGE_SEGMENT, 1);
+        for (int step = 0; step < 3; step++) {
+            saver.put(config(THREAD), checkpoint("c" + step, state(step)));
+        }
+
+        reopen(LARGE_SEGMENT, 1);
+
+        List<Checkpoint> checkpoints = new ArrayList<>(saver.list(config(THREAD)));
+        assertEquals(List.of("c2", "c1", "c0"), ids(checkpoints));
+        assertEquals(state(2), saver.get(config(THREAD)).orElseThrow().getState());
+        assertEquals("next", checkpoints.get(0).getNextNodeId());
+    }
+
+    @Test
+    void truncatesTornTailOnRecovery() throws Exception {
+        saver = open(LARGE_SEGMENT, 1);
+        saver.put(config(THREAD), checkpoint("c0", state(0)));
+        saver.put(config(THREAD), checkpoint("c1", state(1)));
+        saver.close();
+
+        Path segment = segmentPath(1);
+        long intact = Files.size(segment);
+        // 写到一半的记录：长度字段声明的记录体比实际写入的长
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(12).putInt(4096).putInt(0).putInt(7).flip());
+        }
+
+        saver = open(LARGE_SEGMENT, 1);
+        assertEquals(intact, Files.size(segment));
+        assertEquals(2, saver.list(config(THREAD)).size());
+
+        saver.put(config(THREAD), checkpoint("c2", state(2)));
+        reopen(LARGE_SEGMENT, 1);
+        assertEquals("c2", saver.get(config(THREAD)).orElseThrow().getId());
+        assertEquals(3, saver.list(config(THREAD)).size());
+    }
+
+    @Test
+    void dropsRecordsFromFirstCrcMismatch() throws Exception {
+        saver = open(LARGE_SEGMENT, 1);
+        saver.put(config(THREAD), checkpoint("c0", state(0)));
+        saver.close();
+        long firstRecordEnd = Files.size(segmentPath(1));
+
+        saver = open(LARGE_SEGMENT, 1);
+        saver.put(config(THREAD), checkpoint("c1", state(1)));
+        saver.close();
+
+        // 翻转第二条记录体中的一个字节，长度仍然完整但CRC不匹配
+        flipByte(segmentPath(1), firstRecordEnd + 12);
+
+        saver = open(LARGE_SEGMENT, 1);
+        assertEquals(List.of("c0"), ids(saver.list(config(THREAD))));
+        assertEquals(firstRecordEnd, Files.size(segmentPath(1)));
+    }
+
+    @Test
+    void loadsSealedSegmentsFromIndexFilesAndRebuildsMissingOnes() throws Exception {
+        saver = open(ROLL_EVERY_RECORD, 1);
+        for (int step = 0; step < 3; step++) {
+            saver.put(config(THREAD), checkpoint("c" + step, state(step)));
+        }
+        saver.close();
+        assertTrue(Files.exists(indexPath(1)));
+        assertTrue(Files.exists(indexPath(2)));
+
+        // 缺少索引文件的已封存分段在恢复时扫描并补写索引
+        Files.delete(indexPath(2));
+
+        saver = open(ROLL_EVERY_RECORD, 1);
+        assertEquals(List.of("c2", "c1", "c0"), ids(saver.list(config(THREAD))));
+        assertEquals(state(1), get("c1").getState());
+        assertTrue(Files.exists(indexPath(2)));
+    }
+
+    // ---------------------------------------------------------------------
+    // 分段回收
+    // ---------------------------------------------------------------------
+
+    @Test
+    void rollsSegmentsAndReclaimsOnlyFromTheHead() throws Exception {
+        saver = open(ROLL_EVERY_RECORD, 1);
+        saver.put(config("a"), checkpoint("a1", state(0)));
+        saver.put(config("b"), checkpoint("b1", state(0)));
+        saver.put(config("a"), checkpoint("a2", state(1)));
+        assertEquals(4, saver.getSegmentCount());
+
+        // b1所在的分段已无存活记录，但更旧的分段仍有a1，不能越过它回收
+        assertTrue(saver.clear(config("b")));
+        assertTrue(Files.exists(segmentPath(2)));
+        assertTrue(saver.get(config("b")).isEmpty());
+
+        assertTrue(saver.clear(config("a")));
+        assertEquals(1, saver.getSegmentCount());
+        for (int id = 1; id <= 5; id++) {
+            assertFalse(Files.exists(segmentPath(id)), "分段 " + id + " 应已回收");
+            assertFalse(Files.exists(indexPath(id)), "索引 " + id + " 应已回收");
+        }
+
+        reopen(ROLL_EVERY_RECORD, 1);
+        assertTrue(saver.get(config("a")).isEmpty());
+        assertTrue(saver.get(config("b")).isEmpty());
+        assertEquals(0, saver.getThreadCount());
+    }
+
+    // ---------------------------------------------------------------------
+    // 增量检查点
+    // ---------------------------------------------------------------------
+
+    @Test
+    void reconstructsDeltaAndFullSnapshotsAfterRestart() throws Exception {
+        saver = open(LARGE_SEGMENT, 3);
+        Map<String, Map<String, Object>> expected = new HashMap<>();
+        for (int step = 0; step < 5; step++) {
+            Map<String, Object> state = state(step);
+            expected.put("c" + step, state);
+            saver.put(config(THREAD), checkpoint("c" + step, state));
+        }
+
+        // c0和c3是完整快照，其余只包含追加的消息和变化的通道
+        assertTrue(saver.storedBytes(config(THREAD), "c4") < saver.storedBytes(config(THREAD), "c3"));
+        assertTrue(saver.storedBytes(config(THREAD), "c1") < saver.storedBytes(config(THREAD), "c0"));
+        for (Map.Entry<String, Map<String, Object>> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), get(entry.getKey()).getState(), entry.getKey());
+        }
+
+        reopen(LARGE_SEGMENT, 3);
+        for (Map.Entry<String, Map<String, Object>> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), get(entry.getKey()).getState(), entry.getKey());
+        }
+        List<Checkpoint> listed = new ArrayList<>(saver.list(config(THREAD)));
+        assertEquals(List.of("c4", "c3", "c2", "c1", "c0"), ids(listed));
+        for (Checkpoint checkpoint : listed) {
+            assertEquals(expected.get(checkpoint.getId()), checkpoint.getState(), checkpoint.getId());
+        }
+
+        // 重启后第一个检查点没有增量基准，写完整快照
+        saver.put(config(THREAD), checkpoint("c5", state(5)));
+        assertEquals(state(5), get("c5").getState());
+    }
+
+    @Test
+    void keepsRemovedBaseWhileDeltasReferenceIt() throws Exception {
+        saver = open(LARGE_SEGMENT, 4);
+        for (int step = 0; step < 3; step++) {
+            saver.put(config(THREAD), checkpoint("c" + step, state(step)));
+        }
+
+        assertTrue(saver.remove(config(THREAD), "c0"));
+        assertEquals(List.of("c2", "c1"), ids(saver.list(config(THREAD))));
+        assertEquals(state(2), get("c2").getState());
+
+        reopen(LARGE_SEGMENT, 4);
+        assertEquals(List.of("c2", "c1"), ids(saver.list(config(THREAD))));
+        assertEquals(state(1), get("c1").getState());
+        assertEquals(state(2), get("c2").getState());
+    }
+
+    @Test
+    void clearingThreadReleasesRetainedBases() throws Exception {
+        saver = open(ROLL_EVERY_RECORD, 4);
+        for (int step = 0; step < 3; step++) {
+            saver.put(config(THREAD), checkpoint("c" + step, state(step)));
+        }
+        // c0被删除后仍是c1的基准，其分段不能回收
+        assertTrue(saver.remove(config(THREAD), "c0"));
+        assertTrue(Files.exists(segmentPath(1)));
+        assertEquals(state(2), get("c2").getState());
+
+        assertTrue(saver.clear(config(THREAD)));
+        assertEquals(1, saver.getSegmentCount());
+        assertFalse(Files.exists(segmentPath(1)));
+
+        reopen(ROLL_EVERY_RECORD, 4);
+        assertTrue(saver.list(config(THREAD)).isEmpty());
+        assertTrue(saver.get(config(THREAD)).isEmpty());
+    }
+
+    // ---------------------------------------------------------------------
+    // 辅助
+    // ---------------------------------------------------------------------
+
+    private FileCheckpointSaver open(long segmentSize, int snapshotInterval) {
+        return new FileCheckpointSaver(directory, AgentSerializers.STD.object(), segmentSize, 4, false,
+                snapshotInterval, new SimpleMeterRegistry());
+    }
+
+    private void reopen(long segmentSize, int snapshotInterval) throws IOException {
+        saver.close();
+        saver = open(segmentSize, snapshotInterval);
+    }
+
+    private Checkpoint get(String checkpointId) {
+        return saver.get(RunnableConfig.builder().threadId(THREAD).checkPointId(checkpointId).build()).orElseThrow();
+    }
+
+    private static RunnableConfig config(String threadId) {
+        return RunnableConfig.builder().threadId(threadId).build();
+    }
+
+    private static Checkpoint checkpoint(String id, Map<String, Object> state) {
+        return Checkpoint.builder()
+                .id(id)
+                .state(state)
+                .nodeId("node")
+                .nextNodeId("next")
+                .build();
+    }
+
+    /**
+     * 第step步的状态：消息只在末尾追加，step通道每步变化，temp通道只在前两步存在
+     */
+    private static Map<String, Object> state(int step) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("userInput", "比较两种检查点格式的大小");
+        state.put("step", "step-" + step);
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i <= step; i++) {
+            messages.add("message-" + i + " 这是一条足够长的消息内容，用于让完整快照明显大于增量记录");
+        }
+        state.put("messages", messages);
+        if (step < 2) {
+            state.put("temp", "temp-" + step);
+        }
+        return state;
+    }
+
+    private static List<String> ids(Collection<Checkpoint> checkpoints) {
+        return checkpoints.stream().map(Checkpoint::getId).toList();
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(String.format("checkpoints-%06d.log", id));
+    }
+
+    private Path indexPath(int id) {
+        return directory.resolve(String.format("checkpoints-%06d.idx", id));
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0xFF)).rewind();
+            channel.write(buffer, position);
+        }
+    }
+}
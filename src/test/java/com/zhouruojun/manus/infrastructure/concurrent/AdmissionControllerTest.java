@@ -0,0 +1,151 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AdmissionController的排队顺序、拒绝和许可释放测试
+ */
+class AdmissionControllerTest {
+
+    private static final Duration LONG_TIMEOUT = Duration.ofMinutes(1);
+
+    @Test
+    void grantsUpToTheLimitAndQueuesTheRest() {
+        AdmissionController controller = controller(2, 4, LONG_TIMEOUT, AdmissionController.SessionPolicy.QUEUE);
+
+        CompletableFuture<AdmissionController.Permit> a = controller.acquire("a");
+        CompletableFuture<AdmissionController.Permit> b = controller.acquire("b");
+        CompletableFuture<AdmissionController.Permit> c = controller.acquire("c");
+
+        assertTrue(a.isDone());
+        assertTrue(b.isDone());
+        assertFalse(c.isDone());
+        assertEquals(2, controller.getRunningCount());
+        assertEquals(1, controller.getQueueDepth());
+
+        a.join().close();
+        assertTrue(c.isDone());
+        assertEquals(2, controller.getRunningCount());
+        assertEquals(0, controller.getQueueDepth());
+    }
+
+    @Test
+    void grantsInArrivalOrderSkippingBusySessions() {
+        AdmissionController controller = controller(2, 4, LONG_TIMEOUT, AdmissionController.SessionPolicy.QUEUE);
+        AdmissionController.Permit a = controller.acquire("a").join();
+
+        // 有空闲名额时同一会话的请求仍然排队
+        CompletableFuture<AdmissionController.Permit> secondA = controller.acquire("a");
+        assertFalse(secondA.isDone());
+        AdmissionController.Permit b = controller.acquire("b").join();
+        CompletableFuture<AdmissionController.Permit> c = controller.acquire("c");
+        CompletableFuture<AdmissionController.Permit> d = controller.acquire("d");
+
+        // 队首的a仍在运行，跳过它授予c，d继续等待
+        b.close();
+        assertFalse(secondA.isDone());
+        assertTrue(c.isDone());
+        assertFalse(d.isDone());
+
+        a.close();
+        assertTrue(secondA.isDone());
+        assertFalse(d.isDone());
+
+        c.join().close();
+        assertTrue(d.isDone());
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() {
+        AdmissionController controller = controller(1, 1, LONG_TIMEOUT, AdmissionController.SessionPolicy.QUEUE);
+        controller.acquire("a").join();
+        CompletableFuture<AdmissionController.Permit> queued = controller.acquire("b");
+
+        CompletableFuture<AdmissionController.Permit> rejected = controller.acquire("c");
+
+        assertFalse(queued.isDone());
+        assertInstanceOf(RejectedExecutionException.class, failureOf(rejected));
+        assertEquals(1, controller.getQueueDepth());
+    }
+
+    @Test
+    void rejectsBusySessionUnderRejectPolicy() {
+        AdmissionController controller = controller(4, 4, LONG_TIMEOUT, AdmissionController.SessionPolicy.REJECT);
+        controller.acquire("a").join();
+
+        assertInstanceOf(RejectedExecutionException.class, failureOf(controller.acquire("a")));
+        assertTrue(controller.acquire("b").isDone());
+        assertEquals(0, controller.getQueueDepth());
+    }
+
+    @Test
+    void rejectsWaitersThatTimeOut() throws Exception {
+        AdmissionController controller = controller(1, 4, Duration.ofMillis(50), AdmissionController.SessionPolicy.QUEUE);
+        AdmissionController.Permit a = controller.acquire("a").join();
+
+        CompletableFuture<AdmissionController.Permit> waiting = controller.acquire("b");
+        ExecutionException error = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(0, controller.getQueueDepth());
+        a.close();
+        assertEquals(0, controller.getRunningCount());
+    }
+
+    @Test
+    void releasesEachPermitOnlyOnce() {
+        AdmissionController controller = controller(1, 4, LONG_TIMEOUT, AdmissionController.SessionPolicy.QUEUE);
+        AdmissionController.Permit a = controller.acquire("a").join();
+        CompletableFuture<AdmissionController.Permit> b = controller.acquire("b");
+
+        a.close();
+        a.close();
+
+        assertTrue(b.isDone());
+        assertEquals(1, controller.getRunningCount());
+        b.join().close();
+        assertEquals(0, controller.getRunningCount());
+    }
+
+    @Test
+    void returnsPermitGrantedToACancelledWaiter() {
+        AdmissionController controller = controller(1, 4, LONG_TIMEOUT, AdmissionController.SessionPolicy.QUEUE);
+        AdmissionController.Permit a = controller.acquire("a").join();
+        CompletableFuture<AdmissionController.Permit> cancelled = controller.acquire("b");
+        CompletableFuture<AdmissionController.Permit> c = controller.acquire("c");
+
+        cancelled.cancel(true);
+        a.close();
+
+        // b的许可被退回后授予下一个等待者
+        assertTrue(c.isDone());
+        assertEquals(1, controller.getRunningCount());
+        c.join().close();
+        assertEquals(0, controller.getRunningCount());
+    }
+
+    private static AdmissionController controller(int maxConcurrent, int maxQueueSize, Duration queueTimeout,
+                                                  AdmissionController.SessionPolicy policy) {
+        return new AdmissionController(maxConcurrent, maxQueueSize, queueTimeout, policy, new SimpleMeterRegistry());
+    }
+
+    private static Throwable failureOf(CompletableFuture<?> future) {
+        assertTrue(future.isCompletedExceptionally());
+        ExecutionException error = assertThrows(ExecutionException.class, future::get);
+        return error.getCause();
+    }
+}
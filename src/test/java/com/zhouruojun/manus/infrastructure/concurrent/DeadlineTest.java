@@ -0,0 +1,173 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+import com.zhouruojun.manus.infrastructure.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deadline的到期、取消和中断测试
+ */
+class DeadlineTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void expiresAfterTimeout() throws Exception {
+        Deadline deadline = Deadline.after(Duration.ofMillis(50));
+        assertFalse(deadline.isExpired());
+        deadline.check("开始");
+
+        Thread.sleep(80);
+
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.remainingMillis());
+        DeadlineExceededException error = assertThrows(DeadlineExceededException.class, () -> deadline.check("结束"));
+        assertFalse(error.isCancelled());
+    }
+
+    @Test
+    void missingTimeoutNeverExpires() {
+        Deadline deadline = Deadline.after(Duration.ZERO);
+
+        assertFalse(deadline.isExpired());
+        assertEquals(Long.MAX_VALUE, deadline.remainingMillis());
+        assertTrue(Deadline.at(System.currentTimeMillis() - 1).isExpired());
+    }
+
+    @Test
+    void callReturnsResultAndPropagatesTaskFailures() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+
+        assertEquals("value", deadline.call("调用", () -> "value"));
+        IllegalStateException failure = new IllegalStateException("失败");
+        assertSame(failure, assertThrows(IllegalStateException.class,
+                () -> deadline.call("调用", () -> {
+                    throw failure;
+                })));
+    }
+
+    @Test
+    void callRunsOnTheCallerThread() throws Exception {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            // 调用方占用执行器唯一的线程时，调用不依赖执行器的空闲线程
+            Future<Boolean> sameThread = single.submit(() -> {
+                Thread caller = Thread.currentThread();
+                return deadline.call("调用", () -> Thread.currentThread() == caller);
+            });
+            assertTrue(sameThread.get(5, TimeUnit.SECONDS));
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiryInterruptsTheCall() throws Exception {
+        Deadline deadline = Deadline.after(Duration.ofMillis(100));
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        DeadlineExceededException error = assertThrows(DeadlineExceededException.class,
+                () -> deadline.call("调用", blockUntilInterrupted(new CountDownLatch(1), interrupted)));
+
+        assertFalse(error.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        // 到期设置的中断标记在调用结束时清除，调用方线程可以继续执行
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    void cancelInterruptsInFlightCalls() throws Exception {
+        Deadline deadline = Deadline.none();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<Throwable> caller = CompletableFuture.supplyAsync(() -> {
+            try {
+                deadline.call("调用", blockUntilInterrupted(started, interrupted));
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            }
+        }, executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        deadline.cancel();
+
+        DeadlineExceededException error = assertInstanceOf(DeadlineExceededException.class, caller.get(5, TimeUnit.SECONDS));
+        assertTrue(error.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(deadline.isExpired());
+        assertTrue(assertThrows(DeadlineExceededException.class, () -> deadline.check("取消后")).isCancelled());
+    }
+
+    @Test
+    void cancelInterruptsSubmittedTasks() throws Exception {
+        Deadline deadline = Deadline.none();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        Future<String> submitted = deadline.submit("提交", blockUntilInterrupted(started, interrupted), executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        deadline.cancel();
+
+        assertTrue(submitted.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertThrows(DeadlineExceededException.class, () -> deadline.submit("取消后", () -> "value", executor));
+    }
+
+    @Test
+    void awaitCancelsSubmittedTaskOnExpiry() throws Exception {
+        Deadline deadline = Deadline.after(Duration.ofMillis(100));
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        Future<String> submitted = deadline.submit("提交", blockUntilInterrupted(new CountDownLatch(1), interrupted), executor);
+        assertThrows(DeadlineExceededException.class, () -> deadline.await("等待", submitted));
+
+        assertTrue(submitted.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void awaitReturnsCompletedResult() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+
+        Future<String> submitted = deadline.submit("提交", () -> "value", executor);
+
+        assertEquals("value", deadline.await("等待", submitted));
+    }
+
+    private static Callable<String> blockUntilInterrupted(CountDownLatch started,
+                                                          CountDownLatch interrupted) {
+        return () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+                return "value";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        };
+    }
+}
@@ -0,0 +1,141 @@
+package com.zhouruojun.manus.infrastructure.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SingleFlight的合并、结果窗口和取消测试
+ */
+class SingleFlightTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void followersShareTheLeadersCall() {
+        SingleFlight<String, String> flight = singleFlight(Duration.ZERO);
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        SingleFlight.Call<String> leader = flight.execute("key", counting(source));
+        SingleFlight.Call<String> follower = flight.execute("key", counting(source));
+        SingleFlight.Call<String> other = flight.execute("other", counting(CompletableFuture.completedFuture("other")));
+
+        assertFalse(leader.shared());
+        assertTrue(follower.shared());
+        assertFalse(other.shared());
+        assertEquals(2, calls.get());
+        assertNotSame(leader.future(), follower.future());
+
+        source.complete("value");
+        assertEquals("value", leader.future().join());
+        assertEquals("value", follower.future().join());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    void keepsResultForTheWindowThenExecutesAgain() throws Exception {
+        SingleFlight<String, String> flight = singleFlight(Duration.ofMillis(100));
+
+        assertEquals("value", flight.execute("key", counting(CompletableFuture.completedFuture("value"))).future().join());
+        SingleFlight.Call<String> withinWindow = flight.execute("key", counting(CompletableFuture.completedFuture("new")));
+        assertTrue(withinWindow.shared());
+        assertEquals("value", withinWindow.future().join());
+        assertEquals(1, calls.get());
+
+        awaitInFlight(flight, 0);
+        SingleFlight.Call<String> afterWindow = flight.execute("key", counting(CompletableFuture.completedFuture("new")));
+        assertFalse(afterWindow.shared());
+        assertEquals("new", afterWindow.future().join());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void doesNotKeepFailedResults() {
+        SingleFlight<String, String> flight = singleFlight(Duration.ofMinutes(1));
+
+        SingleFlight.Call<String> failed = flight.execute("key",
+                counting(CompletableFuture.failedFuture(new IllegalStateException("失败"))));
+        assertTrue(failed.future().isCompletedExceptionally());
+        assertEquals(0, flight.getInFlightCount());
+
+        SingleFlight.Call<String> retried = flight.execute("key", counting(CompletableFuture.completedFuture("value")));
+        assertFalse(retried.shared());
+        assertEquals("value", retried.future().join());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void supplierExceptionFailsTheCall() {
+        SingleFlight<String, String> flight = singleFlight(Duration.ofMinutes(1));
+
+        SingleFlight.Call<String> call = flight.execute("key", () -> {
+            throw new IllegalStateException("失败");
+        });
+
+        assertTrue(call.future().isCompletedExceptionally());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    void cancelsTheCallOnlyAfterEverySubscriberCancels() {
+        SingleFlight<String, String> flight = singleFlight(Duration.ZERO);
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        SingleFlight.Call<String> leader = flight.execute("key", counting(source));
+        SingleFlight.Call<String> first = flight.execute("key", counting(source));
+        SingleFlight.Call<String> second = flight.execute("key", counting(source));
+
+        leader.future().cancel(true);
+        first.future().cancel(true);
+        assertFalse(source.isCancelled());
+        assertFalse(second.future().isDone());
+        assertEquals(1, flight.getInFlightCount());
+
+        second.future().cancel(true);
+        assertTrue(source.isCancelled());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    void remainingSubscribersReceiveTheResultAfterOthersCancel() {
+        SingleFlight<String, String> flight = singleFlight(Duration.ZERO);
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        SingleFlight.Call<String> leader = flight.execute("key", counting(source));
+        SingleFlight.Call<String> follower = flight.execute("key", counting(source));
+
+        leader.future().cancel(true);
+        source.complete("value");
+
+        assertFalse(source.isCancelled());
+        assertEquals("value", follower.future().join());
+    }
+
+    private SingleFlight<String, String> singleFlight(Duration window) {
+        return new SingleFlight<>("test", window, new SimpleMeterRegistry());
+    }
+
+    private Supplier<CompletableFuture<String>> counting(CompletableFuture<String> result) {
+        return () -> {
+            calls.incrementAndGet();
+            return result;
+        };
+    }
+
+    private static void awaitInFlight(SingleFlight<?, ?> flight, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (flight.getInFlightCount() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, flight.getInFlightCount());
+    }
+}
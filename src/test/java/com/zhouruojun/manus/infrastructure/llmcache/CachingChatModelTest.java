@@ -0,0 +1,158 @@
+package com.zhouruojun.manus.infrastructure.llmcache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * CachingChatModel的缓存命中、流式汇总和绕过测试
+ */
+class CachingChatModelTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final LlmResponseCache cache = new LlmResponseCache(1 << 20, Duration.ofHours(1), null, registry);
+
+    @Test
+    void servesRepeatedCallsFromTheCache() {
+        FakeChatModel delegate = new FakeChatModel(List.of(chunk("你好", null, "STOP")));
+        CachingChatModel model = new CachingChatModel(delegate, cache, false);
+
+        assertEquals("你好", model.call(prompt(null)).getResult().getOutput().getText());
+        ChatResponse cached = model.call(prompt(null));
+
+        assertEquals("你好", cached.getResult().getOutput().getText());
+        assertEquals("STOP", cached.getResult().getMetadata().getFinishReason());
+        assertEquals(1, delegate.calls.get());
+    }
+
+    @Test
+    void aggregatesStreamedTextAndToolCallsIntoOneCachedResponse() {
+        FakeChatModel delegate = new FakeChatModel(List.of(
+                chunk("正在", null, null),
+                chunk("查询", new AssistantMessage.ToolCall("call-1", "function", "search", "{\"query\":"), null),
+                chunk(null, new AssistantMessage.ToolCall("", "", "", "\"java\"}"), null),
+                chunk(null, new AssistantMessage.ToolCall("call-2", "function", "analyze", "{}"), "TOOL_CALLS")));
+        CachingChatModel model = new CachingChatModel(delegate, cache, false);
+
+        // 未命中时原样透传模型的流
+        assertEquals(4, model.stream(prompt(null)).collectList().block().size());
+
+        List<ChatResponse> cached = model.stream(prompt(null)).collectList().block();
+        assertEquals(1, cached.size());
+        AssistantMessage output = cached.get(0).getResult().getOutput();
+        assertEquals("正在查询", output.getText());
+        assertEquals(List.of(
+                new AssistantMessage.ToolCall("call-1", "function", "search", "{\"query\":\"java\"}"),
+                new AssistantMessage.ToolCall("call-2", "function", "analyze", "{}")), output.getToolCalls());
+        assertEquals("TOOL_CALLS", cached.get(0).getResult().getMetadata().getFinishReason());
+
+        // 阻塞调用使用相同的键
+        assertEquals("正在查询", model.call(prompt(null)).getResult().getOutput().getText());
+        assertEquals(1, delegate.streams.get());
+        assertEquals(0, delegate.calls.get());
+    }
+
+    @Test
+    void doesNotCacheInterruptedStreams() {
+        FakeChatModel delegate = new FakeChatModel(List.of(chunk("部分", null, null)));
+        delegate.failStream = true;
+        CachingChatModel model = new CachingChatModel(delegate, cache, false);
+
+        assertThrows(IllegalStateException.class, () -> model.stream(prompt(null)).collectList().block());
+        assertThrows(IllegalStateException.class, () -> model.stream(prompt(null)).collectList().block());
+
+        assertEquals(2, delegate.streams.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void bypassesSampledRequestsWhenConfigured() {
+        FakeChatModel delegate = new FakeChatModel(List.of(chunk("你好", null, "STOP")));
+        CachingChatModel model = new CachingChatModel(delegate, cache, true);
+        Prompt sampled = prompt(ChatOptions.builder().temperature(0.7).build());
+
+        model.call(sampled);
+        model.call(sampled);
+        model.call(prompt(null));
+        model.call(prompt(null));
+
+        // 默认温度为0的请求仍然缓存
+        assertEquals(3, delegate.calls.get());
+        assertEquals(2.0, registry.get("manus.llm.cache").tag("result", "bypass").counter().count());
+    }
+
+    @Test
+    void cachesSampledRequestsByDefault() {
+        FakeChatModel delegate = new FakeChatModel(List.of(chunk("你好", null, "STOP")));
+        CachingChatModel model = new CachingChatModel(delegate, cache, false);
+        Prompt sampled = prompt(ChatOptions.builder().temperature(0.7).build());
+
+        model.call(sampled);
+        model.call(sampled);
+
+        assertEquals(1, delegate.calls.get());
+    }
+
+    private static Prompt prompt(ChatOptions options) {
+        List<Message> messages = List.of(new UserMessage("查询java的最新版本"));
+        return options != null ? new Prompt(messages, options) : new Prompt(messages);
+    }
+
+    private static ChatResponse chunk(String text, AssistantMessage.ToolCall toolCall, String finishReason) {
+        AssistantMessage output = new AssistantMessage(text, Map.of(), toolCall != null ? List.of(toolCall) : List.of());
+        ChatGenerationMetadata metadata = finishReason != null
+                ? ChatGenerationMetadata.builder().finishReason(finishReason).build()
+                : ChatGenerationMetadata.NULL;
+        return new ChatResponse(List.of(new Generation(output, metadata)));
+    }
+
+    /**
+     * 返回固定片段的模型，call返回最后一个片段，stream依次返回全部片段
+     */
+    private static final class FakeChatModel implements ChatModel {
+        private final List<ChatResponse> chunks;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger streams = new AtomicInteger();
+        private boolean failStream;
+
+        private FakeChatModel(List<ChatResponse> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            calls.incrementAndGet();
+            return chunks.get(chunks.size() - 1);
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            streams.incrementAndGet();
+            Flux<ChatResponse> flux = Flux.fromIterable(chunks);
+            return failStream ? flux.concatWith(Flux.error(new IllegalStateException("连接中断"))) : flux;
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return ChatOptions.builder().model("gpt-4o-mini").temperature(0.0).build();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.zhouruojun.manus.infrastructure.llmcache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * LlmCacheKey的规范化测试：工具顺序和默认参数不影响键，内容变化改变键
+ */
+class LlmCacheKeyTest {
+
+    private static final ChatOptions DEFAULTS = ChatOptions.builder()
+            .model("gpt-4o-mini")
+            .temperature(0.0)
+            .maxTokens(1024)
+            .build();
+
+    @Test
+    void isStableAcrossToolRegistrationOrder() {
+        ToolCallingChatOptions forward = ToolCallingChatOptions.builder()
+                .toolCallbacks(List.of(tool("search"), tool("analyze")))
+                .toolNames(Set.of("search", "analyze"))
+                .build();
+        ToolCallingChatOptions reversed = ToolCallingChatOptions.builder()
+                .toolCallbacks(List.of(tool("analyze"), tool("search")))
+                .toolNames(Set.of("analyze", "search"))
+                .build();
+
+        assertEquals(LlmCacheKey.of(prompt(forward, "查询天气"), DEFAULTS),
+                LlmCacheKey.of(prompt(reversed, "查询天气"), DEFAULTS));
+    }
+
+    @Test
+    void unspecifiedOptionsTakeTheModelDefaults() {
+        ChatOptions explicit = ChatOptions.builder()
+                .model("gpt-4o-mini")
+                .temperature(0.0)
+                .maxTokens(1024)
+                .build();
+        ChatOptions partial = ChatOptions.builder()
+                .temperature(0.0)
+                .build();
+
+        String implicit = LlmCacheKey.of(prompt(null, "你好"), DEFAULTS);
+        assertEquals(implicit, LlmCacheKey.of(prompt(explicit, "你好"), DEFAULTS));
+        assertEquals(implicit, LlmCacheKey.of(prompt(partial, "你好"), DEFAULTS));
+        assertNotEquals(implicit, LlmCacheKey.of(prompt(ChatOptions.builder().temperature(0.7).build(), "你好"), DEFAULTS));
+        assertNotEquals(implicit, LlmCacheKey.of(prompt(ChatOptions.builder().model("gpt-4o").build(), "你好"), DEFAULTS));
+    }
+
+    @Test
+    void changesWithMessageContent() {
+        String base = LlmCacheKey.of(new Prompt(List.of(new SystemMessage("系统"), new UserMessage("你好"))), DEFAULTS);
+
+        assertEquals(base, LlmCacheKey.of(new Prompt(List.of(new SystemMessage("系统"), new UserMessage("你好"))), DEFAULTS));
+        assertNotEquals(base, LlmCacheKey.of(new Prompt(List.of(new SystemMessage("系统"), new UserMessage("您好"))), DEFAULTS));
+        // 相同文本、不同消息类型
+        assertNotEquals(base, LlmCacheKey.of(new Prompt(List.of(new UserMessage("系统"), new UserMessage("你好"))), DEFAULTS));
+        // 消息边界不同
+        assertNotEquals(base, LlmCacheKey.of(new Prompt(List.of(new SystemMessage("系统你好"))), DEFAULTS));
+    }
+
+    @Test
+    void includesToolCallArguments() {
+        String first = LlmCacheKey.of(new Prompt(List.of(new UserMessage("查询"), toolCall("{\"query\":\"java\"}"))), DEFAULTS);
+        String second = LlmCacheKey.of(new Prompt(List.of(new UserMessage("查询"), toolCall("{\"query\":\"go\"}"))), DEFAULTS);
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void resolvesEffectiveTemperature() {
+        assertEquals(0.0, LlmCacheKey.temperature(prompt(null, "你好"), DEFAULTS));
+        assertEquals(0.7, LlmCacheKey.temperature(prompt(ChatOptions.builder().temperature(0.7).build(), "你好"), DEFAULTS));
+        assertNull(LlmCacheKey.temperature(prompt(null, "你好"), null));
+    }
+
+    private static Prompt prompt(ChatOptions options, String text) {
+        List<Message> messages = List.of(new UserMessage(text));
+        return options != null ? new Prompt(messages, options) : new Prompt(messages);
+    }
+
+    private static AssistantMessage toolCall(String arguments) {
+        return new AssistantMessage("", Map.of(),
+                List.of(new AssistantMessage.ToolCall("call-1", "function", "search", arguments)));
+    }
+
+    private static ToolCallback tool(String name) {
+        ToolDefinition definition = ToolDefinition.builder()
+                .name(name)
+                .description(name + " 工具")
+                .inputSchema("{\"type\":\"object\"}")
+                .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return "";
+            }
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package com.zhouruojun.manus.infrastructure.llmcache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LlmResponseCache的字节预算、TTL和磁盘层测试
+ */
+class LlmResponseCacheTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesBeyondTheByteBudget() {
+        CachedResponse response = response("回复", System.currentTimeMillis());
+        long entryBytes = response.sizeBytes() + 2L * "k-1".length();
+        LlmResponseCache cache = new LlmResponseCache(3 * entryBytes, TTL, null, registry);
+
+        cache.put("k-1", response);
+        cache.put("k-2", response);
+        cache.put("k-3", response);
+        assertTrue(cache.get("k-1").isPresent());
+        cache.put("k-4", response);
+
+        // k-1刚被访问过，淘汰最久未访问的k-2
+        assertEquals(3, cache.size());
+        assertEquals(3 * entryBytes, cache.sizeBytes());
+        assertTrue(cache.get("k-2").isEmpty());
+        assertTrue(cache.get("k-1").isPresent());
+        assertTrue(cache.get("k-3").isPresent());
+        assertTrue(cache.get("k-4").isPresent());
+    }
+
+    @Test
+    void replacingAnEntryKeepsTheByteCountAccurate() {
+        LlmResponseCache cache = new LlmResponseCache(1 << 20, TTL, null, registry);
+
+        cache.put("key", response("短", System.currentTimeMillis()));
+        CachedResponse longer = response("更长的一条回复内容", System.currentTimeMillis());
+        cache.put("key", longer);
+
+        assertEquals(1, cache.size());
+        assertEquals(longer.sizeBytes() + 2L * "key".length(), cache.sizeBytes());
+        assertEquals("更长的一条回复内容", cache.get("key").orElseThrow().text());
+    }
+
+    @Test
+    void skipsEntriesLargerThanTheBudget() {
+        CachedResponse response = response("回复", System.currentTimeMillis());
+        LlmResponseCache cache = new LlmResponseCache(response.sizeBytes() - 1, TTL, null, registry);
+
+        cache.put("key", response);
+
+        assertEquals(0, cache.size());
+        assertTrue(cache.get("key").isEmpty());
+    }
+
+    @Test
+    void expiresEntriesAfterTheTtl() {
+        LlmResponseCache cache = new LlmResponseCache(1 << 20, Duration.ofMinutes(1), null, registry);
+        long now = System.currentTimeMillis();
+
+        cache.put("fresh", response("新", now));
+        cache.put("stale", response("旧", now - Duration.ofMinutes(2).toMillis()));
+
+        assertTrue(cache.get("fresh").isPresent());
+        assertTrue(cache.get("stale").isEmpty());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void promotesDiskHitsIntoMemory() {
+        new LlmResponseCache(1 << 20, TTL, directory, registry)
+                .put("key", response("磁盘上的回复", System.currentTimeMillis()));
+
+        // 新实例的内存层为空，从磁盘读取后提升到内存层
+        LlmResponseCache restarted = new LlmResponseCache(1 << 20, TTL, directory, registry);
+        assertEquals(0, restarted.size());
+        CachedResponse stored = restarted.get("key").orElseThrow();
+        assertEquals("磁盘上的回复", stored.text());
+        assertEquals(List.of(new CachedResponse.CachedToolCall("call-1", "function", "search", "{}")), stored.toolCalls());
+        assertEquals(1, restarted.size());
+        restarted.get("key");
+
+        assertEquals(1.0, hits("disk"));
+        assertEquals(1.0, hits("memory"));
+    }
+
+    @Test
+    void clearKeepsTheDiskTier() {
+        LlmResponseCache cache = new LlmResponseCache(1 << 20, TTL, directory, registry);
+        cache.put("key", response("回复", System.currentTimeMillis()));
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.sizeBytes());
+        assertTrue(cache.get("key").isPresent());
+    }
+
+    @Test
+    void removesExpiredFilesAtStartup() {
+        new LlmResponseCache(1 << 20, Duration.ofMinutes(1), directory, registry)
+                .put("stale", response("旧", System.currentTimeMillis() - Duration.ofMinutes(2).toMillis()));
+        assertTrue(Files.exists(directory.resolve("stale.json")));
+
+        LlmResponseCache restarted = new LlmResponseCache(1 << 20, Duration.ofMinutes(1), directory, registry);
+
+        assertFalse(Files.exists(directory.resolve("stale.json")));
+        assertTrue(restarted.get("stale").isEmpty());
+    }
+
+    private double hits(String tier) {
+        return registry.get("manus.llm.cache").tag("result", "hit").tag("tier", tier).counter().count();
+    }
+
+    private static CachedResponse response(String text, long createdAt) {
+        return new CachedResponse(text, List.of(new CachedResponse.CachedToolCall("call-1", "function", "search", "{}")),
+                "STOP", 42, createdAt);
+    }
+}